@@ -0,0 +1,127 @@
+package com.bumptech.glide.gifdecoder;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures decoding successive frames of a GIF with {@link StandardGifDecoder#getNextFrame()}.
+ *
+ * <p>Bitmaps and arrays are reused, as they are by Glide's pooled
+ * {@link GifDecoder.BitmapProvider}, so that allocation rates reflect the decoder itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StandardGifDecoderBenchmark {
+  private static final String RESOURCE_NAME = "/test.gif";
+
+  private StandardGifDecoder decoder;
+  private ReusingBitmapProvider bitmapProvider;
+  private Bitmap previousFrame;
+
+  @Setup
+  public void setUp() throws IOException {
+    byte[] data = readResource();
+    GifHeader header = new GifHeaderParser().setData(data).parseHeader();
+    bitmapProvider = new ReusingBitmapProvider();
+    decoder = new StandardGifDecoder(bitmapProvider);
+    decoder.setData(header, data);
+  }
+
+  @Benchmark
+  public Bitmap getNextFrame() {
+    decoder.advance();
+    Bitmap frame = decoder.getNextFrame();
+    // As in GifFrameLoader, the previous frame is released once the next frame is ready.
+    if (previousFrame != null) {
+      bitmapProvider.release(previousFrame);
+    }
+    previousFrame = frame;
+    return frame;
+  }
+
+  private static byte[] readResource() throws IOException {
+    InputStream is = StandardGifDecoderBenchmark.class.getResourceAsStream(RESOURCE_NAME);
+    if (is == null) {
+      throw new IOException("Missing benchmark resource: " + RESOURCE_NAME);
+    }
+    try {
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        os.write(buffer, 0, read);
+      }
+      return os.toByteArray();
+    } finally {
+      is.close();
+    }
+  }
+
+  /** Holds on to, and hands back out, the most recently released objects of each type. */
+  private static final class ReusingBitmapProvider implements GifDecoder.BitmapProvider {
+    private Bitmap bitmap;
+    private byte[] bytes;
+    private int[] ints;
+
+    @NonNull
+    @Override
+    public Bitmap obtain(int width, int height, @NonNull Bitmap.Config config) {
+      Bitmap result = bitmap;
+      bitmap = null;
+      if (result == null || result.getWidth() != width || result.getHeight() != height
+          || result.getConfig() != config) {
+        result = Bitmap.createBitmap(width, height, config);
+      }
+      return result;
+    }
+
+    @Override
+    public void release(@NonNull Bitmap bitmap) {
+      this.bitmap = bitmap;
+    }
+
+    @NonNull
+    @Override
+    public byte[] obtainByteArray(int size) {
+      byte[] result = bytes;
+      bytes = null;
+      return result != null && result.length >= size ? result : new byte[size];
+    }
+
+    @Override
+    public void release(@NonNull byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @NonNull
+    @Override
+    public int[] obtainIntArray(int size) {
+      int[] result = ints;
+      ints = null;
+      return result != null && result.length >= size ? result : new int[size];
+    }
+
+    @Override
+    public void release(@NonNull int[] array) {
+      this.ints = array;
+    }
+  }
+}
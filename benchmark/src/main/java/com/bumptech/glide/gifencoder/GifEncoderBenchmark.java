@@ -0,0 +1,74 @@
+package com.bumptech.glide.gifencoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the two expensive steps of encoding a GIF frame, quantizing colors with
+ * {@link NeuQuant} and compressing the indexed pixels with {@link LZWEncoder}, using the same
+ * arguments as {@link AnimatedGifEncoder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GifEncoderBenchmark {
+  private static final int WIDTH = 256;
+  private static final int HEIGHT = 256;
+  // AnimatedGifEncoder's default sample interval.
+  private static final int SAMPLE = 10;
+  private static final int COLOR_DEPTH = 8;
+
+  // BGR triplets, as produced by AnimatedGifEncoder.
+  private byte[] pixels;
+  private byte[] indexedPixels;
+  private final ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+  @Setup
+  public void setUp() {
+    // A gradient with some noise approximates a photo better than random or flat colors.
+    Random random = new Random(0);
+    pixels = new byte[WIDTH * HEIGHT * 3];
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        int i = (y * WIDTH + x) * 3;
+        pixels[i] = (byte) (x + random.nextInt(16));
+        pixels[i + 1] = (byte) (y + random.nextInt(16));
+        pixels[i + 2] = (byte) ((x + y) / 2 + random.nextInt(16));
+      }
+    }
+    indexedPixels = quantize();
+  }
+
+  @Benchmark
+  public byte[] quantize() {
+    NeuQuant neuQuant = new NeuQuant(pixels, pixels.length, SAMPLE);
+    neuQuant.process();
+    byte[] result = new byte[WIDTH * HEIGHT];
+    for (int i = 0, k = 0; i < result.length; i++) {
+      result[i] = (byte) neuQuant.map(pixels[k++] & 0xff, pixels[k++] & 0xff, pixels[k++] & 0xff);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int lzwEncode() throws IOException {
+    os.reset();
+    new LZWEncoder(WIDTH, HEIGHT, indexedPixels, COLOR_DEPTH).encode(os);
+    return os.size();
+  }
+}
@@ -0,0 +1,95 @@
+package com.bumptech.glide.load.engine;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Option;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.util.CachedHashCodeArrayMap;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures creating an {@link EngineKey} and looking it up in a map, which {@link Engine} does for
+ * every load to check the memory cache, active resources and in progress jobs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineKeyBenchmark {
+  private static final int KEY_COUNT = 256;
+  private static final Option<Boolean> OPTION = Option.memory("benchmark.Option", false);
+
+  private final Map<EngineKey, Object> map = new HashMap<>();
+  private final String[] models = new String[KEY_COUNT];
+  private Key signature;
+  private Map<Class<?>, Transformation<?>> transformations;
+  private Options options;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    signature = new ObjectKey("signature");
+    transformations = new CachedHashCodeArrayMap<>();
+    transformations.put(Object.class, new NoopTransformation());
+    options = new Options();
+    options.set(OPTION, true);
+    for (int i = 0; i < KEY_COUNT; i++) {
+      models[i] = "https://www.example.com/images/" + i + ".jpg";
+      map.put(newKey(models[i]), new Object());
+    }
+  }
+
+  @Benchmark
+  public Object createAndGet() {
+    return map.get(newKey(models[index++ & (KEY_COUNT - 1)]));
+  }
+
+  private EngineKey newKey(String model) {
+    return new EngineKey(
+        model, signature, 100, 100, transformations, Object.class, Object.class, options);
+  }
+
+  private static final class NoopTransformation implements Transformation<Object> {
+    @NonNull
+    @Override
+    public Resource<Object> transform(@NonNull Context context, @NonNull Resource<Object> resource,
+        int outWidth, int outHeight) {
+      return resource;
+    }
+
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+      messageDigest.update(ID_BYTES);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof NoopTransformation;
+    }
+
+    @Override
+    public int hashCode() {
+      return ID_BYTES.length;
+    }
+
+    private static final byte[] ID_BYTES = "NoopTransformation".getBytes(CHARSET);
+  }
+}
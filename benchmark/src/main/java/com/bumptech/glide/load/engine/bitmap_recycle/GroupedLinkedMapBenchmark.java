@@ -0,0 +1,83 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link GroupedLinkedMap} with a varying number of distinct groups.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupedLinkedMapBenchmark {
+  @Param({"4", "64"})
+  public int groupCount;
+
+  private GroupedLinkedMap<GroupKey, Object> map;
+  private GroupKey[] keys;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    map = new GroupedLinkedMap<>();
+    keys = new GroupKey[groupCount];
+    for (int i = 0; i < groupCount; i++) {
+      keys[i] = new GroupKey(i);
+      // Keep a few values in each group so that gets never miss.
+      for (int j = 0; j < 4; j++) {
+        map.put(keys[i], new Object());
+      }
+    }
+  }
+
+  @Benchmark
+  public Object getAndPut() {
+    GroupKey key = keys[index++ % groupCount];
+    Object value = map.get(key);
+    map.put(key, value);
+    return value;
+  }
+
+  @Benchmark
+  public Object removeLastAndPut() {
+    Object value = map.removeLast();
+    map.put(keys[index++ % groupCount], value);
+    return value;
+  }
+
+  private static final class GroupKey implements Poolable {
+    private final int id;
+
+    GroupKey(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public void offer() {
+      // Keys are reused by the benchmark, not pooled.
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof GroupKey && ((GroupKey) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return id;
+    }
+  }
+}
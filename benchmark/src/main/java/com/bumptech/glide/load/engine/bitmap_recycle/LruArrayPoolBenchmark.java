@@ -0,0 +1,52 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures obtaining and returning arrays of a handful of commonly requested sizes, which is what
+ * decoders do for every image they decode.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LruArrayPoolBenchmark {
+  // Typical sizes for decode buffers, header parsing and GIF decoding.
+  private static final int[] SIZES = new int[] { 64 * 1024, 16 * 1024, 4 * 1024, 256 };
+
+  private LruArrayPool arrayPool;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    arrayPool = new LruArrayPool();
+  }
+
+  @Benchmark
+  public byte[] getAndPutByteArray() {
+    int size = SIZES[index++ & (SIZES.length - 1)];
+    byte[] array = arrayPool.get(size, byte[].class);
+    arrayPool.put(array);
+    return array;
+  }
+
+  @Benchmark
+  public int[] getAndPutIntArray() {
+    int size = SIZES[index++ & (SIZES.length - 1)];
+    int[] array = arrayPool.get(size, int[].class);
+    arrayPool.put(array);
+    return array;
+  }
+}
@@ -0,0 +1,94 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.graphics.Bitmap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link LruPoolStrategy} implementations used by {@link LruBitmapPool} on a pool
+ * containing a mix of sizes and configs, as happens while scrolling a list of images.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LruPoolStrategyBenchmark {
+  private static final int[] DIMENSIONS = new int[] { 100, 200, 300, 400, 500, 600, 700, 800 };
+  private static final Bitmap.Config[] CONFIGS =
+      new Bitmap.Config[] { Bitmap.Config.ARGB_8888, Bitmap.Config.RGB_565 };
+
+  @Param({"SizeClassStrategy", "SizeConfigStrategy", "AttributeStrategy"})
+  public String strategyName;
+
+  private LruPoolStrategy strategy;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    switch (strategyName) {
+      case "SizeClassStrategy":
+        strategy = new SizeClassStrategy();
+        break;
+      case "SizeConfigStrategy":
+        strategy = new SizeConfigStrategy();
+        break;
+      case "AttributeStrategy":
+        strategy = new AttributeStrategy();
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown strategy: " + strategyName);
+    }
+    for (int dimension : DIMENSIONS) {
+      for (Bitmap.Config config : CONFIGS) {
+        strategy.put(Bitmap.createBitmap(dimension, dimension, config));
+      }
+    }
+  }
+
+  /** Requests the exact size of a pooled {@link Bitmap}, which every strategy can satisfy. */
+  @Benchmark
+  public Bitmap getAndPutSameSize() {
+    int current = index++;
+    int dimension = DIMENSIONS[current & (DIMENSIONS.length - 1)];
+    Bitmap.Config config = CONFIGS[(current >>> 3) & 1];
+    Bitmap bitmap = strategy.get(dimension, dimension, config);
+    strategy.put(bitmap);
+    return bitmap;
+  }
+
+  /**
+   * Requests a slightly smaller size than a pooled {@link Bitmap}, which {@link AttributeStrategy}
+   * never satisfies, so that the other strategies have to find the best fit.
+   */
+  @Benchmark
+  public Bitmap getAndPutSmallerSize() {
+    int current = index++;
+    int dimension = DIMENSIONS[current & (DIMENSIONS.length - 1)];
+    Bitmap.Config config = CONFIGS[(current >>> 3) & 1];
+    Bitmap bitmap = strategy.get(dimension - 10, dimension - 10, config);
+    if (bitmap != null) {
+      strategy.put(bitmap);
+    }
+    return bitmap;
+  }
+
+  /** Evicts the least recently used {@link Bitmap} and returns it, as trimming the pool does. */
+  @Benchmark
+  public Bitmap removeLastAndPut() {
+    Bitmap bitmap = strategy.removeLast();
+    strategy.put(bitmap);
+    return bitmap;
+  }
+}
@@ -0,0 +1,54 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.graphics.Bitmap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures retrieving {@link Bitmap}s from, and returning them to, a {@link SizeConfigStrategy}
+ * containing a mix of sizes and configs, as happens while scrolling a list of images.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SizeConfigStrategyBenchmark {
+  private static final int[] DIMENSIONS = new int[] { 100, 200, 300, 400, 500, 600, 700, 800 };
+  private static final Bitmap.Config[] CONFIGS =
+      new Bitmap.Config[] { Bitmap.Config.ARGB_8888, Bitmap.Config.RGB_565 };
+
+  private SizeConfigStrategy strategy;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    strategy = new SizeConfigStrategy();
+    for (int dimension : DIMENSIONS) {
+      for (Bitmap.Config config : CONFIGS) {
+        strategy.put(Bitmap.createBitmap(dimension, dimension, config));
+      }
+    }
+  }
+
+  @Benchmark
+  public Bitmap getAndPut() {
+    int current = index++;
+    int dimension = DIMENSIONS[current & (DIMENSIONS.length - 1)];
+    Bitmap.Config config = CONFIGS[(current >>> 3) & 1];
+    // Request a slightly smaller size so that the strategy has to search for the best fit.
+    Bitmap bitmap = strategy.get(dimension - 10, dimension - 10, config);
+    strategy.put(bitmap);
+    return bitmap;
+  }
+}
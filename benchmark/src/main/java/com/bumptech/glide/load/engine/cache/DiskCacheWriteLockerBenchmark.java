@@ -0,0 +1,69 @@
+package com.bumptech.glide.load.engine.cache;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures acquiring and releasing {@link DiskCacheWriteLocker} locks from as many threads as
+ * Glide's source and disk cache executors use.
+ *
+ * <p>With many keys, threads rarely want the same lock, so this measures contention in the
+ * locker itself. With few keys, threads frequently wait on each other for the same lock.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(5)
+public class DiskCacheWriteLockerBenchmark {
+
+  /** The locker and keys shared by all threads. */
+  @State(Scope.Benchmark)
+  public static class SharedState {
+    @Param({"4", "1024"})
+    public int keyCount;
+
+    DiskCacheWriteLocker locker;
+    String[] keys;
+
+    @Setup
+    public void setUp() {
+      locker = new DiskCacheWriteLocker();
+      keys = new String[keyCount];
+      for (int i = 0; i < keyCount; i++) {
+        keys[i] = "key" + i;
+      }
+    }
+  }
+
+  /** Per thread state so that threads don't contend on a shared counter. */
+  @State(Scope.Thread)
+  public static class ThreadState {
+    int index;
+
+    @Setup
+    public void setUp() {
+      // Start threads at different keys.
+      index = (int) Thread.currentThread().getId() * 31;
+    }
+  }
+
+  @Benchmark
+  public void acquireAndRelease(SharedState shared, ThreadState thread) {
+    String key = shared.keys[(thread.index++ & Integer.MAX_VALUE) % shared.keyCount];
+    shared.locker.acquire(key);
+    shared.locker.release(key);
+  }
+}
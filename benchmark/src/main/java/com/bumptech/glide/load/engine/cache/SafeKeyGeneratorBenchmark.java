@@ -0,0 +1,64 @@
+package com.bumptech.glide.load.engine.cache;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link SafeKeyGenerator} from as many threads as Glide's source and disk cache
+ * executors use, for keys that are cached and for keys that require a new digest.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(5)
+public class SafeKeyGeneratorBenchmark {
+  // Fewer keys than the generator caches.
+  private static final int CACHED_KEY_COUNT = 512;
+
+  /** The generator and keys shared by all threads. */
+  @State(Scope.Benchmark)
+  public static class SharedState {
+    SafeKeyGenerator generator;
+    Key[] keys;
+
+    @Setup
+    public void setUp() {
+      generator = new SafeKeyGenerator();
+      keys = new Key[CACHED_KEY_COUNT];
+      for (int i = 0; i < CACHED_KEY_COUNT; i++) {
+        keys[i] = new ObjectKey("https://www.example.com/images/" + i + ".jpg");
+        generator.getSafeKey(keys[i]);
+      }
+    }
+  }
+
+  /** Per thread state so that threads don't contend on a shared counter. */
+  @State(Scope.Thread)
+  public static class ThreadState {
+    int index;
+  }
+
+  @Benchmark
+  public String getCachedSafeKey(SharedState shared, ThreadState thread) {
+    return shared.generator.getSafeKey(shared.keys[thread.index++ & (CACHED_KEY_COUNT - 1)]);
+  }
+
+  @Benchmark
+  public String getUncachedSafeKey(SharedState shared, ThreadState thread) {
+    return shared.generator.getSafeKey(new ObjectKey(thread.index++));
+  }
+}
@@ -0,0 +1,132 @@
+package com.bumptech.glide.load.model;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.Pools.Pool;
+import android.support.v4.util.Pools.SynchronizedPool;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.signature.ObjectKey;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures looking up {@link ModelLoader}s and data classes in a {@link ModelLoaderRegistry} from
+ * as many threads as Glide's source and disk cache executors use.
+ *
+ * <p>Every load looks up its {@link ModelLoader}s at least once, so lookups of already built
+ * loaders are by far the most common operation and shouldn't contend with each other.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(5)
+@State(Scope.Benchmark)
+public class ModelLoaderRegistryBenchmark {
+  private static final int LOADERS_PER_MODEL = 4;
+
+  private ModelLoaderRegistry registry;
+
+  @Setup
+  public void setUp() {
+    Pool<List<Throwable>> throwableListPool = new SynchronizedPool<>(20);
+    registry = new ModelLoaderRegistry(throwableListPool);
+    for (int i = 0; i < LOADERS_PER_MODEL; i++) {
+      registry.append(String.class, InputStream.class, new BenchmarkFactory<String, InputStream>());
+      registry.append(String.class, ByteBuffer.class, new BenchmarkFactory<String, ByteBuffer>());
+      registry.append(
+          Integer.class, InputStream.class, new BenchmarkFactory<Integer, InputStream>());
+    }
+    // Builds the loaders for each model class up front, as the first few loads in an app would.
+    registry.getModelLoaders("model");
+    registry.getModelLoaders(1);
+  }
+
+  @Benchmark
+  public List<ModelLoader<String, ?>> getModelLoaders() {
+    return registry.getModelLoaders("model");
+  }
+
+  @Benchmark
+  public List<Class<?>> getDataClasses() {
+    return registry.getDataClasses(String.class);
+  }
+
+  private static final class BenchmarkFactory<Model, Data>
+      implements ModelLoaderFactory<Model, Data> {
+
+    @NonNull
+    @Override
+    public ModelLoader<Model, Data> build(@NonNull MultiModelLoaderFactory multiFactory) {
+      return new BenchmarkLoader<>();
+    }
+
+    @Override
+    public void teardown() {
+      // Do nothing.
+    }
+  }
+
+  private static final class BenchmarkLoader<Model, Data> implements ModelLoader<Model, Data> {
+
+    @Nullable
+    @Override
+    public LoadData<Data> buildLoadData(@NonNull Model model, int width, int height,
+        @NonNull Options options) {
+      return new LoadData<>(new ObjectKey(model), new BenchmarkFetcher<Data>());
+    }
+
+    @Override
+    public boolean handles(@NonNull Model model) {
+      return true;
+    }
+  }
+
+  private static final class BenchmarkFetcher<Data> implements DataFetcher<Data> {
+
+    @Override
+    public void loadData(@NonNull Priority priority,
+        @NonNull DataCallback<? super Data> callback) {
+      callback.onLoadFailed(new UnsupportedOperationException());
+    }
+
+    @Override
+    public void cleanup() {
+      // Do nothing.
+    }
+
+    @Override
+    public void cancel() {
+      // Do nothing.
+    }
+
+    @NonNull
+    @Override
+    public Class<Data> getDataClass() {
+      throw new UnsupportedOperationException();
+    }
+
+    @NonNull
+    @Override
+    public DataSource getDataSource() {
+      return DataSource.LOCAL;
+    }
+  }
+}
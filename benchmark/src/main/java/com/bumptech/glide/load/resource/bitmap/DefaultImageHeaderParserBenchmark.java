@@ -0,0 +1,83 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing the type and EXIF orientation of images, which Glide does before decoding every
+ * image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultImageHeaderParserBenchmark {
+  @Param({"issue387_rotated_jpeg.jpg", "short_exif_sample.jpg", "test.gif"})
+  public String resourceName;
+
+  private final DefaultImageHeaderParser parser = new DefaultImageHeaderParser();
+  private final ArrayPool arrayPool = new LruArrayPool();
+  private byte[] data;
+  private ByteBuffer buffer;
+
+  @Setup
+  public void setUp() throws IOException {
+    data = readResource(resourceName);
+    buffer = ByteBuffer.wrap(data);
+  }
+
+  @Benchmark
+  public ImageType getTypeFromByteBuffer() throws IOException {
+    buffer.rewind();
+    return parser.getType(buffer);
+  }
+
+  @Benchmark
+  public int getOrientationFromByteBuffer() throws IOException {
+    buffer.rewind();
+    return parser.getOrientation(buffer, arrayPool);
+  }
+
+  @Benchmark
+  public int getOrientationFromStream() throws IOException {
+    return parser.getOrientation(new ByteArrayInputStream(data), arrayPool);
+  }
+
+  static byte[] readResource(String name) throws IOException {
+    InputStream is = DefaultImageHeaderParserBenchmark.class.getResourceAsStream("/" + name);
+    if (is == null) {
+      throw new IOException("Missing benchmark resource: " + name);
+    }
+    try {
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        os.write(buffer, 0, read);
+      }
+      return os.toByteArray();
+    } finally {
+      is.close();
+    }
+  }
+}
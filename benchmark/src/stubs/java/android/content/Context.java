@@ -0,0 +1,7 @@
+package android.content;
+
+/**
+ * A JVM stand in for {@link android.content.Context}, which is referenced by, but never used in,
+ * the benchmarked code.
+ */
+public abstract class Context { }
@@ -0,0 +1,119 @@
+package android.graphics;
+
+import java.util.Arrays;
+
+/**
+ * A JVM stand in for {@link android.graphics.Bitmap} backed by an {@code int[]}.
+ *
+ * <p>Only the methods used by the benchmarked code are implemented. Pixels are always stored as
+ * ARGB ints regardless of the {@link Config}, but byte counts reflect the {@link Config} so that
+ * pooling code behaves as it does on a device.
+ */
+public final class Bitmap {
+  private int width;
+  private int height;
+  private Config config;
+  private int[] pixels;
+  private boolean isRecycled;
+  private boolean hasAlpha;
+
+  private Bitmap(int width, int height, Config config) {
+    this.width = width;
+    this.height = height;
+    this.config = config;
+    this.pixels = new int[width * height];
+  }
+
+  public static Bitmap createBitmap(int width, int height, Config config) {
+    return new Bitmap(width, height, config);
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public Config getConfig() {
+    return config;
+  }
+
+  public int getRowBytes() {
+    return width * config.bytesPerPixel;
+  }
+
+  public int getByteCount() {
+    return width * height * config.bytesPerPixel;
+  }
+
+  public int getAllocationByteCount() {
+    return pixels.length * config.bytesPerPixel;
+  }
+
+  public boolean isMutable() {
+    return true;
+  }
+
+  public boolean isRecycled() {
+    return isRecycled;
+  }
+
+  public void recycle() {
+    isRecycled = true;
+  }
+
+  public boolean hasAlpha() {
+    return hasAlpha;
+  }
+
+  public void setHasAlpha(boolean hasAlpha) {
+    this.hasAlpha = hasAlpha;
+  }
+
+  public void reconfigure(int width, int height, Config config) {
+    if (width * height * config.bytesPerPixel > getAllocationByteCount()) {
+      throw new IllegalArgumentException("Bitmap not large enough to support new configuration");
+    }
+    this.width = width;
+    this.height = height;
+    this.config = config;
+  }
+
+  public void eraseColor(int color) {
+    Arrays.fill(pixels, 0, width * height, color);
+  }
+
+  public void setPixels(
+      int[] source, int offset, int stride, int x, int y, int width, int height) {
+    for (int row = 0; row < height; row++) {
+      System.arraycopy(
+          source, offset + row * stride, pixels, (y + row) * this.width + x, width);
+    }
+  }
+
+  public void getPixels(
+      int[] destination, int offset, int stride, int x, int y, int width, int height) {
+    for (int row = 0; row < height; row++) {
+      System.arraycopy(
+          pixels, (y + row) * this.width + x, destination, offset + row * stride, width);
+    }
+  }
+
+  /** See {@link android.graphics.Bitmap.Config}. */
+  public enum Config {
+    ALPHA_8(1),
+    RGB_565(2),
+    ARGB_4444(2),
+    ARGB_8888(4),
+    RGBA_F16(8),
+    HARDWARE(4);
+
+    final int bytesPerPixel;
+
+    Config(int bytesPerPixel) {
+      this.bytesPerPixel = bytesPerPixel;
+    }
+  }
+}
@@ -0,0 +1,7 @@
+package android.graphics.drawable;
+
+/**
+ * A JVM stand in for {@link android.graphics.drawable.Drawable}, which is referenced by, but never
+ * used in, the benchmarked code.
+ */
+public abstract class Drawable { }
@@ -0,0 +1,36 @@
+package android.os;
+
+/** A JVM stand in for {@link android.os.Build} that reports the latest supported SDK. */
+public final class Build {
+
+  private Build() {
+    // Utility class.
+  }
+
+  /** See {@link android.os.Build.VERSION}. */
+  public static final class VERSION {
+    public static final int SDK_INT = VERSION_CODES.O_MR1;
+
+    private VERSION() {
+      // Utility class.
+    }
+  }
+
+  /** See {@link android.os.Build.VERSION_CODES}. */
+  public static final class VERSION_CODES {
+    public static final int HONEYCOMB_MR1 = 12;
+    public static final int ICE_CREAM_SANDWICH = 14;
+    public static final int JELLY_BEAN = 16;
+    public static final int JELLY_BEAN_MR1 = 17;
+    public static final int KITKAT = 19;
+    public static final int LOLLIPOP = 21;
+    public static final int M = 23;
+    public static final int N = 24;
+    public static final int O = 26;
+    public static final int O_MR1 = 27;
+
+    private VERSION_CODES() {
+      // Utility class.
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package android.os;
+
+/**
+ * A JVM stand in for {@link android.os.Looper}.
+ *
+ * <p>Benchmarks never run on a main thread, so {@link #myLooper()} never returns the main looper.
+ */
+public final class Looper {
+  private static final Looper MAIN_LOOPER = new Looper();
+
+  private Looper() { }
+
+  public static Looper getMainLooper() {
+    return MAIN_LOOPER;
+  }
+
+  public static Looper myLooper() {
+    return null;
+  }
+}
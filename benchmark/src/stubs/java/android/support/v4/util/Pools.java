@@ -0,0 +1,75 @@
+package android.support.v4.util;
+
+/**
+ * A JVM stand in for {@link android.support.v4.util.Pools}, which is only distributed as part of
+ * an Android library.
+ */
+public final class Pools {
+
+  private Pools() {
+    // Utility class.
+  }
+
+  /** See {@link android.support.v4.util.Pools.Pool}. */
+  public interface Pool<T> {
+    T acquire();
+
+    boolean release(T instance);
+  }
+
+  /** See {@link android.support.v4.util.Pools.SimplePool}. */
+  public static class SimplePool<T> implements Pool<T> {
+    private final Object[] pool;
+    private int poolSize;
+
+    public SimplePool(int maxPoolSize) {
+      if (maxPoolSize <= 0) {
+        throw new IllegalArgumentException("The max pool size must be > 0");
+      }
+      pool = new Object[maxPoolSize];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+      if (poolSize > 0) {
+        T instance = (T) pool[--poolSize];
+        pool[poolSize] = null;
+        return instance;
+      }
+      return null;
+    }
+
+    @Override
+    public boolean release(T instance) {
+      if (poolSize < pool.length) {
+        pool[poolSize++] = instance;
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /** See {@link android.support.v4.util.Pools.SynchronizedPool}. */
+  public static class SynchronizedPool<T> extends SimplePool<T> {
+    private final Object lock = new Object();
+
+    public SynchronizedPool(int maxPoolSize) {
+      super(maxPoolSize);
+    }
+
+    @Override
+    public T acquire() {
+      synchronized (lock) {
+        return super.acquire();
+      }
+    }
+
+    @Override
+    public boolean release(T instance) {
+      synchronized (lock) {
+        return super.release(instance);
+      }
+    }
+  }
+}
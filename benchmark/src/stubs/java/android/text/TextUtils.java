@@ -0,0 +1,13 @@
+package android.text;
+
+/** A JVM stand in for {@link android.text.TextUtils}. */
+public final class TextUtils {
+
+  private TextUtils() {
+    // Utility class.
+  }
+
+  public static boolean isEmpty(CharSequence str) {
+    return str == null || str.length() == 0;
+  }
+}
@@ -0,0 +1,7 @@
+package android.view;
+
+/**
+ * A JVM stand in for {@link android.view.View}, which is referenced by, but never used in, the
+ * benchmarked code.
+ */
+public class View { }
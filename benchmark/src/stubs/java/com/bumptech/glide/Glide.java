@@ -0,0 +1,12 @@
+package com.bumptech.glide;
+
+/**
+ * A JVM stand in for {@link com.bumptech.glide.Glide}, which depends on too much of the Android
+ * library to compile here. Only referenced from documentation in the benchmarked sources.
+ */
+public final class Glide {
+
+  private Glide() {
+    // Never instantiated.
+  }
+}
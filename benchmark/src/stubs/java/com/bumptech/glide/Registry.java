@@ -0,0 +1,32 @@
+package com.bumptech.glide;
+
+/**
+ * A JVM stand in for {@link com.bumptech.glide.Registry}, which depends on too much of the Android
+ * library to compile here, containing only the exceptions the benchmarked sources throw.
+ */
+public final class Registry {
+
+  private Registry() {
+    // Only used for its exceptions.
+  }
+
+  /** See {@link com.bumptech.glide.Registry.NoModelLoaderAvailableException}. */
+  @SuppressWarnings("serial")
+  public static class NoModelLoaderAvailableException extends MissingComponentException {
+    public NoModelLoaderAvailableException(Object model) {
+      super("Failed to find any ModelLoaders for model: " + model);
+    }
+
+    public NoModelLoaderAvailableException(Class<?> modelClass, Class<?> dataClass) {
+      super("Failed to find any ModelLoaders for model: " + modelClass + " and data: " + dataClass);
+    }
+  }
+
+  /** See {@link com.bumptech.glide.Registry.MissingComponentException}. */
+  @SuppressWarnings("serial")
+  public static class MissingComponentException extends RuntimeException {
+    public MissingComponentException(String message) {
+      super(message);
+    }
+  }
+}
@@ -12,8 +12,8 @@ import android.widget.ImageView;
 import androidx.test.InstrumentationRegistry;
 import androidx.test.rule.GrantPermissionRule;
 import androidx.test.runner.AndroidJUnit4;
+import com.bumptech.glide.load.resource.AnimationFrameLoader.OnEveryFrameListener;
 import com.bumptech.glide.load.resource.gif.GifDrawable.GifState;
-import com.bumptech.glide.load.resource.gif.GifFrameLoader.OnEveryFrameListener;
 import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.test.ConcurrencyHelper;
 import com.bumptech.glide.test.GlideApp;
@@ -3,6 +3,7 @@ package com.bumptech.glide.integration.gifencoder;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 import com.bumptech.glide.gifdecoder.GifDecoder;
@@ -17,12 +18,14 @@ import com.bumptech.glide.load.ResourceEncoder;
 import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.engine.Resource;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
 import com.bumptech.glide.load.resource.UnitTransformation;
 import com.bumptech.glide.load.resource.bitmap.BitmapResource;
 import com.bumptech.glide.load.resource.gif.GifBitmapProvider;
 import com.bumptech.glide.load.resource.gif.GifDrawable;
 import com.bumptech.glide.util.ByteBufferUtil;
 import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.Synthetic;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -30,10 +33,23 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An {@link com.bumptech.glide.load.ResourceEncoder} that can write
  * {@link com.bumptech.glide.load.resource.gif.GifDrawable} to cache.
+ *
+ * <p>When re-encoding transformed GIFs, frames are decoded in order on the calling thread, but
+ * are transformed, quantized and compressed concurrently on a small shared pool of threads. The
+ * compressed frames are then written to the file in order.
  */
 public class ReEncodingGifResourceEncoder implements ResourceEncoder<GifDrawable> {
 
@@ -63,23 +79,57 @@ public class ReEncodingGifResourceEncoder implements ResourceEncoder<GifDrawable
 
   private static final Factory FACTORY = new Factory();
   private static final String TAG = "GifEncoder";
+  private static final String FRAME_EXECUTOR_NAME = "gif-encode";
+  private static final long FRAME_EXECUTOR_KEEP_ALIVE_TIME_MS = TimeUnit.SECONDS.toMillis(10);
+  private static ExecutorService defaultFrameExecutor;
   private final GifDecoder.BitmapProvider provider;
   private final Context context;
   private final BitmapPool bitmapPool;
   private final Factory factory;
+  // Null to encode frames one at a time on the calling thread.
+  @Nullable private final ExecutorService frameExecutor;
+  private final int maxPendingFrames;
 
   // Public API.
   @SuppressWarnings("unused")
   public ReEncodingGifResourceEncoder(@NonNull Context context, @NonNull BitmapPool bitmapPool) {
-    this(context, bitmapPool, FACTORY);
+    this(context, bitmapPool, FACTORY, getDefaultFrameExecutor(),
+        // Keep one frame queued for each thread so that threads don't wait on the decoder.
+        GlideExecutor.calculateBestThreadCount() + 1);
   }
 
   @VisibleForTesting
   ReEncodingGifResourceEncoder(Context context, BitmapPool bitmapPool, Factory factory) {
+    this(context, bitmapPool, factory, null /*frameExecutor*/, 1 /*maxPendingFrames*/);
+  }
+
+  @VisibleForTesting
+  ReEncodingGifResourceEncoder(Context context, BitmapPool bitmapPool, Factory factory,
+      @Nullable ExecutorService frameExecutor, int maxPendingFrames) {
     this.context = context;
     this.bitmapPool = bitmapPool;
     provider = new GifBitmapProvider(bitmapPool);
     this.factory = factory;
+    this.frameExecutor = frameExecutor;
+    this.maxPendingFrames = maxPendingFrames;
+  }
+
+  private static synchronized ExecutorService getDefaultFrameExecutor() {
+    if (defaultFrameExecutor == null) {
+      // The executor is shared by every instance and never shut down, so its threads are daemons
+      // that are only started when frames are submitted and that exit once they're idle.
+      int threadCount = GlideExecutor.calculateBestThreadCount();
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(
+          threadCount,
+          threadCount,
+          FRAME_EXECUTOR_KEEP_ALIVE_TIME_MS,
+          TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<Runnable>(),
+          new FrameThreadFactory());
+      executor.allowCoreThreadTimeOut(true);
+      defaultFrameExecutor = executor;
+    }
+    return defaultFrameExecutor;
   }
 
   @NonNull
@@ -135,6 +185,9 @@ public class ReEncodingGifResourceEncoder implements ResourceEncoder<GifDrawable
   }
 
   private boolean encodeTransformedToStream(GifDrawable drawable, OutputStream os) {
+    if (frameExecutor != null) {
+      return encodeTransformedToStreamInParallel(drawable, os, frameExecutor);
+    }
     Transformation<Bitmap> transformation = drawable.getFrameTransformation();
     GifDecoder decoder = decodeHeaders(drawable.getBuffer());
     AnimatedGifEncoder encoder = factory.buildEncoder();
@@ -163,6 +216,97 @@ public class ReEncodingGifResourceEncoder implements ResourceEncoder<GifDrawable
     return encoder.finish();
   }
 
+  private boolean encodeTransformedToStreamInParallel(
+      GifDrawable drawable, OutputStream os, ExecutorService executor) {
+    Transformation<Bitmap> transformation = drawable.getFrameTransformation();
+    GifDecoder decoder = decodeHeaders(drawable.getBuffer());
+    AnimatedGifEncoder encoder = factory.buildEncoder();
+    if (decoder.getFrameCount() == 0) {
+      return encoder.start(os) && encoder.finish();
+    }
+
+    // The first frame sets the size of the GIF, so it's written on this thread and every other
+    // frame is prepared at its size. Otherwise frames prepared concurrently could each have a
+    // different size.
+    Bitmap firstFrame = decoder.getNextFrame();
+    int firstDelay = decoder.getDelay(decoder.getCurrentFrameIndex());
+    decoder.advance();
+    Resource<Bitmap> transformedFirstFrame =
+        getTransformedFrame(firstFrame, transformation, drawable);
+    try {
+      Bitmap transformed = transformedFirstFrame.get();
+      encoder.setSize(transformed.getWidth(), transformed.getHeight());
+      if (!encoder.start(os) || !encoder.addFrame(transformed)) {
+        return false;
+      }
+      encoder.setDelay(firstDelay);
+    } finally {
+      transformedFirstFrame.recycle();
+    }
+
+    Deque<PendingFrame> pendingFrames = new ArrayDeque<>(maxPendingFrames);
+    // Frames hold large buffers, so they're reused once they've been written.
+    Deque<AnimatedGifEncoder.Frame> unusedFrames = new ArrayDeque<>(maxPendingFrames);
+    boolean success = true;
+    try {
+      for (int i = 1; success && i < decoder.getFrameCount(); i++) {
+        if (pendingFrames.size() >= maxPendingFrames) {
+          success = writeFrame(encoder, pendingFrames.poll(), unusedFrames);
+        }
+        Bitmap currentFrame = decoder.getNextFrame();
+        int delay = decoder.getDelay(decoder.getCurrentFrameIndex());
+        decoder.advance();
+
+        AnimatedGifEncoder.Frame frame =
+            unusedFrames.isEmpty() ? new AnimatedGifEncoder.Frame() : unusedFrames.poll();
+        Future<?> future = executor.submit(
+            new PrepareFrameTask(encoder, frame, currentFrame, transformation, drawable));
+        pendingFrames.add(new PendingFrame(future, frame, delay));
+      }
+      while (success && !pendingFrames.isEmpty()) {
+        success = writeFrame(encoder, pendingFrames.poll(), unusedFrames);
+      }
+    } finally {
+      // Wait for any remaining frames so that their Bitmaps are returned to the pool.
+      for (PendingFrame pendingFrame : pendingFrames) {
+        await(pendingFrame.future);
+      }
+    }
+
+    return success && encoder.finish();
+  }
+
+  /**
+   * Waits for the given frame to be prepared and writes it, matching the order of calls in
+   * {@link #encodeTransformedToStream(GifDrawable, OutputStream)}.
+   */
+  private static boolean writeFrame(AnimatedGifEncoder encoder, PendingFrame pendingFrame,
+      Deque<AnimatedGifEncoder.Frame> unusedFrames) {
+    if (!await(pendingFrame.future)) {
+      return false;
+    }
+    if (!encoder.addFrame(pendingFrame.frame, 0, 0)) {
+      return false;
+    }
+    encoder.setDelay(pendingFrame.delay);
+    unusedFrames.add(pendingFrame.frame);
+    return true;
+  }
+
+  private static boolean await(Future<?> future) {
+    try {
+      future.get();
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to prepare GIF frame", e);
+      }
+    }
+    return false;
+  }
+
   private boolean writeDataDirect(ByteBuffer data, File file) {
     try {
       ByteBufferUtil.toFile(data, file);
@@ -187,7 +331,8 @@ public class ReEncodingGifResourceEncoder implements ResourceEncoder<GifDrawable
     return decoder;
   }
 
-  private Resource<Bitmap> getTransformedFrame(Bitmap currentFrame,
+  @Synthetic
+  Resource<Bitmap> getTransformedFrame(Bitmap currentFrame,
       Transformation<Bitmap> transformation, GifDrawable drawable) {
     // TODO: what if current frame is null?
     Resource<Bitmap> bitmapResource = factory.buildFrameResource(currentFrame, bitmapPool);
@@ -200,6 +345,73 @@ public class ReEncodingGifResourceEncoder implements ResourceEncoder<GifDrawable
     return transformedResource;
   }
 
+  private static final class PendingFrame {
+    @Synthetic final Future<?> future;
+    @Synthetic final AnimatedGifEncoder.Frame frame;
+    @Synthetic final int delay;
+
+    @Synthetic
+    PendingFrame(Future<?> future, AnimatedGifEncoder.Frame frame, int delay) {
+      this.future = future;
+      this.frame = frame;
+      this.delay = delay;
+    }
+  }
+
+  /**
+   * Transforms a decoded frame and converts it into an indexed and compressed GIF frame.
+   */
+  private final class PrepareFrameTask implements Runnable {
+    private final AnimatedGifEncoder encoder;
+    private final AnimatedGifEncoder.Frame frame;
+    private final Bitmap currentFrame;
+    private final Transformation<Bitmap> transformation;
+    private final GifDrawable drawable;
+
+    @Synthetic
+    PrepareFrameTask(AnimatedGifEncoder encoder, AnimatedGifEncoder.Frame frame,
+        Bitmap currentFrame, Transformation<Bitmap> transformation, GifDrawable drawable) {
+      this.encoder = encoder;
+      this.frame = frame;
+      this.currentFrame = currentFrame;
+      this.transformation = transformation;
+      this.drawable = drawable;
+    }
+
+    @Override
+    public void run() {
+      Resource<Bitmap> transformedResource =
+          getTransformedFrame(currentFrame, transformation, drawable);
+      try {
+        encoder.prepareFrame(transformedResource.get(), frame);
+      } finally {
+        transformedResource.recycle();
+      }
+    }
+  }
+
+  private static final class FrameThreadFactory implements ThreadFactory {
+    private int threadNum;
+
+    @Synthetic
+    FrameThreadFactory() { }
+
+    @Override
+    public synchronized Thread newThread(@NonNull Runnable runnable) {
+      String name = "glide-" + FRAME_EXECUTOR_NAME + "-thread-" + threadNum;
+      Thread result = new Thread(runnable, name) {
+        @Override
+        public void run() {
+          android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+          super.run();
+        }
+      };
+      result.setDaemon(true);
+      threadNum++;
+      return result;
+    }
+  }
+
   @VisibleForTesting
   static class Factory {
 
@@ -9,6 +9,7 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,6 +32,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -57,6 +60,7 @@ public class ReEncodingGifResourceEncoderTest {
   @Mock private Transformation<Bitmap> frameTransformation;
   @Mock private Resource<Bitmap> transformedResource;
 
+  private ReEncodingGifResourceEncoder.Factory factory;
   private ReEncodingGifResourceEncoder encoder;
   private Options options;
   private File file;
@@ -68,7 +72,7 @@ public class ReEncodingGifResourceEncoderTest {
 
     Application context = RuntimeEnvironment.application;
 
-    ReEncodingGifResourceEncoder.Factory factory = mock(ReEncodingGifResourceEncoder.Factory.class);
+    factory = mock(ReEncodingGifResourceEncoder.Factory.class);
     when(decoder.getNextFrame()).thenReturn(Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
     when(factory.buildDecoder(any(GifDecoder.BitmapProvider.class))).thenReturn(decoder);
     when(factory.buildParser()).thenReturn(parser);
@@ -324,6 +328,85 @@ public class ReEncodingGifResourceEncoderTest {
     verify(parser, never()).parseHeader();
   }
 
+  @Test
+  public void testInParallel_preparesTransformedFramesAndWritesThemInOrderWithDelays() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      encoder = new ReEncodingGifResourceEncoder(
+          RuntimeEnvironment.application, mock(BitmapPool.class), factory, executor, 2);
+      when(gifEncoder.start(any(OutputStream.class))).thenReturn(true);
+      when(gifEncoder.addFrame(any(Bitmap.class))).thenReturn(true);
+      when(gifEncoder.addFrame(any(AnimatedGifEncoder.Frame.class), eq(0), eq(0)))
+          .thenReturn(true);
+      when(gifEncoder.finish()).thenReturn(true);
+      when(decoder.getFrameCount()).thenReturn(3);
+      when(decoder.getCurrentFrameIndex()).thenReturn(0, 1, 2);
+      when(decoder.getDelay(0)).thenReturn(10);
+      when(decoder.getDelay(1)).thenReturn(20);
+      when(decoder.getDelay(2)).thenReturn(30);
+      Bitmap transformedFrame = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+      when(frameResource.get()).thenReturn(transformedFrame);
+
+      assertTrue(encoder.encode(resource, file, options));
+
+      // The first frame sets the size, so it's written directly and the rest are prepared.
+      verify(gifEncoder, times(2))
+          .prepareFrame(eq(transformedFrame), any(AnimatedGifEncoder.Frame.class));
+      verify(frameResource, times(3)).recycle();
+      InOrder order = inOrder(gifEncoder);
+      order.verify(gifEncoder).setSize(100, 100);
+      order.verify(gifEncoder).start(any(OutputStream.class));
+      order.verify(gifEncoder).addFrame(transformedFrame);
+      order.verify(gifEncoder).setDelay(10);
+      order.verify(gifEncoder).addFrame(any(AnimatedGifEncoder.Frame.class), eq(0), eq(0));
+      order.verify(gifEncoder).setDelay(20);
+      order.verify(gifEncoder).addFrame(any(AnimatedGifEncoder.Frame.class), eq(0), eq(0));
+      order.verify(gifEncoder).setDelay(30);
+      order.verify(gifEncoder).finish();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testInParallel_returnsFalseIfAddingFrameFails() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      encoder = new ReEncodingGifResourceEncoder(
+          RuntimeEnvironment.application, mock(BitmapPool.class), factory, executor, 2);
+      when(gifEncoder.start(any(OutputStream.class))).thenReturn(true);
+      when(gifEncoder.addFrame(any(Bitmap.class))).thenReturn(true);
+      when(gifEncoder.addFrame(any(AnimatedGifEncoder.Frame.class), anyInt(), anyInt()))
+          .thenReturn(false);
+      when(gifEncoder.finish()).thenReturn(true);
+      when(decoder.getFrameCount()).thenReturn(3);
+      when(frameResource.get())
+          .thenReturn(Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+
+      assertFalse(encoder.encode(resource, file, options));
+      // Frames that were already submitted are still recycled.
+      verify(frameResource, times(3)).recycle();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testInParallel_returnsFalseIfAddingFirstFrameFails() {
+    ExecutorService executor = mock(ExecutorService.class);
+    encoder = new ReEncodingGifResourceEncoder(
+        RuntimeEnvironment.application, mock(BitmapPool.class), factory, executor, 2);
+    when(gifEncoder.start(any(OutputStream.class))).thenReturn(true);
+    when(gifEncoder.addFrame(any(Bitmap.class))).thenReturn(false);
+    when(decoder.getFrameCount()).thenReturn(3);
+    when(frameResource.get()).thenReturn(Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+
+    assertFalse(encoder.encode(resource, file, options));
+
+    verify(executor, never()).submit(any(Runnable.class));
+    verify(frameResource).recycle();
+  }
+
   private String getEncodedData() {
     try {
       return new String(ByteBufferUtil.toBytes(ByteBufferUtil.fromFile(file)));
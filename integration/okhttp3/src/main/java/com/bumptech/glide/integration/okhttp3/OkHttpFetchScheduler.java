@@ -0,0 +1,268 @@
+package com.bumptech.glide.integration.okhttp3;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.util.Synthetic;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Schedules {@link OkHttpStreamFetcher}'s calls so that no more than a fixed number of image
+ * requests are in flight at once, in total and per host, and starts waiting requests in order of
+ * their Glide {@link Priority}.
+ *
+ * <p>OkHttp's {@link okhttp3.Dispatcher} starts calls in the order they're enqueued and allows up
+ * to 64 calls at once, so without a scheduler a screen full of images can queue ahead of, or
+ * crowd out, the app's other requests on the same client. Calls are only handed to OkHttp when
+ * they can start immediately, and each keeps its slot until its response body is closed, so the
+ * limits bound the bandwidth used by images rather than just the number of connections opened.
+ *
+ * <p>Hosts that respond over HTTP/2 multiplex requests on a single connection, so they're allowed
+ * more concurrent requests than hosts that need a connection per request.
+ *
+ * <p>Calls are enqueued asynchronously, so no Glide thread is blocked while they wait or run.
+ */
+// Public API.
+@SuppressWarnings("WeakerAccess")
+public final class OkHttpFetchScheduler {
+  private static final int DEFAULT_MAX_REQUESTS = 16;
+  // Lower than the Dispatcher's default of five so that other requests to the same host can run.
+  private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 4;
+  private static final int DEFAULT_MAX_REQUESTS_PER_MULTIPLEXED_HOST = 12;
+
+  private final Call.Factory client;
+  private final int maxRequests;
+  private final int maxRequestsPerHost;
+  private final int maxRequestsPerMultiplexedHost;
+  // All guarded by this.
+  private final TreeSet<Fetch> pending = new TreeSet<>();
+  private final Map<String, Integer> runningPerHost = new HashMap<>();
+  private final Set<String> multiplexedHosts = new HashSet<>();
+  private int running;
+  private long nextSequence;
+
+  public OkHttpFetchScheduler(@NonNull Call.Factory client) {
+    this(client, DEFAULT_MAX_REQUESTS, DEFAULT_MAX_REQUESTS_PER_HOST,
+        DEFAULT_MAX_REQUESTS_PER_MULTIPLEXED_HOST);
+  }
+
+  /**
+   * @param client Typically an {@link okhttp3.OkHttpClient}, which may be shared with the rest of
+   *               the app.
+   * @param maxRequests The maximum number of image requests in flight at once.
+   * @param maxRequestsPerHost The maximum number of image requests in flight at once to a host
+   *                           that hasn't responded over HTTP/2.
+   * @param maxRequestsPerMultiplexedHost The maximum number of image requests in flight at once to
+   *                                      a host that has responded over HTTP/2.
+   */
+  public OkHttpFetchScheduler(
+      @NonNull Call.Factory client,
+      int maxRequests,
+      int maxRequestsPerHost,
+      int maxRequestsPerMultiplexedHost) {
+    if (maxRequests < 1 || maxRequestsPerHost < 1 || maxRequestsPerMultiplexedHost < 1) {
+      throw new IllegalArgumentException("Request limits must be at least one, given: "
+          + maxRequests + ", " + maxRequestsPerHost + ", " + maxRequestsPerMultiplexedHost);
+    }
+    this.client = client;
+    this.maxRequests = maxRequests;
+    this.maxRequestsPerHost = maxRequestsPerHost;
+    this.maxRequestsPerMultiplexedHost = maxRequestsPerMultiplexedHost;
+  }
+
+  /**
+   * Returns a {@link Fetch} for the given request that will call the given callback on one of
+   * OkHttp's threads once it completes.
+   */
+  @NonNull
+  synchronized Fetch newFetch(
+      @NonNull Request request, @NonNull Priority priority, @NonNull Callback callback) {
+    return new Fetch(request, priority, nextSequence++, callback);
+  }
+
+  /**
+   * Queues the given fetch, which must be passed to {@link #finish(Fetch)} once its response body
+   * has been closed.
+   */
+  void enqueue(@NonNull Fetch fetch) {
+    boolean isCancelled;
+    synchronized (this) {
+      isCancelled = fetch.isCancelled;
+      if (!isCancelled) {
+        pending.add(fetch);
+      }
+    }
+    if (isCancelled) {
+      failCancelled(fetch);
+    } else {
+      promoteAndExecute();
+    }
+  }
+
+  /**
+   * Changes the priority of the given fetch if it's still waiting to start, otherwise does nothing.
+   */
+  void setPriority(@NonNull Fetch fetch, @NonNull Priority priority) {
+    synchronized (this) {
+      // The fetch's position in the set depends on its priority, so it's removed while it changes.
+      if (fetch.priority == priority || !pending.remove(fetch)) {
+        return;
+      }
+      fetch.priority = priority;
+      pending.add(fetch);
+    }
+    // A higher priority fetch may be able to start before others for its host.
+    promoteAndExecute();
+  }
+
+  /**
+   * Cancels the given fetch, which will fail with an {@link IOException} if it hasn't completed.
+   */
+  void cancel(@NonNull Fetch fetch) {
+    boolean wasPending;
+    Call call;
+    synchronized (this) {
+      fetch.isCancelled = true;
+      wasPending = pending.remove(fetch);
+      call = fetch.call;
+    }
+    if (wasPending) {
+      failCancelled(fetch);
+    } else if (call != null) {
+      call.cancel();
+    }
+  }
+
+  /**
+   * Fails the given fetch the same way OkHttp fails cancelled calls, so that the callback is always
+   * called even if the fetch never started.
+   */
+  private void failCancelled(Fetch fetch) {
+    Call cancelled = client.newCall(fetch.request);
+    cancelled.cancel();
+    fetch.callback.onFailure(cancelled, new IOException("Canceled"));
+  }
+
+  /**
+   * Frees the slot used by the given fetch so that waiting fetches can start. Safe to call more
+   * than once or for fetches that never started.
+   */
+  void finish(@NonNull Fetch fetch) {
+    synchronized (this) {
+      if (!fetch.isRunning) {
+        return;
+      }
+      fetch.isRunning = false;
+      running--;
+      String host = fetch.host;
+      int remaining = runningPerHost.get(host) - 1;
+      if (remaining == 0) {
+        runningPerHost.remove(host);
+      } else {
+        runningPerHost.put(host, remaining);
+      }
+    }
+    promoteAndExecute();
+  }
+
+  @Synthetic
+  synchronized void onProtocol(String host, Protocol protocol) {
+    if (protocol == Protocol.HTTP_2) {
+      multiplexedHosts.add(host);
+    } else {
+      multiplexedHosts.remove(host);
+    }
+  }
+
+  private void promoteAndExecute() {
+    List<Fetch> toExecute = new ArrayList<>();
+    synchronized (this) {
+      Iterator<Fetch> iterator = pending.iterator();
+      while (running < maxRequests && iterator.hasNext()) {
+        Fetch fetch = iterator.next();
+        Integer runningForHost = runningPerHost.get(fetch.host);
+        int hostCount = runningForHost == null ? 0 : runningForHost;
+        int hostLimit = multiplexedHosts.contains(fetch.host)
+            ? maxRequestsPerMultiplexedHost : maxRequestsPerHost;
+        if (hostCount >= hostLimit) {
+          continue;
+        }
+        iterator.remove();
+        fetch.isRunning = true;
+        running++;
+        runningPerHost.put(fetch.host, hostCount + 1);
+        toExecute.add(fetch);
+      }
+    }
+
+    // Calls are created outside of the lock because Call.Factory implementations may be slow.
+    for (Fetch fetch : toExecute) {
+      Call call = client.newCall(fetch.request);
+      boolean isCancelled;
+      synchronized (this) {
+        fetch.call = call;
+        isCancelled = fetch.isCancelled;
+      }
+      if (isCancelled) {
+        call.cancel();
+      }
+      call.enqueue(fetch);
+    }
+  }
+
+  /** A request that's waiting for, or using, one of the scheduler's slots. */
+  final class Fetch implements Callback, Comparable<Fetch> {
+    @Synthetic final Request request;
+    @Synthetic final String host;
+    @Synthetic final Callback callback;
+    private final long sequence;
+    // All guarded by OkHttpFetchScheduler.this.
+    @Synthetic Priority priority;
+    @Synthetic Call call;
+    @Synthetic boolean isRunning;
+    @Synthetic boolean isCancelled;
+
+    @Synthetic
+    Fetch(Request request, Priority priority, long sequence, Callback callback) {
+      this.request = request;
+      this.host = request.url().host();
+      this.priority = priority;
+      this.sequence = sequence;
+      this.callback = callback;
+    }
+
+    @Override
+    public int compareTo(@NonNull Fetch other) {
+      // Priority's ordinals are in order of importance, so lower ordinals come first.
+      int result = priority.ordinal() - other.priority.ordinal();
+      if (result == 0) {
+        result = sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+      }
+      return result;
+    }
+
+    @Override
+    public void onFailure(@NonNull Call call, @NonNull IOException e) {
+      finish(this);
+      callback.onFailure(call, e);
+    }
+
+    @Override
+    public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
+      onProtocol(host, response.protocol());
+      callback.onResponse(call, response);
+    }
+  }
+}
@@ -29,6 +29,7 @@ public class OkHttpGlideModule implements com.bumptech.glide.module.GlideModule
 
   @Override
   public void registerComponents(Context context, Glide glide, Registry registry) {
-    registry.replace(GlideUrl.class, InputStream.class, new OkHttpUrlLoader.Factory());
+    registry.replace(GlideUrl.class, InputStream.class,
+        new OkHttpUrlLoader.Factory(glide.getPartialDownloadCache()));
   }
 }
@@ -22,6 +22,7 @@ public final class OkHttpLibraryGlideModule extends LibraryGlideModule {
   @Override
   public void registerComponents(@NonNull Context context, @NonNull Glide glide,
       @NonNull Registry registry) {
-    registry.replace(GlideUrl.class, InputStream.class, new OkHttpUrlLoader.Factory());
+    registry.replace(GlideUrl.class, InputStream.class,
+        new OkHttpUrlLoader.Factory(glide.getPartialDownloadCache()));
   }
 }
@@ -1,16 +1,19 @@
 package com.bumptech.glide.integration.okhttp3;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.HttpException;
-import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.data.PriorityAwareDataFetcher;
+import com.bumptech.glide.load.engine.PartialDownloadCache;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.util.ContentLengthInputStream;
 import com.bumptech.glide.util.Preconditions;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.util.Map;
 import okhttp3.Call;
 import okhttp3.Request;
@@ -19,23 +22,51 @@ import okhttp3.ResponseBody;
 
 /**
  * Fetches an {@link InputStream} using the okhttp library.
+ *
+ * <p>If an {@link OkHttpFetchScheduler} is given, calls are started by the scheduler in order of
+ * priority rather than enqueued directly. If a {@link PartialDownloadCache} is given, large
+ * downloads that are interrupted are staged in the cache and resumed with a range request the next
+ * time the url is loaded.
  */
-public class OkHttpStreamFetcher implements DataFetcher<InputStream>, okhttp3.Callback {
+public class OkHttpStreamFetcher implements PriorityAwareDataFetcher<InputStream>,
+    okhttp3.Callback {
   private static final String TAG = "OkHttpFetcher";
-  private final Call.Factory client;
+  @Nullable private final Call.Factory client;
+  @Nullable private final OkHttpFetchScheduler scheduler;
   private final GlideUrl url;
+  @Nullable private final PartialDownloadCache partialDownloadCache;
+  @Nullable private PartialDownloadCache.PartialDownload partialDownload;
   private InputStream stream;
   private ResponseBody responseBody;
   private DataCallback<? super InputStream> callback;
   // call may be accessed on the main thread while the object is in use on other threads. All other
   // accesses to variables may occur on different threads, but only one at a time.
   private volatile Call call;
+  private volatile OkHttpFetchScheduler.Fetch fetch;
 
   // Public API.
   @SuppressWarnings("WeakerAccess")
   public OkHttpStreamFetcher(Call.Factory client, GlideUrl url) {
     this.client = client;
+    this.scheduler = null;
     this.url = url;
+    this.partialDownloadCache = null;
+  }
+
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public OkHttpStreamFetcher(OkHttpFetchScheduler scheduler, GlideUrl url) {
+    this(scheduler, url, null);
+  }
+
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public OkHttpStreamFetcher(OkHttpFetchScheduler scheduler, GlideUrl url,
+      @Nullable PartialDownloadCache partialDownloadCache) {
+    this.client = null;
+    this.scheduler = scheduler;
+    this.url = url;
+    this.partialDownloadCache = partialDownloadCache;
   }
 
   @Override
@@ -46,11 +77,35 @@ public class OkHttpStreamFetcher implements DataFetcher<InputStream>, okhttp3.Ca
       String key = headerEntry.getKey();
       requestBuilder.addHeader(key, headerEntry.getValue());
     }
+    if (partialDownloadCache != null) {
+      partialDownload = partialDownloadCache.get(url);
+      if (partialDownload != null) {
+        for (Map.Entry<String, String> headerEntry
+            : partialDownload.getResumeHeaders().entrySet()) {
+          requestBuilder.header(headerEntry.getKey(), headerEntry.getValue());
+        }
+      }
+    }
     Request request = requestBuilder.build();
     this.callback = callback;
 
-    call = client.newCall(request);
-    call.enqueue(this);
+    if (scheduler != null) {
+      // Assigned before the fetch is enqueued so that it's visible to cleanup() and cancel().
+      OkHttpFetchScheduler.Fetch local = scheduler.newFetch(request, priority, this);
+      fetch = local;
+      scheduler.enqueue(local);
+    } else {
+      call = Preconditions.checkNotNull(client).newCall(request);
+      call.enqueue(this);
+    }
+  }
+
+  @Override
+  public void onPriorityChanged(@NonNull Priority priority) {
+    OkHttpFetchScheduler.Fetch local = fetch;
+    if (scheduler != null && local != null) {
+      scheduler.setPriority(local, priority);
+    }
   }
 
   @Override
@@ -68,12 +123,42 @@ public class OkHttpStreamFetcher implements DataFetcher<InputStream>, okhttp3.Ca
     if (response.isSuccessful()) {
       long contentLength = Preconditions.checkNotNull(responseBody).contentLength();
       stream = ContentLengthInputStream.obtain(responseBody.byteStream(), contentLength);
+      if (partialDownloadCache != null) {
+        try {
+          stream = stageOrResume(partialDownloadCache, response, stream, contentLength);
+        } catch (IOException e) {
+          callback.onLoadFailed(e);
+          return;
+        }
+      }
       callback.onDataReady(stream);
     } else {
       callback.onLoadFailed(new HttpException(response.message(), response.code()));
     }
   }
 
+  private InputStream stageOrResume(PartialDownloadCache partialDownloadCache, Response response,
+      InputStream body, long contentLength) throws IOException {
+    int code = response.code();
+    if (partialDownload != null) {
+      if (partialDownload.isResumedBy(code, response.header("Content-Range"))) {
+        return partialDownloadCache.resume(url, partialDownload, body);
+      }
+      // The server ignored the range or the image has changed, so the staged bytes are useless.
+      partialDownloadCache.remove(url);
+      if (code == HttpURLConnection.HTTP_PARTIAL) {
+        throw new HttpException("Received an unexpected range for a resumed download", code);
+      }
+    }
+    if (code != HttpURLConnection.HTTP_OK) {
+      return body;
+    }
+    // OkHttp removes the Content-Encoding and Content-Length of bodies it decompresses, so those
+    // are never staged.
+    return partialDownloadCache.stage(url, body, contentLength, response.header("ETag"),
+        response.header("Last-Modified"), response.header("Accept-Ranges"));
+  }
+
   @Override
   public void cleanup() {
     try {
@@ -86,11 +171,20 @@ public class OkHttpStreamFetcher implements DataFetcher<InputStream>, okhttp3.Ca
     if (responseBody != null) {
       responseBody.close();
     }
+    OkHttpFetchScheduler.Fetch localFetch = fetch;
+    if (scheduler != null && localFetch != null) {
+      scheduler.finish(localFetch);
+    }
     callback = null;
   }
 
   @Override
   public void cancel() {
+    OkHttpFetchScheduler.Fetch localFetch = fetch;
+    if (scheduler != null && localFetch != null) {
+      scheduler.cancel(localFetch);
+      return;
+    }
     Call local = call;
     if (local != null) {
       local.cancel();
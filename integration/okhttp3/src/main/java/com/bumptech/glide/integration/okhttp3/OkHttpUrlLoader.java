@@ -1,7 +1,9 @@
 package com.bumptech.glide.integration.okhttp3;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.PartialDownloadCache;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoaderFactory;
@@ -15,12 +17,37 @@ import okhttp3.OkHttpClient;
  */
 public class OkHttpUrlLoader implements ModelLoader<GlideUrl, InputStream> {
 
-  private final Call.Factory client;
+  @Nullable private final Call.Factory client;
+  @Nullable private final OkHttpFetchScheduler scheduler;
+  @Nullable private final PartialDownloadCache partialDownloadCache;
 
   // Public API.
   @SuppressWarnings("WeakerAccess")
   public OkHttpUrlLoader(@NonNull Call.Factory client) {
     this.client = client;
+    this.scheduler = null;
+    this.partialDownloadCache = null;
+  }
+
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public OkHttpUrlLoader(@NonNull OkHttpFetchScheduler scheduler) {
+    this(scheduler, null);
+  }
+
+  /**
+   * @param partialDownloadCache If non-null, interrupted downloads of large images are staged in
+   *                             the given cache and resumed by later loads of the same url, for
+   *                             loads that set
+   *                             {@link PartialDownloadCache#STAGE_PARTIAL_DOWNLOADS}.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public OkHttpUrlLoader(@NonNull OkHttpFetchScheduler scheduler,
+      @Nullable PartialDownloadCache partialDownloadCache) {
+    this.client = null;
+    this.scheduler = scheduler;
+    this.partialDownloadCache = partialDownloadCache;
   }
 
   @Override
@@ -31,7 +58,12 @@ public class OkHttpUrlLoader implements ModelLoader<GlideUrl, InputStream> {
   @Override
   public LoadData<InputStream> buildLoadData(@NonNull GlideUrl model, int width, int height,
       @NonNull Options options) {
-    return new LoadData<>(model, new OkHttpStreamFetcher(client, model));
+    PartialDownloadCache cache =
+        options.get(PartialDownloadCache.STAGE_PARTIAL_DOWNLOADS) ? partialDownloadCache : null;
+    OkHttpStreamFetcher fetcher = scheduler != null
+        ? new OkHttpStreamFetcher(scheduler, model, cache)
+        : new OkHttpStreamFetcher(client, model);
+    return new LoadData<>(model, fetcher);
   }
 
   /**
@@ -40,40 +72,80 @@ public class OkHttpUrlLoader implements ModelLoader<GlideUrl, InputStream> {
   // Public API.
   @SuppressWarnings("WeakerAccess")
   public static class Factory implements ModelLoaderFactory<GlideUrl, InputStream> {
-    private static volatile Call.Factory internalClient;
-    private final Call.Factory client;
+    private static volatile OkHttpFetchScheduler internalScheduler;
+    @Nullable private final Call.Factory client;
+    @Nullable private final OkHttpFetchScheduler scheduler;
+    @Nullable private final PartialDownloadCache partialDownloadCache;
 
-    private static Call.Factory getInternalClient() {
-      if (internalClient == null) {
+    private static OkHttpFetchScheduler getInternalScheduler() {
+      if (internalScheduler == null) {
         synchronized (Factory.class) {
-          if (internalClient == null) {
-            internalClient = new OkHttpClient();
+          if (internalScheduler == null) {
+            internalScheduler = new OkHttpFetchScheduler(new OkHttpClient());
           }
         }
       }
-      return internalClient;
+      return internalScheduler;
     }
 
     /**
-     * Constructor for a new Factory that runs requests using a static singleton client.
+     * Constructor for a new Factory that runs requests using a static singleton client, scheduled
+     * by an {@link OkHttpFetchScheduler}.
      */
     public Factory() {
-      this(getInternalClient());
+      this(getInternalScheduler());
+    }
+
+    /**
+     * Constructor for a new Factory that runs requests using a static singleton client, scheduled
+     * by an {@link OkHttpFetchScheduler}, and resumes interrupted downloads of large images using
+     * the given cache.
+     *
+     * @see com.bumptech.glide.Glide#getPartialDownloadCache()
+     */
+    public Factory(@Nullable PartialDownloadCache partialDownloadCache) {
+      this(getInternalScheduler(), partialDownloadCache);
     }
 
     /**
      * Constructor for a new Factory that runs requests using given client.
      *
+     * <p>Requests are enqueued on the client as soon as they're started. To limit the number of
+     * requests Glide makes at once and start them in order of priority, use
+     * {@link #Factory(OkHttpFetchScheduler)} instead.
+     *
      * @param client this is typically an instance of {@code OkHttpClient}.
      */
     public Factory(@NonNull Call.Factory client) {
       this.client = client;
+      this.scheduler = null;
+      this.partialDownloadCache = null;
+    }
+
+    /**
+     * Constructor for a new Factory that runs requests using the given scheduler.
+     */
+    public Factory(@NonNull OkHttpFetchScheduler scheduler) {
+      this(scheduler, null);
+    }
+
+    /**
+     * Constructor for a new Factory that runs requests using the given scheduler and resumes
+     * interrupted downloads of large images using the given cache.
+     */
+    public Factory(
+        @NonNull OkHttpFetchScheduler scheduler,
+        @Nullable PartialDownloadCache partialDownloadCache) {
+      this.client = null;
+      this.scheduler = scheduler;
+      this.partialDownloadCache = partialDownloadCache;
     }
 
     @NonNull
     @Override
     public ModelLoader<GlideUrl, InputStream> build(MultiModelLoaderFactory multiFactory) {
-      return new OkHttpUrlLoader(client);
+      return scheduler != null
+          ? new OkHttpUrlLoader(scheduler, partialDownloadCache) : new OkHttpUrlLoader(client);
     }
 
     @Override
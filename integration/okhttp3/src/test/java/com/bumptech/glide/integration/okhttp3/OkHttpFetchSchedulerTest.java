@@ -0,0 +1,332 @@
+package com.bumptech.glide.integration.okhttp3;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.integration.okhttp3.OkHttpFetchScheduler.Fetch;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+@RunWith(JUnit4.class)
+public class OkHttpFetchSchedulerTest {
+  private static final int MAX_REQUESTS = 3;
+  private static final int MAX_REQUESTS_PER_HOST = 2;
+  private static final int MAX_REQUESTS_PER_MULTIPLEXED_HOST = 3;
+
+  @Mock private Call.Factory client;
+  @Mock private Callback callback;
+  // The fetches passed to OkHttp, in the order they were started.
+  private final List<Fetch> started = new ArrayList<>();
+  private final Map<Fetch, Call> calls = new HashMap<>();
+  private OkHttpFetchScheduler scheduler;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(client.newCall(any(Request.class))).thenAnswer(new Answer<Call>() {
+      @Override
+      public Call answer(InvocationOnMock invocation) {
+        final Call call = mock(Call.class);
+        doAnswer(new Answer<Void>() {
+          @Override
+          public Void answer(InvocationOnMock invocation) {
+            Fetch fetch = (Fetch) invocation.getArguments()[0];
+            started.add(fetch);
+            calls.put(fetch, call);
+            return null;
+          }
+        }).when(call).enqueue(any(Callback.class));
+        return call;
+      }
+    });
+    scheduler = new OkHttpFetchScheduler(
+        client, MAX_REQUESTS, MAX_REQUESTS_PER_HOST, MAX_REQUESTS_PER_MULTIPLEXED_HOST);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructor_withLimitLessThanOne_throws() {
+    new OkHttpFetchScheduler(client, MAX_REQUESTS, 0, MAX_REQUESTS_PER_MULTIPLEXED_HOST);
+  }
+
+  @Test
+  public void enqueue_belowLimits_startsImmediately() {
+    Fetch fetch = enqueue("a", Priority.NORMAL);
+
+    assertThat(started).containsExactly(fetch);
+  }
+
+  @Test
+  public void enqueue_atMaxRequests_waitsForSlot() {
+    Fetch first = enqueue("a", Priority.NORMAL);
+    Fetch second = enqueue("b", Priority.NORMAL);
+    Fetch third = enqueue("c", Priority.NORMAL);
+
+    Fetch waiting = enqueue("d", Priority.IMMEDIATE);
+
+    assertThat(started).containsExactly(first, second, third).inOrder();
+    assertThat(started).doesNotContain(waiting);
+  }
+
+  @Test
+  public void finish_startsWaitingFetchesInPriorityOrder() {
+    Fetch running = fillAllSlots();
+    Fetch low = enqueue("x", Priority.LOW);
+    Fetch immediate = enqueue("x", Priority.IMMEDIATE);
+    Fetch normal = enqueue("x", Priority.NORMAL);
+    Fetch high = enqueue("x", Priority.HIGH);
+
+    started.clear();
+    scheduler.finish(running);
+    finishLastStarted();
+    finishLastStarted();
+    finishLastStarted();
+
+    assertThat(started).containsExactly(immediate, high, normal, low).inOrder();
+  }
+
+  @Test
+  public void finish_withEqualPriorities_startsWaitingFetchesInOrderEnqueued() {
+    Fetch running = fillAllSlots();
+    Fetch first = enqueue("x", Priority.NORMAL);
+    Fetch second = enqueue("x", Priority.NORMAL);
+    Fetch third = enqueue("x", Priority.NORMAL);
+
+    started.clear();
+    scheduler.finish(running);
+    finishLastStarted();
+    finishLastStarted();
+
+    assertThat(started).containsExactly(first, second, third).inOrder();
+  }
+
+  @Test
+  public void setPriority_onWaitingFetch_changesOrderFetchesStart() {
+    Fetch running = fillAllSlots();
+    Fetch normal = enqueue("x", Priority.NORMAL);
+    Fetch low = enqueue("x", Priority.LOW);
+
+    scheduler.setPriority(low, Priority.HIGH);
+    started.clear();
+    scheduler.finish(running);
+    finishLastStarted();
+
+    assertThat(started).containsExactly(low, normal).inOrder();
+  }
+
+  @Test
+  public void setPriority_onRunningFetch_doesNothing() {
+    Fetch fetch = enqueue("a", Priority.LOW);
+
+    scheduler.setPriority(fetch, Priority.HIGH);
+
+    assertThat(started).containsExactly(fetch);
+    assertThat(fetch.priority).isEqualTo(Priority.LOW);
+  }
+
+  @Test
+  public void enqueue_atMaxRequestsPerHost_startsFetchesForOtherHosts() {
+    Fetch first = enqueue("a", Priority.NORMAL);
+    Fetch second = enqueue("a", Priority.NORMAL);
+    Fetch sameHost = enqueue("a", Priority.IMMEDIATE);
+
+    Fetch otherHost = enqueue("b", Priority.LOW);
+
+    assertThat(started).containsExactly(first, second, otherHost).inOrder();
+    assertThat(started).doesNotContain(sameHost);
+  }
+
+  @Test
+  public void finish_atMaxRequestsPerHost_startsWaitingFetchForSameHost() {
+    Fetch first = enqueue("a", Priority.NORMAL);
+    enqueue("a", Priority.NORMAL);
+    Fetch waiting = enqueue("a", Priority.NORMAL);
+
+    scheduler.finish(first);
+
+    assertThat(started).contains(waiting);
+  }
+
+  @Test
+  public void enqueue_afterHttp2Response_allowsMoreRequestsToHost() throws IOException {
+    Fetch first = enqueue("a", Priority.NORMAL);
+    enqueue("a", Priority.NORMAL);
+    Fetch waiting = enqueue("a", Priority.NORMAL);
+
+    first.onResponse(calls.get(first), response(first, Protocol.HTTP_2));
+    scheduler.enqueue(scheduler.newFetch(request("b"), Priority.LOW, callback));
+
+    assertThat(started).contains(waiting);
+  }
+
+  @Test
+  public void enqueue_afterHttp1Response_keepsPerHostLimit() throws IOException {
+    Fetch first = enqueue("a", Priority.NORMAL);
+    enqueue("a", Priority.NORMAL);
+    Fetch waiting = enqueue("a", Priority.NORMAL);
+
+    first.onResponse(calls.get(first), response(first, Protocol.HTTP_1_1));
+    scheduler.enqueue(scheduler.newFetch(request("b"), Priority.LOW, callback));
+
+    assertThat(started).doesNotContain(waiting);
+  }
+
+  @Test
+  public void onResponse_passesResponseToCallbackWithoutReleasingSlot() throws IOException {
+    Fetch running = fillAllSlots();
+    Fetch waiting = enqueue("x", Priority.NORMAL);
+    Response response = response(running, Protocol.HTTP_1_1);
+
+    running.onResponse(calls.get(running), response);
+
+    verify(callback).onResponse(calls.get(running), response);
+    assertThat(started).doesNotContain(waiting);
+  }
+
+  @Test
+  public void onFailure_releasesSlotAndNotifiesCallback() {
+    Fetch running = fillAllSlots();
+    Fetch waiting = enqueue("x", Priority.NORMAL);
+    IOException exception = new IOException("test");
+
+    running.onFailure(calls.get(running), exception);
+
+    verify(callback).onFailure(calls.get(running), exception);
+    assertThat(started).contains(waiting);
+  }
+
+  @Test
+  public void finish_calledTwice_onlyReleasesOneSlot() {
+    Fetch running = fillAllSlots();
+    Fetch first = enqueue("x", Priority.NORMAL);
+    Fetch second = enqueue("x", Priority.NORMAL);
+
+    scheduler.finish(running);
+    scheduler.finish(running);
+
+    assertThat(started).contains(first);
+    assertThat(started).doesNotContain(second);
+  }
+
+  @Test
+  public void finish_onWaitingFetch_doesNotReleaseSlot() {
+    fillAllSlots();
+    Fetch first = enqueue("x", Priority.NORMAL);
+    Fetch second = enqueue("x", Priority.NORMAL);
+
+    scheduler.finish(first);
+
+    assertThat(started).containsNoneOf(first, second);
+  }
+
+  @Test
+  public void cancel_onWaitingFetch_failsWithoutStartingAndReleasesNothing() {
+    fillAllSlots();
+    Fetch cancelled = enqueue("x", Priority.NORMAL);
+
+    scheduler.cancel(cancelled);
+
+    verify(callback).onFailure(any(Call.class), isA(IOException.class));
+    assertThat(started).doesNotContain(cancelled);
+  }
+
+  @Test
+  public void cancel_onWaitingFetch_isNotStartedWhenSlotFrees() {
+    Fetch running = fillAllSlots();
+    Fetch cancelled = enqueue("x", Priority.HIGH);
+    Fetch next = enqueue("x", Priority.NORMAL);
+    scheduler.cancel(cancelled);
+
+    scheduler.finish(running);
+
+    assertThat(started).doesNotContain(cancelled);
+    assertThat(started).contains(next);
+  }
+
+  @Test
+  public void cancel_beforeEnqueue_failsWithoutStarting() {
+    Fetch fetch = scheduler.newFetch(request("a"), Priority.NORMAL, callback);
+    scheduler.cancel(fetch);
+
+    scheduler.enqueue(fetch);
+
+    verify(callback).onFailure(any(Call.class), isA(IOException.class));
+    assertThat(started).isEmpty();
+  }
+
+  @Test
+  public void cancel_onRunningFetch_cancelsCall() {
+    Fetch fetch = enqueue("a", Priority.NORMAL);
+
+    scheduler.cancel(fetch);
+
+    verify(calls.get(fetch)).cancel();
+    verify(callback, never()).onFailure(any(Call.class), any(IOException.class));
+  }
+
+  @Test
+  public void cancel_onRunningFetch_releasesSlotWhenCallFails() {
+    Fetch running = fillAllSlots();
+    Fetch waiting = enqueue("x", Priority.NORMAL);
+    scheduler.cancel(running);
+    assertThat(started).doesNotContain(waiting);
+
+    // OkHttp fails cancelled calls.
+    running.onFailure(calls.get(running), new IOException("Canceled"));
+
+    assertThat(started).contains(waiting);
+  }
+
+  /** Uses every slot with fetches for other hosts and returns one of them. */
+  private Fetch fillAllSlots() {
+    Fetch result = enqueue("a", Priority.NORMAL);
+    enqueue("b", Priority.NORMAL);
+    enqueue("c", Priority.NORMAL);
+    return result;
+  }
+
+  private void finishLastStarted() {
+    scheduler.finish(started.get(started.size() - 1));
+  }
+
+  private Fetch enqueue(String host, Priority priority) {
+    Fetch fetch = scheduler.newFetch(request(host), priority, callback);
+    scheduler.enqueue(fetch);
+    return fetch;
+  }
+
+  private static Request request(String host) {
+    return new Request.Builder().url("http://" + host + "/image").build();
+  }
+
+  private static Response response(Fetch fetch, Protocol protocol) {
+    return new Response.Builder()
+        .request(fetch.request)
+        .protocol(protocol)
+        .code(200)
+        .message("OK")
+        .build();
+  }
+}
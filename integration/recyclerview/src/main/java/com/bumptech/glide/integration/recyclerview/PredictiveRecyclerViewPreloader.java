@@ -0,0 +1,91 @@
+package com.bumptech.glide.integration.recyclerview;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentActivity;
+import android.support.v7.widget.RecyclerView;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader.PreloadModelProvider;
+import com.bumptech.glide.ListPreloader.PreloadSizeProvider;
+import com.bumptech.glide.PredictiveListPreloader;
+import com.bumptech.glide.RequestManager;
+
+/**
+ * Loads resources ahead in the direction of scrolling in any {@link RecyclerView}, preloading more
+ * or fewer items depending on how fast the {@link RecyclerView} is scrolling.
+ *
+ * <p>See {@link PredictiveListPreloader} for details.
+ *
+ * <p> Must be added as a listener to the {@link RecyclerView} using
+ * {@link RecyclerView#addOnScrollListener(RecyclerView.OnScrollListener)}, or have both of its
+ * corresponding methods called from another
+ * {@link android.support.v7.widget.RecyclerView.OnScrollListener} to function. </p>
+ *
+ * <p> This class only works with {@link android.support.v7.widget.LinearLayoutManager} and
+ * subclasses of {@link android.support.v7.widget.LinearLayoutManager}. </p>
+ *
+ * @param <T> The type of the model being displayed in the {@link RecyclerView}.
+ */
+@SuppressWarnings("unused")
+public final class PredictiveRecyclerViewPreloader<T> extends RecyclerView.OnScrollListener {
+
+  private final RecyclerToListViewScrollListener recyclerScrollListener;
+
+  /**
+   * Helper constructor that accepts an {@link Activity}.
+   */
+  public PredictiveRecyclerViewPreloader(@NonNull Activity activity,
+      @NonNull PreloadModelProvider<T> preloadModelProvider,
+      @NonNull PreloadSizeProvider<T> preloadDimensionProvider, int minPreload, int maxPreload) {
+    this(Glide.with(activity), preloadModelProvider, preloadDimensionProvider, minPreload,
+        maxPreload);
+  }
+
+  /**
+   * Helper constructor that accepts an {@link FragmentActivity}.
+   */
+  public PredictiveRecyclerViewPreloader(@NonNull FragmentActivity fragmentActivity,
+      @NonNull PreloadModelProvider<T> preloadModelProvider,
+      @NonNull PreloadSizeProvider<T> preloadDimensionProvider, int minPreload, int maxPreload) {
+    this(Glide.with(fragmentActivity), preloadModelProvider, preloadDimensionProvider, minPreload,
+        maxPreload);
+  }
+
+  /**
+   * Helper constructor that accepts an {@link Fragment}.
+   */
+  public PredictiveRecyclerViewPreloader(@NonNull Fragment fragment,
+      @NonNull PreloadModelProvider<T> preloadModelProvider,
+      @NonNull PreloadSizeProvider<T> preloadDimensionProvider, int minPreload, int maxPreload) {
+    this(Glide.with(fragment), preloadModelProvider, preloadDimensionProvider, minPreload,
+        maxPreload);
+  }
+
+  /**
+   * Constructor that accepts interfaces for providing the dimensions of images to preload, the list
+   * of models to preload for a given position, and the request to use to load images.
+   *
+   * @param preloadModelProvider     Provides models to load and requests capable of loading them.
+   * @param preloadDimensionProvider Provides the dimensions of images to load.
+   * @param minPreload               The number of items to preload when scrolling slowly.
+   * @param maxPreload               Maximum number of items to preload when scrolling quickly.
+   */
+  public PredictiveRecyclerViewPreloader(@NonNull RequestManager requestManager,
+      @NonNull PreloadModelProvider<T> preloadModelProvider,
+      @NonNull PreloadSizeProvider<T> preloadDimensionProvider, int minPreload, int maxPreload) {
+    PredictiveListPreloader<T> listPreloader = new PredictiveListPreloader<>(requestManager,
+        preloadModelProvider, preloadDimensionProvider, minPreload, maxPreload);
+    recyclerScrollListener = new RecyclerToListViewScrollListener(listPreloader);
+  }
+
+  @Override
+  public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+    recyclerScrollListener.onScrollStateChanged(recyclerView, newState);
+  }
+
+  @Override
+  public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+    recyclerScrollListener.onScrolled(recyclerView, dx, dy);
+  }
+}
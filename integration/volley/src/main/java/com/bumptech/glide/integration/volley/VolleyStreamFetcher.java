@@ -82,7 +82,7 @@ public class VolleyStreamFetcher implements DataFetcher<InputStream> {
     return DataSource.REMOTE;
   }
 
-  private static Request.Priority glideToVolleyPriority(@NonNull Priority priority) {
+  static Request.Priority glideToVolleyPriority(@NonNull Priority priority) {
     switch (priority) {
       case LOW:
         return Request.Priority.LOW;
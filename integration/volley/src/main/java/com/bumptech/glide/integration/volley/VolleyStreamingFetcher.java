@@ -0,0 +1,274 @@
+package com.bumptech.glide.integration.volley;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.android.volley.NetworkError;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.data.HttpUrlFetcher;
+import com.bumptech.glide.load.data.PriorityAwareDataFetcher;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.util.Synthetic;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * A DataFetcher backed by volley that hands Glide the body of each response as it's read from the
+ * network, rather than after it has been buffered into a byte array like
+ * {@link VolleyStreamFetcher}.
+ *
+ * <p>Requests are scheduled by the given {@link RequestQueue}, which should use a
+ * {@link VolleyStreamingNetwork} so that bodies are streamed. The stream is passed to Glide as
+ * soon as the response headers are received, so Glide can write it to its disk cache or decode
+ * it without holding a second copy of the image in memory. With other networks, responses are
+ * buffered as they are by {@link VolleyStreamFetcher}.
+ *
+ * <p>Requests that are still waiting in the queue when their priority changes are replaced with
+ * a request with the new priority.
+ */
+// Public API.
+@SuppressWarnings("WeakerAccess")
+public class VolleyStreamingFetcher implements PriorityAwareDataFetcher<InputStream> {
+  private static final String TAG = "VolleyStreamingFetcher";
+
+  private final RequestQueue requestQueue;
+  private final GlideUrl url;
+  // Guarded by this.
+  private StreamingRequest request;
+  private DataCallback<? super InputStream> callback;
+  private boolean isCancelled;
+
+  public VolleyStreamingFetcher(RequestQueue requestQueue, GlideUrl url) {
+    this.requestQueue = requestQueue;
+    this.url = url;
+  }
+
+  @Override
+  public void loadData(@NonNull Priority priority,
+      @NonNull DataCallback<? super InputStream> callback) {
+    StreamingRequest local;
+    synchronized (this) {
+      this.callback = callback;
+      local = new StreamingRequest(
+          url, callback, VolleyStreamFetcher.glideToVolleyPriority(priority));
+      request = local;
+    }
+    requestQueue.add(local);
+  }
+
+  @Override
+  public void onPriorityChanged(@NonNull Priority priority) {
+    Request.Priority volleyPriority = VolleyStreamFetcher.glideToVolleyPriority(priority);
+    StreamingRequest replacement;
+    synchronized (this) {
+      // Volley orders its queue when requests are added, so the only way to move a queued request
+      // is to cancel it and add a new one.
+      if (request == null
+          || isCancelled
+          || request.getPriority() == volleyPriority
+          || !request.cancelIfNotStarted()) {
+        return;
+      }
+      replacement = new StreamingRequest(url, callback, volleyPriority);
+      request = replacement;
+    }
+    requestQueue.add(replacement);
+  }
+
+  @Override
+  public void cleanup() {
+    StreamingRequest local;
+    synchronized (this) {
+      local = request;
+    }
+    if (local != null) {
+      local.cleanup();
+    }
+  }
+
+  @Override
+  public void cancel() {
+    StreamingRequest local;
+    synchronized (this) {
+      isCancelled = true;
+      local = request;
+    }
+    if (local != null) {
+      local.cancel();
+    }
+  }
+
+  @NonNull
+  @Override
+  public Class<InputStream> getDataClass() {
+    return InputStream.class;
+  }
+
+  @NonNull
+  @Override
+  public DataSource getDataSource() {
+    return DataSource.REMOTE;
+  }
+
+  @Synthetic
+  static InputStream loadStream(HttpUrlFetcher fetcher) throws VolleyError {
+    SynchronousCallback callback = new SynchronousCallback();
+    // HttpUrlFetcher loads synchronously and ignores the priority, Volley has already applied it.
+    fetcher.loadData(Priority.NORMAL, callback);
+    if (callback.exception != null) {
+      throw new NetworkError(callback.exception);
+    }
+    return callback.data;
+  }
+
+  /**
+   * A {@link com.android.volley.Request} whose response body is streamed to Glide by
+   * {@link VolleyStreamingNetwork}, or delivered from a buffer by other networks.
+   */
+  public static class StreamingRequest extends Request<Void> {
+    private final GlideUrl url;
+    private final DataCallback<? super InputStream> callback;
+    private final Priority priority;
+    // Guarded by this.
+    private boolean isStarted;
+    private boolean isStreamed;
+    @Nullable private HttpUrlFetcher fetcher;
+
+    StreamingRequest(
+        GlideUrl url, DataCallback<? super InputStream> callback, Priority priority) {
+      super(Method.GET, url.toStringUrl(), null);
+      this.url = url;
+      this.callback = callback;
+      this.priority = priority;
+      // Bodies aren't buffered, so there's nothing for Volley to cache.
+      setShouldCache(false);
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+      return url.getHeaders();
+    }
+
+    @Override
+    public Priority getPriority() {
+      return priority;
+    }
+
+    /**
+     * Connects and passes the response body to Glide, returning as soon as the response headers
+     * have been received.
+     *
+     * <p>Called by {@link VolleyStreamingNetwork} on one of Volley's network threads.
+     */
+    void performStreamingRequest() throws VolleyError {
+      HttpUrlFetcher local;
+      synchronized (this) {
+        if (isCanceled()) {
+          throw new VolleyError("Request was cancelled before it started");
+        }
+        isStarted = true;
+        local = new HttpUrlFetcher(url, getTimeoutMs());
+        fetcher = local;
+      }
+
+      InputStream stream = loadStream(local);
+      synchronized (this) {
+        if (isCanceled()) {
+          local.cleanup();
+          throw new VolleyError("Request was cancelled while connecting");
+        }
+        isStreamed = true;
+      }
+      callback.onDataReady(stream);
+    }
+
+    /**
+     * Cancels this request and returns {@code true} if a network thread hasn't started it yet,
+     * otherwise returns {@code false}.
+     */
+    synchronized boolean cancelIfNotStarted() {
+      if (isStarted) {
+        return false;
+      }
+      cancel();
+      return true;
+    }
+
+    @Override
+    public void cancel() {
+      HttpUrlFetcher local;
+      synchronized (this) {
+        super.cancel();
+        local = fetcher;
+      }
+      if (local != null) {
+        local.cancel();
+      }
+    }
+
+    /** Closes the response body, if any. */
+    void cleanup() {
+      HttpUrlFetcher local;
+      synchronized (this) {
+        local = fetcher;
+      }
+      if (local != null) {
+        local.cleanup();
+      }
+    }
+
+    @Override
+    protected VolleyError parseNetworkError(VolleyError volleyError) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Volley failed to retrieve response", volleyError);
+      }
+      if (!isCanceled()) {
+        callback.onLoadFailed(volleyError);
+      }
+      return super.parseNetworkError(volleyError);
+    }
+
+    @Override
+    protected Response<Void> parseNetworkResponse(NetworkResponse response) {
+      boolean isBuffered;
+      synchronized (this) {
+        isBuffered = !isStreamed;
+      }
+      // Networks other than VolleyStreamingNetwork read the entire body into a byte array.
+      if (isBuffered && !isCanceled()) {
+        callback.onDataReady(new ByteArrayInputStream(response.data));
+      }
+      return Response.success(null, null);
+    }
+
+    @Override
+    protected void deliverResponse(Void response) {
+      // Do nothing.
+    }
+  }
+
+  private static final class SynchronousCallback implements DataCallback<InputStream> {
+    @Synthetic InputStream data;
+    @Synthetic Exception exception;
+
+    @Synthetic
+    SynchronousCallback() { }
+
+    @Override
+    public void onDataReady(@Nullable InputStream data) {
+      this.data = data;
+    }
+
+    @Override
+    public void onLoadFailed(@NonNull Exception e) {
+      exception = e;
+    }
+  }
+}
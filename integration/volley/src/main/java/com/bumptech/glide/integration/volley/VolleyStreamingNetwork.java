@@ -0,0 +1,47 @@
+package com.bumptech.glide.integration.volley;
+
+import com.android.volley.Network;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.BasicNetwork;
+import com.android.volley.toolbox.HurlStack;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+
+/**
+ * A Volley {@link Network} that streams the bodies of {@link VolleyStreamingFetcher}'s requests to
+ * Glide instead of reading them into byte arrays, and performs all other requests with the given
+ * {@link Network}.
+ *
+ * <p>Each streamed request occupies one of the {@link com.android.volley.RequestQueue}'s network
+ * threads only until its response headers are received. The body is then read by Glide.
+ */
+// Public API.
+@SuppressWarnings("WeakerAccess")
+public class VolleyStreamingNetwork implements Network {
+  private final Network network;
+
+  /**
+   * Constructor for a network that performs requests other than Glide's with a
+   * {@link BasicNetwork} and a {@link HurlStack}.
+   */
+  public VolleyStreamingNetwork() {
+    this(new BasicNetwork(new HurlStack()));
+  }
+
+  public VolleyStreamingNetwork(Network network) {
+    this.network = network;
+  }
+
+  @Override
+  public NetworkResponse performRequest(Request<?> request) throws VolleyError {
+    if (request instanceof VolleyStreamingFetcher.StreamingRequest) {
+      ((VolleyStreamingFetcher.StreamingRequest) request).performStreamingRequest();
+      // The body has already been handed to Glide, there's nothing for Volley to parse.
+      return new NetworkResponse(HttpURLConnection.HTTP_OK, null,
+          Collections.<String, String>emptyMap(), /*notModified=*/ false);
+    }
+    return network.performRequest(request);
+  }
+}
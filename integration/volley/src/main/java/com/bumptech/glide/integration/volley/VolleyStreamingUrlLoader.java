@@ -0,0 +1,97 @@
+package com.bumptech.glide.integration.volley;
+
+import android.support.annotation.NonNull;
+import com.android.volley.RequestQueue;
+import com.android.volley.toolbox.NoCache;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import java.io.InputStream;
+
+/**
+ * A model loader for fetching media over http/https using Volley that streams response bodies to
+ * Glide with {@link VolleyStreamingFetcher}.
+ *
+ * <p>To use it instead of {@link VolleyUrlLoader}, replace the loader in an
+ * {@link com.bumptech.glide.module.AppGlideModule}:
+ *
+ * <pre>
+ * <code>
+ * registry.replace(
+ *     GlideUrl.class, InputStream.class, new VolleyStreamingUrlLoader.Factory());
+ * </code>
+ * </pre>
+ */
+// Public API.
+@SuppressWarnings("WeakerAccess")
+public class VolleyStreamingUrlLoader implements ModelLoader<GlideUrl, InputStream> {
+
+  private final RequestQueue requestQueue;
+
+  public VolleyStreamingUrlLoader(RequestQueue requestQueue) {
+    this.requestQueue = requestQueue;
+  }
+
+  @Override
+  public boolean handles(@NonNull GlideUrl url) {
+    return true;
+  }
+
+  @Override
+  public LoadData<InputStream> buildLoadData(@NonNull GlideUrl url, int width, int height,
+      @NonNull Options options) {
+    return new LoadData<>(url, new VolleyStreamingFetcher(requestQueue, url));
+  }
+
+  /**
+   * The default factory for {@link VolleyStreamingUrlLoader}s.
+   */
+  public static class Factory implements ModelLoaderFactory<GlideUrl, InputStream> {
+    private static volatile RequestQueue internalQueue;
+
+    private final RequestQueue requestQueue;
+
+    /**
+     * Constructor for a new Factory that runs requests using a static singleton request queue
+     * with a {@link VolleyStreamingNetwork}.
+     */
+    public Factory() {
+      this(getInternalQueue());
+    }
+
+    /**
+     * Constructor for a new Factory that runs requests using the given {@link RequestQueue}, which
+     * should use a {@link VolleyStreamingNetwork}.
+     */
+    public Factory(RequestQueue requestQueue) {
+      this.requestQueue = requestQueue;
+    }
+
+    @NonNull
+    @Override
+    public ModelLoader<GlideUrl, InputStream> build(MultiModelLoaderFactory factory) {
+      return new VolleyStreamingUrlLoader(requestQueue);
+    }
+
+    @Override
+    public void teardown() {
+      // Do nothing.
+    }
+
+    private static RequestQueue getInternalQueue() {
+      if (internalQueue == null) {
+        synchronized (Factory.class) {
+          if (internalQueue == null) {
+            // Glide has its own disk cache and bodies aren't buffered, so Volley's cache is unused.
+            RequestQueue queue = new RequestQueue(new NoCache(), new VolleyStreamingNetwork());
+            queue.start();
+            internalQueue = queue;
+          }
+        }
+      }
+      return internalQueue;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package com.bumptech.glide.integration.volley;
+
+import static com.bumptech.glide.testutil.TestUtil.assertStreamOf;
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.NoCache;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.GlideUrl;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18,
+    shadows = VolleyStreamFetcherServerTest.FakeSystemClock.class)
+public class VolleyStreamingFetcherTest {
+  private static final String DEFAULT_PATH = "/fakepath";
+
+  @Mock private DataFetcher.DataCallback<InputStream> callback;
+
+  private MockWebServer mockWebServer;
+  private RequestQueue requestQueue;
+  private CountDownLatch waitForResponseLatch;
+
+  @Before
+  public void setUp() throws IOException {
+    MockitoAnnotations.initMocks(this);
+
+    waitForResponseLatch = new CountDownLatch(1);
+    doAnswer(new CountDown()).when(callback).onDataReady(any(InputStream.class));
+    doAnswer(new CountDown()).when(callback).onLoadFailed(any(Exception.class));
+    requestQueue = new RequestQueue(new NoCache(), new VolleyStreamingNetwork());
+    requestQueue.start();
+    mockWebServer = new MockWebServer();
+    mockWebServer.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    mockWebServer.shutdown();
+    requestQueue.stop();
+  }
+
+  @Test
+  public void loadData_withStatusOk_streamsBody() throws Exception {
+    String expected = "fakedata";
+    mockWebServer.enqueue(new MockResponse().setBody(expected).setResponseCode(200));
+    VolleyStreamingFetcher fetcher = getFetcher(requestQueue);
+
+    fetcher.loadData(Priority.HIGH, callback);
+    waitForResponseLatch.await();
+
+    ArgumentCaptor<InputStream> streamCaptor = ArgumentCaptor.forClass(InputStream.class);
+    verify(callback).onDataReady(streamCaptor.capture());
+    assertStreamOf(expected, streamCaptor.getValue());
+    fetcher.cleanup();
+  }
+
+  @Test
+  public void loadData_withStatus500_callsLoadFailed() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(500).setBody("error"));
+
+    getFetcher(requestQueue).loadData(Priority.NORMAL, callback);
+    waitForResponseLatch.await();
+
+    verify(callback).onLoadFailed(isA(VolleyError.class));
+    verify(callback, never()).onDataReady(any(InputStream.class));
+  }
+
+  @Test
+  public void onPriorityChanged_whileQueued_replacesRequestWithNewPriority() {
+    RequestQueue queue = mock(RequestQueue.class);
+    VolleyStreamingFetcher fetcher = getFetcher(queue);
+
+    fetcher.loadData(Priority.LOW, callback);
+    fetcher.onPriorityChanged(Priority.IMMEDIATE);
+
+    List<Request<?>> requests = captureAddedRequests(queue, 2);
+    assertThat(requests.get(0).isCanceled()).isTrue();
+    assertThat(requests.get(0).getPriority()).isEqualTo(Request.Priority.LOW);
+    assertThat(requests.get(1).isCanceled()).isFalse();
+    assertThat(requests.get(1).getPriority()).isEqualTo(Request.Priority.IMMEDIATE);
+  }
+
+  @Test
+  public void onPriorityChanged_withSameVolleyPriority_keepsRequest() {
+    RequestQueue queue = mock(RequestQueue.class);
+    VolleyStreamingFetcher fetcher = getFetcher(queue);
+
+    fetcher.loadData(Priority.NORMAL, callback);
+    fetcher.onPriorityChanged(Priority.NORMAL);
+
+    assertThat(captureAddedRequests(queue, 1).get(0).isCanceled()).isFalse();
+  }
+
+  @Test
+  public void onPriorityChanged_afterCancel_doesNotAddRequest() {
+    RequestQueue queue = mock(RequestQueue.class);
+    VolleyStreamingFetcher fetcher = getFetcher(queue);
+
+    fetcher.loadData(Priority.LOW, callback);
+    fetcher.cancel();
+    fetcher.onPriorityChanged(Priority.HIGH);
+
+    assertThat(captureAddedRequests(queue, 1).get(0).isCanceled()).isTrue();
+  }
+
+  @Test
+  public void parseNetworkResponse_fromBufferingNetwork_deliversBufferedBody() throws Exception {
+    RequestQueue queue = mock(RequestQueue.class);
+    getFetcher(queue).loadData(Priority.NORMAL, callback);
+    VolleyStreamingFetcher.StreamingRequest request =
+        (VolleyStreamingFetcher.StreamingRequest) captureAddedRequests(queue, 1).get(0);
+
+    request.parseNetworkResponse(new NetworkResponse("buffered".getBytes("UTF-8")));
+
+    ArgumentCaptor<InputStream> streamCaptor = ArgumentCaptor.forClass(InputStream.class);
+    verify(callback).onDataReady(streamCaptor.capture());
+    assertStreamOf("buffered", streamCaptor.getValue());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Request<?>> captureAddedRequests(RequestQueue queue, int count) {
+    ArgumentCaptor<Request> captor = ArgumentCaptor.forClass(Request.class);
+    verify(queue, times(count)).add(captor.capture());
+    return (List<Request<?>>) (List<?>) captor.getAllValues();
+  }
+
+  private VolleyStreamingFetcher getFetcher(RequestQueue queue) {
+    return new VolleyStreamingFetcher(
+        queue, new GlideUrl(mockWebServer.url(DEFAULT_PATH).toString()));
+  }
+
+  private class CountDown implements Answer<Void> {
+
+    @Override
+    public Void answer(InvocationOnMock invocation) throws Throwable {
+      waitForResponseLatch.countDown();
+      return null;
+    }
+  }
+}
@@ -25,10 +25,17 @@ import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.load.ImageHeaderParser;
 import com.bumptech.glide.load.ResourceDecoder;
 import com.bumptech.glide.load.data.InputStreamRewinder;
+import com.bumptech.glide.load.engine.DiskCachePrefetcher;
+import com.bumptech.glide.load.engine.EncodeMetrics;
 import com.bumptech.glide.load.engine.Engine;
+import com.bumptech.glide.load.engine.LoadMetricsListener;
+import com.bumptech.glide.load.engine.PartialDownloadCache;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheFactory;
+import com.bumptech.glide.load.engine.cache.MemoryBudgetController;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
 import com.bumptech.glide.load.engine.prefill.BitmapPreFiller;
 import com.bumptech.glide.load.engine.prefill.PreFillType;
 import com.bumptech.glide.load.model.AssetUriLoader;
@@ -50,9 +57,14 @@ import com.bumptech.glide.load.model.stream.HttpUriLoader;
 import com.bumptech.glide.load.model.stream.MediaStoreImageThumbLoader;
 import com.bumptech.glide.load.model.stream.MediaStoreVideoThumbLoader;
 import com.bumptech.glide.load.model.stream.UrlLoader;
+import com.bumptech.glide.load.resource.apng.ApngDecoder;
 import com.bumptech.glide.load.resource.apng.ApngDrawable;
+import com.bumptech.glide.load.resource.apng.ApngFrameResourceDecoder;
 import com.bumptech.glide.load.resource.apng.ApngResourceDecoder;
 import com.bumptech.glide.load.resource.apng.ApngResourceEncoder;
+import com.bumptech.glide.load.resource.apng.StreamingApngDrawable;
+import com.bumptech.glide.load.resource.apng.StreamingApngDrawableEncoder;
+import com.bumptech.glide.load.resource.apng.StreamingApngResourceDecoder;
 import com.bumptech.glide.load.resource.bitmap.BitmapDrawableDecoder;
 import com.bumptech.glide.load.resource.bitmap.BitmapDrawableEncoder;
 import com.bumptech.glide.load.resource.bitmap.BitmapEncoder;
@@ -60,10 +72,12 @@ import com.bumptech.glide.load.resource.bitmap.ByteBufferBitmapDecoder;
 import com.bumptech.glide.load.resource.bitmap.DefaultImageHeaderParser;
 import com.bumptech.glide.load.resource.bitmap.Downsampler;
 import com.bumptech.glide.load.resource.bitmap.ExifInterfaceImageHeaderParser;
+import com.bumptech.glide.load.resource.bitmap.ImageMetadataCache;
 import com.bumptech.glide.load.resource.bitmap.ResourceBitmapDecoder;
 import com.bumptech.glide.load.resource.bitmap.StreamBitmapDecoder;
 import com.bumptech.glide.load.resource.bitmap.UnitBitmapDecoder;
 import com.bumptech.glide.load.resource.bitmap.VideoDecoder;
+import com.bumptech.glide.load.resource.bitmap.VideoFrameEngine;
 import com.bumptech.glide.load.resource.bytes.ByteBufferRewinder;
 import com.bumptech.glide.load.resource.drawable.ResourceDrawableDecoder;
 import com.bumptech.glide.load.resource.drawable.UnitDrawableDecoder;
@@ -73,6 +87,8 @@ import com.bumptech.glide.load.resource.gif.GifDrawable;
 import com.bumptech.glide.load.resource.gif.GifDrawableEncoder;
 import com.bumptech.glide.load.resource.gif.GifFrameResourceDecoder;
 import com.bumptech.glide.load.resource.gif.StreamGifDecoder;
+import com.bumptech.glide.load.resource.tile.TiledImage;
+import com.bumptech.glide.load.resource.tile.TiledImageDecoder;
 import com.bumptech.glide.load.resource.transcode.BitmapBytesTranscoder;
 import com.bumptech.glide.load.resource.transcode.BitmapDrawableTranscoder;
 import com.bumptech.glide.load.resource.transcode.DrawableBytesTranscoder;
@@ -116,8 +132,13 @@ public class Glide implements ComponentCallbacks2 {
   private final GlideContext glideContext;
   private final Registry registry;
   private final ArrayPool arrayPool;
+  private final GlideExecutor animationExecutor;
+  private final GlideExecutor prefetchExecutor;
+  private final VideoFrameEngine videoFrameEngine;
+  @Nullable private final MemoryBudgetController memoryBudgetController;
   private final RequestManagerRetriever requestManagerRetriever;
   private final ConnectivityMonitorFactory connectivityMonitorFactory;
+  private final PartialDownloadCache partialDownloadCache;
   private final List<RequestManager> managers = new ArrayList<>();
   private MemoryCategory memoryCategory = MemoryCategory.NORMAL;
 
@@ -218,6 +239,10 @@ public class Glide implements ComponentCallbacks2 {
           .getApplicationContext()
           .unregisterComponentCallbacks(glide);
       glide.engine.shutdown();
+      glide.videoFrameEngine.clearMemory();
+      if (glide.memoryBudgetController != null) {
+        glide.memoryBudgetController.stop();
+      }
     }
     glide = null;
   }
@@ -313,26 +338,45 @@ public class Glide implements ComponentCallbacks2 {
   }
 
   Glide(
-      @NonNull Context context,
+      @NonNull final Context context,
       @NonNull Engine engine,
       @NonNull MemoryCache memoryCache,
       @NonNull BitmapPool bitmapPool,
       @NonNull ArrayPool arrayPool,
+      @NonNull GlideExecutor animationExecutor,
+      @NonNull GlideExecutor prefetchExecutor,
+      @Nullable MemoryBudgetController memoryBudgetController,
       @NonNull RequestManagerRetriever requestManagerRetriever,
       @NonNull ConnectivityMonitorFactory connectivityMonitorFactory,
       int logLevel,
       @NonNull RequestOptions defaultRequestOptions,
       @NonNull Map<Class<?>, TransitionOptions<?, ?>> defaultTransitionOptions,
-      @NonNull List<RequestListener<Object>> defaultRequestListeners) {
+      @NonNull List<RequestListener<Object>> defaultRequestListeners,
+      @Nullable LoadMetricsListener loadMetricsListener) {
     this.engine = engine;
     this.bitmapPool = bitmapPool;
     this.arrayPool = arrayPool;
+    this.animationExecutor = animationExecutor;
+    this.prefetchExecutor = prefetchExecutor;
+    this.memoryBudgetController = memoryBudgetController;
     this.memoryCache = memoryCache;
     this.requestManagerRetriever = requestManagerRetriever;
     this.connectivityMonitorFactory = connectivityMonitorFactory;
+    // Getting the cache directory may require disk I/O, so it's only done once a download is
+    // staged.
+    partialDownloadCache = engine.getPartialDownloadCache(
+        new DiskLruCacheFactory.CacheDirectoryGetter() {
+          @Override
+          public File getCacheDirectory() {
+            return context.getCacheDir();
+          }
+        });
 
     DecodeFormat decodeFormat = defaultRequestOptions.getOptions().get(Downsampler.DECODE_FORMAT);
     bitmapPreFiller = new BitmapPreFiller(memoryCache, bitmapPool, decodeFormat);
+    if (memoryBudgetController != null) {
+      memoryBudgetController.start();
+    }
 
     final Resources resources = context.getResources();
 
@@ -352,11 +396,13 @@ public class Glide implements ComponentCallbacks2 {
             imageHeaderParsers,
             resources.getDisplayMetrics(),
             bitmapPool,
-            arrayPool);
+            arrayPool,
+            new ImageMetadataCache());
     ByteBufferGifDecoder byteBufferGifDecoder =
         new ByteBufferGifDecoder(context, imageHeaderParsers, bitmapPool, arrayPool);
+    videoFrameEngine = new VideoFrameEngine(bitmapPool);
     ResourceDecoder<ParcelFileDescriptor, Bitmap> parcelFileDescriptorVideoDecoder =
-        VideoDecoder.parcel(bitmapPool);
+        VideoDecoder.parcel(bitmapPool, videoFrameEngine);
     ByteBufferBitmapDecoder byteBufferBitmapDecoder = new ByteBufferBitmapDecoder(downsampler);
     ApngResourceDecoder apngResourceDecoder = new ApngResourceDecoder(context, bitmapPool, arrayPool);
     StreamBitmapDecoder streamBitmapDecoder = new StreamBitmapDecoder(downsampler, arrayPool);
@@ -391,7 +437,7 @@ public class Glide implements ComponentCallbacks2 {
             Registry.BUCKET_BITMAP,
             AssetFileDescriptor.class,
             Bitmap.class,
-            VideoDecoder.asset(bitmapPool))
+            VideoDecoder.asset(bitmapPool, videoFrameEngine))
         .append(Bitmap.class, Bitmap.class, UnitModelLoader.Factory.<Bitmap>getInstance())
         .append(
             Registry.BUCKET_BITMAP, Bitmap.class, Bitmap.class, new UnitBitmapDecoder())
@@ -433,6 +479,25 @@ public class Glide implements ComponentCallbacks2 {
         /* APNG */
         .append(Registry.BUCKET_APNG, InputStream.class, ApngDrawable.class, apngResourceDecoder)
         .append(ApngDrawable.class, new ApngResourceEncoder())
+        .append(
+            Registry.BUCKET_APNG,
+            InputStream.class,
+            StreamingApngDrawable.class,
+            new StreamingApngResourceDecoder(context, imageHeaderParsers, bitmapPool, arrayPool))
+        .append(StreamingApngDrawable.class, new StreamingApngDrawableEncoder())
+        /* APNG Frames */
+        .append(
+            ApngDecoder.class, ApngDecoder.class, UnitModelLoader.Factory.<ApngDecoder>getInstance())
+        .append(
+            Registry.BUCKET_BITMAP,
+            ApngDecoder.class,
+            Bitmap.class,
+            new ApngFrameResourceDecoder(bitmapPool))
+        /* Tiled images */
+        .append(
+            ParcelFileDescriptor.class,
+            TiledImage.class,
+            new TiledImageDecoder(imageHeaderParsers, memoryCache, bitmapPool, arrayPool))
         /* Drawables */
         .append(Uri.class, Drawable.class, resourceDrawableDecoder)
         .append(
@@ -496,9 +561,14 @@ public class Glide implements ComponentCallbacks2 {
         .append(Uri.class, InputStream.class, new UrlUriLoader.StreamFactory())
         .append(URL.class, InputStream.class, new UrlLoader.StreamFactory())
         .append(Uri.class, File.class, new MediaStoreFileLoader.Factory(context))
-        .append(GlideUrl.class, InputStream.class, new HttpGlideUrlLoader.Factory())
+        .append(
+            GlideUrl.class,
+            InputStream.class,
+            new HttpGlideUrlLoader.Factory(partialDownloadCache))
         .append(byte[].class, ByteBuffer.class, new ByteArrayLoader.ByteBufferFactory())
         .append(byte[].class, InputStream.class, new ByteArrayLoader.StreamFactory())
+        .append(
+            ByteBuffer.class, ByteBuffer.class, UnitModelLoader.Factory.<ByteBuffer>getInstance())
         .append(Uri.class, Uri.class, UnitModelLoader.Factory.<Uri>getInstance())
         .append(Drawable.class, Drawable.class, UnitModelLoader.Factory.<Drawable>getInstance())
         .append(Drawable.class, Drawable.class, new UnitDrawableDecoder())
@@ -526,7 +596,8 @@ public class Glide implements ComponentCallbacks2 {
             defaultTransitionOptions,
             defaultRequestListeners,
             engine,
-            logLevel);
+            logLevel,
+            loadMetricsListener);
   }
 
   /**
@@ -558,6 +629,61 @@ public class Glide implements ComponentCallbacks2 {
     return arrayPool;
   }
 
+  /**
+   * Returns the {@link GlideExecutor} used to load frames of animated images.
+   *
+   * @see GlideBuilder#setAnimationExecutor(GlideExecutor)
+   */
+  @NonNull
+  public GlideExecutor getAnimationExecutor() {
+    return animationExecutor;
+  }
+
+  /**
+   * Returns a snapshot of the state of the queue of transformed resources waiting to be written to
+   * the disk cache, useful for monitoring how far encoding lags behind loads.
+   */
+  @NonNull
+  public EncodeMetrics getEncodeMetrics() {
+    return engine.getEncodeMetrics();
+  }
+
+  /**
+   * Returns the {@link DiskCachePrefetcher} used to fetch source data for batches of models into
+   * the disk cache ahead of time, for example:
+   *
+   * <pre>
+   * <code>
+   * Glide.get(context).getDiskCachePrefetcher().prefetch(urls, null);
+   * </code>
+   * </pre>
+   *
+   * @see GlideBuilder#setPrefetchExecutor(GlideExecutor)
+   */
+  @NonNull
+  public DiskCachePrefetcher getDiskCachePrefetcher() {
+    return engine.getDiskCachePrefetcher(
+        glideContext, prefetchExecutor, connectivityMonitorFactory);
+  }
+
+  /**
+   * Returns the {@link PartialDownloadCache} used to resume interrupted downloads of large images,
+   * which can be passed to custom networking integrations so that they resume downloads too.
+   */
+  @NonNull
+  public PartialDownloadCache getPartialDownloadCache() {
+    return partialDownloadCache;
+  }
+
+  /**
+   * Returns the {@link VideoFrameEngine} used to extract frames from videos, which can extract many
+   * frames of the same video ahead of time, for example for a scrubbing strip.
+   */
+  @NonNull
+  public VideoFrameEngine getVideoFrameEngine() {
+    return videoFrameEngine;
+  }
+
   /**
    * @return The context associated with this instance.
    */
@@ -616,6 +742,7 @@ public class Glide implements ComponentCallbacks2 {
     Util.assertMainThread();
     // memory cache needs to be cleared before bitmap pool to clear re-pooled Bitmaps too. See #687.
     memoryCache.clearMemory();
+    videoFrameEngine.clearMemory();
     bitmapPool.clearMemory();
     arrayPool.clearMemory();
   }
@@ -630,8 +757,12 @@ public class Glide implements ComponentCallbacks2 {
     Util.assertMainThread();
     // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
     memoryCache.trimMemory(level);
+    videoFrameEngine.trimMemory(level);
     bitmapPool.trimMemory(level);
     arrayPool.trimMemory(level);
+    if (memoryBudgetController != null) {
+      memoryBudgetController.onTrimMemory(level);
+    }
   }
 
   /**
@@ -673,9 +804,13 @@ public class Glide implements ComponentCallbacks2 {
   public MemoryCategory setMemoryCategory(@NonNull MemoryCategory memoryCategory) {
     // Engine asserts this anyway when removing resources, fail faster and consistently
     Util.assertMainThread();
-    // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
-    memoryCache.setSizeMultiplier(memoryCategory.getMultiplier());
-    bitmapPool.setSizeMultiplier(memoryCategory.getMultiplier());
+    if (memoryBudgetController != null) {
+      memoryBudgetController.setSizeMultiplier(memoryCategory.getMultiplier());
+    } else {
+      // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
+      memoryCache.setSizeMultiplier(memoryCategory.getMultiplier());
+      bitmapPool.setSizeMultiplier(memoryCategory.getMultiplier());
+    }
     MemoryCategory oldCategory = this.memoryCategory;
     this.memoryCategory = memoryCategory;
     return oldCategory;
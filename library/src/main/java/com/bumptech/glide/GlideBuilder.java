@@ -9,14 +9,18 @@ import android.util.Log;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.engine.Engine;
 import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.load.engine.LoadMetricsListener;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
 import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.AdaptiveCache;
 import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
 import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemoryBudgetController;
+import com.bumptech.glide.load.engine.cache.MemoryBudgetPolicy;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
 import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
@@ -36,6 +40,7 @@ import java.util.Map;
  * A builder class for setting default structural classes for Glide to use.
  */
 public final class GlideBuilder {
+  private static final String TAG = "GlideBuilder";
   private final Map<Class<?>, TransitionOptions<?, ?>> defaultTransitionOptions = new ArrayMap<>();
   private Engine engine;
   private BitmapPool bitmapPool;
@@ -45,12 +50,17 @@ public final class GlideBuilder {
   private GlideExecutor diskCacheExecutor;
   private DiskCache.Factory diskCacheFactory;
   private MemorySizeCalculator memorySizeCalculator;
+  @Nullable
+  private MemoryBudgetPolicy memoryBudgetPolicy;
+  private LoadMetricsListener loadMetricsListener;
   private ConnectivityMonitorFactory connectivityMonitorFactory;
   private int logLevel = Log.INFO;
   private RequestOptions defaultRequestOptions = new RequestOptions();
   @Nullable
   private RequestManagerFactory requestManagerFactory;
   private GlideExecutor animationExecutor;
+  private GlideExecutor encodeExecutor;
+  private GlideExecutor prefetchExecutor;
   private boolean isActiveResourceRetentionAllowed;
   @Nullable
   private List<RequestListener<Object>> defaultRequestListeners;
@@ -200,6 +210,46 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * Sets the {@link GlideExecutor} to use when writing transformed resources to the disk cache
+   * after they've been delivered to requestors.
+   *
+   * <p>Defaults to a single thread.
+   *
+   * <p>Use the {@link GlideExecutor#newEncodeExecutor()} method if you'd like to specify options for
+   * the encode executor.
+   *
+   * @param service The {@link GlideExecutor} to use.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  @NonNull
+  public GlideBuilder setEncodeExecutor(@Nullable GlideExecutor service) {
+    this.encodeExecutor = service;
+    return this;
+  }
+
+  /**
+   * Sets the {@link GlideExecutor} to use when prefetching source data into the disk cache with
+   * {@link Glide#getDiskCachePrefetcher()}.
+   *
+   * <p>Defaults to two threads.
+   *
+   * <p>Use the {@link GlideExecutor#newPrefetchExecutor()} method if you'd like to specify options
+   * for the prefetch executor.
+   *
+   * @param service The {@link GlideExecutor} to use.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  @NonNull
+  public GlideBuilder setPrefetchExecutor(@Nullable GlideExecutor service) {
+    this.prefetchExecutor = service;
+    return this;
+  }
+
   /**
    * Sets the default {@link RequestOptions} to use for all loads across the app.
    *
@@ -275,6 +325,47 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * Sets the {@link MemoryBudgetPolicy} used to periodically redistribute memory between the
+   * {@link MemoryCache}, the {@link BitmapPool} and the {@link ArrayPool} based on their recent hit
+   * and eviction rates, or {@code null} to keep the sizes provided by the
+   * {@link MemorySizeCalculator}.
+   *
+   * <p>The combined size of the caches will never exceed the sum of their initial sizes. The
+   * policy is only used if all three implement {@link AdaptiveCache}, which the default
+   * implementations do.
+   *
+   * @see com.bumptech.glide.load.engine.cache.HitRateMemoryBudgetPolicy
+   *
+   * @param policy The policy to use.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setMemoryBudgetPolicy(@Nullable MemoryBudgetPolicy policy) {
+    this.memoryBudgetPolicy = policy;
+    return this;
+  }
+
+  /**
+   * Sets a {@link LoadMetricsListener} to be notified of the timing of each stage of every load,
+   * the source and size of the data each resource was loaded from, and hits and misses in the
+   * {@link LruBitmapPool}, or {@code null} to disable metrics.
+   *
+   * <p>Glide doesn't allocate to report metrics, so the listener can be left enabled in production.
+   *
+   * @param listener The listener to notify.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setLoadMetricsListener(@Nullable LoadMetricsListener listener) {
+    this.loadMetricsListener = listener;
+    return this;
+  }
+
   /**
    * Sets the {@link com.bumptech.glide.manager.ConnectivityMonitorFactory}
    * to use to notify {@link com.bumptech.glide.RequestManager} of connectivity events.
@@ -430,6 +521,14 @@ public final class GlideBuilder {
       animationExecutor = GlideExecutor.newAnimationExecutor();
     }
 
+    if (encodeExecutor == null) {
+      encodeExecutor = GlideExecutor.newEncodeExecutor();
+    }
+
+    if (prefetchExecutor == null) {
+      prefetchExecutor = GlideExecutor.newPrefetchExecutor();
+    }
+
     if (memorySizeCalculator == null) {
       memorySizeCalculator = new MemorySizeCalculator.Builder(context).build();
     }
@@ -447,6 +546,10 @@ public final class GlideBuilder {
       }
     }
 
+    if (loadMetricsListener != null && bitmapPool instanceof LruBitmapPool) {
+      ((LruBitmapPool) bitmapPool).setMetricsListener(loadMetricsListener);
+    }
+
     if (arrayPool == null) {
       arrayPool = new LruArrayPool(memorySizeCalculator.getArrayPoolSizeInBytes());
     }
@@ -459,6 +562,23 @@ public final class GlideBuilder {
       diskCacheFactory = new InternalCacheDiskCacheFactory(context);
     }
 
+    MemoryBudgetController memoryBudgetController = null;
+    if (memoryBudgetPolicy != null) {
+      if (memoryCache instanceof AdaptiveCache
+          && bitmapPool instanceof AdaptiveCache
+          && arrayPool instanceof AdaptiveCache) {
+        memoryBudgetController =
+            new MemoryBudgetController(
+                memoryBudgetPolicy,
+                (AdaptiveCache) memoryCache,
+                (AdaptiveCache) bitmapPool,
+                (AdaptiveCache) arrayPool);
+      } else if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Ignoring MemoryBudgetPolicy, the memory cache, bitmap pool and array pool must"
+            + " all implement AdaptiveCache");
+      }
+    }
+
     if (engine == null) {
       engine =
           new Engine(
@@ -467,7 +587,8 @@ public final class GlideBuilder {
               diskCacheExecutor,
               sourceExecutor,
               GlideExecutor.newUnlimitedSourceExecutor(),
-              GlideExecutor.newAnimationExecutor(),
+              animationExecutor,
+              encodeExecutor,
               isActiveResourceRetentionAllowed);
     }
 
@@ -486,11 +607,15 @@ public final class GlideBuilder {
         memoryCache,
         bitmapPool,
         arrayPool,
+        animationExecutor,
+        prefetchExecutor,
+        memoryBudgetController,
         requestManagerRetriever,
         connectivityMonitorFactory,
         logLevel,
         defaultRequestOptions.lock(),
         defaultTransitionOptions,
-        defaultRequestListeners);
+        defaultRequestListeners,
+        loadMetricsListener);
   }
 }
@@ -5,9 +5,11 @@ import android.content.ContextWrapper;
 import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.widget.ImageView;
 import com.bumptech.glide.load.engine.Engine;
+import com.bumptech.glide.load.engine.LoadMetricsListener;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.RequestOptions;
@@ -34,6 +36,7 @@ public class GlideContext extends ContextWrapper {
   private final Map<Class<?>, TransitionOptions<?, ?>> defaultTransitionOptions;
   private final Engine engine;
   private final int logLevel;
+  @Nullable private final LoadMetricsListener loadMetricsListener;
 
   public GlideContext(
       @NonNull Context context,
@@ -44,7 +47,8 @@ public class GlideContext extends ContextWrapper {
       @NonNull Map<Class<?>, TransitionOptions<?, ?>> defaultTransitionOptions,
       @NonNull List<RequestListener<Object>> defaultRequestListeners,
       @NonNull Engine engine,
-      int logLevel) {
+      int logLevel,
+      @Nullable LoadMetricsListener loadMetricsListener) {
     super(context.getApplicationContext());
     this.arrayPool = arrayPool;
     this.registry = registry;
@@ -54,6 +58,7 @@ public class GlideContext extends ContextWrapper {
     this.defaultTransitionOptions = defaultTransitionOptions;
     this.engine = engine;
     this.logLevel = logLevel;
+    this.loadMetricsListener = loadMetricsListener;
 
     mainHandler = new Handler(Looper.getMainLooper());
   }
@@ -112,4 +117,9 @@ public class GlideContext extends ContextWrapper {
   public ArrayPool getArrayPool() {
     return arrayPool;
   }
+
+  @Nullable
+  public LoadMetricsListener getLoadMetricsListener() {
+    return loadMetricsListener;
+  }
 }
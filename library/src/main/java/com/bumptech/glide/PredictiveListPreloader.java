@@ -0,0 +1,199 @@
+package com.bumptech.glide;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.widget.AbsListView;
+import com.bumptech.glide.ListPreloader.PreloadModelProvider;
+import com.bumptech.glide.ListPreloader.PreloadSizeProvider;
+import com.bumptech.glide.request.target.BaseTarget;
+import com.bumptech.glide.request.target.SizeReadyCallback;
+import com.bumptech.glide.request.transition.Transition;
+import com.bumptech.glide.util.Synthetic;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Like {@link ListPreloader}, loads resources ahead in the direction of scrolling in any
+ * {@link AbsListView}, but sizes and shifts the range of positions it preloads based on how fast
+ * the list is scrolling.
+ *
+ * <p>Slow scrolls preload only a few positions just past the visible ones. Fast scrolls and flings
+ * preload more positions, skip positions that will have scrolled past before they could be loaded
+ * and avoid positions past where a fling is expected to stop. Positions nearer the visible ones are
+ * loaded with a higher {@link Priority} than those further away, and preloads for positions that
+ * fall out of range are cancelled.
+ *
+ * <p>Must be set using
+ * {@link AbsListView#setOnScrollListener(android.widget.AbsListView.OnScrollListener)}, or have
+ * both of its corresponding methods called from another
+ * {@link android.widget.AbsListView.OnScrollListener} to function. Scroll state changes are used to
+ * detect flings.
+ *
+ * @param <T> The type of the model being displayed in the list.
+ */
+public class PredictiveListPreloader<T> implements AbsListView.OnScrollListener {
+  private static final int NO_POSITION = -1;
+
+  private final RequestManager requestManager;
+  private final PreloadModelProvider<T> preloadModelProvider;
+  private final PreloadSizeProvider<T> preloadDimensionProvider;
+  private final PreloadWindowPredictor predictor;
+  private final List<PreloadTarget> targets = new ArrayList<>();
+
+  private int lastFirstVisible = -1;
+  private int totalItemCount;
+
+  /**
+   * Constructor for {@link PredictiveListPreloader} that accepts interfaces for providing the
+   * dimensions of images to preload, the list of models to preload for a given position, and the
+   * request to use to load images.
+   *
+   * @param preloadModelProvider     Provides models to load and requests capable of loading them.
+   * @param preloadDimensionProvider Provides the dimensions of images to load.
+   * @param minPreload               The number of items to preload when scrolling slowly.
+   * @param maxPreload               Maximum number of items to preload when scrolling quickly.
+   */
+  public PredictiveListPreloader(@NonNull RequestManager requestManager,
+      @NonNull PreloadModelProvider<T> preloadModelProvider,
+      @NonNull PreloadSizeProvider<T> preloadDimensionProvider, int minPreload, int maxPreload) {
+    this.requestManager = requestManager;
+    this.preloadModelProvider = preloadModelProvider;
+    this.preloadDimensionProvider = preloadDimensionProvider;
+    predictor = new PreloadWindowPredictor(minPreload, maxPreload);
+  }
+
+  @Override
+  public void onScrollStateChanged(AbsListView absListView, int scrollState) {
+    predictor.setFlinging(scrollState == SCROLL_STATE_FLING);
+    if (scrollState == SCROLL_STATE_IDLE) {
+      predictor.reset();
+    }
+  }
+
+  @Override
+  public void onScroll(AbsListView absListView, int firstVisible, int visibleCount,
+      int totalCount) {
+    totalItemCount = totalCount;
+    if (firstVisible == lastFirstVisible) {
+      return;
+    }
+    boolean isIncreasing = firstVisible > lastFirstVisible;
+    lastFirstVisible = firstVisible;
+
+    predictor.addSample(firstVisible, SystemClock.uptimeMillis());
+    predictor.predictWindow(visibleCount);
+    int edge = isIncreasing ? firstVisible + visibleCount : firstVisible - 1;
+    int start = predictor.getWindowStart();
+    int end = predictor.getWindowEnd();
+    preload(edge, start, end, isIncreasing);
+  }
+
+  private void preload(int edge, int start, int end, boolean isIncreasing) {
+    int minPosition = isIncreasing ? edge + start : edge - end + 1;
+    int maxPosition = isIncreasing ? edge + end - 1 : edge - start;
+    cancelOutside(minPosition, maxPosition);
+
+    // Positions in the nearest half of the window are loaded ahead of the rest.
+    int highPriorityEnd = start + (end - start + 1) / 2;
+    for (int offset = start; offset < end; offset++) {
+      int position = isIncreasing ? edge + offset : edge - offset;
+      if (position < 0 || position >= totalItemCount) {
+        break;
+      }
+      if (!isPreloaded(position)) {
+        Priority priority = offset < highPriorityEnd ? Priority.NORMAL : Priority.LOW;
+        preloadAdapterPosition(
+            preloadModelProvider.getPreloadItems(position), position, priority);
+      }
+    }
+  }
+
+  private void cancelOutside(int minPosition, int maxPosition) {
+    for (int i = 0, size = targets.size(); i < size; i++) {
+      PreloadTarget target = targets.get(i);
+      if (target.position != NO_POSITION
+          && (target.position < minPosition || target.position > maxPosition)) {
+        requestManager.clear(target);
+        target.position = NO_POSITION;
+      }
+    }
+  }
+
+  private boolean isPreloaded(int position) {
+    for (int i = 0, size = targets.size(); i < size; i++) {
+      if (targets.get(i).position == position) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void preloadAdapterPosition(List<T> items, int position, Priority priority) {
+    for (int i = 0, size = items.size(); i < size; i++) {
+      preloadItem(items.get(i), position, i, priority);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void preloadItem(
+      @Nullable T item, int position, int perItemPosition, Priority priority) {
+    if (item == null) {
+      return;
+    }
+    int[] dimensions =
+        preloadDimensionProvider.getPreloadSize(item, position, perItemPosition);
+    if (dimensions == null) {
+      return;
+    }
+    RequestBuilder<Object> preloadRequestBuilder =
+        (RequestBuilder<Object>) preloadModelProvider.getPreloadRequestBuilder(item);
+    if (preloadRequestBuilder == null) {
+      return;
+    }
+
+    PreloadTarget target = obtainTarget();
+    target.position = position;
+    target.photoWidth = dimensions[0];
+    target.photoHeight = dimensions[1];
+    // Clone so that setting the priority doesn't change a builder the app may reuse elsewhere.
+    preloadRequestBuilder.clone().priority(priority).into(target);
+  }
+
+  private PreloadTarget obtainTarget() {
+    for (int i = 0, size = targets.size(); i < size; i++) {
+      PreloadTarget target = targets.get(i);
+      if (target.position == NO_POSITION) {
+        return target;
+      }
+    }
+    PreloadTarget target = new PreloadTarget();
+    targets.add(target);
+    return target;
+  }
+
+  private static final class PreloadTarget extends BaseTarget<Object> {
+    @Synthetic int position = NO_POSITION;
+    @Synthetic int photoHeight;
+    @Synthetic int photoWidth;
+
+    @Synthetic
+    PreloadTarget() { }
+
+    @Override
+    public void onResourceReady(@NonNull Object resource,
+        @Nullable Transition<? super Object> transition) {
+      // Do nothing.
+    }
+
+    @Override
+    public void getSize(@NonNull SizeReadyCallback cb) {
+      cb.onSizeReady(photoWidth, photoHeight);
+    }
+
+    @Override
+    public void removeCallback(@NonNull SizeReadyCallback cb) {
+      // Do nothing because we don't retain references to SizeReadyCallbacks.
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.bumptech.glide;
+
+/**
+ * Estimates the scroll velocity of a list in adapter positions per millisecond, and the
+ * deceleration of flings, from the first visible position over time, and uses them to predict
+ * which positions beyond the visible ones are worth preloading.
+ *
+ * <p>The window of positions to preload is expressed as offsets from the first position past the
+ * leading edge of the visible positions. Slow scrolls preload a few positions just past the edge.
+ * Faster scrolls preload more positions and skip the ones that will have scrolled past before a
+ * load could complete. Flings don't preload positions past the one the fling is expected to stop
+ * at.
+ */
+final class PreloadWindowPredictor {
+  /** How far ahead in time we try to preload, in milliseconds. */
+  static final long HORIZON_MS = 500;
+  /** The minimum time it takes a preload to complete, in milliseconds. */
+  static final long LEAD_TIME_MS = 50;
+  /** Samples further apart than this are treated as the start of a new scroll. */
+  static final long MAX_SAMPLE_INTERVAL_MS = 250;
+  private static final float SMOOTHING_FACTOR = 0.5f;
+  private static final int NO_POSITION = -1;
+
+  private final int minPreload;
+  private final int maxPreload;
+
+  private int lastPosition = NO_POSITION;
+  private long lastSampleTimeMs;
+  private boolean hasVelocity;
+  private float velocity;
+  private float deceleration;
+  private boolean isFlinging;
+
+  private int windowStart;
+  private int windowEnd;
+
+  PreloadWindowPredictor(int minPreload, int maxPreload) {
+    if (minPreload < 0 || maxPreload < minPreload) {
+      throw new IllegalArgumentException("Invalid preload range, min: " + minPreload
+          + ", max: " + maxPreload);
+    }
+    this.minPreload = minPreload;
+    this.maxPreload = maxPreload;
+    windowEnd = minPreload;
+  }
+
+  /**
+   * Sets whether or not the list is flinging, which is the only time deceleration is estimated.
+   */
+  void setFlinging(boolean isFlinging) {
+    this.isFlinging = isFlinging;
+    if (!isFlinging) {
+      deceleration = 0;
+    }
+  }
+
+  /** Forgets the current velocity, for example because the list has stopped scrolling. */
+  void reset() {
+    lastPosition = NO_POSITION;
+    hasVelocity = false;
+    velocity = 0;
+    deceleration = 0;
+  }
+
+  /**
+   * Records that the first visible position changed to the given position at the given time.
+   */
+  void addSample(int position, long timeMs) {
+    long elapsedMs = timeMs - lastSampleTimeMs;
+    if (lastPosition == NO_POSITION || elapsedMs > MAX_SAMPLE_INTERVAL_MS) {
+      hasVelocity = false;
+      velocity = 0;
+      deceleration = 0;
+    } else {
+      float instantVelocity = (position - lastPosition) / (float) Math.max(1, elapsedMs);
+      float previousVelocity = velocity;
+      velocity = hasVelocity ? smooth(instantVelocity, previousVelocity) : instantVelocity;
+      hasVelocity = true;
+      float speedLost = Math.abs(previousVelocity) - Math.abs(velocity);
+      if (isFlinging && speedLost > 0 && Math.signum(previousVelocity) == Math.signum(velocity)) {
+        float instantDeceleration = speedLost / Math.max(1, elapsedMs);
+        deceleration =
+            deceleration == 0 ? instantDeceleration : smooth(instantDeceleration, deceleration);
+      }
+    }
+    lastPosition = position;
+    lastSampleTimeMs = timeMs;
+  }
+
+  /** Returns the estimated velocity in positions per millisecond, negative if decreasing. */
+  float getVelocity() {
+    return velocity;
+  }
+
+  /** Returns the estimated deceleration of the current fling, or 0 if not known. */
+  float getDeceleration() {
+    return deceleration;
+  }
+
+  /**
+   * Updates the window returned by {@link #getWindowStart()} and {@link #getWindowEnd()} for the
+   * current velocity.
+   *
+   * @param visibleCount The number of positions currently visible.
+   */
+  void predictWindow(int visibleCount) {
+    float speed = Math.abs(velocity);
+    int size = clamp((int) Math.ceil(speed * HORIZON_MS), minPreload, maxPreload);
+    int start = Math.min((int) (speed * LEAD_TIME_MS), maxPreload);
+    int end = start + size;
+
+    if (deceleration > 0) {
+      // Offset from the leading edge of the position the first visible position will stop at.
+      float stopOffset = speed * speed / (2 * deceleration);
+      // Don't skip positions that will be visible once the fling has stopped.
+      start = Math.min(start, Math.max(0, (int) stopOffset - visibleCount));
+      end = Math.max(start + minPreload, Math.min(end, (int) Math.ceil(stopOffset) + 1));
+    }
+
+    windowStart = start;
+    windowEnd = end;
+  }
+
+  /** Returns the first offset from the leading edge to preload, inclusive. */
+  int getWindowStart() {
+    return windowStart;
+  }
+
+  /** Returns the last offset from the leading edge to preload, exclusive. */
+  int getWindowEnd() {
+    return windowEnd;
+  }
+
+  private static float smooth(float current, float previous) {
+    return SMOOTHING_FACTOR * current + (1 - SMOOTHING_FACTOR) * previous;
+  }
+
+  private static int clamp(int value, int min, int max) {
+    return Math.max(min, Math.min(max, value));
+  }
+}
@@ -613,14 +613,18 @@ public class RequestBuilder<TranscodeType> extends BaseRequestOptions<RequestBui
   @Synthetic <Y extends Target<TranscodeType>> Y into(
       @NonNull Y target,
       @Nullable RequestListener<TranscodeType> targetListener) {
-    return into(target, targetListener, /*options=*/ this);
+    return into(
+        target, targetListener, /*options=*/ this, /*isBackgroundThreadAllowed=*/ false);
   }
 
   private <Y extends Target<TranscodeType>> Y into(
       @NonNull Y target,
       @Nullable RequestListener<TranscodeType> targetListener,
-      BaseRequestOptions<?> options) {
-    Util.assertMainThread();
+      BaseRequestOptions<?> options,
+      boolean isBackgroundThreadAllowed) {
+    if (!isBackgroundThreadAllowed) {
+      Util.assertMainThread();
+    }
     Preconditions.checkNotNull(target);
     if (!isModelSet) {
       throw new IllegalArgumentException("You must call #load() before calling #into()");
@@ -645,7 +649,11 @@ public class RequestBuilder<TranscodeType> extends BaseRequestOptions<RequestBui
       return target;
     }
 
-    requestManager.clear(target);
+    // Clearing posts to the main thread when called on a background thread, so avoid it unless
+    // there's something to clear to keep the post from racing with the new request.
+    if (previous != null) {
+      requestManager.clear(target);
+    }
     target.setRequest(request);
     requestManager.track(target, request);
 
@@ -710,7 +718,8 @@ public class RequestBuilder<TranscodeType> extends BaseRequestOptions<RequestBui
     return into(
         glideContext.buildImageViewTarget(view, transcodeClass),
         /*targetListener=*/ null,
-        requestOptions);
+        requestOptions,
+        /*isBackgroundThreadAllowed=*/ false);
   }
 
   /**
@@ -767,7 +776,9 @@ public class RequestBuilder<TranscodeType> extends BaseRequestOptions<RequestBui
     final RequestFutureTarget<TranscodeType> target =
         new RequestFutureTarget<>(glideContext.getMainHandler(), width, height);
 
-    if (Util.isOnBackgroundThread()) {
+    if (Util.isOnBackgroundThread() && isCoordinated()) {
+      // Thumbnail and error requests call back into each other and are only started on the main
+      // thread.
       glideContext.getMainHandler().post(new Runnable() {
         @Override
         public void run() {
@@ -777,12 +788,18 @@ public class RequestBuilder<TranscodeType> extends BaseRequestOptions<RequestBui
         }
       });
     } else {
-      into(target, target);
+      // Single requests start on the calling thread so that cache hits are returned without
+      // waiting for the main thread.
+      into(target, target, /*options=*/ this, /*isBackgroundThreadAllowed=*/ true);
     }
 
     return target;
   }
 
+  private boolean isCoordinated() {
+    return thumbnailBuilder != null || thumbSizeMultiplier != null || errorBuilder != null;
+  }
+
   /**
    * Preloads the resource into the cache using the given width and height.
    *
@@ -15,6 +15,7 @@ import android.view.View;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.load.resource.apng.ApngDrawable;
+import com.bumptech.glide.load.resource.apng.StreamingApngDrawable;
 import com.bumptech.glide.load.engine.GlideException;
 import com.bumptech.glide.load.resource.gif.GifDrawable;
 import com.bumptech.glide.manager.ConnectivityMonitor;
@@ -58,6 +59,8 @@ public class RequestManager implements LifecycleListener,
   private static final RequestOptions DECODE_TYPE_BITMAP = decodeTypeOf(Bitmap.class).lock();
   private static final RequestOptions DECODE_TYPE_GIF = decodeTypeOf(GifDrawable.class).lock();
   private static final RequestOptions DECODE_TYPE_APNG = decodeTypeOf(ApngDrawable.class).lock();
+  private static final RequestOptions DECODE_TYPE_STREAMING_APNG =
+      decodeTypeOf(StreamingApngDrawable.class).lock();
   private static final RequestOptions DOWNLOAD_ONLY_OPTIONS =
       diskCacheStrategyOf(DiskCacheStrategy.DATA).priority(Priority.LOW)
           .skipMemoryCache(true);
@@ -65,8 +68,10 @@ public class RequestManager implements LifecycleListener,
   protected final Glide glide;
   protected final Context context;
   @Synthetic final Lifecycle lifecycle;
-  private final RequestTracker requestTracker;
+  // Guarded by this because RequestBuilder#submit may track requests on background threads.
+  @Synthetic final RequestTracker requestTracker;
   private final RequestManagerTreeNode treeNode;
+  // Guarded by this.
   private final TargetTracker targetTracker = new TargetTracker();
   private final Runnable addSelfToLifecycle = new Runnable() {
     @Override
@@ -113,7 +118,7 @@ public class RequestManager implements LifecycleListener,
     connectivityMonitor =
         factory.build(
             context.getApplicationContext(),
-            new RequestManagerConnectivityListener(requestTracker));
+            new RequestManagerConnectivityListener());
 
     // If we're the application level request manager, we may be created on a background thread.
     // In that case we cannot risk synchronously pausing or resuming requests, so we hack around the
@@ -216,7 +221,7 @@ public class RequestManager implements LifecycleListener,
    * @see #pauseRequests()
    * @see #resumeRequests()
    */
-  public boolean isPaused() {
+  public synchronized boolean isPaused() {
     Util.assertMainThread();
     return requestTracker.isPaused();
   }
@@ -231,7 +236,7 @@ public class RequestManager implements LifecycleListener,
    * @see #isPaused()
    * @see #resumeRequests()
    */
-  public void pauseRequests() {
+  public synchronized void pauseRequests() {
     Util.assertMainThread();
     requestTracker.pauseRequests();
   }
@@ -252,7 +257,7 @@ public class RequestManager implements LifecycleListener,
    * @see #isPaused()
    * @see #resumeRequests()
    */
-  public void pauseAllRequests() {
+  public synchronized void pauseAllRequests() {
     Util.assertMainThread();
     requestTracker.pauseAllRequests();
   }
@@ -273,7 +278,7 @@ public class RequestManager implements LifecycleListener,
    */
   // Public API.
   @SuppressWarnings({"WeakerAccess", "unused"})
-  public void pauseRequestsRecursive() {
+  public synchronized void pauseRequestsRecursive() {
     Util.assertMainThread();
     pauseRequests();
     for (RequestManager requestManager : treeNode.getDescendants()) {
@@ -287,7 +292,7 @@ public class RequestManager implements LifecycleListener,
    * @see #isPaused()
    * @see #pauseRequests()
    */
-  public void resumeRequests() {
+  public synchronized void resumeRequests() {
     Util.assertMainThread();
     requestTracker.resumeRequests();
   }
@@ -299,7 +304,7 @@ public class RequestManager implements LifecycleListener,
    */
   // Public API.
   @SuppressWarnings("unused")
-  public void resumeRequestsRecursive() {
+  public synchronized void resumeRequestsRecursive() {
     Util.assertMainThread();
     resumeRequests();
     for (RequestManager requestManager : treeNode.getDescendants()) {
@@ -313,7 +318,7 @@ public class RequestManager implements LifecycleListener,
    * requests.
    */
   @Override
-  public void onStart() {
+  public synchronized void onStart() {
     resumeRequests();
     targetTracker.onStart();
   }
@@ -323,7 +328,7 @@ public class RequestManager implements LifecycleListener,
    * android.permission.ACCESS_NETWORK_STATE permission is present) and pauses in progress loads.
    */
   @Override
-  public void onStop() {
+  public synchronized void onStop() {
     pauseRequests();
     targetTracker.onStop();
   }
@@ -333,7 +338,7 @@ public class RequestManager implements LifecycleListener,
    * all completed requests.
    */
   @Override
-  public void onDestroy() {
+  public synchronized void onDestroy() {
     targetTracker.onDestroy();
     for (Target<?> target : targetTracker.getAll()) {
       clear(target);
@@ -395,6 +400,23 @@ public class RequestManager implements LifecycleListener,
     return as(ApngDrawable.class).apply(DECODE_TYPE_APNG);
   }
 
+  /**
+   * Attempts to always load the resource as a
+   * {@link com.bumptech.glide.load.resource.apng.StreamingApngDrawable}.
+   *
+   * <p> Unlike {@link #asApng()}, frames are decoded one at a time as the animation plays rather
+   * than all at once when the resource is loaded, so memory use is bounded by a few frames instead
+   * of growing with the length of the animation. </p>
+   *
+   * @return A new request builder for loading a
+   * {@link com.bumptech.glide.load.resource.apng.StreamingApngDrawable}.
+   */
+  @NonNull
+  @CheckResult
+  public RequestBuilder<StreamingApngDrawable> asStreamingApng() {
+    return as(StreamingApngDrawable.class).apply(DECODE_TYPE_STREAMING_APNG);
+  }
+
   /**
    * Attempts to always load the resource using any registered {@link
    * com.bumptech.glide.load.ResourceDecoder}s that can decode any subclass of {@link Drawable}.
@@ -621,6 +643,37 @@ public class RequestManager implements LifecycleListener,
     }
   }
 
+  /**
+   * Changes the priority of any load Glide has in progress for the view.
+   *
+   * @param view The view whose load should be reprioritized.
+   * @param priority The new priority of the load.
+   * @see #setPriority(Target, Priority)
+   */
+  public void setPriority(@NonNull View view, @NonNull Priority priority) {
+    setPriority(new ClearTarget(view), priority);
+  }
+
+  /**
+   * Changes the priority of any load Glide has in progress for the target, for example to promote
+   * loads for views that have just scrolled on screen or to demote loads for views that have just
+   * scrolled off screen.
+   *
+   * <p>Loads that are still queued are moved to their new position in the queue, loads that have
+   * already started pass the new priority on to their data fetchers. Has no effect if the load has
+   * already completed or failed.
+   *
+   * @param target The Target whose load should be reprioritized.
+   * @param priority The new priority of the load.
+   */
+  public void setPriority(@NonNull Target<?> target, @NonNull Priority priority) {
+    Util.assertMainThread();
+    Request request = target.getRequest();
+    if (request != null) {
+      request.setPriority(priority);
+    }
+  }
+
   private void untrackOrDelegate(@NonNull Target<?> target) {
     boolean isOwnedByUs = untrack(target);
     // We'll end up here if the Target was cleared after the RequestManager that started the request
@@ -647,7 +700,7 @@ public class RequestManager implements LifecycleListener,
     }
   }
 
-  boolean untrack(@NonNull Target<?> target) {
+  synchronized boolean untrack(@NonNull Target<?> target) {
     Request request = target.getRequest();
     // If the Target doesn't have a request, it's already been cleared.
     if (request == null) {
@@ -663,7 +716,7 @@ public class RequestManager implements LifecycleListener,
     }
   }
 
-  void track(@NonNull Target<?> target, @NonNull Request request) {
+  synchronized void track(@NonNull Target<?> target, @NonNull Request request) {
     targetTracker.track(target);
     requestTracker.runRequest(request);
   }
@@ -682,22 +735,22 @@ public class RequestManager implements LifecycleListener,
   }
 
   @Override
-  public String toString() {
+  public synchronized String toString() {
     return super.toString() + "{tracker=" + requestTracker + ", treeNode=" + treeNode + "}";
   }
 
-  private static class RequestManagerConnectivityListener implements ConnectivityMonitor
+  private class RequestManagerConnectivityListener implements ConnectivityMonitor
       .ConnectivityListener {
-    private final RequestTracker requestTracker;
 
-    RequestManagerConnectivityListener(@NonNull RequestTracker requestTracker) {
-      this.requestTracker = requestTracker;
-    }
+    @Synthetic
+    RequestManagerConnectivityListener() { }
 
     @Override
     public void onConnectivityChanged(boolean isConnected) {
       if (isConnected) {
-        requestTracker.restartRequests();
+        synchronized (RequestManager.this) {
+          requestTracker.restartRequests();
+        }
       }
     }
   }
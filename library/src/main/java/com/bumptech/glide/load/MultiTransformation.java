@@ -1,8 +1,10 @@
 package com.bumptech.glide.load;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.support.annotation.NonNull;
 import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.resource.bitmap.FusedBitmapTransformer;
 import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.Collection;
@@ -10,6 +12,11 @@ import java.util.Collection;
 /**
  * A transformation that applies one or more transformations in iteration order to a resource.
  *
+ * <p>Consecutive transformations provided by Glide that transform {@link Bitmap}s, like
+ * {@link com.bumptech.glide.load.resource.bitmap.CenterCrop} and
+ * {@link com.bumptech.glide.load.resource.bitmap.RoundedCorners}, are applied together with
+ * {@link FusedBitmapTransformer} so that they share a single output {@link Bitmap}.
+ *
  * @param <T> The type of {@link com.bumptech.glide.load.engine.Resource} that will be transformed.
  */
 public class MultiTransformation<T> implements Transformation<T> {
@@ -37,6 +44,9 @@ public class MultiTransformation<T> implements Transformation<T> {
   @Override
   public Resource<T> transform(
       @NonNull Context context, @NonNull Resource<T> resource, int outWidth, int outHeight) {
+    if (resource.get() instanceof Bitmap && FusedBitmapTransformer.canFuse(transformations)) {
+      return fuse(context, resource, outWidth, outHeight);
+    }
     Resource<T> previous = resource;
 
     for (Transformation<T> transformation : transformations) {
@@ -49,6 +59,19 @@ public class MultiTransformation<T> implements Transformation<T> {
     return previous;
   }
 
+  // The resource contains a Bitmap, so our transformations must transform Bitmaps.
+  @SuppressWarnings("unchecked")
+  private Resource<T> fuse(
+      @NonNull Context context, @NonNull Resource<T> resource, int outWidth, int outHeight) {
+    Resource<Bitmap> transformed = FusedBitmapTransformer.transform(
+        context,
+        (Resource<Bitmap>) resource,
+        (Collection<? extends Transformation<Bitmap>>) transformations,
+        outWidth,
+        outHeight);
+    return (Resource<T>) transformed;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (o instanceof MultiTransformation) {
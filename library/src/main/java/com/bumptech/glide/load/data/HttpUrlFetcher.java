@@ -1,12 +1,14 @@
 package com.bumptech.glide.load.data;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.text.TextUtils;
 import android.util.Log;
 import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.HttpException;
+import com.bumptech.glide.load.engine.PartialDownloadCache;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.util.ContentLengthInputStream;
 import com.bumptech.glide.util.LogTime;
@@ -16,10 +18,14 @@ import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
  * A DataFetcher that retrieves an {@link java.io.InputStream} for a Url.
+ *
+ * <p>If a {@link PartialDownloadCache} is given, large downloads that are interrupted are staged
+ * in the cache and resumed with a range request the next time the Url is loaded.
  */
 public class HttpUrlFetcher implements DataFetcher<InputStream> {
   private static final String TAG = "HttpUrlFetcher";
@@ -35,20 +41,36 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
   private final GlideUrl glideUrl;
   private final int timeout;
   private final HttpUrlConnectionFactory connectionFactory;
+  @Nullable private final PartialDownloadCache partialDownloadCache;
 
+  @Nullable private PartialDownloadCache.PartialDownload partialDownload;
   private HttpURLConnection urlConnection;
   private InputStream stream;
   private volatile boolean isCancelled;
 
   public HttpUrlFetcher(GlideUrl glideUrl, int timeout) {
-    this(glideUrl, timeout, DEFAULT_CONNECTION_FACTORY);
+    this(glideUrl, timeout, DEFAULT_CONNECTION_FACTORY, null);
+  }
+
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public HttpUrlFetcher(
+      GlideUrl glideUrl, int timeout, @Nullable PartialDownloadCache partialDownloadCache) {
+    this(glideUrl, timeout, DEFAULT_CONNECTION_FACTORY, partialDownloadCache);
   }
 
   @VisibleForTesting
   HttpUrlFetcher(GlideUrl glideUrl, int timeout, HttpUrlConnectionFactory connectionFactory) {
+    this(glideUrl, timeout, connectionFactory, null);
+  }
+
+  @VisibleForTesting
+  HttpUrlFetcher(GlideUrl glideUrl, int timeout, HttpUrlConnectionFactory connectionFactory,
+      @Nullable PartialDownloadCache partialDownloadCache) {
     this.glideUrl = glideUrl;
     this.timeout = timeout;
     this.connectionFactory = connectionFactory;
+    this.partialDownloadCache = partialDownloadCache;
   }
 
   @Override
@@ -56,7 +78,15 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
       @NonNull DataCallback<? super InputStream> callback) {
     long startTime = LogTime.getLogTime();
     try {
-      InputStream result = loadDataWithRedirects(glideUrl.toURL(), 0, null, glideUrl.getHeaders());
+      Map<String, String> headers = glideUrl.getHeaders();
+      if (partialDownloadCache != null) {
+        partialDownload = partialDownloadCache.get(glideUrl);
+        if (partialDownload != null) {
+          headers = new HashMap<>(headers);
+          headers.putAll(partialDownload.getResumeHeaders());
+        }
+      }
+      InputStream result = loadDataWithRedirects(glideUrl.toURL(), 0, null, headers);
       callback.onDataReady(result);
     } catch (IOException e) {
       if (Log.isLoggable(TAG, Log.DEBUG)) {
@@ -142,6 +172,9 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
     if (TextUtils.isEmpty(urlConnection.getContentEncoding())) {
       int contentLength = urlConnection.getContentLength();
       stream = ContentLengthInputStream.obtain(urlConnection.getInputStream(), contentLength);
+      if (partialDownloadCache != null) {
+        stream = stageOrResume(partialDownloadCache, urlConnection, stream);
+      }
     } else {
       if (Log.isLoggable(TAG, Log.DEBUG)) {
         Log.d(TAG, "Got non empty content encoding: " + urlConnection.getContentEncoding());
@@ -151,6 +184,27 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
     return stream;
   }
 
+  private InputStream stageOrResume(PartialDownloadCache partialDownloadCache,
+      HttpURLConnection urlConnection, InputStream body) throws IOException {
+    int statusCode = urlConnection.getResponseCode();
+    if (partialDownload != null) {
+      if (partialDownload.isResumedBy(statusCode, urlConnection.getHeaderField("Content-Range"))) {
+        return partialDownloadCache.resume(glideUrl, partialDownload, body);
+      }
+      // The server ignored the range or the image has changed, so the staged bytes are useless.
+      partialDownloadCache.remove(glideUrl);
+      if (statusCode == HttpURLConnection.HTTP_PARTIAL) {
+        throw new HttpException("Received an unexpected range for a resumed download", statusCode);
+      }
+    }
+    if (statusCode != HttpURLConnection.HTTP_OK) {
+      return body;
+    }
+    return partialDownloadCache.stage(glideUrl, body, urlConnection.getContentLength(),
+        urlConnection.getHeaderField("ETag"), urlConnection.getHeaderField("Last-Modified"),
+        urlConnection.getHeaderField("Accept-Ranges"));
+  }
+
   @Override
   public void cleanup() {
     if (stream != null) {
@@ -0,0 +1,22 @@
+package com.bumptech.glide.load.data;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.Priority;
+
+/**
+ * A {@link DataFetcher} that can change the priority of a load that it has already started, for
+ * example by moving a queued network request ahead of others.
+ *
+ * @param <T> The type of data to be loaded.
+ */
+public interface PriorityAwareDataFetcher<T> extends DataFetcher<T> {
+
+  /**
+   * Called when the priority of the load changes after
+   * {@link #loadData(Priority, DataCallback)} has been called and before the load completes.
+   *
+   * <p>May be called on any thread and should return quickly. Fetchers that can't change the
+   * priority of a load once it has started can ignore this call.
+   */
+  void onPriorityChanged(@NonNull Priority priority);
+}
@@ -1,9 +1,5 @@
 package com.bumptech.glide.load.engine;
 
-import android.os.Handler;
-import android.os.Handler.Callback;
-import android.os.Looper;
-import android.os.Message;
 import android.os.Process;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -12,27 +8,20 @@ import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.EngineResource.ResourceListener;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
-import com.bumptech.glide.util.Util;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Tracks resources that are currently in use by at least one consumer.
+ *
+ * <p>All methods are thread safe. When both are needed, the {@link ResourceListener}'s lock must
+ * always be acquired before this object's lock.
+ */
 final class ActiveResources {
-  private static final int MSG_CLEAN_REF = 1;
-
   private final boolean isActiveResourceRetentionAllowed;
-  private final Handler mainHandler = new Handler(Looper.getMainLooper(), new Callback() {
-    @Override
-    public boolean handleMessage(Message msg) {
-      if (msg.what == MSG_CLEAN_REF) {
-        cleanupActiveReference((ResourceWeakReference) msg.obj);
-        return true;
-      }
-      return false;
-    }
-  });
   @VisibleForTesting
   final Map<Key, ResourceWeakReference> activeEngineResources = new HashMap<>();
 
@@ -59,7 +48,7 @@ final class ActiveResources {
     this.listener = listener;
   }
 
-  void activate(Key key, EngineResource<?> resource) {
+  synchronized void activate(Key key, EngineResource<?> resource) {
     ResourceWeakReference toPut =
         new ResourceWeakReference(
             key,
@@ -73,7 +62,7 @@ final class ActiveResources {
     }
   }
 
-  void deactivate(Key key) {
+  synchronized void deactivate(Key key) {
     ResourceWeakReference removed = activeEngineResources.remove(key);
     if (removed != null) {
       removed.reset();
@@ -81,7 +70,7 @@ final class ActiveResources {
   }
 
   @Nullable
-  EngineResource<?> get(Key key) {
+  synchronized EngineResource<?> get(Key key) {
     ResourceWeakReference activeRef = activeEngineResources.get(key);
     if (activeRef == null) {
       return null;
@@ -96,16 +85,25 @@ final class ActiveResources {
 
   @SuppressWarnings("WeakerAccess")
   @Synthetic void cleanupActiveReference(@NonNull ResourceWeakReference ref) {
-    Util.assertMainThread();
-    activeEngineResources.remove(ref.key);
+    // Called both from get(), where the listener's lock is already held, and from the reference
+    // queue thread, where it isn't. Acquire the listener's lock first in both cases so that the
+    // locking order matches the one used when the listener calls into this class.
+    synchronized (listener) {
+      synchronized (this) {
+        // The key may have been re-activated with a new resource since this reference was queued.
+        if (activeEngineResources.get(ref.key) == ref) {
+          activeEngineResources.remove(ref.key);
+        }
 
-    if (!ref.isCacheable || ref.resource == null) {
-      return;
+        if (!ref.isCacheable || ref.resource == null) {
+          return;
+        }
+        EngineResource<?> newResource =
+            new EngineResource<>(ref.resource, /*isCacheable=*/ true, /*isRecyclable=*/ false);
+        newResource.setResourceListener(ref.key, listener);
+        listener.onResourceReleased(ref.key, newResource);
+      }
     }
-    EngineResource<?> newResource =
-        new EngineResource<>(ref.resource, /*isCacheable=*/ true, /*isRecyclable=*/ false);
-    newResource.setResourceListener(ref.key, listener);
-    listener.onResourceReleased(ref.key, newResource);
   }
 
   private ReferenceQueue<EngineResource<?>> getReferenceQueue() {
@@ -129,7 +127,7 @@ final class ActiveResources {
     while (!isShutdown) {
       try {
         ResourceWeakReference ref = (ResourceWeakReference) resourceReferenceQueue.remove();
-        mainHandler.obtainMessage(MSG_CLEAN_REF, ref).sendToTarget();
+        cleanupActiveReference(ref);
 
         // This section for testing only.
         DequeuedResourceCallback current = cb;
@@ -1,12 +1,13 @@
 package com.bumptech.glide.load.engine;
 
 import android.support.annotation.NonNull;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.data.PriorityAwareDataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
-import java.io.File;
 import java.util.List;
 
 /**
@@ -22,13 +23,13 @@ class DataCacheGenerator implements DataFetcherGenerator,
 
   private int sourceIdIndex = -1;
   private Key sourceKey;
-  private List<ModelLoader<File, ?>> modelLoaders;
+  private List<ModelLoader<Object, ?>> modelLoaders;
   private int modelLoaderIndex;
   private volatile LoadData<?> loadData;
-  // PMD is wrong here, this File must be an instance variable because it may be used across
+  // PMD is wrong here, this entry must be an instance variable because it may be used across
   // multiple calls to startNext.
   @SuppressWarnings("PMD.SingularField")
-  private File cacheFile;
+  private Object cacheEntry;
 
   DataCacheGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb) {
     this(helper.getCacheKeys(), helper, cb);
@@ -55,10 +56,10 @@ class DataCacheGenerator implements DataFetcherGenerator,
       // and the actions it performs are much more expensive than a single allocation.
       @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
       Key originalKey = new DataCacheKey(sourceId, helper.getSignature());
-      cacheFile = helper.getDiskCache().get(originalKey);
-      if (cacheFile != null) {
+      cacheEntry = helper.getDiskCacheEntry(originalKey);
+      if (cacheEntry != null) {
         this.sourceKey = sourceId;
-        modelLoaders = helper.getModelLoaders(cacheFile);
+        modelLoaders = helper.getModelLoaders(cacheEntry);
         modelLoaderIndex = 0;
       }
     }
@@ -66,9 +67,9 @@ class DataCacheGenerator implements DataFetcherGenerator,
     loadData = null;
     boolean started = false;
     while (!started && hasNextModelLoader()) {
-      ModelLoader<File, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
+      ModelLoader<Object, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
       loadData =
-          modelLoader.buildLoadData(cacheFile, helper.getWidth(), helper.getHeight(),
+          modelLoader.buildLoadData(cacheEntry, helper.getWidth(), helper.getHeight(),
               helper.getOptions());
       if (loadData != null && helper.hasLoadPath(loadData.fetcher.getDataClass())) {
         started = true;
@@ -90,6 +91,14 @@ class DataCacheGenerator implements DataFetcherGenerator,
     }
   }
 
+  @Override
+  public void onPriorityChanged(Priority priority) {
+    LoadData<?> local = loadData;
+    if (local != null && local.fetcher instanceof PriorityAwareDataFetcher) {
+      ((PriorityAwareDataFetcher<?>) local.fetcher).onPriorityChanged(priority);
+    }
+  }
+
   @Override
   public void onDataReady(Object data) {
     cb.onDataFetcherReady(sourceKey, data, loadData.fetcher, DataSource.DATA_DISK_CACHE, sourceKey);
@@ -3,8 +3,10 @@ package com.bumptech.glide.load.engine;
 import android.support.annotation.NonNull;
 import com.bumptech.glide.load.Encoder;
 import com.bumptech.glide.load.Options;
-import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.ByteBufferDiskCache;
+import com.bumptech.glide.load.model.ByteBufferEncoder;
 import java.io.File;
+import java.nio.ByteBuffer;
 
 /**
  * Writes original source data or downsampled/transformed resource data to cache using the
@@ -15,7 +17,7 @@ import java.io.File;
  * @param <DataType> The type of data that will be encoded (InputStream, ByteBuffer,
  *                  Resource<Bitmap> etc).
  */
-class DataCacheWriter<DataType> implements DiskCache.Writer {
+class DataCacheWriter<DataType> implements ByteBufferDiskCache.BufferWriter {
   private final Encoder<DataType> encoder;
   private final DataType data;
   private final Options options;
@@ -30,4 +32,26 @@ class DataCacheWriter<DataType> implements DiskCache.Writer {
   public boolean write(@NonNull File file) {
     return encoder.encode(data, file, options);
   }
+
+  @Override
+  public int getLength() {
+    // Other encoders may transform the data, so only ByteBufferEncoder's output length is known.
+    return isByteBufferCopy() ? ((ByteBuffer) data).limit() : -1;
+  }
+
+  @Override
+  public boolean write(@NonNull ByteBuffer target) {
+    if (!isByteBufferCopy()) {
+      return false;
+    }
+    // Matches ByteBufferEncoder, which writes the entire buffer regardless of its position.
+    ByteBuffer source = ((ByteBuffer) data).duplicate();
+    source.position(0);
+    target.put(source);
+    return true;
+  }
+
+  private boolean isByteBufferCopy() {
+    return encoder.getClass() == ByteBufferEncoder.class && data instanceof ByteBuffer;
+  }
 }
@@ -1,9 +1,11 @@
 package com.bumptech.glide.load.engine;
 
 import android.support.annotation.Nullable;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.data.DataFetcher;
+import java.nio.ByteBuffer;
 
 /**
  * Generates a series of {@link com.bumptech.glide.load.data.DataFetcher DataFetchers} using
@@ -33,6 +35,19 @@ interface DataFetcherGenerator {
     void onDataFetcherReady(Key sourceKey, @Nullable Object data, DataFetcher<?> fetcher,
         DataSource dataSource, Key attemptedKey);
 
+    /**
+     * Notifies the callback that some, but not all, of the source data has been retrieved so that
+     * an intermediate result can be decoded while the rest of the data is loaded.
+     *
+     * <p>Called synchronously on the thread loading the data, the given buffer must not be
+     * retained after this method returns.
+     *
+     * @param sourceKey The id of the data being loaded.
+     * @param data The data retrieved so far.
+     * @param dataSource The data source we're loading from.
+     */
+    void onPartialDataReady(Key sourceKey, ByteBuffer data, DataSource dataSource);
+
     /**
      * Notifies the callback when the load fails.
      *
@@ -57,4 +72,12 @@ interface DataFetcherGenerator {
    * <p> This will be called on the main thread and should complete quickly. </p>
    */
   void cancel();
+
+  /**
+   * Passes a new priority on to the currently running fetcher if it implements
+   * {@link com.bumptech.glide.load.data.PriorityAwareDataFetcher}.
+   *
+   * <p> This will be called on the main thread and should complete quickly. </p>
+   */
+  void onPriorityChanged(Priority priority);
 }
@@ -0,0 +1,276 @@
+package com.bumptech.glide.load.engine;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.BitmapResource;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.load.resource.bitmap.TransformationUtils;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.Synthetic;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allows loads for the same model, signature and options at different sizes, for example a
+ * thumbnail and a full size load, to share a single decode.
+ *
+ * <p>Loads join a group when they start. A load that's about to decode data while a load in its
+ * group that's at least as large is still running waits instead. The first load in the group to
+ * decode a {@link Bitmap} derives a smaller {@link Bitmap} for each waiting load from its own,
+ * using {@link TransformationUtils#downsample(BitmapPool, Bitmap, DownsampleStrategy, int, int)},
+ * before it applies its own transformations.
+ *
+ * <p>If no larger load decodes a {@link Bitmap}, for example because it was cancelled, it loaded a
+ * transformed resource from the disk cache or it decoded an animated image, waiting loads are
+ * notified so that they can decode the data themselves.
+ */
+final class DecodeCoalescer {
+  private static final String TAG = "DecodeCoalescer";
+
+  private final Map<GroupKey, List<Member>> groups = new HashMap<>();
+
+  interface Waiter {
+    /**
+     * Called on the thread that decoded the shared {@link Bitmap}, or that completed the last load
+     * that was expected to decode one.
+     *
+     * @param resource A {@link Bitmap} derived for the waiting load that it's responsible for
+     *                 recycling, or {@code null} if it should decode the data itself.
+     */
+    void onSharedDecodeComplete(@Nullable Resource<Bitmap> resource);
+  }
+
+  /**
+   * Adds a load to the group for the given model, signature and options, which it must leave by
+   * calling {@link #leave(Member)}.
+   */
+  @NonNull
+  synchronized Member join(@NonNull Object model, @NonNull Key signature, @NonNull Options options,
+      int width, int height, @NonNull Waiter waiter) {
+    GroupKey key = new GroupKey(model, signature, options);
+    Member member = new Member(key, width, height, waiter);
+    List<Member> group = groups.get(key);
+    if (group == null) {
+      group = new ArrayList<>(2);
+      groups.put(key, group);
+    }
+    group.add(member);
+    return member;
+  }
+
+  /**
+   * Returns {@code true} if the given load should wait to be notified rather than decoding data
+   * itself because a larger load in its group may decode it first, or {@code false} otherwise.
+   */
+  synchronized boolean await(@NonNull Member member) {
+    List<Member> group = groups.get(member.key);
+    if (member.isDone || group == null || !hasDecoderFor(group, member)) {
+      return false;
+    }
+    member.isWaiting = true;
+    return true;
+  }
+
+  /**
+   * Stops waiting on behalf of the given load and returns {@code true} if it was waiting, or
+   * returns {@code false} if it has been or is about to be notified.
+   */
+  synchronized boolean removeWaiter(@NonNull Member member) {
+    boolean wasWaiting = member.isWaiting;
+    member.isWaiting = false;
+    return wasWaiting;
+  }
+
+  /**
+   * Called by a load after it has decoded data, and before it applies any transformations, to
+   * derive {@link Bitmap}s for any smaller waiting loads.
+   *
+   * <p>The given {@link Bitmap} is only read, so it remains owned by the caller.
+   *
+   * @param decoded    The decoded {@link Bitmap}, or {@code null} if the load decoded something
+   *                   else.
+   * @param strategy   The {@link DownsampleStrategy} the {@link Bitmap} was decoded with.
+   * @param bitmapPool The {@link BitmapPool} to obtain derived {@link Bitmap}s from, which is only
+   *                   required if a {@link Bitmap} was decoded.
+   */
+  void onDecoded(@NonNull Member member, @Nullable Bitmap decoded,
+      @NonNull DownsampleStrategy strategy, @Nullable BitmapPool bitmapPool) {
+    List<Member> toDerive = Collections.emptyList();
+    List<Member> toNotify;
+    synchronized (this) {
+      member.isDone = true;
+      List<Member> group = groups.get(member.key);
+      if (group == null) {
+        return;
+      }
+      if (decoded != null) {
+        for (int i = 0, size = group.size(); i < size; i++) {
+          Member other = group.get(i);
+          if (other.isWaiting && member.covers(other)) {
+            if (toDerive.isEmpty()) {
+              toDerive = new ArrayList<>(size - 1);
+            }
+            other.isWaiting = false;
+            toDerive.add(other);
+          }
+        }
+      }
+      toNotify = removeWaitersWithoutDecoder(group);
+    }
+
+    for (int i = 0, size = toDerive.size(); i < size; i++) {
+      Member other = toDerive.get(i);
+      other.waiter.onSharedDecodeComplete(
+          derive(decoded, strategy, bitmapPool, other.width, other.height));
+    }
+    notifyWaiters(toNotify);
+  }
+
+  /**
+   * Removes a load from its group, for example because it has completed, failed or been cancelled.
+   */
+  void leave(@NonNull Member member) {
+    List<Member> toNotify;
+    synchronized (this) {
+      member.isDone = true;
+      member.isWaiting = false;
+      List<Member> group = groups.get(member.key);
+      if (group == null || !group.remove(member)) {
+        return;
+      }
+      if (group.isEmpty()) {
+        groups.remove(member.key);
+        return;
+      }
+      toNotify = removeWaitersWithoutDecoder(group);
+    }
+    notifyWaiters(toNotify);
+  }
+
+  @Nullable
+  private static Resource<Bitmap> derive(Bitmap decoded, DownsampleStrategy strategy,
+      BitmapPool bitmapPool, int width, int height) {
+    try {
+      return BitmapResource.obtain(
+          TransformationUtils.downsample(bitmapPool, decoded, strategy, width, height),
+          bitmapPool);
+    } catch (RuntimeException | OutOfMemoryError e) {
+      // The waiting load can still decode the data itself.
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to derive Bitmap, width: " + width + ", height: " + height, e);
+      }
+      return null;
+    }
+  }
+
+  private static void notifyWaiters(List<Member> toNotify) {
+    for (int i = 0, size = toNotify.size(); i < size; i++) {
+      toNotify.get(i).waiter.onSharedDecodeComplete(null);
+    }
+  }
+
+  private static List<Member> removeWaitersWithoutDecoder(List<Member> group) {
+    List<Member> result = Collections.emptyList();
+    for (int i = 0, size = group.size(); i < size; i++) {
+      Member member = group.get(i);
+      if (member.isWaiting && !hasDecoderFor(group, member)) {
+        if (result.isEmpty()) {
+          result = new ArrayList<>(size - 1);
+        }
+        member.isWaiting = false;
+        result.add(member);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns {@code true} if a load in the group that hasn't decoded yet is larger than the given
+   * load, or is the same size and joined first so that loads of the same size never wait on each
+   * other.
+   */
+  private static boolean hasDecoderFor(List<Member> group, Member member) {
+    boolean isBeforeMember = true;
+    for (int i = 0, size = group.size(); i < size; i++) {
+      Member other = group.get(i);
+      if (other == member) {
+        isBeforeMember = false;
+      } else if (!other.isWaiting && !other.isDone && other.covers(member)
+          && (isBeforeMember || !member.covers(other))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** A load in a group. */
+  static final class Member {
+    @Synthetic final GroupKey key;
+    @Synthetic final int width;
+    @Synthetic final int height;
+    @Synthetic final Waiter waiter;
+    // Guarded by the DecodeCoalescer.
+    @Synthetic boolean isWaiting;
+    @Synthetic boolean isDone;
+
+    @Synthetic
+    Member(GroupKey key, int width, int height, Waiter waiter) {
+      this.key = key;
+      this.width = width;
+      this.height = height;
+      this.waiter = waiter;
+    }
+
+    @Synthetic
+    boolean covers(Member other) {
+      return covers(width, other.width) && covers(height, other.height);
+    }
+
+    private static boolean covers(int size, int otherSize) {
+      return size == Target.SIZE_ORIGINAL
+          || (otherSize != Target.SIZE_ORIGINAL && size >= otherSize);
+    }
+  }
+
+  private static final class GroupKey {
+    private final Object model;
+    private final Key signature;
+    private final Options options;
+    private final int hashCode;
+
+    @Synthetic
+    GroupKey(Object model, Key signature, Options options) {
+      this.model = model;
+      this.signature = signature;
+      this.options = options;
+      int hashCode = model.hashCode();
+      hashCode = 31 * hashCode + signature.hashCode();
+      hashCode = 31 * hashCode + options.hashCode();
+      this.hashCode = hashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof GroupKey) {
+        GroupKey other = (GroupKey) o;
+        return model.equals(other.model)
+            && signature.equals(other.signature)
+            && options.equals(other.options);
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
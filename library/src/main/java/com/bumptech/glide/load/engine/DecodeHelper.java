@@ -1,8 +1,10 @@
 package com.bumptech.glide.load.engine;
 
+import android.support.annotation.Nullable;
 import com.bumptech.glide.GlideContext;
 import com.bumptech.glide.Priority;
 import com.bumptech.glide.Registry;
+import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Encoder;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Options;
@@ -10,11 +12,13 @@ import com.bumptech.glide.load.ResourceEncoder;
 import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.engine.DecodeJob.DiskCacheProvider;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.cache.ByteBufferDiskCache;
 import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import com.bumptech.glide.load.resource.UnitTransformation;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -37,7 +41,7 @@ final class DecodeHelper<Transcode> {
   private boolean isLoadDataSet;
   private boolean isCacheKeysSet;
   private Key signature;
-  private Priority priority;
+  private volatile Priority priority;
   private DiskCacheStrategy diskCacheStrategy;
   private boolean isTransformationRequired;
   private boolean isScaleOnlyOrNoTransform;
@@ -104,6 +108,10 @@ final class DecodeHelper<Transcode> {
     return priority;
   }
 
+  void setPriority(Priority priority) {
+    this.priority = priority;
+  }
+
   Options getOptions() {
     return options;
   }
@@ -181,9 +189,25 @@ final class DecodeHelper<Transcode> {
     return glideContext.getRegistry().getResultEncoder(resource);
   }
 
-  List<ModelLoader<File, ?>> getModelLoaders(File file)
+  /**
+   * Returns the cached data for the given key, or {@code null} if no data is cached for the key.
+   *
+   * <p>If the disk cache can return {@link ByteBuffer}s and the data can be decoded from a
+   * {@link ByteBuffer}, a {@link ByteBuffer} is returned so that we avoid opening a file.
+   * Otherwise a {@link File} is returned.
+   */
+  @Nullable
+  Object getDiskCacheEntry(Key key) {
+    DiskCache diskCache = getDiskCache();
+    if (diskCache instanceof ByteBufferDiskCache && hasLoadPath(ByteBuffer.class)) {
+      return ((ByteBufferDiskCache) diskCache).getBuffer(key);
+    }
+    return diskCache.get(key);
+  }
+
+  List<ModelLoader<Object, ?>> getModelLoaders(Object cacheEntry)
       throws Registry.NoModelLoaderAvailableException {
-    return glideContext.getRegistry().getModelLoaders(file);
+    return glideContext.getRegistry().getModelLoaders(cacheEntry);
   }
 
   boolean isSourceKey(Key key) {
@@ -203,11 +227,12 @@ final class DecodeHelper<Transcode> {
       isLoadDataSet = true;
       loadData.clear();
       List<ModelLoader<Object, ?>> modelLoaders = glideContext.getRegistry().getModelLoaders(model);
+      Options loadDataOptions = getLoadDataOptions();
       //noinspection ForLoopReplaceableByForEach to improve perf
       for (int i = 0, size = modelLoaders.size(); i < size; i++) {
         ModelLoader<Object, ?> modelLoader = modelLoaders.get(i);
         LoadData<?> current =
-            modelLoader.buildLoadData(model, width, height, options);
+            modelLoader.buildLoadData(model, width, height, loadDataOptions);
         if (current != null) {
           loadData.add(current);
         }
@@ -216,6 +241,18 @@ final class DecodeHelper<Transcode> {
     return loadData;
   }
 
+  private Options getLoadDataOptions() {
+    // Partial downloads are kept in the disk cache, so they're only staged if the complete data
+    // would be cached too.
+    if (!diskCacheStrategy.isDataCacheable(DataSource.REMOTE)) {
+      return options;
+    }
+    Options result = new Options();
+    result.putAll(options);
+    result.set(PartialDownloadCache.STAGE_PARTIAL_DOWNLOADS, true);
+    return result;
+  }
+
   List<Key> getCacheKeys() {
     if (!isCacheKeysSet) {
       isCacheKeysSet = true;
@@ -1,27 +1,40 @@
 package com.bumptech.glide.load.engine;
 
+import android.graphics.Bitmap;
 import android.os.Build;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.util.Pools;
 import android.util.Log;
+import com.bumptech.glide.Glide;
 import com.bumptech.glide.GlideContext;
 import com.bumptech.glide.Priority;
 import com.bumptech.glide.Registry;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.EncodeStrategy;
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.load.ImageHeaderParserUtils;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.ResourceEncoder;
 import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.data.DataRewinder;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.DiskCacheAdapter;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
 import com.bumptech.glide.load.resource.bitmap.Downsampler;
+import com.bumptech.glide.load.resource.bitmap.ImageMetadataCache;
+import com.bumptech.glide.signature.ObjectKey;
 import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.pool.FactoryPools.Poolable;
 import com.bumptech.glide.util.pool.GlideTrace;
 import com.bumptech.glide.util.pool.StateVerifier;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +49,7 @@ import java.util.Map;
  *            resource.
  */
 class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
+    DecodeCoalescer.Waiter,
     Runnable,
     Comparable<DecodeJob<?>>,
     Poolable {
@@ -46,6 +60,9 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private final StateVerifier stateVerifier = StateVerifier.newInstance();
   private final DiskCacheProvider diskCacheProvider;
   private final Pools.Pool<DecodeJob<?>> pool;
+  private final SourceFetchCoalescer sourceFetchCoalescer;
+  private final DecodeCoalescer decodeCoalescer;
+  private final ResourceEncodeQueue encodeQueue;
   private final DeferredEncodeManager<?> deferredEncodeManager = new DeferredEncodeManager<>();
   private final ReleaseManager releaseManager = new ReleaseManager();
 
@@ -62,6 +79,11 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private Stage stage;
   private RunReason runReason;
   private long startFetchTime;
+  @Nullable private LoadMetricsListener metricsListener;
+  private long loadStartTime;
+  private long decodeStartTime;
+  private long transcodeStartTime;
+  private long bytesRead;
   private boolean onlyRetrieveFromCache;
   private Object model;
 
@@ -71,14 +93,36 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private Object currentData;
   private DataSource currentDataSource;
   private DataFetcher<?> currentFetcher;
+  private DecodeCoalescer.Member sharedDecodeMember;
+  private boolean hasAwaitedSharedDecode;
+  @Nullable private volatile Resource<Bitmap> sharedDecodeResource;
+  // Guards the fields below, which make sure that at most one intermediate result is decoded at a
+  // time and that none are being decoded once our callback has been notified.
+  private final Object partialDecodeLock = new Object();
+  // Set from when a partial decode is queued until it finishes or is dropped.
+  private boolean isPartialDecodePending;
+  // Set only while a partial decode is actually running, queued decodes are never waited on.
+  private boolean isPartialDecodeRunning;
+  private boolean arePartialDecodesFinished;
+  // Incremented when partial decodes finish so that decodes still queued, including those queued
+  // before this job was released and reused, are dropped instead of run.
+  private int partialDecodeGeneration;
 
   private volatile DataFetcherGenerator currentGenerator;
   private volatile boolean isCallbackNotified;
   private volatile boolean isCancelled;
+  // Set the first time we're run, after which we must always be allowed to run again if we're
+  // re-queued so that we can clean up after ourselves, see #1996.
+  private volatile boolean hasStarted;
 
-  DecodeJob(DiskCacheProvider diskCacheProvider, Pools.Pool<DecodeJob<?>> pool) {
+  DecodeJob(DiskCacheProvider diskCacheProvider, Pools.Pool<DecodeJob<?>> pool,
+      SourceFetchCoalescer sourceFetchCoalescer, DecodeCoalescer decodeCoalescer,
+      ResourceEncodeQueue encodeQueue) {
     this.diskCacheProvider = diskCacheProvider;
     this.pool = pool;
+    this.sourceFetchCoalescer = sourceFetchCoalescer;
+    this.decodeCoalescer = decodeCoalescer;
+    this.encodeQueue = encodeQueue;
   }
 
   DecodeJob<R> init(
@@ -127,6 +171,10 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     this.order = order;
     this.runReason = RunReason.INITIALIZE;
     this.model = model;
+    this.metricsListener = glideContext.getLoadMetricsListener();
+    this.loadStartTime = metricsListener != null ? LogTime.getLogTime() : 0L;
+    this.bytesRead = -1;
+    this.sharedDecodeMember = decodeCoalescer.join(model, signature, options, width, height, this);
     return this;
   }
 
@@ -139,6 +187,40 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     return firstStage == Stage.RESOURCE_CACHE || firstStage == Stage.DATA_CACHE;
   }
 
+  /**
+   * Returns {@code true} if {@link #run()} has been called at least once, in which case this job
+   * must not be removed from an executor's queue without being run.
+   */
+  boolean hasStarted() {
+    return hasStarted;
+  }
+
+  /**
+   * Updates the priority used to order this job relative to other queued jobs and passed to any
+   * data fetchers this job starts.
+   *
+   * <p>Must only be called while this job is neither queued nor running, otherwise the order of
+   * the executor's queue may become inconsistent.
+   */
+  void setPriority(Priority priority) {
+    this.priority = priority;
+    decodeHelper.setPriority(priority);
+  }
+
+  /**
+   * Passes the given priority on to the fetcher this job is currently running, and to any fetchers
+   * it starts later, without changing this job's order relative to other queued jobs.
+   *
+   * <p>Safe to call while this job is running.
+   */
+  void setRunningPriority(Priority priority) {
+    decodeHelper.setPriority(priority);
+    DataFetcherGenerator local = currentGenerator;
+    if (local != null) {
+      local.onPriorityChanged(priority);
+    }
+  }
+
   /**
    * Called when this object is no longer in use externally.
    *
@@ -171,6 +253,18 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   }
 
   private void releaseInternal() {
+    leaveSharedDecode();
+    Resource<Bitmap> unusedSharedResource = sharedDecodeResource;
+    if (unusedSharedResource != null) {
+      unusedSharedResource.recycle();
+    }
+    sharedDecodeResource = null;
+    sharedDecodeMember = null;
+    hasAwaitedSharedDecode = false;
+    synchronized (partialDecodeLock) {
+      isPartialDecodePending = false;
+      arePartialDecodesFinished = false;
+    }
     releaseManager.reset();
     deferredEncodeManager.clear();
     decodeHelper.clear();
@@ -189,7 +283,13 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     currentDataSource = null;
     currentFetcher = null;
     startFetchTime = 0L;
+    metricsListener = null;
+    loadStartTime = 0L;
+    decodeStartTime = 0L;
+    transcodeStartTime = 0L;
+    bytesRead = -1;
     isCancelled = false;
+    hasStarted = false;
     model = null;
     throwables.clear();
     pool.release(this);
@@ -214,6 +314,12 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     if (local != null) {
       local.cancel();
     }
+    DecodeCoalescer.Member member = sharedDecodeMember;
+    if (member != null && decodeCoalescer.removeWaiter(member)) {
+      // We're not queued or running while we wait, so we need to be run once more to clean up.
+      runReason = RunReason.DECODE_DATA;
+      callback.reschedule(this);
+    }
   }
 
   @Override
@@ -221,6 +327,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     // This should be much more fine grained, but since Java's thread pool implementation silently
     // swallows all otherwise fatal exceptions, this will at least make it obvious to developers
     // that something is failing.
+    hasStarted = true;
     GlideTrace.beginSectionFormat("DecodeJob#run(model=%s)", model);
     // Methods in the try statement can invalidate currentFetcher, so set a local variable here to
     // ensure that the fetcher is cleaned up either way.
@@ -286,7 +393,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       case DATA_CACHE:
         return new DataCacheGenerator(decodeHelper, this);
       case SOURCE:
-        return new SourceGenerator(decodeHelper, this);
+        return new SourceGenerator(decodeHelper, this, sourceFetchCoalescer);
       case FINISHED:
         return null;
       default:
@@ -304,6 +411,8 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       currentGenerator = getNextGenerator();
 
       if (stage == Stage.SOURCE) {
+        // Anything we found in the disk cache would have started a load, so this was a miss.
+        notifyStageComplete(LoadMetricsListener.Stage.DISK_CACHE, startFetchTime);
         reschedule();
         return;
       }
@@ -319,6 +428,11 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
 
   private void notifyFailed() {
     setNotifiedOrThrow();
+    finishPartialDecodes();
+    leaveSharedDecode();
+    if (metricsListener != null) {
+      metricsListener.onLoadFailed(model, loadKey, LogTime.getElapsedMillis(loadStartTime));
+    }
     GlideException e = new GlideException("Failed to load resource", new ArrayList<>(throwables));
     callback.onLoadFailed(e);
     onLoadFailed();
@@ -326,6 +440,12 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
 
   private void notifyComplete(Resource<R> resource, DataSource dataSource) {
     setNotifiedOrThrow();
+    finishPartialDecodes();
+    leaveSharedDecode();
+    if (metricsListener != null) {
+      metricsListener.onLoadComplete(
+          model, loadKey, dataSource, bytesRead, LogTime.getElapsedMillis(loadStartTime));
+    }
     callback.onResourceReady(resource, dataSource);
   }
 
@@ -370,6 +490,13 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     this.currentFetcher = fetcher;
     this.currentDataSource = dataSource;
     this.currentAttemptingKey = attemptedKey;
+    if (metricsListener != null) {
+      bytesRead = getDataSize(data);
+      notifyStageComplete(
+          dataSource == DataSource.DATA_DISK_CACHE || dataSource == DataSource.RESOURCE_DISK_CACHE
+              ? LoadMetricsListener.Stage.DISK_CACHE : LoadMetricsListener.Stage.FETCH,
+          startFetchTime);
+    }
     if (Thread.currentThread() != currentThread) {
       runReason = RunReason.DECODE_DATA;
       callback.reschedule(this);
@@ -383,6 +510,118 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     }
   }
 
+  @Override
+  public void onPartialDataReady(Key sourceKey, ByteBuffer data, DataSource dataSource) {
+    if (isCancelled || !isProgressiveImageType(data)) {
+      return;
+    }
+    LoadPath<ByteBuffer, ?, R> path = decodeHelper.getLoadPath(ByteBuffer.class);
+    if (path == null) {
+      return;
+    }
+    int generation;
+    synchronized (partialDecodeLock) {
+      // Partial data is skipped rather than queued while an earlier intermediate result is still
+      // waiting or being decoded, so the fetch never waits for a decode and stale data is never
+      // decoded.
+      if (isPartialDecodePending || arePartialDecodesFinished) {
+        return;
+      }
+      isPartialDecodePending = true;
+      generation = partialDecodeGeneration;
+    }
+    // The given buffer is only valid for the duration of this call, so decode from a copy.
+    ArrayPool arrayPool = decodeHelper.getArrayPool();
+    int length = data.remaining();
+    byte[] bytes = arrayPool.get(length, byte[].class);
+    data.duplicate().get(bytes, 0, length);
+    callback.executePartialDecode(
+        new PartialDecode(path, arrayPool, bytes, length, dataSource, generation));
+  }
+
+  // Returns false if the partial decode queued for the given generation should be dropped because
+  // the load it was queued for has already finished.
+  @Synthetic
+  boolean startPartialDecode(int generation) {
+    synchronized (partialDecodeLock) {
+      if (generation != partialDecodeGeneration) {
+        return false;
+      }
+      isPartialDecodeRunning = true;
+      return true;
+    }
+  }
+
+  @Synthetic
+  void decodePartialData(
+      LoadPath<ByteBuffer, ?, R> path, ByteBuffer data, DataSource dataSource) {
+    long startTime = LogTime.getLogTime();
+    Resource<R> resource;
+    try {
+      resource = runPartialLoadPath(data, dataSource, path);
+    } catch (GlideException e) {
+      // Failing to decode partial data is expected, for example if a required chunk hasn't been
+      // read yet, so we just wait for more data.
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Failed to decode partial data, bytes: " + data.remaining(), e);
+      }
+      return;
+    }
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      logWithTimeAndKey("Decoded partial result " + resource, startTime,
+          "bytes: " + data.remaining());
+    }
+    synchronized (partialDecodeLock) {
+      // The final result or failure is about to be delivered, so this result is no longer useful.
+      if (!arePartialDecodesFinished && !isCancelled) {
+        callback.onPartialResourceReady(resource, dataSource);
+        return;
+      }
+    }
+    resource.recycle();
+  }
+
+  @Synthetic
+  void onPartialDecodeFinished() {
+    synchronized (partialDecodeLock) {
+      isPartialDecodePending = false;
+      isPartialDecodeRunning = false;
+      partialDecodeLock.notifyAll();
+    }
+  }
+
+  // Must be called before our callback is notified, so that no intermediate result is delivered
+  // after the final result and so that this job isn't released while it's still in use. Only
+  // decodes that have started are waited on. A decode that is still queued may be queued behind
+  // this job on the same executor, so it's dropped instead.
+  private void finishPartialDecodes() {
+    synchronized (partialDecodeLock) {
+      arePartialDecodesFinished = true;
+      partialDecodeGeneration++;
+      boolean isInterrupted = false;
+      while (isPartialDecodeRunning) {
+        try {
+          partialDecodeLock.wait();
+        } catch (InterruptedException e) {
+          isInterrupted = true;
+        }
+      }
+      if (isInterrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private boolean isProgressiveImageType(ByteBuffer data) {
+    try {
+      ImageType type = ImageHeaderParserUtils.getType(
+          glideContext.getRegistry().getImageHeaderParsers(), data.duplicate());
+      return type == ImageType.JPEG || type == ImageType.PNG || type == ImageType.PNG_A;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
   @Override
   public void onDataFetcherFailed(Key attemptedKey, Exception e, DataFetcher<?> fetcher,
       DataSource dataSource) {
@@ -399,15 +638,38 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   }
 
   private void decodeFromRetrievedData() {
+    Resource<Bitmap> sharedResource = sharedDecodeResource;
+    sharedDecodeResource = null;
+    if (sharedResource == null && awaitSharedDecode()) {
+      // We'll be notified once a larger load has decoded the data, or has failed to, and can
+      // retrieve the data again if we need to.
+      currentFetcher.cleanup();
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        logWithTimeAndKey("Waiting for shared decode", startFetchTime);
+      }
+      return;
+    }
     if (Log.isLoggable(TAG, Log.VERBOSE)) {
       logWithTimeAndKey("Retrieved data", startFetchTime,
           "data: " + currentData
               + ", cache key: " + currentSourceKey
-              + ", fetcher: " + currentFetcher);
+              + ", fetcher: " + currentFetcher
+              + ", shared resource: " + sharedResource);
     }
     Resource<R> resource = null;
     try {
-      resource = decodeFromData(currentFetcher, currentData, currentDataSource);
+      if (sharedResource != null) {
+        resource = decodeFromSharedResource(sharedResource, currentDataSource);
+        if (resource == null) {
+          // None of our decode paths handle the shared resource, so retrieve and decode the data
+          // ourselves.
+          runReason = RunReason.INITIALIZE;
+          runWrapped();
+          return;
+        }
+      } else {
+        resource = decodeFromData(currentFetcher, currentData, currentDataSource);
+      }
     } catch (GlideException e) {
       e.setLoggingDetails(currentAttemptingKey, currentDataSource);
       throwables.add(e);
@@ -434,17 +696,13 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     notifyComplete(result, dataSource);
 
     stage = Stage.ENCODE;
-    try {
-      if (deferredEncodeManager.hasResourceToEncode()) {
-        deferredEncodeManager.encode(diskCacheProvider, options);
-      }
-    } finally {
-      if (lockedResource != null) {
-        lockedResource.unlock();
-      }
+    if (deferredEncodeManager.hasResourceToEncode()) {
+      // The encode queue takes ownership of the lock on the result and releases it once the
+      // resource has been written, which may happen after this job has been released.
+      deferredEncodeManager.encode(
+          diskCacheProvider, options, encodeQueue, lockedResource, metricsListener, model, loadKey);
     }
-    // Call onEncodeComplete outside the finally block so that it's not called if the encode process
-    // throws.
+    // Don't call onEncodeComplete if the encode process throws.
     onEncodeComplete();
   }
 
@@ -455,7 +713,11 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         return null;
       }
       long startTime = LogTime.getLogTime();
+      decodeStartTime = startTime;
       Resource<R> result = decodeFromFetcher(data, dataSource);
+      if (result != null) {
+        notifyStageComplete(LoadMetricsListener.Stage.TRANSCODE, transcodeStartTime);
+      }
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
         logWithTimeAndKey("Decoded result " + result, startTime);
       }
@@ -465,6 +727,86 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     }
   }
 
+  /**
+   * Returns {@code true} if we should wait for a larger load for the same model to decode the data
+   * we've retrieved rather than decoding it ourselves.
+   */
+  private boolean awaitSharedDecode() {
+    if (hasAwaitedSharedDecode || currentDataSource == DataSource.RESOURCE_DISK_CACHE) {
+      return false;
+    }
+    // If the larger load can't share its decode, we need to be able to retrieve the data again
+    // without fetching it from the source.
+    boolean isRetrievableFromCache = currentDataSource != DataSource.REMOTE
+        || (diskCacheStrategy.isDataCacheable(DataSource.REMOTE)
+        && !(decodeHelper.getDiskCache() instanceof DiskCacheAdapter));
+    if (!isRetrievableFromCache) {
+      return false;
+    }
+    hasAwaitedSharedDecode = true;
+    return decodeCoalescer.await(sharedDecodeMember);
+  }
+
+  @Override
+  public void onSharedDecodeComplete(@Nullable Resource<Bitmap> resource) {
+    sharedDecodeResource = resource;
+    // Either transform and transcode the shared resource, or start over to decode the data
+    // ourselves.
+    runReason = resource != null ? RunReason.DECODE_DATA : RunReason.INITIALIZE;
+    callback.reschedule(this);
+  }
+
+  private void leaveSharedDecode() {
+    DecodeCoalescer.Member member = sharedDecodeMember;
+    if (member != null) {
+      decodeCoalescer.leave(member);
+    }
+  }
+
+  /**
+   * Lets any smaller loads for the same model that are waiting for us use the resource we've just
+   * decoded.
+   */
+  private <Z> void shareDecoded(@NonNull Resource<Z> decoded) {
+    Object resource = decoded.get();
+    Bitmap bitmap = null;
+    if (resource instanceof Bitmap) {
+      bitmap = (Bitmap) resource;
+      // Hardware Bitmaps can't be drawn on to a software Canvas to scale them.
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+          && bitmap.getConfig() == Bitmap.Config.HARDWARE) {
+        bitmap = null;
+      }
+    }
+    decodeCoalescer.onDecoded(sharedDecodeMember, bitmap, options.get(DownsampleStrategy.OPTION),
+        bitmap != null ? Glide.get(glideContext).getBitmapPool() : null);
+  }
+
+  @Nullable
+  private Resource<R> decodeFromSharedResource(Resource<Bitmap> sharedResource,
+      DataSource dataSource) {
+    long startTime = LogTime.getLogTime();
+    decodeStartTime = startTime;
+    LoadPath<?, ?, R> path = decodeHelper.getLoadPath(currentData.getClass());
+    Resource<R> result = path != null ? runSharedLoadPath(sharedResource, dataSource, path) : null;
+    if (result == null) {
+      sharedResource.recycle();
+      return null;
+    }
+    notifyStageComplete(LoadMetricsListener.Stage.TRANSCODE, transcodeStartTime);
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      logWithTimeAndKey("Decoded result from shared resource " + result, startTime);
+    }
+    return result;
+  }
+
+  @Nullable
+  private <ResourceType> Resource<R> runSharedLoadPath(Resource<Bitmap> sharedResource,
+      DataSource dataSource, LoadPath<?, ResourceType, R> path) {
+    Options options = getOptionsWithHardwareConfig(dataSource);
+    return path.transcode(sharedResource, options, new DecodeCallback<ResourceType>(dataSource));
+  }
+
   @SuppressWarnings("unchecked")
   private <Data> Resource<R> decodeFromFetcher(Data data, DataSource dataSource)
       throws GlideException {
@@ -498,9 +840,37 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     return options;
   }
 
+  /**
+   * Returns a key for data read from the disk cache that allows decoders to cache metadata about
+   * it, or {@code null} if the data may change.
+   *
+   * <p>Entries in the disk cache may be replaced, for example if they're evicted and the source
+   * data has changed when it's retrieved again, so the key includes the size of the data.
+   */
+  @Nullable
+  private Key getSourceKeyForMetadata(Object data, DataSource dataSource) {
+    Key cacheKey;
+    if (dataSource == DataSource.DATA_DISK_CACHE) {
+      cacheKey = new DataCacheKey(currentSourceKey, signature);
+    } else if (dataSource == DataSource.RESOURCE_DISK_CACHE) {
+      cacheKey = currentAttemptingKey;
+    } else {
+      return null;
+    }
+    long dataSize = getDataSize(data);
+    return dataSize >= 0 ? new DataCacheKey(cacheKey, new ObjectKey(dataSize)) : null;
+  }
+
   private <Data, ResourceType> Resource<R> runLoadPath(Data data, DataSource dataSource,
       LoadPath<Data, ResourceType, R> path) throws GlideException {
     Options options = getOptionsWithHardwareConfig(dataSource);
+    Key sourceKeyForMetadata = getSourceKeyForMetadata(data, dataSource);
+    if (sourceKeyForMetadata != null) {
+      Options withSourceKey = new Options();
+      withSourceKey.putAll(options);
+      withSourceKey.set(ImageMetadataCache.SOURCE_KEY, sourceKeyForMetadata);
+      options = withSourceKey;
+    }
     DataRewinder<Data> rewinder = glideContext.getRegistry().getRewinder(data);
     try {
       // ResourceType in DecodeCallback below is required for compilation to work with gradle.
@@ -511,6 +881,18 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     }
   }
 
+  private <ResourceType> Resource<R> runPartialLoadPath(ByteBuffer data, DataSource dataSource,
+      LoadPath<ByteBuffer, ResourceType, R> path) throws GlideException {
+    Options options = getOptionsWithHardwareConfig(dataSource);
+    DataRewinder<ByteBuffer> rewinder = glideContext.getRegistry().getRewinder(data);
+    try {
+      return path.load(
+          rewinder, options, width, height, new PartialDecodeCallback<ResourceType>());
+    } finally {
+      rewinder.cleanup();
+    }
+  }
+
   private void logWithTimeAndKey(String message, long startTime) {
     logWithTimeAndKey(message, startTime, null /*extraArgs*/);
   }
@@ -531,13 +913,19 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   @NonNull
   <Z> Resource<Z> onResourceDecoded(DataSource dataSource,
       @NonNull Resource<Z> decoded) {
+    notifyStageComplete(LoadMetricsListener.Stage.DECODE, decodeStartTime);
+    if (dataSource != DataSource.RESOURCE_DISK_CACHE) {
+      shareDecoded(decoded);
+    }
     @SuppressWarnings("unchecked")
     Class<Z> resourceSubClass = (Class<Z>) decoded.get().getClass();
     Transformation<Z> appliedTransformation = null;
     Resource<Z> transformed = decoded;
     if (dataSource != DataSource.RESOURCE_DISK_CACHE) {
+      long transformStartTime = metricsListener != null ? LogTime.getLogTime() : 0L;
       appliedTransformation = decodeHelper.getTransformation(resourceSubClass);
       transformed = appliedTransformation.transform(glideContext, decoded, width, height);
+      notifyStageComplete(LoadMetricsListener.Stage.TRANSFORM, transformStartTime);
     }
     // TODO: Make this the responsibility of the Transformation.
     if (!decoded.equals(transformed)) {
@@ -586,9 +974,30 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       deferredEncodeManager.init(key, encoder, lockedResult);
       result = lockedResult;
     }
+    if (metricsListener != null) {
+      transcodeStartTime = LogTime.getLogTime();
+    }
     return result;
   }
 
+  private void notifyStageComplete(LoadMetricsListener.Stage stage, long startTime) {
+    if (metricsListener != null) {
+      metricsListener.onStageComplete(model, loadKey, stage, LogTime.getElapsedMillis(startTime));
+    }
+  }
+
+  /** Returns the size in bytes of the given data if it's cheap to obtain, or -1 otherwise. */
+  private static long getDataSize(Object data) {
+    if (data instanceof ByteBuffer) {
+      return ((ByteBuffer) data).remaining();
+    } else if (data instanceof File) {
+      return ((File) data).length();
+    } else if (data instanceof byte[]) {
+      return ((byte[]) data).length;
+    }
+    return -1;
+  }
+
   private final class DecodeCallback<Z> implements DecodePath.DecodeCallback<Z> {
 
     private final DataSource dataSource;
@@ -605,6 +1014,70 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     }
   }
 
+  /**
+   * Transforms intermediate resources decoded from partial data without encoding them.
+   */
+  private final class PartialDecodeCallback<Z> implements DecodePath.DecodeCallback<Z> {
+
+    @Synthetic
+    PartialDecodeCallback() { }
+
+    @NonNull
+    @Override
+    public Resource<Z> onResourceDecoded(@NonNull Resource<Z> decoded) {
+      @SuppressWarnings("unchecked")
+      Class<Z> resourceSubClass = (Class<Z>) decoded.get().getClass();
+      Resource<Z> transformed = decodeHelper.getTransformation(resourceSubClass)
+          .transform(glideContext, decoded, width, height);
+      if (!decoded.equals(transformed)) {
+        decoded.recycle();
+      }
+      return transformed;
+    }
+  }
+
+  /**
+   * Decodes an intermediate resource from a copy of partially loaded data, off of the thread that
+   * is loading the data.
+   */
+  private final class PartialDecode implements Runnable {
+    private final LoadPath<ByteBuffer, ?, R> path;
+    private final ArrayPool arrayPool;
+    private final byte[] bytes;
+    private final int length;
+    private final DataSource dataSource;
+    private final int generation;
+
+    @Synthetic
+    PartialDecode(LoadPath<ByteBuffer, ?, R> path, ArrayPool arrayPool, byte[] bytes, int length,
+        DataSource dataSource, int generation) {
+      this.path = path;
+      this.arrayPool = arrayPool;
+      this.bytes = bytes;
+      this.length = length;
+      this.dataSource = dataSource;
+      this.generation = generation;
+    }
+
+    @Override
+    public void run() {
+      // The job may already have been released, so nothing but the lock is touched until we know
+      // the load hasn't finished.
+      if (!startPartialDecode(generation)) {
+        arrayPool.put(bytes);
+        return;
+      }
+      // Our fields aren't cleared until the job is released, which finishPartialDecodes prevents
+      // until this method returns.
+      try {
+        decodePartialData(path, ByteBuffer.wrap(bytes, 0, length), dataSource);
+      } finally {
+        arrayPool.put(bytes);
+        onPartialDecodeFinished();
+      }
+    }
+  }
+
   /**
    * Responsible for indicating when it is safe for the job to be cleared and returned to the pool.
    */
@@ -662,15 +1135,15 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       this.toEncode = (LockedResource<Z>) toEncode;
     }
 
-    void encode(DiskCacheProvider diskCacheProvider, Options options) {
-      GlideTrace.beginSection("DecodeJob.encode");
-      try {
-        diskCacheProvider.getDiskCache().put(key,
-            new DataCacheWriter<>(encoder, toEncode, options));
-      } finally {
-        toEncode.unlock();
-        GlideTrace.endSection();
+    void encode(DiskCacheProvider diskCacheProvider, Options options,
+        ResourceEncodeQueue encodeQueue, @Nullable LockedResource<?> result,
+        @Nullable LoadMetricsListener metricsListener, Object model, Key loadKey) {
+      ResourceEncodeQueue.EncodeTask<Z> task = new ResourceEncodeQueue.EncodeTask<>(
+          key, encoder, toEncode, options, diskCacheProvider, result);
+      if (metricsListener != null) {
+        task.setMetricsListener(metricsListener, model, loadKey);
       }
+      encodeQueue.encode(task);
     }
 
     boolean hasResourceToEncode() {
@@ -688,6 +1161,18 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
 
     void onResourceReady(Resource<R> resource, DataSource dataSource);
 
+    /**
+     * Called zero or more times before {@link #onResourceReady(Resource, DataSource)} with
+     * intermediate resources decoded from partially loaded data.
+     */
+    void onPartialResourceReady(Resource<R> resource, DataSource dataSource);
+
+    /**
+     * Runs the given decode of an intermediate resource on a background thread other than the one
+     * loading the data.
+     */
+    void executePartialDecode(Runnable decode);
+
     void onLoadFailed(GlideException e);
 
     void reschedule(DecodeJob<?> job);
@@ -23,6 +23,7 @@ import java.util.List;
 public class DecodePath<DataType, ResourceType, Transcode> {
   private static final String TAG = "DecodePath";
   private final Class<DataType> dataClass;
+  private final Class<ResourceType> resourceClass;
   private final List<? extends ResourceDecoder<DataType, ResourceType>> decoders;
   private final ResourceTranscoder<ResourceType, Transcode> transcoder;
   private final Pool<List<Throwable>> listPool;
@@ -33,6 +34,7 @@ public class DecodePath<DataType, ResourceType, Transcode> {
       List<? extends ResourceDecoder<DataType, ResourceType>> decoders,
       ResourceTranscoder<ResourceType, Transcode> transcoder, Pool<List<Throwable>> listPool) {
     this.dataClass = dataClass;
+    this.resourceClass = resourceClass;
     this.decoders = decoders;
     this.transcoder = transcoder;
     this.listPool = listPool;
@@ -43,6 +45,19 @@ public class DecodePath<DataType, ResourceType, Transcode> {
   public Resource<Transcode> decode(DataRewinder<DataType> rewinder, int width, int height,
       @NonNull Options options, DecodeCallback<ResourceType> callback) throws GlideException {
     Resource<ResourceType> decoded = decodeResource(rewinder, width, height, options);
+    return transcode(decoded, options, callback);
+  }
+
+  /** Returns {@code true} if resources of the given class can be passed to {@link #transcode}. */
+  boolean handlesResource(@NonNull Class<?> resourceClass) {
+    return this.resourceClass.isAssignableFrom(resourceClass);
+  }
+
+  /**
+   * Passes a resource that was already decoded to the given callback and transcodes the result.
+   */
+  Resource<Transcode> transcode(@NonNull Resource<ResourceType> decoded, @NonNull Options options,
+      DecodeCallback<ResourceType> callback) {
     Resource<ResourceType> transformed = callback.onResourceDecoded(decoded);
     return transcoder.transcode(transformed, options);
   }
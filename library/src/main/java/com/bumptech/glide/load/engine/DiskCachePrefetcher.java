@@ -0,0 +1,598 @@
+package com.bumptech.glide.load.engine;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.GlideContext;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Encoder;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.QueryableDiskCache;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoader.LoadData;
+import com.bumptech.glide.manager.ConnectivityMonitor;
+import com.bumptech.glide.manager.ConnectivityMonitorFactory;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.Synthetic;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Fetches the source data for batches of models, for example the images on the first pages of a
+ * feed, directly into Glide's disk cache in the background so that later loads for those models
+ * don't have to wait for the network.
+ *
+ * <p>Unlike {@link com.bumptech.glide.RequestManager#downloadOnly()} and
+ * {@link com.bumptech.glide.RequestBuilder#preload()}, models are fetched without starting a load
+ * in the {@link Engine} and without decoding, on a small dedicated pool of threads at
+ * {@link Priority#LOW}. Models are read lazily from the given {@link Iterable} as threads become
+ * free, so the {@link Iterable} may be arbitrarily long.
+ *
+ * <p>Models are skipped if their data is already in the disk cache, is being prefetched already
+ * or isn't retrieved from a remote source. Prefetching pauses while the device isn't connected to
+ * a network, as reported by the {@link ConnectivityMonitor} built by Glide's
+ * {@link ConnectivityMonitorFactory}, or while the battery is low and the device isn't charging.
+ * It resumes when both conditions clear.
+ *
+ * <p>Data is written with the {@link com.bumptech.glide.signature.EmptySignature signature} and
+ * {@link Options} of the default {@link RequestOptions}, and models are fetched at their original
+ * size. So a later load finds the prefetched data only if it uses the default signature and a
+ * {@link com.bumptech.glide.load.engine.DiskCacheStrategy} that reads cached source data, like the
+ * default {@link com.bumptech.glide.load.engine.DiskCacheStrategy#AUTOMATIC}.
+ */
+public final class DiskCachePrefetcher {
+  private static final String TAG = "DiskCachePrefetcher";
+  private static final int DEFAULT_MAX_CONCURRENT_FETCHES = 2;
+  private static final int LOW_BATTERY_PERCENT = 15;
+
+  private final GlideContext glideContext;
+  private final DecodeJob.DiskCacheProvider diskCacheProvider;
+  private final ExecutorService executor;
+  private final int maxConcurrentFetches;
+  private final ConnectivityMonitor connectivityMonitor;
+  private final BroadcastReceiver batteryReceiver = new BroadcastReceiver() {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+      setBatteryLow(Intent.ACTION_BATTERY_LOW.equals(intent.getAction()));
+    }
+  };
+
+  // Guarded by this.
+  private final List<Task> tasks = new ArrayList<>();
+  private final Set<Key> inProgressKeys = new HashSet<>();
+  private int runningWorkers;
+  private boolean isConnected = true;
+  private boolean isBatteryLow;
+  private boolean isMonitoring;
+  private boolean isShutdown;
+
+  DiskCachePrefetcher(
+      @NonNull GlideContext glideContext,
+      @NonNull DecodeJob.DiskCacheProvider diskCacheProvider,
+      @NonNull ExecutorService executor,
+      @NonNull ConnectivityMonitorFactory connectivityMonitorFactory) {
+    this(glideContext, diskCacheProvider, executor, connectivityMonitorFactory,
+        DEFAULT_MAX_CONCURRENT_FETCHES);
+  }
+
+  @VisibleForTesting
+  DiskCachePrefetcher(
+      @NonNull GlideContext glideContext,
+      @NonNull DecodeJob.DiskCacheProvider diskCacheProvider,
+      @NonNull ExecutorService executor,
+      @NonNull ConnectivityMonitorFactory connectivityMonitorFactory,
+      int maxConcurrentFetches) {
+    this.glideContext = glideContext;
+    this.diskCacheProvider = diskCacheProvider;
+    this.executor = executor;
+    this.maxConcurrentFetches = maxConcurrentFetches;
+    connectivityMonitor = connectivityMonitorFactory.build(
+        glideContext, new ConnectivityMonitor.ConnectivityListener() {
+          @Override
+          public void onConnectivityChanged(boolean isConnected) {
+            setConnected(isConnected);
+          }
+        });
+  }
+
+  /**
+   * Starts fetching the data for the given models into the disk cache, after any previously
+   * started prefetches.
+   *
+   * <p>May be called on any thread. The {@link Iterable}'s {@link Iterator} is read on background
+   * threads, one model at a time.
+   *
+   * @param listener An optional listener that's notified on a background thread as each model is
+   *                 handled and when all of them have been.
+   */
+  @NonNull
+  public Task prefetch(@NonNull Iterable<?> models, @Nullable Listener listener) {
+    Task task = new Task(models.iterator(), listener);
+    synchronized (this) {
+      if (isShutdown) {
+        throw new IllegalStateException("Cannot prefetch after Glide has been torn down");
+      }
+      tasks.add(task);
+      startMonitoring();
+      startWorkers();
+    }
+    return task;
+  }
+
+  /** Cancels all prefetches and stops the threads used to run them. */
+  void shutdown() {
+    List<Task> toCancel;
+    synchronized (this) {
+      isShutdown = true;
+      toCancel = new ArrayList<>(tasks);
+    }
+    for (Task task : toCancel) {
+      task.cancel();
+    }
+    executor.shutdownNow();
+  }
+
+  @Synthetic
+  void setConnected(boolean isConnected) {
+    synchronized (this) {
+      this.isConnected = isConnected;
+      startWorkers();
+    }
+  }
+
+  @Synthetic
+  void setBatteryLow(boolean isBatteryLow) {
+    synchronized (this) {
+      this.isBatteryLow = isBatteryLow;
+      startWorkers();
+    }
+  }
+
+  // Guarded by this.
+  private void startWorkers() {
+    while (runningWorkers < maxConcurrentFetches && canPrefetch() && mayHavePendingModels()) {
+      runningWorkers++;
+      executor.execute(new Worker());
+    }
+  }
+
+  private boolean canPrefetch() {
+    return !isShutdown && isConnected && !isBatteryLow;
+  }
+
+  // Iterators may be slow or not thread safe, so this doesn't read them, it only checks whether
+  // any of them might have more models.
+  private boolean mayHavePendingModels() {
+    for (int i = 0, size = tasks.size(); i < size; i++) {
+      if (tasks.get(i).mayHaveNextModel()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the next task with a model to prefetch, with the model, or {@code null} if the calling
+   * worker should stop.
+   *
+   * <p>Only called on workers, which are the only threads that read the models' iterators.
+   *
+   * @param completed Filled with the tasks that completed because their iterators ran out, which
+   *                  the caller must notify.
+   */
+  @Nullable
+  @Synthetic
+  synchronized Task nextTask(List<Task> completed) {
+    if (canPrefetch()) {
+      for (int i = 0, size = tasks.size(); i < size; i++) {
+        Task task = tasks.get(i);
+        if (task.moveToNextModel()) {
+          return task;
+        } else if (task.checkComplete()) {
+          completed.add(task);
+        }
+      }
+    }
+    runningWorkers--;
+    return null;
+  }
+
+  @Synthetic
+  void onTaskComplete(Task task) {
+    synchronized (this) {
+      tasks.remove(task);
+      if (tasks.isEmpty()) {
+        stopMonitoring();
+      }
+    }
+  }
+
+  // Guarded by this.
+  private void startMonitoring() {
+    if (isMonitoring) {
+      return;
+    }
+    isMonitoring = true;
+    connectivityMonitor.onStart();
+    try {
+      glideContext.registerReceiver(batteryReceiver, getBatteryIntentFilter());
+      // Neither the low nor the okay broadcast is sticky, so read the current state from the sticky
+      // changed broadcast. We're already registered, so no change can be missed.
+      isBatteryLow = isBatteryLow(glideContext.registerReceiver(
+          null /*receiver*/, new IntentFilter(Intent.ACTION_BATTERY_CHANGED)));
+    } catch (SecurityException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Failed to register battery receiver", e);
+      }
+    }
+  }
+
+  // Guarded by this.
+  private void stopMonitoring() {
+    if (!isMonitoring) {
+      return;
+    }
+    isMonitoring = false;
+    connectivityMonitor.onStop();
+    try {
+      glideContext.unregisterReceiver(batteryReceiver);
+    } catch (IllegalArgumentException e) {
+      // Registration failed.
+    }
+    isBatteryLow = false;
+    isConnected = true;
+  }
+
+  private static IntentFilter getBatteryIntentFilter() {
+    IntentFilter filter = new IntentFilter();
+    filter.addAction(Intent.ACTION_BATTERY_LOW);
+    filter.addAction(Intent.ACTION_BATTERY_OKAY);
+    return filter;
+  }
+
+  @VisibleForTesting
+  static boolean isBatteryLow(@Nullable Intent batteryStatus) {
+    if (batteryStatus == null) {
+      return false;
+    }
+    int plugged = batteryStatus.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0);
+    int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+    int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+    return plugged == 0 && level >= 0 && scale > 0 && level * 100 < LOW_BATTERY_PERCENT * scale;
+  }
+
+  @Synthetic
+  Result prefetchModel(Object model) {
+    RequestOptions requestOptions = glideContext.getDefaultRequestOptions();
+    Options options = requestOptions.getOptions();
+    Registry registry = glideContext.getRegistry();
+
+    List<ModelLoader<Object, ?>> modelLoaders;
+    try {
+      modelLoaders = registry.getModelLoaders(model);
+    } catch (Registry.NoModelLoaderAvailableException e) {
+      return Result.NOT_CACHEABLE;
+    }
+    LoadData<?> loadData = null;
+    for (int i = 0, size = modelLoaders.size(); i < size; i++) {
+      LoadData<?> current = modelLoaders.get(i)
+          .buildLoadData(model, Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL, options);
+      // Only remote data is written to the disk cache by default.
+      if (current != null && current.fetcher.getDataSource() == DataSource.REMOTE) {
+        loadData = current;
+        break;
+      }
+    }
+    if (loadData == null) {
+      return Result.NOT_CACHEABLE;
+    }
+
+    Key key = new DataCacheKey(loadData.sourceKey, requestOptions.getSignature());
+    synchronized (this) {
+      if (!inProgressKeys.add(key)) {
+        return Result.ALREADY_CACHED;
+      }
+    }
+    try {
+      DiskCache diskCache = diskCacheProvider.getDiskCache();
+      if (isCached(diskCache, key)) {
+        return Result.ALREADY_CACHED;
+      }
+      return fetchIntoCache(diskCache, key, loadData.fetcher, registry, options);
+    } finally {
+      synchronized (this) {
+        inProgressKeys.remove(key);
+      }
+    }
+  }
+
+  private static boolean isCached(DiskCache diskCache, Key key) {
+    if (diskCache instanceof QueryableDiskCache) {
+      return ((QueryableDiskCache) diskCache).contains(key);
+    }
+    return diskCache.get(key) != null;
+  }
+
+  private static Result fetchIntoCache(DiskCache diskCache, Key key, DataFetcher<?> fetcher,
+      Registry registry, Options options) {
+    long startTime = LogTime.getLogTime();
+    FetchCallback callback = new FetchCallback();
+    fetcher.loadData(Priority.LOW, callback);
+    try {
+      Object data = callback.await();
+      if (data == null) {
+        return Result.FAILED;
+      }
+      Encoder<Object> encoder = registry.getSourceEncoder(data);
+      WriteTracker writer = new WriteTracker(new DataCacheWriter<>(encoder, data, options));
+      diskCache.put(key, writer);
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Prefetched " + key + " in " + LogTime.getElapsedMillis(startTime)
+            + ", written: " + writer.isWritten);
+      }
+      if (writer.isWritten) {
+        return Result.FETCHED;
+      }
+      // The disk cache skips writes for keys that a load has cached in the meantime.
+      return isCached(diskCache, key) ? Result.ALREADY_CACHED : Result.FAILED;
+    } catch (InterruptedException e) {
+      fetcher.cancel();
+      Thread.currentThread().interrupt();
+      return Result.FAILED;
+    } catch (Registry.NoSourceEncoderAvailableException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Unable to cache data for: " + key, e);
+      }
+      return Result.NOT_CACHEABLE;
+    } finally {
+      fetcher.cleanup();
+    }
+  }
+
+  /** The outcome of prefetching a single model. */
+  public enum Result {
+    /** The model's data was fetched and written to the disk cache. */
+    FETCHED,
+    /** The model's data was already in the disk cache or being written to it. */
+    ALREADY_CACHED,
+    /** The model's data doesn't come from a remote source, or there's no way to cache it. */
+    NOT_CACHEABLE,
+    /** The model's data couldn't be fetched or written to the disk cache. */
+    FAILED,
+  }
+
+  /** Notified of the progress of a {@link Task}. */
+  public interface Listener {
+    /** Called on a background thread after each model has been handled. */
+    void onModelPrefetched(@NonNull Task task, @NonNull Object model, @NonNull Result result);
+
+    /**
+     * Called once on a background thread after every model has been handled, or after the
+     * prefetch was cancelled and any in progress fetches have finished.
+     */
+    void onPrefetchComplete(@NonNull Task task);
+  }
+
+  /** A batch of models being prefetched, started with {@link #prefetch(Iterable, Listener)}. */
+  public final class Task {
+    private final Iterator<?> models;
+    @Nullable private final Listener listener;
+    private final int[] resultCounts = new int[Result.values().length];
+    // Guarded by DiskCachePrefetcher.this.
+    @Nullable private Object nextModel;
+    private int inProgressCount;
+    private boolean isExhausted;
+    private boolean isCancelled;
+    private boolean isComplete;
+
+    @Synthetic
+    Task(Iterator<?> models, @Nullable Listener listener) {
+      this.models = models;
+      this.listener = listener;
+    }
+
+    /**
+     * Stops prefetching models that haven't been started. Fetches that are in progress are allowed
+     * to finish.
+     */
+    public void cancel() {
+      boolean isNowComplete;
+      synchronized (DiskCachePrefetcher.this) {
+        if (isCancelled) {
+          return;
+        }
+        isCancelled = true;
+        isNowComplete = checkComplete();
+      }
+      if (isNowComplete) {
+        notifyComplete();
+      }
+    }
+
+    /** Returns {@code true} if every model has been handled or the task has been cancelled. */
+    public boolean isDone() {
+      synchronized (DiskCachePrefetcher.this) {
+        return isComplete;
+      }
+    }
+
+    /** Returns the number of models that have been handled with the given result so far. */
+    public int getCount(@NonNull Result result) {
+      synchronized (DiskCachePrefetcher.this) {
+        return resultCounts[result.ordinal()];
+      }
+    }
+
+    /** Returns the number of models that have been handled so far. */
+    public int getCompletedCount() {
+      synchronized (DiskCachePrefetcher.this) {
+        int total = 0;
+        for (int count : resultCounts) {
+          total += count;
+        }
+        return total;
+      }
+    }
+
+    // Guarded by DiskCachePrefetcher.this.
+    @Synthetic
+    boolean mayHaveNextModel() {
+      return !isCancelled && !isExhausted;
+    }
+
+    // Guarded by DiskCachePrefetcher.this, only called on workers.
+    @Synthetic
+    boolean moveToNextModel() {
+      if (!mayHaveNextModel()) {
+        return false;
+      }
+      while (nextModel == null && models.hasNext()) {
+        nextModel = models.next();
+      }
+      if (nextModel == null) {
+        isExhausted = true;
+        return false;
+      }
+      inProgressCount++;
+      return true;
+    }
+
+    @Synthetic
+    void run() {
+      Object model;
+      synchronized (DiskCachePrefetcher.this) {
+        model = nextModel;
+        nextModel = null;
+      }
+      Result result;
+      try {
+        result = prefetchModel(model);
+      } catch (RuntimeException e) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to prefetch: " + model, e);
+        }
+        result = Result.FAILED;
+      }
+
+      boolean isNowComplete;
+      synchronized (DiskCachePrefetcher.this) {
+        resultCounts[result.ordinal()]++;
+        inProgressCount--;
+        isNowComplete = checkComplete();
+      }
+      if (listener != null) {
+        listener.onModelPrefetched(this, model, result);
+      }
+      if (isNowComplete) {
+        notifyComplete();
+      }
+    }
+
+    // Guarded by DiskCachePrefetcher.this.
+    @Synthetic
+    boolean checkComplete() {
+      if (isComplete || inProgressCount > 0 || mayHaveNextModel()) {
+        return false;
+      }
+      isComplete = true;
+      return true;
+    }
+
+    @Synthetic
+    void notifyComplete() {
+      onTaskComplete(this);
+      if (listener != null) {
+        listener.onPrefetchComplete(this);
+      }
+    }
+  }
+
+  private final class Worker implements Runnable {
+
+    @Synthetic
+    Worker() { }
+
+    @Override
+    public void run() {
+      List<Task> completed = new ArrayList<>();
+      Task task;
+      do {
+        task = nextTask(completed);
+        for (int i = 0, size = completed.size(); i < size; i++) {
+          completed.get(i).notifyComplete();
+        }
+        completed.clear();
+        if (task != null) {
+          task.run();
+        }
+      } while (task != null);
+    }
+  }
+
+  private static final class WriteTracker implements DiskCache.Writer {
+    private final DiskCache.Writer writer;
+    @Synthetic boolean isWritten;
+
+    @Synthetic
+    WriteTracker(DiskCache.Writer writer) {
+      this.writer = writer;
+    }
+
+    @Override
+    public boolean write(@NonNull File file) {
+      isWritten = writer.write(file);
+      return isWritten;
+    }
+  }
+
+  private static final class FetchCallback implements DataFetcher.DataCallback<Object> {
+    private boolean isDone;
+    @Nullable private Object data;
+
+    @Synthetic
+    FetchCallback() { }
+
+    @Override
+    public synchronized void onDataReady(@Nullable Object data) {
+      this.data = data;
+      isDone = true;
+      notifyAll();
+    }
+
+    @Override
+    public synchronized void onLoadFailed(@NonNull Exception e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to fetch data", e);
+      }
+      isDone = true;
+      notifyAll();
+    }
+
+    /** Waits for the fetcher, which may call back on another thread, to finish. */
+    @Nullable
+    synchronized Object await() throws InterruptedException {
+      while (!isDone) {
+        wait();
+      }
+      return data;
+    }
+  }
+}
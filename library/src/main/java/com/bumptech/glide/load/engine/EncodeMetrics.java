@@ -0,0 +1,92 @@
+package com.bumptech.glide.load.engine;
+
+/**
+ * A snapshot of the state of the queue used to write decoded and transformed resources to the disk
+ * cache after loads complete.
+ *
+ * @see com.bumptech.glide.Glide#getEncodeMetrics()
+ */
+public final class EncodeMetrics {
+  private final int queueDepth;
+  private final int peakQueueDepth;
+  private final long encodedCount;
+  private final long coalescedCount;
+  private final long synchronousCount;
+  private final double averageLatencyMs;
+  private final double maxLatencyMs;
+
+  EncodeMetrics(
+      int queueDepth,
+      int peakQueueDepth,
+      long encodedCount,
+      long coalescedCount,
+      long synchronousCount,
+      double averageLatencyMs,
+      double maxLatencyMs) {
+    this.queueDepth = queueDepth;
+    this.peakQueueDepth = peakQueueDepth;
+    this.encodedCount = encodedCount;
+    this.coalescedCount = coalescedCount;
+    this.synchronousCount = synchronousCount;
+    this.averageLatencyMs = averageLatencyMs;
+    this.maxLatencyMs = maxLatencyMs;
+  }
+
+  /** Returns the number of resources currently waiting to be written. */
+  public int getQueueDepth() {
+    return queueDepth;
+  }
+
+  /** Returns the largest number of resources that have been waiting to be written at once. */
+  public int getPeakQueueDepth() {
+    return peakQueueDepth;
+  }
+
+  /** Returns the number of resources that have been written, including synchronous writes. */
+  public long getEncodedCount() {
+    return encodedCount;
+  }
+
+  /**
+   * Returns the number of resources that weren't written because an identical resource was
+   * already waiting to be written.
+   */
+  public long getCoalescedCount() {
+    return coalescedCount;
+  }
+
+  /**
+   * Returns the number of resources that were written on the thread that loaded them because the
+   * queue was full.
+   */
+  public long getSynchronousCount() {
+    return synchronousCount;
+  }
+
+  /**
+   * Returns the average time in milliseconds between a resource being queued and being written.
+   */
+  public double getAverageLatencyMs() {
+    return averageLatencyMs;
+  }
+
+  /**
+   * Returns the longest time in milliseconds between a resource being queued and being written.
+   */
+  public double getMaxLatencyMs() {
+    return maxLatencyMs;
+  }
+
+  @Override
+  public String toString() {
+    return "EncodeMetrics{"
+        + "queueDepth=" + queueDepth
+        + ", peakQueueDepth=" + peakQueueDepth
+        + ", encodedCount=" + encodedCount
+        + ", coalescedCount=" + coalescedCount
+        + ", synchronousCount=" + synchronousCount
+        + ", averageLatencyMs=" + averageLatencyMs
+        + ", maxLatencyMs=" + maxLatencyMs
+        + '}';
+  }
+}
@@ -13,13 +13,15 @@ import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.engine.cache.DiskCacheAdapter;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.manager.ConnectivityMonitorFactory;
 import com.bumptech.glide.request.ResourceCallback;
 import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
-import com.bumptech.glide.util.Util;
 import com.bumptech.glide.util.pool.FactoryPools;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -42,6 +44,10 @@ public class Engine implements EngineJobListener,
   private final LazyDiskCacheProvider diskCacheProvider;
   private final DecodeJobFactory decodeJobFactory;
   private final ActiveResources activeResources;
+  private final GlideExecutor encodeExecutor;
+  private final ResourceEncodeQueue encodeQueue;
+  @Nullable private DiskCachePrefetcher diskCachePrefetcher;
+  @Nullable private PartialDownloadCache partialDownloadCache;
 
   public Engine(
       MemoryCache memoryCache,
@@ -58,6 +64,31 @@ public class Engine implements EngineJobListener,
         sourceExecutor,
         sourceUnlimitedExecutor,
         animationExecutor,
+        GlideExecutor.newEncodeExecutor(),
+        isActiveResourceRetentionAllowed);
+  }
+
+  /**
+   * @param encodeExecutor The executor used to write transformed resources to the disk cache after
+   *                       they've been delivered to requestors.
+   */
+  public Engine(
+      MemoryCache memoryCache,
+      DiskCache.Factory diskCacheFactory,
+      GlideExecutor diskCacheExecutor,
+      GlideExecutor sourceExecutor,
+      GlideExecutor sourceUnlimitedExecutor,
+      GlideExecutor animationExecutor,
+      GlideExecutor encodeExecutor,
+      boolean isActiveResourceRetentionAllowed) {
+    this(
+        memoryCache,
+        diskCacheFactory,
+        diskCacheExecutor,
+        sourceExecutor,
+        sourceUnlimitedExecutor,
+        animationExecutor,
+        encodeExecutor,
         /*jobs=*/ null,
         /*keyFactory=*/ null,
         /*activeResources=*/ null,
@@ -74,6 +105,7 @@ public class Engine implements EngineJobListener,
       GlideExecutor sourceExecutor,
       GlideExecutor sourceUnlimitedExecutor,
       GlideExecutor animationExecutor,
+      GlideExecutor encodeExecutor,
       Jobs jobs,
       EngineKeyFactory keyFactory,
       ActiveResources activeResources,
@@ -83,6 +115,8 @@ public class Engine implements EngineJobListener,
       boolean isActiveResourceRetentionAllowed) {
     this.cache = cache;
     this.diskCacheProvider = new LazyDiskCacheProvider(diskCacheFactory);
+    this.encodeExecutor = encodeExecutor;
+    this.encodeQueue = new ResourceEncodeQueue(encodeExecutor);
 
     if (activeResources == null) {
       activeResources = new ActiveResources(isActiveResourceRetentionAllowed);
@@ -108,7 +142,7 @@ public class Engine implements EngineJobListener,
     this.engineJobFactory = engineJobFactory;
 
     if (decodeJobFactory == null) {
-      decodeJobFactory = new DecodeJobFactory(diskCacheProvider);
+      decodeJobFactory = new DecodeJobFactory(diskCacheProvider, encodeQueue);
     }
     this.decodeJobFactory = decodeJobFactory;
 
@@ -123,7 +157,10 @@ public class Engine implements EngineJobListener,
   /**
    * Starts a load for the given arguments.
    *
-   * <p>Must be called on the main thread.
+   * <p>May be called on any thread. Lookups in the active resources, the memory cache and the set
+   * of in progress loads are guarded by this object's lock, so background callers like preloaders
+   * can resolve memory cache hits without posting to the main thread. Callbacks for resources
+   * found in memory are called on the calling thread, after the lock has been released.
    *
    * <p>The flow for any request is as follows:
    * <ul>
@@ -165,39 +202,130 @@ public class Engine implements EngineJobListener,
       boolean useAnimationPool,
       boolean onlyRetrieveFromCache,
       ResourceCallback cb) {
-    Util.assertMainThread();
-    long startTime = VERBOSE_IS_LOGGABLE ? LogTime.getLogTime() : 0;
+    LoadMetricsListener metricsListener = glideContext.getLoadMetricsListener();
+    long startTime = VERBOSE_IS_LOGGABLE || metricsListener != null ? LogTime.getLogTime() : 0;
 
+    // Keys are immutable and the factory is stateless, so there's no need to hold the lock here.
     EngineKey key = keyFactory.buildKey(model, signature, width, height, transformations,
         resourceClass, transcodeClass, options);
 
-    EngineResource<?> active = loadFromActiveResources(key, isMemoryCacheable);
-    if (active != null) {
-      cb.onResourceReady(active, DataSource.MEMORY_CACHE);
+    EngineResource<?> memoryResource;
+    EngineJob.CompletedLoad completedLoad = null;
+    synchronized (this) {
+      memoryResource = loadFromMemory(key, isMemoryCacheable, startTime);
+
+      if (memoryResource == null) {
+        if (metricsListener != null && isMemoryCacheable) {
+          metricsListener.onStageComplete(
+              model, key, LoadMetricsListener.Stage.MEMORY_CACHE,
+              LogTime.getElapsedMillis(startTime));
+        }
+        EngineJob<?> current = jobs.get(key, onlyRetrieveFromCache);
+        if (current != null) {
+          completedLoad = current.addCallback(cb);
+          if (completedLoad == null) {
+            if (VERBOSE_IS_LOGGABLE) {
+              logWithTimeAndKey("Added to existing load", startTime, key);
+            }
+            return new LoadStatus(cb, current);
+          }
+        } else {
+          return startNewJob(
+              glideContext,
+              model,
+              signature,
+              width,
+              height,
+              resourceClass,
+              transcodeClass,
+              priority,
+              diskCacheStrategy,
+              transformations,
+              isTransformationRequired,
+              isScaleOnlyOrNoTransform,
+              options,
+              isMemoryCacheable,
+              useUnlimitedSourceExecutorPool,
+              useAnimationPool,
+              onlyRetrieveFromCache,
+              cb,
+              key,
+              startTime);
+        }
+      }
+    }
+
+    if (completedLoad != null) {
+      // The existing load completed while its callbacks were being notified on the main thread.
+      // As for memory cache hits, the callback is called without holding any locks.
       if (VERBOSE_IS_LOGGABLE) {
-        logWithTimeAndKey("Loaded resource from active resources", startTime, key);
+        logWithTimeAndKey("Added to completed load", startTime, key);
       }
+      completedLoad.deliverTo(cb);
       return null;
     }
 
-    EngineResource<?> cached = loadFromCache(key, isMemoryCacheable);
-    if (cached != null) {
-      cb.onResourceReady(cached, DataSource.MEMORY_CACHE);
+    if (metricsListener != null) {
+      double elapsedMs = LogTime.getElapsedMillis(startTime);
+      metricsListener.onStageComplete(
+          model, key, LoadMetricsListener.Stage.MEMORY_CACHE, elapsedMs);
+      metricsListener.onLoadComplete(
+          model, key, DataSource.MEMORY_CACHE, /*bytesRead=*/ -1, elapsedMs);
+    }
+
+    // The resource has already been acquired on behalf of the callback, so it's safe to call back
+    // without holding the lock. Doing so keeps other threads from waiting on arbitrary callbacks.
+    cb.onResourceReady(memoryResource, DataSource.MEMORY_CACHE);
+    return null;
+  }
+
+  @Nullable
+  private EngineResource<?> loadFromMemory(
+      EngineKey key, boolean isMemoryCacheable, long startTime) {
+    if (!isMemoryCacheable) {
+      return null;
+    }
+
+    EngineResource<?> active = loadFromActiveResources(key);
+    if (active != null) {
       if (VERBOSE_IS_LOGGABLE) {
-        logWithTimeAndKey("Loaded resource from cache", startTime, key);
+        logWithTimeAndKey("Loaded resource from active resources", startTime, key);
       }
-      return null;
+      return active;
     }
 
-    EngineJob<?> current = jobs.get(key, onlyRetrieveFromCache);
-    if (current != null) {
-      current.addCallback(cb);
+    EngineResource<?> cached = loadFromCache(key);
+    if (cached != null) {
       if (VERBOSE_IS_LOGGABLE) {
-        logWithTimeAndKey("Added to existing load", startTime, key);
+        logWithTimeAndKey("Loaded resource from cache", startTime, key);
       }
-      return new LoadStatus(cb, current);
+      return cached;
     }
 
+    return null;
+  }
+
+  private <R> LoadStatus startNewJob(
+      GlideContext glideContext,
+      Object model,
+      Key signature,
+      int width,
+      int height,
+      Class<?> resourceClass,
+      Class<R> transcodeClass,
+      Priority priority,
+      DiskCacheStrategy diskCacheStrategy,
+      Map<Class<?>, Transformation<?>> transformations,
+      boolean isTransformationRequired,
+      boolean isScaleOnlyOrNoTransform,
+      Options options,
+      boolean isMemoryCacheable,
+      boolean useUnlimitedSourceExecutorPool,
+      boolean useAnimationPool,
+      boolean onlyRetrieveFromCache,
+      ResourceCallback cb,
+      EngineKey key,
+      long startTime) {
     EngineJob<R> engineJob =
         engineJobFactory.build(
             key,
@@ -241,10 +369,7 @@ public class Engine implements EngineJobListener,
   }
 
   @Nullable
-  private EngineResource<?> loadFromActiveResources(Key key, boolean isMemoryCacheable) {
-    if (!isMemoryCacheable) {
-      return null;
-    }
+  private EngineResource<?> loadFromActiveResources(Key key) {
     EngineResource<?> active = activeResources.get(key);
     if (active != null) {
       active.acquire();
@@ -253,11 +378,7 @@ public class Engine implements EngineJobListener,
     return active;
   }
 
-  private EngineResource<?> loadFromCache(Key key, boolean isMemoryCacheable) {
-    if (!isMemoryCacheable) {
-      return null;
-    }
-
+  private EngineResource<?> loadFromCache(Key key) {
     EngineResource<?> cached = getEngineResourceFromCache(key);
     if (cached != null) {
       cached.acquire();
@@ -267,7 +388,9 @@ public class Engine implements EngineJobListener,
   }
 
   private EngineResource<?> getEngineResourceFromCache(Key key) {
-    Resource<?> cached = cache.remove(key);
+    // Only lookups for loads count towards the hit rate used to rebalance memory.
+    Resource<?> cached = cache instanceof LruResourceCache
+        ? ((LruResourceCache) cache).removeForLoad(key) : cache.remove(key);
 
     final EngineResource<?> result;
     if (cached == null) {
@@ -282,7 +405,6 @@ public class Engine implements EngineJobListener,
   }
 
   public void release(Resource<?> resource) {
-    Util.assertMainThread();
     if (resource instanceof EngineResource) {
       ((EngineResource<?>) resource).release();
     } else {
@@ -292,8 +414,8 @@ public class Engine implements EngineJobListener,
 
   @SuppressWarnings("unchecked")
   @Override
-  public void onEngineJobComplete(EngineJob<?> engineJob, Key key, EngineResource<?> resource) {
-    Util.assertMainThread();
+  public synchronized void onEngineJobComplete(
+      EngineJob<?> engineJob, Key key, EngineResource<?> resource) {
     // A null resource indicates that the load failed, usually due to an exception.
     if (resource != null) {
       resource.setResourceListener(key, this);
@@ -307,21 +429,23 @@ public class Engine implements EngineJobListener,
   }
 
   @Override
-  public void onEngineJobCancelled(EngineJob<?> engineJob, Key key) {
-    Util.assertMainThread();
-
+  public synchronized void onEngineJobCancelled(EngineJob<?> engineJob, Key key) {
     jobs.removeIfCurrent(key, engineJob);
   }
 
   @Override
   public void onResourceRemoved(@NonNull final Resource<?> resource) {
-    Util.assertMainThread();
+    // Called by the memory cache while it holds its own lock, so this must not acquire ours.
     resourceRecycler.recycle(resource);
   }
 
   @Override
-  public void onResourceReleased(Key cacheKey, EngineResource<?> resource) {
-    Util.assertMainThread();
+  public synchronized void onResourceReleased(Key cacheKey, EngineResource<?> resource) {
+    // Another load may have acquired the resource after it was released but before we were
+    // called, in which case it's still active.
+    if (resource.isAcquired()) {
+      return;
+    }
     activeResources.deactivate(cacheKey);
     if (resource.isCacheable()) {
       cache.put(cacheKey, resource);
@@ -334,9 +458,55 @@ public class Engine implements EngineJobListener,
     diskCacheProvider.getDiskCache().clear();
   }
 
+  /**
+   * Returns a snapshot of the state of the queue of resources waiting to be written to the disk
+   * cache.
+   */
+  @NonNull
+  public EncodeMetrics getEncodeMetrics() {
+    return encodeQueue.getMetrics();
+  }
+
+  /**
+   * Returns the {@link DiskCachePrefetcher} that writes to this engine's disk cache, creating it
+   * with the given arguments on the first call.
+   */
+  @NonNull
+  public synchronized DiskCachePrefetcher getDiskCachePrefetcher(
+      @NonNull GlideContext glideContext,
+      @NonNull GlideExecutor prefetchExecutor,
+      @NonNull ConnectivityMonitorFactory connectivityMonitorFactory) {
+    if (diskCachePrefetcher == null) {
+      diskCachePrefetcher = new DiskCachePrefetcher(
+          glideContext, diskCacheProvider, prefetchExecutor, connectivityMonitorFactory);
+    }
+    return diskCachePrefetcher;
+  }
+
+  /**
+   * Returns the {@link PartialDownloadCache} that stages interrupted downloads in this engine's
+   * disk cache, creating it on the first call with a staging directory in the given cache
+   * directory. The directory is only requested once a download is staged.
+   */
+  @NonNull
+  public synchronized PartialDownloadCache getPartialDownloadCache(
+      @NonNull DiskLruCacheFactory.CacheDirectoryGetter cacheDirectoryGetter) {
+    if (partialDownloadCache == null) {
+      partialDownloadCache = new PartialDownloadCache(diskCacheProvider, cacheDirectoryGetter);
+    }
+    return partialDownloadCache;
+  }
+
   @VisibleForTesting
   public void shutdown() {
+    synchronized (this) {
+      if (diskCachePrefetcher != null) {
+        diskCachePrefetcher.shutdown();
+      }
+    }
     engineJobFactory.shutdown();
+    // Finish any pending writes before the disk cache is cleared.
+    EngineJobFactory.shutdownAndAwaitTermination(encodeExecutor);
     diskCacheProvider.clearDiskCacheIfCreated();
     activeResources.shutdown();
   }
@@ -344,7 +514,7 @@ public class Engine implements EngineJobListener,
   /**
    * Allows a request to indicate it no longer is interested in a given load.
    */
-  public static class LoadStatus {
+  public class LoadStatus {
     private final EngineJob<?> engineJob;
     private final ResourceCallback cb;
 
@@ -353,8 +523,24 @@ public class Engine implements EngineJobListener,
       this.engineJob = engineJob;
     }
 
+    /**
+     * Changes the priority of the load if it hasn't started yet, for example to promote loads for
+     * views that have just scrolled on screen.
+     *
+     * <p>Loads are shared by all requests for the same resource, so this changes the priority of
+     * the load for each of those requests.
+     */
+    public void setPriority(@NonNull Priority priority) {
+      engineJob.setPriority(priority);
+    }
+
     public void cancel() {
-      engineJob.removeCallback(cb);
+      // Acquire the Engine lock first so that a concurrent load can't pick up an EngineJob that is
+      // in the middle of being cancelled, and so that locks are always taken in the same order
+      // (Engine -> EngineJob).
+      synchronized (Engine.this) {
+        engineJob.removeCallback(cb);
+      }
     }
   }
 
@@ -394,18 +580,24 @@ public class Engine implements EngineJobListener,
   @VisibleForTesting
   static class DecodeJobFactory {
     @Synthetic final DecodeJob.DiskCacheProvider diskCacheProvider;
+    @Synthetic final SourceFetchCoalescer sourceFetchCoalescer = new SourceFetchCoalescer();
+    @Synthetic final DecodeCoalescer decodeCoalescer = new DecodeCoalescer();
+    @Synthetic final ResourceEncodeQueue encodeQueue;
     @Synthetic final Pools.Pool<DecodeJob<?>> pool =
-        FactoryPools.simple(JOB_POOL_SIZE,
+        FactoryPools.threadSafe(JOB_POOL_SIZE,
             new FactoryPools.Factory<DecodeJob<?>>() {
           @Override
           public DecodeJob<?> create() {
-            return new DecodeJob<>(diskCacheProvider, pool);
+            return new DecodeJob<>(
+                diskCacheProvider, pool, sourceFetchCoalescer, decodeCoalescer, encodeQueue);
           }
         });
     private int creationOrder;
 
-    DecodeJobFactory(DecodeJob.DiskCacheProvider diskCacheProvider) {
+    DecodeJobFactory(
+        DecodeJob.DiskCacheProvider diskCacheProvider, ResourceEncodeQueue encodeQueue) {
       this.diskCacheProvider = diskCacheProvider;
+      this.encodeQueue = encodeQueue;
     }
 
     @SuppressWarnings("unchecked")
@@ -455,7 +647,7 @@ public class Engine implements EngineJobListener,
     @Synthetic final GlideExecutor animationExecutor;
     @Synthetic final EngineJobListener listener;
     @Synthetic final Pools.Pool<EngineJob<?>> pool =
-        FactoryPools.simple(
+        FactoryPools.threadSafe(
             JOB_POOL_SIZE,
             new FactoryPools.Factory<EngineJob<?>>() {
               @Override
@@ -507,7 +699,7 @@ public class Engine implements EngineJobListener,
           onlyRetrieveFromCache);
     }
 
-    private static void shutdownAndAwaitTermination(ExecutorService pool) {
+    static void shutdownAndAwaitTermination(ExecutorService pool) {
       long shutdownSeconds = 5;
       pool.shutdown();
       try {
@@ -4,8 +4,10 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.support.v4.util.Pools;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
@@ -20,6 +22,10 @@ import java.util.List;
 /**
  * A class that manages a load by adding and removing callbacks for for the load and notifying
  * callbacks when the load completes.
+ *
+ * <p>Callbacks may be added and removed on any thread, but only while holding the {@link Engine}'s
+ * lock, so that the locking order is always Engine -> EngineJob. Results are always delivered on
+ * the main thread.
  */
 class EngineJob<R> implements DecodeJob.Callback<R>,
     Poolable {
@@ -32,6 +38,19 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   // Used when we realize we're cancelled on a background thread in reschedule and can recycle
   // immediately rather than waiting for a result or an error.
   private static final int MSG_CANCELLED = 3;
+  // Used when we've removed a cancelled job that has never been run from its executor's queue.
+  private static final int MSG_REMOVED_FROM_QUEUE = 4;
+  // Used to deliver intermediate resources decoded from partially loaded data.
+  private static final int MSG_PARTIAL = 5;
+  // Intermediate resources are never memory cached. Requests replace them without a transition, so
+  // they're returned to pools as soon as they're released.
+  private static final EngineResource.ResourceListener PARTIAL_RESOURCE_LISTENER =
+      new EngineResource.ResourceListener() {
+        @Override
+        public void onResourceReleased(Key key, EngineResource<?> resource) {
+          resource.recycle();
+        }
+      };
 
   private final List<ResourceCallback> cbs = new ArrayList<>(2);
   private final StateVerifier stateVerifier = StateVerifier.newInstance();
@@ -114,26 +133,56 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
   public void start(DecodeJob<R> decodeJob) {
     this.decodeJob = decodeJob;
-    GlideExecutor executor = decodeJob.willDecodeFromCache()
-        ? diskCacheExecutor
-        : getActiveSourceExecutor();
-    executor.execute(decodeJob);
+    getStartExecutor(decodeJob).execute(decodeJob);
   }
 
-  void addCallback(ResourceCallback cb) {
-    Util.assertMainThread();
+  /**
+   * Changes the priority of this load if its {@link DecodeJob} is currently waiting in an
+   * executor's queue. Loads that are currently running keep their position, but pass the new
+   * priority on to fetchers that implement
+   * {@link com.bumptech.glide.load.data.PriorityAwareDataFetcher}.
+   */
+  synchronized void setPriority(Priority priority) {
+    if (decodeJob == null || isCancelled || hasResource || hasLoadFailed) {
+      return;
+    }
+    GlideExecutor executor =
+        decodeJob.hasStarted() ? getActiveSourceExecutor() : getStartExecutor(decodeJob);
+    // The job's priority is used to order the executor's queue, so it can only be changed while
+    // the job is out of the queue.
+    if (executor.remove(decodeJob)) {
+      decodeJob.setPriority(priority);
+      executor.execute(decodeJob);
+    } else if (decodeJob.hasStarted()) {
+      decodeJob.setRunningPriority(priority);
+    }
+  }
+
+  /**
+   * Adds the given callback to be notified when the load completes, or returns the result if the
+   * load has already completed.
+   *
+   * <p>Callers usually hold the {@link Engine}'s lock, so a returned result must be delivered with
+   * {@link CompletedLoad#deliverTo(ResourceCallback)} only after all locks have been released, to
+   * keep arbitrary callbacks from running under Glide's internal locks.
+   */
+  @Nullable
+  synchronized CompletedLoad addCallback(ResourceCallback cb) {
     stateVerifier.throwIfRecycled();
     if (hasResource) {
-      cb.onResourceReady(engineResource, dataSource);
+      // A load started on a background thread can join this job while the main thread is still
+      // notifying callbacks, so acquire on behalf of the new consumer as we do for the others.
+      // Acquiring here, under our lock, keeps the resource alive after this job is released.
+      engineResource.acquire();
+      return new CompletedLoad(engineResource, dataSource, null /*exception*/);
     } else if (hasLoadFailed) {
-      cb.onLoadFailed(exception);
-    } else {
-      cbs.add(cb);
+      return new CompletedLoad(null /*resource*/, null /*dataSource*/, exception);
     }
+    cbs.add(cb);
+    return null;
   }
 
-  void removeCallback(ResourceCallback cb) {
-    Util.assertMainThread();
+  synchronized void removeCallback(ResourceCallback cb) {
     stateVerifier.throwIfRecycled();
     if (hasResource || hasLoadFailed) {
       addIgnoredCallback(cb);
@@ -149,6 +198,10 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     return onlyRetrieveFromCache;
   }
 
+  private GlideExecutor getStartExecutor(DecodeJob<?> decodeJob) {
+    return decodeJob.willDecodeFromCache() ? diskCacheExecutor : getActiveSourceExecutor();
+  }
+
   private GlideExecutor getActiveSourceExecutor() {
     return useUnlimitedSourceGeneratorPool
         ? sourceUnlimitedExecutor : (useAnimationPool ? animationExecutor : sourceExecutor);
@@ -168,21 +221,25 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     }
   }
 
-  private boolean isInIgnoredCallbacks(ResourceCallback cb) {
+  private synchronized boolean isInIgnoredCallbacks(ResourceCallback cb) {
     return ignoredCallbacks != null && ignoredCallbacks.contains(cb);
   }
 
   // Exposed for testing.
-  void cancel() {
+  synchronized void cancel() {
     if (hasLoadFailed || hasResource || isCancelled) {
       return;
     }
 
     isCancelled = true;
     decodeJob.cancel();
-    // TODO: Consider trying to remove jobs that have never been run before from executor queues.
-    // Removing jobs that have run before can break things. See #1996.
     listener.onEngineJobCancelled(this, key);
+    // Jobs that have never been run can be dropped from their queue rather than waiting for a
+    // thread just to notice that they've been cancelled. Removing jobs that have run before can
+    // break things, see #1996.
+    if (!decodeJob.hasStarted() && getStartExecutor(decodeJob).remove(decodeJob)) {
+      MAIN_THREAD_HANDLER.obtainMessage(MSG_REMOVED_FROM_QUEUE, this).sendToTarget();
+    }
   }
 
   // Exposed for testing.
@@ -190,51 +247,100 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     return isCancelled;
   }
 
+  // The Engine is notified without holding our lock, otherwise we'd acquire the Engine's lock
+  // after our own, which is the reverse of the order used when callbacks are added.
   @Synthetic
   void handleResultOnMainThread() {
-    stateVerifier.throwIfRecycled();
-    if (isCancelled) {
-      resource.recycle();
-      release(false /*isRemovedFromQueue*/);
-      return;
-    } else if (cbs.isEmpty()) {
-      throw new IllegalStateException("Received a resource without any callbacks to notify");
-    } else if (hasResource) {
-      throw new IllegalStateException("Already have resource");
+    final EngineResource<?> localResource;
+    final Key localKey;
+    synchronized (this) {
+      stateVerifier.throwIfRecycled();
+      if (isCancelled) {
+        resource.recycle();
+        release(false /*isRemovedFromQueue*/);
+        return;
+      } else if (cbs.isEmpty()) {
+        throw new IllegalStateException("Received a resource without any callbacks to notify");
+      } else if (hasResource) {
+        throw new IllegalStateException("Already have resource");
+      }
+      engineResource = engineResourceFactory.build(resource, isCacheable);
+      // Once hasResource is set, callbacks are no longer added to or removed from cbs, so it's
+      // safe to iterate over below without holding the lock.
+      hasResource = true;
+      localResource = engineResource;
+      localKey = key;
+
+      // Hold on to resource for duration of request so we don't recycle it in the middle of
+      // notifying if it synchronously released by one of the callbacks.
+      localResource.acquire();
     }
-    engineResource = engineResourceFactory.build(resource, isCacheable);
-    hasResource = true;
 
-    // Hold on to resource for duration of request so we don't recycle it in the middle of
-    // notifying if it synchronously released by one of the callbacks.
-    engineResource.acquire();
-    listener.onEngineJobComplete(this, key, engineResource);
+    listener.onEngineJobComplete(this, localKey, localResource);
 
     //noinspection ForLoopReplaceableByForEach to improve perf
     for (int i = 0, size = cbs.size(); i < size; i++) {
       ResourceCallback cb = cbs.get(i);
       if (!isInIgnoredCallbacks(cb)) {
-        engineResource.acquire();
-        cb.onResourceReady(engineResource, dataSource);
+        localResource.acquire();
+        cb.onResourceReady(localResource, dataSource);
       }
     }
     // Our request is complete, so we can release the resource.
-    engineResource.release();
+    localResource.release();
 
     release(false /*isRemovedFromQueue*/);
   }
 
+  // Partial results are always posted before the final result or exception, so this job can't have
+  // been released and re-used by the time they're handled.
+  @Synthetic
+  void handlePartialResultOnMainThread(Resource<?> resource, DataSource dataSource) {
+    final List<ResourceCallback> toNotify;
+    synchronized (this) {
+      stateVerifier.throwIfRecycled();
+      if (isCancelled || cbs.isEmpty()) {
+        resource.recycle();
+        return;
+      }
+      toNotify = new ArrayList<>(cbs);
+    }
+    EngineResource<?> partialResource =
+        new EngineResource<>(resource, /*isCacheable=*/ false, /*isRecyclable=*/ true);
+    partialResource.setResourceListener(key, PARTIAL_RESOURCE_LISTENER);
+    partialResource.acquire();
+    //noinspection ForLoopReplaceableByForEach to improve perf
+    for (int i = 0, size = toNotify.size(); i < size; i++) {
+      ResourceCallback cb = toNotify.get(i);
+      if (!isInIgnoredCallbacks(cb)) {
+        partialResource.acquire();
+        cb.onPartialResourceReady(partialResource, dataSource);
+      }
+    }
+    partialResource.release();
+  }
+
   @Synthetic
   void handleCancelledOnMainThread() {
-    stateVerifier.throwIfRecycled();
-    if (!isCancelled) {
-      throw new IllegalStateException("Not cancelled");
+    final Key localKey;
+    synchronized (this) {
+      stateVerifier.throwIfRecycled();
+      if (!isCancelled) {
+        throw new IllegalStateException("Not cancelled");
+      }
+      localKey = key;
     }
-    listener.onEngineJobCancelled(this, key);
+    listener.onEngineJobCancelled(this, localKey);
     release(false /*isRemovedFromQueue*/);
   }
 
-  private void release(boolean isRemovedFromQueue) {
+  @Synthetic
+  void handleRemovedFromQueueOnMainThread() {
+    stateVerifier.throwIfRecycled();
+    release(true /*isRemovedFromQueue*/);
+  }
+
+  private synchronized void release(boolean isRemovedFromQueue) {
     Util.assertMainThread();
     cbs.clear();
     key = null;
@@ -253,6 +359,36 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     pool.release(this);
   }
 
+  /**
+   * The result of a load that had already completed when a callback was added to it, which remains
+   * valid after the load's {@link EngineJob} has been released.
+   */
+  static final class CompletedLoad {
+    @Nullable private final EngineResource<?> resource;
+    @Nullable private final DataSource dataSource;
+    @Nullable private final GlideException exception;
+
+    @Synthetic
+    CompletedLoad(@Nullable EngineResource<?> resource, @Nullable DataSource dataSource,
+        @Nullable GlideException exception) {
+      this.resource = resource;
+      this.dataSource = dataSource;
+      this.exception = exception;
+    }
+
+    /**
+     * Notifies the given callback of the result. The resource, if any, has already been acquired
+     * on the callback's behalf.
+     */
+    void deliverTo(ResourceCallback cb) {
+      if (resource != null) {
+        cb.onResourceReady(resource, dataSource);
+      } else {
+        cb.onLoadFailed(exception);
+      }
+    }
+  }
+
   @Override
   public void onResourceReady(Resource<R> resource, DataSource dataSource) {
     this.resource = resource;
@@ -260,6 +396,20 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     MAIN_THREAD_HANDLER.obtainMessage(MSG_COMPLETE, this).sendToTarget();
   }
 
+  @Override
+  public void onPartialResourceReady(Resource<R> resource, DataSource dataSource) {
+    MAIN_THREAD_HANDLER
+        .obtainMessage(MSG_PARTIAL, new PartialResult(this, resource, dataSource))
+        .sendToTarget();
+  }
+
+  @Override
+  public void executePartialDecode(Runnable decode) {
+    // Intermediate results are a best effort, so like animation frames they're decoded on the
+    // animation pool rather than competing with loads for source threads.
+    animationExecutor.execute(decode);
+  }
+
   @Override
   public void onLoadFailed(GlideException e) {
     this.exception = e;
@@ -275,18 +425,22 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
   @Synthetic
   void handleExceptionOnMainThread() {
-    stateVerifier.throwIfRecycled();
-    if (isCancelled) {
-      release(false /*isRemovedFromQueue*/);
-      return;
-    } else if (cbs.isEmpty()) {
-      throw new IllegalStateException("Received an exception without any callbacks to notify");
-    } else if (hasLoadFailed) {
-      throw new IllegalStateException("Already failed once");
+    final Key localKey;
+    synchronized (this) {
+      stateVerifier.throwIfRecycled();
+      if (isCancelled) {
+        release(false /*isRemovedFromQueue*/);
+        return;
+      } else if (cbs.isEmpty()) {
+        throw new IllegalStateException("Received an exception without any callbacks to notify");
+      } else if (hasLoadFailed) {
+        throw new IllegalStateException("Already failed once");
+      }
+      hasLoadFailed = true;
+      localKey = key;
     }
-    hasLoadFailed = true;
 
-    listener.onEngineJobComplete(this, key, null);
+    listener.onEngineJobComplete(this, localKey, null);
 
     for (ResourceCallback cb : cbs) {
       if (!isInIgnoredCallbacks(cb)) {
@@ -310,6 +464,18 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     }
   }
 
+  private static final class PartialResult {
+    @Synthetic final EngineJob<?> job;
+    @Synthetic final Resource<?> resource;
+    @Synthetic final DataSource dataSource;
+
+    PartialResult(EngineJob<?> job, Resource<?> resource, DataSource dataSource) {
+      this.job = job;
+      this.resource = resource;
+      this.dataSource = dataSource;
+    }
+  }
+
   private static class MainThreadCallback implements Handler.Callback {
 
     @Synthetic
@@ -318,6 +484,11 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
 
     @Override
     public boolean handleMessage(Message message) {
+      if (message.what == MSG_PARTIAL) {
+        PartialResult result = (PartialResult) message.obj;
+        result.job.handlePartialResultOnMainThread(result.resource, result.dataSource);
+        return true;
+      }
       EngineJob<?> job = (EngineJob<?>) message.obj;
       switch (message.what) {
         case MSG_COMPLETE:
@@ -329,6 +500,9 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
         case MSG_CANCELLED:
           job.handleCancelledOnMainThread();
           break;
+        case MSG_REMOVED_FROM_QUEUE:
+          job.handleRemovedFromQueueOnMainThread();
+          break;
         default:
           throw new IllegalStateException("Unrecognized message: " + message.what);
       }
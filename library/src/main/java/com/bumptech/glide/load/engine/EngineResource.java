@@ -1,6 +1,5 @@
 package com.bumptech.glide.load.engine;
 
-import android.os.Looper;
 import android.support.annotation.NonNull;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.util.Preconditions;
@@ -30,7 +29,7 @@ class EngineResource<Z> implements Resource<Z> {
     this.isRecyclable = isRecyclable;
   }
 
-  void setResourceListener(Key key, ResourceListener listener) {
+  synchronized void setResourceListener(Key key, ResourceListener listener) {
     this.key = key;
     this.listener = listener;
   }
@@ -75,44 +74,54 @@ class EngineResource<Z> implements Resource<Z> {
   }
 
   /**
-   * Increments the number of consumers using the wrapped resource. Must be called on the main
-   * thread.
+   * Increments the number of consumers using the wrapped resource. May be called on any thread.
    *
    * <p> This must be called with a number corresponding to the number of new consumers each time
    * new consumers begin using the wrapped resource. It is always safer to call acquire more often
    * than necessary. Generally external users should never call this method, the framework will take
    * care of this for you. </p>
    */
-  void acquire() {
+  synchronized void acquire() {
     if (isRecycled) {
       throw new IllegalStateException("Cannot acquire a recycled resource");
     }
-    if (!Looper.getMainLooper().equals(Looper.myLooper())) {
-      throw new IllegalThreadStateException("Must call acquire on the main thread");
-    }
     ++acquired;
   }
 
   /**
-   * Decrements the number of consumers using the wrapped resource. Must be called on the main
-   * thread.
+   * Decrements the number of consumers using the wrapped resource. May be called on any thread.
    *
    * <p>This must only be called when a consumer that called the {@link #acquire()} method is now
    * done with the resource. Generally external users should never call this method, the framework
    * will take care of this for you.
    */
   void release() {
-    if (acquired <= 0) {
-      throw new IllegalStateException("Cannot release a recycled or not yet acquired resource");
-    }
-    if (!Looper.getMainLooper().equals(Looper.myLooper())) {
-      throw new IllegalThreadStateException("Must call release on the main thread");
+    ResourceListener listener;
+    Key key;
+    synchronized (this) {
+      if (acquired <= 0) {
+        throw new IllegalStateException("Cannot release a recycled or not yet acquired resource");
+      }
+      if (--acquired > 0) {
+        return;
+      }
+      listener = this.listener;
+      key = this.key;
     }
-    if (--acquired == 0) {
+    // The listener is called without holding our lock so that the locking order stays consistent
+    // with the one used by the Engine (Engine -> EngineResource). The resource may be acquired
+    // again before the listener runs, so listeners must check isAcquired() while holding their
+    // own lock.
+    if (listener != null) {
       listener.onResourceReleased(key, this);
     }
   }
 
+  /** Returns {@code true} if at least one consumer is using the wrapped resource. */
+  synchronized boolean isAcquired() {
+    return acquired > 0;
+  }
+
   @Override
   public String toString() {
     return "EngineResource{"
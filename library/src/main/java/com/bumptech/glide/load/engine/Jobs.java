@@ -6,6 +6,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * The set of in progress loads.
+ *
+ * <p>Not thread safe, all access is guarded by the {@link Engine}'s lock.
+ */
 final class Jobs {
   private final Map<Key, EngineJob<?>> jobs = new HashMap<>();
   private final Map<Key, EngineJob<?>> onlyCacheJobs = new HashMap<>();
@@ -0,0 +1,81 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+
+/**
+ * Receives timings and other metrics for each stage of every load started by Glide.
+ *
+ * <p>Set with {@link com.bumptech.glide.GlideBuilder#setLoadMetricsListener(LoadMetricsListener)}.
+ * Glide doesn't allocate any objects to report metrics, so a listener can be left enabled in
+ * production as long as its own implementation is cheap. Methods may be called concurrently on any
+ * of Glide's threads, including the main thread, so implementations must be thread safe and must
+ * not block.
+ *
+ * <p>Loads are identified by a {@link Key} that is unique to the model, size, transformations and
+ * options of the load. The same key is passed to every method for a given load, but multiple
+ * requests for the same resource share a single load and are only reported once. All durations
+ * are in milliseconds.
+ */
+public interface LoadMetricsListener {
+
+  /** The stages of a load that are timed. */
+  enum Stage {
+    /** Looking up the resource in the active resources and the memory cache. */
+    MEMORY_CACHE,
+    /**
+     * Reading data or a transformed resource from the disk cache, or failing to find either in
+     * the disk cache.
+     */
+    DISK_CACHE,
+    /** Fetching the source data, for example from the network or from local storage. */
+    FETCH,
+    /** Decoding the data into a resource, for example a {@link android.graphics.Bitmap}. */
+    DECODE,
+    /** Applying transformations to the decoded resource. */
+    TRANSFORM,
+    /** Transcoding the transformed resource into the type requested, for example a Drawable. */
+    TRANSCODE,
+    /** Writing the transformed resource to the disk cache after the load has completed. */
+    ENCODE
+  }
+
+  /**
+   * Called each time a stage of a load completes.
+   *
+   * <p>A stage may be skipped, for example if the resource is found in the memory cache, or
+   * reported more than once, for example if more than one source of data is tried.
+   */
+  void onStageComplete(
+      @NonNull Object model, @NonNull Key key, @NonNull Stage stage, double durationMs);
+
+  /**
+   * Called when a load completes successfully.
+   *
+   * @param dataSource The source of the data the resource was loaded from.
+   * @param bytesRead  The size of the data the resource was decoded from, or {@code -1} if the size
+   *                   isn't known, for example because the data was read from a stream or the
+   *                   resource was loaded from memory.
+   * @param durationMs The time from the start of the load until the resource was delivered.
+   */
+  void onLoadComplete(
+      @NonNull Object model,
+      @NonNull Key key,
+      @NonNull DataSource dataSource,
+      long bytesRead,
+      double durationMs);
+
+  /** Called when a load fails. */
+  void onLoadFailed(@NonNull Object model, @NonNull Key key, double durationMs);
+
+  /**
+   * Called each time a {@link android.graphics.Bitmap} is requested from the
+   * {@link com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool}.
+   *
+   * <p>The pool is shared by all loads, so bitmap pool accesses are not attributed to a load.
+   *
+   * @param isHit {@code true} if a Bitmap was re-used, {@code false} if one had to be allocated.
+   */
+  void onBitmapPoolGet(boolean isHit);
+}
@@ -1,6 +1,7 @@
 package com.bumptech.glide.load.engine;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.util.Pools.Pool;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.data.DataRewinder;
@@ -71,6 +72,25 @@ public class LoadPath<Data, ResourceType, Transcode> {
     return result;
   }
 
+  /**
+   * Transforms and transcodes a resource that was decoded by another load using the first
+   * {@link DecodePath} that decodes resources of the same class, or returns {@code null} if none
+   * do.
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  Resource<Transcode> transcode(@NonNull Resource<?> decoded, @NonNull Options options,
+      DecodePath.DecodeCallback<ResourceType> decodeCallback) {
+    //noinspection ForLoopReplaceableByForEach to improve perf
+    for (int i = 0, size = decodePaths.size(); i < size; i++) {
+      DecodePath<Data, ResourceType, Transcode> path = decodePaths.get(i);
+      if (path.handlesResource(decoded.getResourceClass())) {
+        return path.transcode((Resource<ResourceType>) decoded, options, decodeCallback);
+      }
+    }
+    return null;
+  }
+
   public Class<Data> getDataClass() {
     return dataClass;
   }
@@ -0,0 +1,684 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.text.TextUtils;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Option;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheFactory.CacheDirectoryGetter;
+import com.bumptech.glide.load.engine.cache.QueryableDiskCache;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.util.Synthetic;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the partially downloaded bodies of large http responses in Glide's disk cache so that a
+ * later request for the same {@link GlideUrl} can resume the download with an http range request
+ * rather than starting again from the first byte.
+ *
+ * <p>Downloads are staged only if the server says it accepts byte ranges, the body's length is
+ * known and isn't content encoded, and the response has an {@code ETag} or {@code Last-Modified}
+ * validator to send in the {@code If-Range} header. Small responses aren't staged because they're
+ * cheap to download again. Bodies are written to a temporary file as they're read and moved into
+ * the disk cache only if the stream is closed before it's read completely, for example because
+ * the load was cancelled or the connection dropped. Complete bodies are moved into the data disk
+ * cache instead, so they're only written once.
+ *
+ * <p>Downloads are only staged for loads that set {@link #STAGE_PARTIAL_DOWNLOADS}, which Glide
+ * does for loads whose {@link DiskCacheStrategy} caches remote data.
+ *
+ * <p>Staged bodies use their own disk cache keys, so they're never mistaken for complete data and
+ * are evicted with the rest of the disk cache.
+ *
+ * <p>All methods may perform disk I/O and should only be called on background threads.
+ */
+public final class PartialDownloadCache {
+  /**
+   * Whether {@link com.bumptech.glide.load.model.ModelLoader}s should give their fetchers the
+   * partial download cache, defaults to {@code false}.
+   *
+   * <p>Set by Glide for loads whose {@link DiskCacheStrategy} caches remote data, so that neither
+   * partial nor complete downloads are written to disk for loads that don't.
+   */
+  public static final Option<Boolean> STAGE_PARTIAL_DOWNLOADS = Option.memory(
+      "com.bumptech.glide.load.engine.PartialDownloadCache.StagePartialDownloads", false);
+
+  private static final String TAG = "PartialDownloadCache";
+  private static final String STAGING_DIRECTORY_NAME = "glide_partial_downloads";
+  private static final long DEFAULT_MIN_STAGED_LENGTH = 256 * 1024;
+  private static final int MAGIC = 0x47504432;
+  // The trailer's length and MAGIC.
+  private static final int TRAILER_END_LENGTH = 8;
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private final DecodeJob.DiskCacheProvider diskCacheProvider;
+  private final CacheDirectoryGetter stagingDirectoryGetter;
+  private final long minStagedLength;
+  // Guarded by this, resolved on first use because getting it may require disk I/O.
+  @Nullable private File stagingDirectory;
+
+  PartialDownloadCache(
+      DecodeJob.DiskCacheProvider diskCacheProvider,
+      final CacheDirectoryGetter cacheDirectoryGetter) {
+    this(diskCacheProvider, new CacheDirectoryGetter() {
+      @Override
+      public File getCacheDirectory() {
+        return new File(cacheDirectoryGetter.getCacheDirectory(), STAGING_DIRECTORY_NAME);
+      }
+    }, DEFAULT_MIN_STAGED_LENGTH);
+  }
+
+  @VisibleForTesting
+  PartialDownloadCache(
+      DecodeJob.DiskCacheProvider diskCacheProvider,
+      CacheDirectoryGetter stagingDirectoryGetter,
+      long minStagedLength) {
+    this.diskCacheProvider = diskCacheProvider;
+    this.stagingDirectoryGetter = stagingDirectoryGetter;
+    this.minStagedLength = minStagedLength;
+  }
+
+  /**
+   * Returns the partially downloaded body staged for the given url, or {@code null} if there
+   * isn't one.
+   */
+  @Nullable
+  public PartialDownload get(@NonNull GlideUrl url) {
+    PartialDownloadKey key = new PartialDownloadKey(url);
+    DiskCache diskCache = diskCacheProvider.getDiskCache();
+    // Most urls have never been staged, so avoid opening a file for them when we can.
+    if (diskCache instanceof QueryableDiskCache
+        && !((QueryableDiskCache) diskCache).contains(key)) {
+      return null;
+    }
+    File file = diskCache.get(key);
+    if (file == null) {
+      return null;
+    }
+    PartialDownload result = null;
+    RandomAccessFile raf = null;
+    try {
+      // The body is followed by a trailer with its validators and total length, then the length of
+      // the trailer and MAGIC.
+      raf = new RandomAccessFile(file, "r");
+      long fileLength = raf.length();
+      if (fileLength > TRAILER_END_LENGTH) {
+        raf.seek(fileLength - TRAILER_END_LENGTH);
+        int trailerLength = raf.readInt();
+        long length = fileLength - TRAILER_END_LENGTH - trailerLength;
+        if (raf.readInt() == MAGIC && trailerLength > 0 && length > 0) {
+          raf.seek(length);
+          String eTag = raf.readUTF();
+          String lastModified = raf.readUTF();
+          long totalLength = raf.readLong();
+          if (length < totalLength) {
+            result = new PartialDownload(
+                file, length, totalLength, emptyToNull(eTag), emptyToNull(lastModified));
+          }
+        }
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to read partial download for: " + url, e);
+      }
+    } finally {
+      closeQuietly(raf);
+    }
+    if (result == null) {
+      diskCache.delete(key);
+    }
+    return result;
+  }
+
+  /** Removes the partially downloaded body staged for the given url, if any. */
+  public void remove(@NonNull GlideUrl url) {
+    diskCacheProvider.getDiskCache().delete(new PartialDownloadKey(url));
+  }
+
+  /**
+   * Returns a stream that reads the given body of a complete ({@code 200}) response and stages
+   * the bytes it reads so the download can be resumed if the stream is closed early, or returns
+   * the given body unchanged if the response can't be resumed.
+   *
+   * @param contentLength The length of the body in bytes, or {@code -1} if it's unknown.
+   * @param acceptRanges The value of the response's {@code Accept-Ranges} header, if any.
+   */
+  @NonNull
+  public InputStream stage(
+      @NonNull GlideUrl url,
+      @NonNull InputStream body,
+      long contentLength,
+      @Nullable String eTag,
+      @Nullable String lastModified,
+      @Nullable String acceptRanges) {
+    if (contentLength < minStagedLength
+        || !"bytes".equalsIgnoreCase(acceptRanges)
+        || getIfRangeValidator(eTag, lastModified) == null) {
+      return body;
+    }
+    return startStaging(url, body, contentLength, eTag, lastModified);
+  }
+
+  /**
+   * Returns a stream that reads the given partial download followed by the given remaining body
+   * of a {@code 206} response to a request that included the partial download's
+   * {@link PartialDownload#getResumeHeaders() resume headers}, and stages both so the download can
+   * be resumed again if the stream is closed early.
+   */
+  @NonNull
+  public InputStream resume(
+      @NonNull GlideUrl url, @NonNull PartialDownload partialDownload,
+      @NonNull InputStream remainingBody) throws IOException {
+    InputStream staged = new LimitedInputStream(
+        new FileInputStream(partialDownload.file), partialDownload.length);
+    InputStream body = new SequenceInputStream(staged, remainingBody);
+    return startStaging(
+        url, body, partialDownload.totalLength, partialDownload.eTag, partialDownload.lastModified);
+  }
+
+  /**
+   * Returns a writer that reads the given data to the end and then moves the complete body staged
+   * by the given stream into the disk cache's file, so that the body is written to disk once
+   * rather than once while it's staged and again by an {@link com.bumptech.glide.load.Encoder}, or
+   * returns {@code null} if the given stream isn't staging a body.
+   *
+   * <p>The writer writes exactly the bytes read from the body, so it can only replace encoders
+   * that copy streams unchanged.
+   *
+   * @param stream A stream that may have been returned by {@link #stage} or {@link #resume}.
+   * @param data The stream to read, either {@code stream} or a stream that reads from it.
+   */
+  @Nullable
+  static DiskCache.Writer getStagedBodyWriter(
+      @NonNull Object stream, @NonNull InputStream data, @NonNull ArrayPool arrayPool) {
+    if (!(stream instanceof StagingInputStream)) {
+      return null;
+    }
+    return new StagedBodyWriter((StagingInputStream) stream, data, arrayPool);
+  }
+
+  private InputStream startStaging(
+      GlideUrl url, InputStream body, long totalLength, @Nullable String eTag,
+      @Nullable String lastModified) {
+    File tempFile = null;
+    OutputStream os = null;
+    try {
+      tempFile = File.createTempFile("partial", ".tmp", getStagingDirectory());
+      os = new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE);
+      return new StagingInputStream(body, url, tempFile, os, totalLength, eTag, lastModified);
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to start staging partial download for: " + url, e);
+      }
+      closeQuietly(os);
+      deleteQuietly(tempFile);
+      return body;
+    }
+  }
+
+  private synchronized File getStagingDirectory() throws IOException {
+    // Temporary files left behind by a previous process can't be resumed, they don't have
+    // trailers.
+    if (stagingDirectory == null) {
+      stagingDirectory = stagingDirectoryGetter.getCacheDirectory();
+      File[] stale = stagingDirectory.listFiles();
+      if (stale != null) {
+        for (File file : stale) {
+          deleteQuietly(file);
+        }
+      }
+    }
+    if (!stagingDirectory.isDirectory() && !stagingDirectory.mkdirs()) {
+      throw new IOException("Failed to create staging directory: " + stagingDirectory);
+    }
+    return stagingDirectory;
+  }
+
+  /**
+   * Replaces any partial download staged for the given url with the given file, or just removes it
+   * if the file is {@code null}.
+   */
+  @Synthetic
+  void onStagingFinished(GlideUrl url, @Nullable final File tempFile) {
+    PartialDownloadKey key = new PartialDownloadKey(url);
+    DiskCache diskCache = diskCacheProvider.getDiskCache();
+    // Disk cache puts don't replace existing entries, so any older partial download is removed
+    // first.
+    diskCache.delete(key);
+    if (tempFile != null) {
+      diskCache.put(key, new DiskCache.Writer() {
+        @Override
+        public boolean write(@NonNull File file) {
+          return moveOrCopy(tempFile, file);
+        }
+      });
+      deleteQuietly(tempFile);
+    }
+  }
+
+  @Synthetic
+  static boolean moveOrCopy(File from, File to) {
+    return from.renameTo(to) || copy(from, to);
+  }
+
+  @Synthetic
+  static boolean copy(File from, File to) {
+    InputStream is = null;
+    OutputStream os = null;
+    try {
+      is = new FileInputStream(from);
+      os = new FileOutputStream(to);
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        os.write(buffer, 0, read);
+      }
+      os.close();
+      os = null;
+      return true;
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to copy partial download", e);
+      }
+      return false;
+    } finally {
+      closeQuietly(is);
+      closeQuietly(os);
+    }
+  }
+
+  @Nullable
+  @Synthetic
+  static String getIfRangeValidator(@Nullable String eTag, @Nullable String lastModified) {
+    // Weak validators can't be used for range requests, see RFC 7233 section 3.2.
+    if (!TextUtils.isEmpty(eTag) && !eTag.startsWith("W/")) {
+      return eTag;
+    }
+    return TextUtils.isEmpty(lastModified) ? null : lastModified;
+  }
+
+  @Nullable
+  private static String emptyToNull(String value) {
+    return TextUtils.isEmpty(value) ? null : value;
+  }
+
+  @Synthetic
+  static void closeQuietly(@Nullable Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        // Ignored.
+      }
+    }
+  }
+
+  @Synthetic
+  static void deleteQuietly(@Nullable File file) {
+    if (file != null && file.exists() && !file.delete() && Log.isLoggable(TAG, Log.WARN)) {
+      Log.w(TAG, "Failed to delete: " + file);
+    }
+  }
+
+  /**
+   * The staged part of an interrupted download and the validators of the response it came from.
+   */
+  public static final class PartialDownload {
+    @Synthetic final File file;
+    @Synthetic final long length;
+    @Synthetic final long totalLength;
+    @Synthetic @Nullable final String eTag;
+    @Synthetic @Nullable final String lastModified;
+
+    @Synthetic
+    PartialDownload(File file, long length, long totalLength, @Nullable String eTag,
+        @Nullable String lastModified) {
+      this.file = file;
+      this.length = length;
+      this.totalLength = totalLength;
+      this.eTag = eTag;
+      this.lastModified = lastModified;
+    }
+
+    /** Returns the number of bytes of the body that have been downloaded. */
+    public long getLength() {
+      return length;
+    }
+
+    /** Returns the length of the complete body in bytes. */
+    public long getTotalLength() {
+      return totalLength;
+    }
+
+    /**
+     * Returns the headers to add to a request so that the server responds with the rest of the
+     * body if it hasn't changed, or with the complete new body if it has.
+     */
+    @NonNull
+    public Map<String, String> getResumeHeaders() {
+      Map<String, String> headers = new HashMap<>(2);
+      headers.put("Range", "bytes=" + length + "-");
+      String validator = getIfRangeValidator(eTag, lastModified);
+      if (validator != null) {
+        headers.put("If-Range", validator);
+      }
+      return headers;
+    }
+
+    /**
+     * Returns {@code true} if a response with the given status code and {@code Content-Range}
+     * header contains exactly the rest of this download's body.
+     */
+    public boolean isResumedBy(int statusCode, @Nullable String contentRange) {
+      // For example "bytes 1024-4095/4096", see RFC 7233 section 4.2.
+      return statusCode == HttpURLConnection.HTTP_PARTIAL
+          && contentRange != null
+          && contentRange.trim().equals(
+              "bytes " + length + "-" + (totalLength - 1) + "/" + totalLength);
+    }
+  }
+
+  /**
+   * Copies the bytes read from a response body to a temporary file, and stages the file when the
+   * stream is closed unless the body was read completely.
+   */
+  private final class StagingInputStream extends FilterInputStream {
+    private final GlideUrl url;
+    private final File tempFile;
+    private final long totalLength;
+    @Nullable private final String eTag;
+    @Nullable private final String lastModified;
+    private OutputStream os;
+    private long bytesRead;
+    private boolean isClosed;
+
+    @Synthetic
+    StagingInputStream(InputStream in, GlideUrl url, File tempFile, OutputStream os,
+        long totalLength, @Nullable String eTag, @Nullable String lastModified) {
+      super(in);
+      this.url = url;
+      this.tempFile = tempFile;
+      this.os = os;
+      this.totalLength = totalLength;
+      this.eTag = eTag;
+      this.lastModified = lastModified;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int result = super.read();
+      if (result != -1) {
+        onRead(new byte[] {(byte) result}, 0, 1);
+      }
+      return result;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int count) throws IOException {
+      int result = super.read(buffer, offset, count);
+      if (result > 0) {
+        onRead(buffer, offset, result);
+      }
+      return result;
+    }
+
+    @Override
+    public long skip(long byteCount) throws IOException {
+      // Skipped bytes have to be staged too, so they're read rather than skipped.
+      byte[] buffer = new byte[(int) Math.min(byteCount, BUFFER_SIZE)];
+      int read = read(buffer, 0, buffer.length);
+      return read == -1 ? 0 : read;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void mark(int readLimit) {
+      // Do nothing, marks aren't supported.
+    }
+
+    @Override
+    public void reset() throws IOException {
+      throw new IOException("Mark and reset aren't supported");
+    }
+
+    private void onRead(byte[] buffer, int offset, int count) {
+      bytesRead += count;
+      if (os == null) {
+        return;
+      }
+      try {
+        os.write(buffer, offset, count);
+      } catch (IOException e) {
+        // Failing to stage the body shouldn't fail the load.
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to stage partial download for: " + url, e);
+        }
+        closeQuietly(os);
+        os = null;
+        deleteQuietly(tempFile);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (isClosed) {
+        return;
+      }
+      isClosed = true;
+      try {
+        super.close();
+      } finally {
+        finishStaging();
+      }
+    }
+
+    /**
+     * Moves the complete body into the given file, or returns {@code false} if the body hasn't
+     * been read completely or couldn't be staged.
+     */
+    @Synthetic
+    boolean moveCompleteBodyTo(File file) {
+      if (os == null || bytesRead < totalLength || !closeOutput(false /*writeTrailer*/)) {
+        return false;
+      }
+      // The complete body replaces any older partial download.
+      onStagingFinished(url, null /*tempFile*/);
+      boolean isMoved = moveOrCopy(tempFile, file);
+      deleteQuietly(tempFile);
+      return isMoved;
+    }
+
+    private void finishStaging() {
+      if (os == null) {
+        return;
+      }
+      boolean isComplete = bytesRead >= totalLength;
+      if (!closeOutput(!isComplete /*writeTrailer*/) || bytesRead == 0) {
+        return;
+      }
+      if (isComplete) {
+        // The body wasn't written to the data disk cache, so there's nothing to resume.
+        deleteQuietly(tempFile);
+        onStagingFinished(url, null /*tempFile*/);
+      } else {
+        onStagingFinished(url, tempFile);
+      }
+    }
+
+    /**
+     * Closes the temporary file, optionally writing the trailer needed to resume the body first,
+     * and deletes the file if it couldn't be written.
+     */
+    private boolean closeOutput(boolean writeTrailer) {
+      OutputStream local = os;
+      os = null;
+      try {
+        if (writeTrailer) {
+          DataOutputStream trailer = new DataOutputStream(local);
+          trailer.writeUTF(eTag == null ? "" : eTag);
+          trailer.writeUTF(lastModified == null ? "" : lastModified);
+          trailer.writeLong(totalLength);
+          trailer.writeInt(trailer.size());
+          trailer.writeInt(MAGIC);
+        }
+        local.close();
+        return true;
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to stage partial download for: " + url, e);
+        }
+        closeQuietly(local);
+        deleteQuietly(tempFile);
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Reads a staged body to the end, and then moves the staged copy into the disk cache's file
+   * rather than writing the body a second time.
+   */
+  private static final class StagedBodyWriter implements DiskCache.Writer {
+    private final StagingInputStream staged;
+    private final InputStream data;
+    private final ArrayPool arrayPool;
+
+    @Synthetic
+    StagedBodyWriter(StagingInputStream staged, InputStream data, ArrayPool arrayPool) {
+      this.staged = staged;
+      this.data = data;
+      this.arrayPool = arrayPool;
+    }
+
+    @Override
+    public boolean write(@NonNull File file) {
+      byte[] buffer = arrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
+      try {
+        while (data.read(buffer) != -1) {
+          // The bytes are copied to the staged file as they're read.
+        }
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to read staged body", e);
+        }
+        return false;
+      } finally {
+        arrayPool.put(buffer);
+      }
+      return staged.moveCompleteBodyTo(file);
+    }
+  }
+
+  /** Reads at most a fixed number of bytes from a stream. */
+  private static final class LimitedInputStream extends FilterInputStream {
+    private long remaining;
+
+    @Synthetic
+    LimitedInputStream(InputStream in, long limit) {
+      super(in);
+      remaining = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int result = super.read();
+      if (result != -1) {
+        remaining--;
+      }
+      return result;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int count) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int result = super.read(buffer, offset, (int) Math.min(count, remaining));
+      if (result > 0) {
+        remaining -= result;
+      }
+      return result;
+    }
+
+    @Override
+    public long skip(long byteCount) throws IOException {
+      long result = super.skip(Math.min(byteCount, remaining));
+      remaining -= result;
+      return result;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(super.available(), remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
+
+  /** The disk cache key for the partially downloaded body of a url. */
+  private static final class PartialDownloadKey implements Key {
+    private static final byte[] PREFIX =
+        "com.bumptech.glide.load.engine.PartialDownloadCache".getBytes(Charset.forName("UTF-8"));
+    private final GlideUrl url;
+
+    @Synthetic
+    PartialDownloadKey(GlideUrl url) {
+      this.url = url;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof PartialDownloadKey) {
+        PartialDownloadKey other = (PartialDownloadKey) o;
+        return url.equals(other.url);
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * url.hashCode() + 1;
+    }
+
+    @Override
+    public String toString() {
+      return "PartialDownloadKey{url=" + url + '}';
+    }
+
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+      messageDigest.update(PREFIX);
+      url.updateDiskCacheKey(messageDigest);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link InputStream} that retains the bytes read from the wrapped stream and periodically
+ * passes the data read so far to a {@link PartialDataListener}, allowing intermediate results to
+ * be decoded while source data is still being written to the disk cache.
+ *
+ * <p>Partial data is offered each time the number of bytes read doubles, starting at
+ * {@link #MIN_PARTIAL_DATA_SIZE}, so the number of intermediate decodes grows logarithmically with
+ * the size of the data. Once more than {@link #MAX_BUFFERED_SIZE} bytes have been read, the
+ * retained bytes are released and the stream simply delegates to the wrapped stream.
+ *
+ * <p>Buffers are obtained from and returned to the given {@link ArrayPool}, so {@link #release()}
+ * must be called once the stream is no longer used.
+ */
+final class ProgressiveInputStream extends FilterInputStream {
+  static final int MIN_PARTIAL_DATA_SIZE = 32 * 1024;
+  static final int MAX_BUFFERED_SIZE = 4 * 1024 * 1024;
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+  private final ArrayPool arrayPool;
+  private final PartialDataListener listener;
+  private byte[] buffer;
+  private int count;
+  private int nextPartialDataSize = MIN_PARTIAL_DATA_SIZE;
+
+  interface PartialDataListener {
+    /**
+     * Called synchronously on the reading thread with the data read so far.
+     *
+     * <p>The given buffer is only valid for the duration of the call and must not be retained.
+     */
+    void onPartialDataReady(@NonNull ByteBuffer data);
+  }
+
+  ProgressiveInputStream(@NonNull InputStream in, @NonNull ArrayPool arrayPool,
+      @NonNull PartialDataListener listener) {
+    super(in);
+    this.arrayPool = arrayPool;
+    this.listener = listener;
+    buffer = arrayPool.get(INITIAL_BUFFER_SIZE, byte[].class);
+  }
+
+  @Override
+  public int read() throws IOException {
+    int result = super.read();
+    if (result != -1 && ensureCapacity(count + 1)) {
+      buffer[count++] = (byte) result;
+      maybeNotifyPartialData();
+    }
+    return result;
+  }
+
+  @Override
+  public int read(@NonNull byte[] b, int off, int len) throws IOException {
+    int read = super.read(b, off, len);
+    if (read > 0 && ensureCapacity(count + read)) {
+      System.arraycopy(b, off, buffer, count, read);
+      count += read;
+      maybeNotifyPartialData();
+    }
+    return read;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    // Skipped bytes still need to be retained, so read rather than skip.
+    byte[] scratch = arrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
+    try {
+      int read = read(scratch, 0, (int) Math.min(n, scratch.length));
+      return Math.max(read, 0);
+    } finally {
+      arrayPool.put(scratch);
+    }
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public synchronized void mark(int readLimit) {
+    // Not supported.
+  }
+
+  @Override
+  public synchronized void reset() throws IOException {
+    throw new IOException("mark/reset not supported");
+  }
+
+  /**
+   * Returns any retained bytes to the {@link ArrayPool}, after which partial data will no longer be
+   * offered to the listener.
+   */
+  void release() {
+    if (buffer != null) {
+      arrayPool.put(buffer);
+      buffer = null;
+    }
+  }
+
+  private boolean ensureCapacity(int size) {
+    if (buffer == null) {
+      return false;
+    } else if (size > MAX_BUFFERED_SIZE) {
+      release();
+      return false;
+    } else if (size > buffer.length) {
+      byte[] grown = arrayPool.get(Math.min(MAX_BUFFERED_SIZE, Math.max(size, buffer.length * 2)),
+          byte[].class);
+      System.arraycopy(buffer, 0, grown, 0, count);
+      arrayPool.put(buffer);
+      buffer = grown;
+    }
+    return true;
+  }
+
+  private void maybeNotifyPartialData() {
+    if (count >= nextPartialDataSize) {
+      nextPartialDataSize = count * 2;
+      listener.onPartialDataReady(ByteBuffer.wrap(buffer, 0, count));
+    }
+  }
+}
@@ -1,10 +1,12 @@
 package com.bumptech.glide.load.engine;
 
 import android.support.annotation.NonNull;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.data.PriorityAwareDataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import java.io.File;
@@ -23,13 +25,13 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
   private int sourceIdIndex;
   private int resourceClassIndex = -1;
   private Key sourceKey;
-  private List<ModelLoader<File, ?>> modelLoaders;
+  private List<ModelLoader<Object, ?>> modelLoaders;
   private int modelLoaderIndex;
   private volatile LoadData<?> loadData;
-  // PMD is wrong here, this File must be an instance variable because it may be used across
+  // PMD is wrong here, this entry must be an instance variable because it may be used across
   // multiple calls to startNext.
   @SuppressWarnings("PMD.SingularField")
-  private File cacheFile;
+  private Object cacheEntry;
   private ResourceCacheKey currentKey;
 
   ResourceCacheGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb) {
@@ -80,10 +82,10 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
               transformation,
               resourceClass,
               helper.getOptions());
-      cacheFile = helper.getDiskCache().get(currentKey);
-      if (cacheFile != null) {
+      cacheEntry = helper.getDiskCacheEntry(currentKey);
+      if (cacheEntry != null) {
         sourceKey = sourceId;
-        modelLoaders = helper.getModelLoaders(cacheFile);
+        modelLoaders = helper.getModelLoaders(cacheEntry);
         modelLoaderIndex = 0;
       }
     }
@@ -91,8 +93,8 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
     loadData = null;
     boolean started = false;
     while (!started && hasNextModelLoader()) {
-      ModelLoader<File, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
-      loadData = modelLoader.buildLoadData(cacheFile,
+      ModelLoader<Object, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
+      loadData = modelLoader.buildLoadData(cacheEntry,
           helper.getWidth(), helper.getHeight(), helper.getOptions());
       if (loadData != null && helper.hasLoadPath(loadData.fetcher.getDataClass())) {
         started = true;
@@ -115,6 +117,14 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
     }
   }
 
+  @Override
+  public void onPriorityChanged(Priority priority) {
+    LoadData<?> local = loadData;
+    if (local != null && local.fetcher instanceof PriorityAwareDataFetcher) {
+      ((PriorityAwareDataFetcher<?>) local.fetcher).onPriorityChanged(priority);
+    }
+  }
+
   @Override
   public void onDataReady(Object data) {
     cb.onDataFetcherReady(sourceKey, data, loadData.fetcher, DataSource.RESOURCE_DISK_CACHE,
@@ -0,0 +1,235 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.pool.GlideTrace;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Writes transformed resources to the disk cache on a dedicated {@link Executor} so that source
+ * threads can move on to the next load as soon as a resource has been delivered.
+ *
+ * <p>Writes are queued and drained in batches by a single task on the executor. Writes for a
+ * {@link Key} that is already waiting to be written are dropped, because the resource for a given
+ * key is always the same. If more than a fixed number of writes are waiting, new writes are made
+ * on the calling thread instead so that the number of resources kept alive only to be written is
+ * bounded.
+ */
+final class ResourceEncodeQueue {
+  private static final String TAG = "ResourceEncodeQueue";
+  static final int DEFAULT_MAX_PENDING = 8;
+
+  private final Executor executor;
+  private final int maxPending;
+  private final Queue<EncodeTask<?>> pending = new ArrayDeque<>();
+  // Keys that are either waiting to be written or are being written.
+  private final Set<Key> pendingKeys = new HashSet<>();
+  private final Runnable drainRunnable = new Runnable() {
+    @Override
+    public void run() {
+      drain();
+    }
+  };
+
+  private boolean isDraining;
+  private int peakQueueDepth;
+  private long encodedCount;
+  private long coalescedCount;
+  private long synchronousCount;
+  private double totalLatencyMs;
+  private double maxLatencyMs;
+
+  ResourceEncodeQueue(@NonNull Executor executor) {
+    this(executor, DEFAULT_MAX_PENDING);
+  }
+
+  ResourceEncodeQueue(@NonNull Executor executor, int maxPending) {
+    this.executor = executor;
+    this.maxPending = maxPending;
+  }
+
+  /**
+   * Writes the given task's resource to the disk cache, either now on the calling thread or later
+   * on this queue's {@link Executor}, and then releases the task's resources.
+   */
+  void encode(@NonNull EncodeTask<?> task) {
+    boolean isCoalesced = false;
+    boolean isSynchronous = false;
+    boolean shouldSchedule = false;
+    synchronized (this) {
+      if (pendingKeys.contains(task.key)) {
+        isCoalesced = true;
+        coalescedCount++;
+      } else {
+        pendingKeys.add(task.key);
+        if (pending.size() >= maxPending) {
+          isSynchronous = true;
+          synchronousCount++;
+        } else {
+          pending.add(task);
+          peakQueueDepth = Math.max(peakQueueDepth, pending.size());
+          shouldSchedule = !isDraining;
+          isDraining = true;
+        }
+      }
+    }
+
+    if (isCoalesced) {
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Dropping encode for key already waiting to be written: " + task.key);
+      }
+      task.release();
+    } else if (isSynchronous) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Encode queue full, writing on calling thread: " + task.key);
+      }
+      runAndRecord(task);
+    } else if (shouldSchedule) {
+      scheduleDrain();
+    }
+  }
+
+  @NonNull
+  synchronized EncodeMetrics getMetrics() {
+    return new EncodeMetrics(
+        pending.size(),
+        peakQueueDepth,
+        encodedCount,
+        coalescedCount,
+        synchronousCount,
+        encodedCount == 0 ? 0 : totalLatencyMs / encodedCount,
+        maxLatencyMs);
+  }
+
+  private void scheduleDrain() {
+    try {
+      executor.execute(drainRunnable);
+    } catch (RejectedExecutionException e) {
+      // The executor has been shut down, make sure any waiting resources are still written.
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Encode executor rejected drain, writing on calling thread", e);
+      }
+      drain();
+    }
+  }
+
+  @Synthetic
+  void drain() {
+    EncodeTask<?> task;
+    while ((task = next()) != null) {
+      try {
+        runAndRecord(task);
+      } catch (RuntimeException e) {
+        // Let the executor handle the failure, but don't leave the remaining writes stranded.
+        boolean hasRemaining;
+        synchronized (this) {
+          hasRemaining = !pending.isEmpty();
+          isDraining = hasRemaining;
+        }
+        if (hasRemaining) {
+          scheduleDrain();
+        }
+        throw e;
+      }
+    }
+  }
+
+  @Nullable
+  private synchronized EncodeTask<?> next() {
+    EncodeTask<?> task = pending.poll();
+    if (task == null) {
+      isDraining = false;
+    }
+    return task;
+  }
+
+  private void runAndRecord(EncodeTask<?> task) {
+    try {
+      task.run();
+    } finally {
+      double latencyMs = LogTime.getElapsedMillis(task.startTime);
+      synchronized (this) {
+        pendingKeys.remove(task.key);
+        encodedCount++;
+        totalLatencyMs += latencyMs;
+        maxLatencyMs = Math.max(maxLatencyMs, latencyMs);
+      }
+    }
+  }
+
+  /**
+   * Writes a single transformed resource to the disk cache and then unlocks it, along with the
+   * result delivered to requestors, if any, so that both can be recycled.
+   */
+  static final class EncodeTask<Z> {
+    @Synthetic final Key key;
+    @Synthetic final long startTime;
+    private final ResourceEncoder<Z> encoder;
+    private final LockedResource<Z> toEncode;
+    private final Options options;
+    private final DecodeJob.DiskCacheProvider diskCacheProvider;
+    @Nullable private final LockedResource<?> result;
+    @Nullable private LoadMetricsListener metricsListener;
+    @Nullable private Object model;
+    @Nullable private Key loadKey;
+
+    EncodeTask(
+        @NonNull Key key,
+        @NonNull ResourceEncoder<Z> encoder,
+        @NonNull LockedResource<Z> toEncode,
+        @NonNull Options options,
+        @NonNull DecodeJob.DiskCacheProvider diskCacheProvider,
+        @Nullable LockedResource<?> result) {
+      this.key = key;
+      this.encoder = encoder;
+      this.toEncode = toEncode;
+      this.options = options;
+      this.diskCacheProvider = diskCacheProvider;
+      this.result = result;
+      startTime = LogTime.getLogTime();
+    }
+
+    /** Sets a listener to notify with the time taken to write the resource for the given load. */
+    void setMetricsListener(
+        @NonNull LoadMetricsListener metricsListener, @NonNull Object model, @NonNull Key loadKey) {
+      this.metricsListener = metricsListener;
+      this.model = model;
+      this.loadKey = loadKey;
+    }
+
+    void run() {
+      GlideTrace.beginSection("DecodeJob.encode");
+      try {
+        long encodeStartTime = LogTime.getLogTime();
+        DiskCache diskCache = diskCacheProvider.getDiskCache();
+        diskCache.put(key, new DataCacheWriter<>(encoder, toEncode, options));
+        if (metricsListener != null) {
+          metricsListener.onStageComplete(model, loadKey, LoadMetricsListener.Stage.ENCODE,
+              LogTime.getElapsedMillis(encodeStartTime));
+        }
+      } finally {
+        release();
+        GlideTrace.endSection();
+      }
+    }
+
+    void release() {
+      toEncode.unlock();
+      if (result != null) {
+        result.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allows only one {@link SourceGenerator} at a time to fetch the source data for a given
+ * {@link DataCacheKey}, so that loads for the same model with different sizes or transformations
+ * share a single download.
+ *
+ * <p>The first {@link SourceGenerator} to acquire a key fetches the data and writes it to the disk
+ * cache. Any other {@link SourceGenerator}s that try to acquire the same key in the meantime wait
+ * until the fetch completes and then decode the data from the disk cache, or fetch the data
+ * themselves if it couldn't be cached.
+ */
+final class SourceFetchCoalescer {
+  private final Map<Key, List<Waiter>> inFlight = new HashMap<>();
+
+  interface Waiter {
+    /**
+     * Called on the thread that completed the fetch.
+     *
+     * @param isDataCached {@code true} if the source data was written to the disk cache, and
+     *                     {@code false} if the fetch failed or was cancelled.
+     */
+    void onSourceFetchComplete(boolean isDataCached);
+  }
+
+  /**
+   * Returns {@code true} if the caller should fetch the data for the given key and must then call
+   * {@link #release(Key, boolean)}, or {@code false} if another fetch is in progress and the given
+   * {@link Waiter} will be notified when it completes.
+   */
+  synchronized boolean acquire(@NonNull Key key, @NonNull Waiter waiter) {
+    List<Waiter> waiters = inFlight.get(key);
+    if (waiters == null) {
+      inFlight.put(key, new ArrayList<Waiter>());
+      return true;
+    }
+    waiters.add(waiter);
+    return false;
+  }
+
+  /** Stops notifying the given {@link Waiter} when the fetch for the given key completes. */
+  synchronized void removeWaiter(@NonNull Key key, @NonNull Waiter waiter) {
+    List<Waiter> waiters = inFlight.get(key);
+    if (waiters != null) {
+      waiters.remove(waiter);
+    }
+  }
+
+  /** Marks the fetch for the given key as complete and notifies any waiters. */
+  void release(@NonNull Key key, boolean isDataCached) {
+    List<Waiter> waiters;
+    synchronized (this) {
+      waiters = inFlight.remove(key);
+    }
+    if (waiters != null) {
+      for (Waiter waiter : waiters) {
+        waiter.onSourceFetchComplete(isDataCached);
+      }
+    }
+  }
+}
@@ -2,13 +2,21 @@ package com.bumptech.glide.load.engine;
 
 import android.support.annotation.NonNull;
 import android.util.Log;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Encoder;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.data.PriorityAwareDataFetcher;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.DiskCacheAdapter;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
+import com.bumptech.glide.load.model.StreamEncoder;
+import com.bumptech.glide.load.resource.bitmap.Downsampler;
 import com.bumptech.glide.util.LogTime;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 
 /**
@@ -18,24 +26,36 @@ import java.util.Collections;
  *
  * <p> Depending on the disk cache strategy, source data may first be written to disk and then
  * loaded from the cache file rather than returned directly. </p>
+ *
+ * <p>If source data will be written to disk and another load is already fetching the same data,
+ * this generator waits for that load to finish and then loads the data from the cache file rather
+ * than fetching it a second time.
  */
 class SourceGenerator implements DataFetcherGenerator,
     DataFetcher.DataCallback<Object>,
-    DataFetcherGenerator.FetcherReadyCallback {
+    DataFetcherGenerator.FetcherReadyCallback,
+    ProgressiveInputStream.PartialDataListener,
+    SourceFetchCoalescer.Waiter {
   private static final String TAG = "SourceGenerator";
 
   private final DecodeHelper<?> helper;
   private final FetcherReadyCallback cb;
+  private final SourceFetchCoalescer coalescer;
 
   private int loadDataListIndex;
   private DataCacheGenerator sourceCacheGenerator;
   private Object dataToCache;
   private volatile ModelLoader.LoadData<?> loadData;
   private DataCacheKey originalKey;
+  // Guarded by this.
+  private DataCacheKey acquiredKey;
+  private DataCacheKey awaitedKey;
 
-  SourceGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb) {
+  SourceGenerator(
+      DecodeHelper<?> helper, FetcherReadyCallback cb, SourceFetchCoalescer coalescer) {
     this.helper = helper;
     this.cb = cb;
+    this.coalescer = coalescer;
   }
 
   @Override
@@ -58,6 +78,10 @@ class SourceGenerator implements DataFetcherGenerator,
       if (loadData != null
           && (helper.getDiskCacheStrategy().isDataCacheable(loadData.fetcher.getDataSource())
           || helper.hasLoadPath(loadData.fetcher.getDataClass()))) {
+        if (!acquireSourceFetch(loadData)) {
+          // Another load is fetching the same data, we'll be notified once it's done.
+          return true;
+        }
         started = true;
         loadData.fetcher.loadData(helper.getPriority(), this);
       }
@@ -69,14 +93,78 @@ class SourceGenerator implements DataFetcherGenerator,
     return loadDataListIndex < helper.getLoadData().size();
   }
 
+  private boolean acquireSourceFetch(LoadData<?> loadData) {
+    // Waiting only helps if the other load writes the data somewhere we can read it from.
+    if (!helper.getDiskCacheStrategy().isDataCacheable(loadData.fetcher.getDataSource())
+        || helper.getDiskCache() instanceof DiskCacheAdapter) {
+      return true;
+    }
+    DataCacheKey key = new DataCacheKey(loadData.sourceKey, helper.getSignature());
+    synchronized (this) {
+      if (coalescer.acquire(key, this)) {
+        acquiredKey = key;
+        return true;
+      }
+      awaitedKey = key;
+      return false;
+    }
+  }
+
+  private void releaseSourceFetch(boolean isDataCached) {
+    DataCacheKey key;
+    synchronized (this) {
+      key = acquiredKey;
+      acquiredKey = null;
+    }
+    if (key != null) {
+      coalescer.release(key, isDataCached);
+    }
+  }
+
+  @Override
+  public void onSourceFetchComplete(boolean isDataCached) {
+    synchronized (this) {
+      if (awaitedKey == null) {
+        return;
+      }
+      awaitedKey = null;
+    }
+    // Retry the same loader, either by loading the data from the cache or by fetching it.
+    loadDataListIndex--;
+    if (isDataCached) {
+      sourceCacheGenerator =
+          new DataCacheGenerator(Collections.singletonList(loadData.sourceKey), helper, this);
+    }
+    cb.reschedule();
+  }
+
   private void cacheData(Object dataToCache) {
     long startTime = LogTime.getLogTime();
+    Object fetchedData = dataToCache;
+    ProgressiveInputStream progressiveStream = null;
+    if (dataToCache instanceof InputStream
+        && helper.getOptions().get(Downsampler.PROGRESSIVE)) {
+      // The bytes are retained as they're written to the cache, so the data is only read and
+      // written once even though we may decode it several times.
+      progressiveStream =
+          new ProgressiveInputStream((InputStream) dataToCache, helper.getArrayPool(), this);
+      dataToCache = progressiveStream;
+    }
+    boolean isDataCached = false;
     try {
       Encoder<Object> encoder = helper.getSourceEncoder(dataToCache);
-      DataCacheWriter<Object> writer =
-          new DataCacheWriter<>(encoder, dataToCache, helper.getOptions());
+      DiskCache.Writer writer = null;
+      if (encoder.getClass() == StreamEncoder.class) {
+        // Avoids writing bodies that were staged for resuming to disk a second time.
+        writer = PartialDownloadCache.getStagedBodyWriter(
+            fetchedData, (InputStream) dataToCache, helper.getArrayPool());
+      }
+      if (writer == null) {
+        writer = new DataCacheWriter<>(encoder, dataToCache, helper.getOptions());
+      }
       originalKey = new DataCacheKey(loadData.sourceKey, helper.getSignature());
       helper.getDiskCache().put(originalKey, writer);
+      isDataCached = true;
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
         Log.v(TAG, "Finished encoding source to cache"
             + ", key: " + originalKey
@@ -85,19 +173,43 @@ class SourceGenerator implements DataFetcherGenerator,
             + ", duration: " + LogTime.getElapsedMillis(startTime));
       }
     } finally {
+      if (progressiveStream != null) {
+        progressiveStream.release();
+      }
       loadData.fetcher.cleanup();
+      releaseSourceFetch(isDataCached);
     }
 
     sourceCacheGenerator =
         new DataCacheGenerator(Collections.singletonList(loadData.sourceKey), helper, this);
   }
 
+  @Override
+  public void onPriorityChanged(Priority priority) {
+    LoadData<?> local = loadData;
+    if (local != null && local.fetcher instanceof PriorityAwareDataFetcher) {
+      ((PriorityAwareDataFetcher<?>) local.fetcher).onPriorityChanged(priority);
+    }
+  }
+
   @Override
   public void cancel() {
     LoadData<?> local = loadData;
     if (local != null) {
       local.fetcher.cancel();
     }
+    DataCacheKey key;
+    synchronized (this) {
+      key = awaitedKey;
+      awaitedKey = null;
+    }
+    if (key != null) {
+      coalescer.removeWaiter(key, this);
+      // We're not queued or running while we wait, and clearing awaitedKey means we won't be
+      // notified when the other fetch completes, so we need to be run once more to clean up.
+      cb.reschedule();
+    }
+    releaseSourceFetch(false /*isDataCached*/);
   }
 
   @Override
@@ -109,6 +221,7 @@ class SourceGenerator implements DataFetcherGenerator,
       // reschedule to get back onto Glide's thread.
       cb.reschedule();
     } else {
+      releaseSourceFetch(false /*isDataCached*/);
       cb.onDataFetcherReady(loadData.sourceKey, data, loadData.fetcher,
           loadData.fetcher.getDataSource(), originalKey);
     }
@@ -116,9 +229,15 @@ class SourceGenerator implements DataFetcherGenerator,
 
   @Override
   public void onLoadFailed(@NonNull Exception e) {
+    releaseSourceFetch(false /*isDataCached*/);
     cb.onDataFetcherFailed(originalKey, e, loadData.fetcher, loadData.fetcher.getDataSource());
   }
 
+  @Override
+  public void onPartialDataReady(@NonNull ByteBuffer data) {
+    cb.onPartialDataReady(loadData.sourceKey, data, loadData.fetcher.getDataSource());
+  }
+
   @Override
   public void reschedule() {
     // We don't expect this to happen, although if we ever need it to we can delegate to our
@@ -135,6 +254,12 @@ class SourceGenerator implements DataFetcherGenerator,
     cb.onDataFetcherReady(sourceKey, data, fetcher, loadData.fetcher.getDataSource(), sourceKey);
   }
 
+  @Override
+  public void onPartialDataReady(Key sourceKey, ByteBuffer data, DataSource dataSource) {
+    // The source cache generator reads complete data from the cache, so we don't expect this.
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public void onDataFetcherFailed(Key sourceKey, Exception e, DataFetcher<?> fetcher,
       DataSource dataSource) {
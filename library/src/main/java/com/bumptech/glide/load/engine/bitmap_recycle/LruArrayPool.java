@@ -1,8 +1,11 @@
 package com.bumptech.glide.load.engine.bitmap_recycle;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.util.Log;
+import com.bumptech.glide.load.engine.cache.AdaptiveCache;
+import com.bumptech.glide.load.engine.cache.MemoryCacheStats;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
 import java.util.HashMap;
@@ -14,7 +17,7 @@ import java.util.TreeMap;
  * A fixed size Array Pool that evicts arrays using an LRU strategy to keep the pool under
  * the maximum byte size.
  */
-public final class LruArrayPool implements ArrayPool {
+public final class LruArrayPool implements ArrayPool, AdaptiveCache {
   // 4MB.
   private static final int DEFAULT_SIZE = 4 * 1024 * 1024;
 
@@ -31,12 +34,16 @@ public final class LruArrayPool implements ArrayPool {
   private final KeyPool keyPool = new KeyPool();
   private final Map<Class<?>, NavigableMap<Integer, Integer>> sortedSizes = new HashMap<>();
   private final Map<Class<?>, ArrayAdapterInterface<?>> adapters = new HashMap<>();
-  private final int maxSize;
+  private final int initialMaxSize;
+  private int maxSize;
   private int currentSize;
+  private long hits;
+  private long misses;
+  private long evictions;
 
   @VisibleForTesting
   public LruArrayPool() {
-    maxSize = DEFAULT_SIZE;
+    this(DEFAULT_SIZE);
   }
 
   /**
@@ -45,6 +52,7 @@ public final class LruArrayPool implements ArrayPool {
    * @param maxSize The maximum size in integers of the pool.
    */
   public LruArrayPool(int maxSize) {
+    this.initialMaxSize = maxSize;
     this.maxSize = maxSize;
   }
 
@@ -97,11 +105,13 @@ public final class LruArrayPool implements ArrayPool {
     ArrayAdapterInterface<T> arrayAdapter = getAdapterFromType(arrayClass);
     T result = getArrayForKey(key);
     if (result != null) {
+      hits++;
       currentSize -= arrayAdapter.getArrayLength(result) * arrayAdapter.getElementSizeInBytes();
       decrementArrayOfSize(arrayAdapter.getArrayLength(result), arrayClass);
     }
 
     if (result == null) {
+      misses++;
       if (Log.isLoggable(arrayAdapter.getTag(), Log.VERBOSE)) {
         Log.v(arrayAdapter.getTag(), "Allocated " + key.size + " bytes");
       }
@@ -131,6 +141,23 @@ public final class LruArrayPool implements ArrayPool {
     return currentSize == 0 || (maxSize / currentSize >= 2);
   }
 
+  /**
+   * Multiplies the size given in the constructor by the given multiplier and evicts arrays until
+   * the pool is no larger than the new size.
+   */
+  @Override
+  public synchronized void setSizeMultiplier(float multiplier) {
+    Preconditions.checkArgument(multiplier >= 0, "Multiplier must be >= 0");
+    maxSize = Math.round(initialMaxSize * multiplier);
+    evict();
+  }
+
+  @NonNull
+  @Override
+  public synchronized MemoryCacheStats getStats() {
+    return new MemoryCacheStats(hits, misses, evictions, currentSize, maxSize);
+  }
+
   @Override
   public synchronized void clearMemory() {
     evictToSize(0);
@@ -157,6 +184,7 @@ public final class LruArrayPool implements ArrayPool {
       ArrayAdapterInterface<Object> arrayAdapter = getAdapterFromObject(evicted);
       currentSize -= arrayAdapter.getArrayLength(evicted) * arrayAdapter.getElementSizeInBytes();
       decrementArrayOfSize(arrayAdapter.getArrayLength(evicted), evicted.getClass());
+      evictions++;
       if (Log.isLoggable(arrayAdapter.getTag(), Log.VERBOSE)) {
         Log.v(arrayAdapter.getTag(), "evicted: " + arrayAdapter.getArrayLength(evicted));
       }
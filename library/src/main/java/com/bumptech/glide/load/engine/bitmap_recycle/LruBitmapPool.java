@@ -8,6 +8,9 @@ import android.os.Build;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
+import com.bumptech.glide.load.engine.LoadMetricsListener;
+import com.bumptech.glide.load.engine.cache.AdaptiveCache;
+import com.bumptech.glide.load.engine.cache.MemoryCacheStats;
 import com.bumptech.glide.util.Synthetic;
 import java.util.Arrays;
 import java.util.Collections;
@@ -20,7 +23,7 @@ import java.util.Set;
  * and then uses an LRU eviction policy to evict {@link android.graphics.Bitmap}s from the least
  * recently used bucket in order to keep the pool below a given maximum size limit.
  */
-public class LruBitmapPool implements BitmapPool {
+public class LruBitmapPool implements BitmapPool, AdaptiveCache {
   private static final String TAG = "LruBitmapPool";
   private static final Bitmap.Config DEFAULT_CONFIG = Bitmap.Config.ARGB_8888;
 
@@ -35,6 +38,7 @@ public class LruBitmapPool implements BitmapPool {
   private int misses;
   private int puts;
   private int evictions;
+  @Nullable private volatile LoadMetricsListener metricsListener;
 
   // Exposed for testing only.
   LruBitmapPool(long maxSize, LruPoolStrategy strategy, Set<Bitmap.Config> allowedConfigs) {
@@ -68,6 +72,17 @@ public class LruBitmapPool implements BitmapPool {
     this(maxSize, getDefaultStrategy(), allowedConfigs);
   }
 
+  /**
+   * Sets a listener to notify each time a {@link Bitmap} is requested from this pool, or
+   * {@code null} to stop notifying the previous listener.
+   *
+   * <p>Called by Glide with the listener set in
+   * {@link com.bumptech.glide.GlideBuilder#setLoadMetricsListener(LoadMetricsListener)}.
+   */
+  public void setMetricsListener(@Nullable LoadMetricsListener metricsListener) {
+    this.metricsListener = metricsListener;
+  }
+
   @Override
   public long getMaxSize() {
     return maxSize;
@@ -79,6 +94,12 @@ public class LruBitmapPool implements BitmapPool {
     evict();
   }
 
+  @NonNull
+  @Override
+  public synchronized MemoryCacheStats getStats() {
+    return new MemoryCacheStats(hits, misses, evictions, currentSize, maxSize);
+  }
+
   @Override
   public synchronized void put(Bitmap bitmap) {
     if (bitmap == null) {
@@ -122,6 +143,7 @@ public class LruBitmapPool implements BitmapPool {
   @NonNull
   public Bitmap get(int width, int height, Bitmap.Config config) {
     Bitmap result = getDirtyOrNull(width, height, config);
+    notifyGet(result != null);
     if (result != null) {
       // Bitmaps in the pool contain random data that in some cases must be cleared for an image
       // to be rendered correctly. we shouldn't force all consumers to independently erase the
@@ -138,12 +160,20 @@ public class LruBitmapPool implements BitmapPool {
   @Override
   public Bitmap getDirty(int width, int height, Bitmap.Config config) {
     Bitmap result = getDirtyOrNull(width, height, config);
+    notifyGet(result != null);
     if (result == null) {
       result = createBitmap(width, height, config);
     }
     return result;
   }
 
+  private void notifyGet(boolean isHit) {
+    LoadMetricsListener listener = metricsListener;
+    if (listener != null) {
+      listener.onBitmapPoolGet(isHit);
+    }
+  }
+
   @NonNull
   private static Bitmap createBitmap(int width, int height, @Nullable Bitmap.Config config) {
     return Bitmap.createBitmap(width, height, config != null ? config : DEFAULT_CONFIG);
@@ -262,7 +292,7 @@ public class LruBitmapPool implements BitmapPool {
   private static LruPoolStrategy getDefaultStrategy() {
     final LruPoolStrategy strategy;
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-      strategy = new SizeConfigStrategy();
+      strategy = new SizeClassStrategy();
     } else {
       strategy = new AttributeStrategy();
     }
@@ -0,0 +1,361 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.annotation.Nullable;
+import android.support.annotation.RequiresApi;
+import android.support.annotation.VisibleForTesting;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+
+/**
+ * Keys {@link android.graphics.Bitmap Bitmaps} using both the
+ * {@link android.graphics.Bitmap.Config} and a size class derived from
+ * {@link android.graphics.Bitmap#getAllocationByteCount()}, and supports the same re-use as
+ * {@link SizeConfigStrategy} without allocating or searching sorted maps.
+ *
+ * <p>Each power of two range of byte sizes is divided into {@link #CLASSES_PER_DOUBLING} size
+ * classes. {@link android.graphics.Bitmap Bitmaps} are kept in a linked list per config and size
+ * class, and a bit set per config tracks which lists are non-empty so that the smallest size class
+ * large enough for a request is found with a couple of bit operations. Requests are satisfied from
+ * the size class containing the requested size if its most recently added
+ * {@link android.graphics.Bitmap} is large enough, and otherwise from the next non-empty size
+ * class, all of whose {@link android.graphics.Bitmap Bitmaps} are large enough. Only if neither
+ * has a suitable {@link android.graphics.Bitmap} are the rest of the
+ * {@link android.graphics.Bitmap Bitmaps} in the size class containing the requested size
+ * searched.
+ *
+ * <p>{@link #removeLast()} removes the least recently added {@link android.graphics.Bitmap} across
+ * all size classes.
+ *
+ * <p>Like the other strategies, this class isn't thread safe and relies on {@link LruBitmapPool}
+ * to synchronize access to it.
+ */
+@RequiresApi(Build.VERSION_CODES.KITKAT)
+final class SizeClassStrategy implements LruPoolStrategy {
+  @VisibleForTesting
+  static final int CLASSES_PER_DOUBLING = 4;
+  private static final int CLASS_BITS = 2;
+  // Covers every positive int size, see getSizeClass.
+  private static final int CLASS_COUNT = 128;
+  private static final int WORDS_PER_CONFIG = CLASS_COUNT / Long.SIZE;
+  private static final int MAX_SIZE_MULTIPLE = 8;
+
+  private static final int CONFIG_ARGB_8888 = 0;
+  // The value returned by Bitmaps with the hidden Bitmap config.
+  private static final int CONFIG_NULL = 1;
+  private static final int CONFIG_RGBA_F16 = 2;
+  private static final int CONFIG_RGB_565 = 3;
+  private static final int CONFIG_ARGB_4444 = 4;
+  private static final int CONFIG_ALPHA_8 = 5;
+  private static final int CONFIG_OTHER = 6;
+  private static final int CONFIG_COUNT = 7;
+
+  private static final int[] ARGB_8888_IN_CONFIGS =
+      new int[] { CONFIG_ARGB_8888, CONFIG_NULL, CONFIG_RGBA_F16 };
+  private static final int[] RGBA_F16_IN_CONFIGS = ARGB_8888_IN_CONFIGS;
+  // We probably could allow ARGB_4444 and RGB_565 to decode into each other, but ARGB_4444 is
+  // deprecated and we'd rather be safe.
+  private static final int[] RGB_565_IN_CONFIGS = new int[] { CONFIG_RGB_565 };
+  private static final int[] ARGB_4444_IN_CONFIGS = new int[] { CONFIG_ARGB_4444 };
+  private static final int[] ALPHA_8_IN_CONFIGS = new int[] { CONFIG_ALPHA_8 };
+  private static final int[] NULL_IN_CONFIGS = new int[] { CONFIG_NULL };
+  private static final int[] OTHER_IN_CONFIGS = new int[] { CONFIG_OTHER };
+
+  // Indexed by config * CLASS_COUNT + size class, each points to the most recently added entry.
+  private final Entry[] buckets = new Entry[CONFIG_COUNT * CLASS_COUNT];
+  // Indexed by config * WORDS_PER_CONFIG + size class / 64, a bit is set for each non-empty bucket.
+  private final long[] nonEmptyBuckets = new long[CONFIG_COUNT * WORDS_PER_CONFIG];
+  // The least and most recently added entries across all buckets.
+  private Entry leastRecent;
+  private Entry mostRecent;
+  // Removed entries, linked by nextInBucket, so that steady state puts don't allocate.
+  private Entry recycledEntries;
+  private int count;
+
+  @Override
+  public void put(Bitmap bitmap) {
+    int size = Util.getBitmapByteSize(bitmap);
+    int bucket = getConfigIndex(bitmap.getConfig()) * CLASS_COUNT + getSizeClass(size);
+
+    Entry entry = obtainEntry();
+    entry.bitmap = bitmap;
+    entry.size = size;
+    entry.bucket = bucket;
+
+    Entry head = buckets[bucket];
+    entry.nextInBucket = head;
+    if (head != null) {
+      head.previousInBucket = entry;
+    } else {
+      setNonEmpty(bucket);
+    }
+    buckets[bucket] = entry;
+
+    entry.lessRecent = mostRecent;
+    if (mostRecent != null) {
+      mostRecent.moreRecent = entry;
+    } else {
+      leastRecent = entry;
+    }
+    mostRecent = entry;
+    count++;
+  }
+
+  @Override
+  @Nullable
+  public Bitmap get(int width, int height, Bitmap.Config config) {
+    int size = Util.getBitmapByteSize(width, height, config);
+    Entry entry = findBestEntry(size, config);
+    if (entry == null) {
+      return null;
+    }
+    Bitmap result = entry.bitmap;
+    remove(entry);
+    result.reconfigure(width, height,
+        result.getConfig() != null ? result.getConfig() : Bitmap.Config.ARGB_8888);
+    return result;
+  }
+
+  @Nullable
+  private Entry findBestEntry(int size, Bitmap.Config config) {
+    int sizeClass = getSizeClass(size);
+    long maxSize = (long) size * MAX_SIZE_MULTIPLE;
+    int maxSizeClass = getSizeClass((int) Math.min(maxSize, Integer.MAX_VALUE));
+    int[] inConfigs = getInConfigs(config);
+    for (int inConfig : inConfigs) {
+      int configOffset = inConfig * CLASS_COUNT;
+      // The bucket containing the requested size may also contain smaller Bitmaps, but if the
+      // most recently added one fits, we can use it without searching.
+      Entry candidate = buckets[configOffset + sizeClass];
+      if (candidate != null && candidate.size >= size) {
+        return candidate;
+      }
+      // Every Bitmap in larger size classes fits.
+      int largerClass = nextNonEmptySizeClass(inConfig, sizeClass + 1);
+      if (largerClass != -1 && largerClass <= maxSizeClass) {
+        Entry larger = buckets[configOffset + largerClass];
+        if (larger.size <= maxSize) {
+          return larger;
+        }
+      }
+      // Misses are much more expensive than searching a single bucket.
+      while (candidate != null) {
+        if (candidate.size >= size) {
+          return candidate;
+        }
+        candidate = candidate.nextInBucket;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  @Nullable
+  public Bitmap removeLast() {
+    Entry entry = leastRecent;
+    if (entry == null) {
+      return null;
+    }
+    Bitmap result = entry.bitmap;
+    remove(entry);
+    return result;
+  }
+
+  private void remove(Entry entry) {
+    if (entry.previousInBucket != null) {
+      entry.previousInBucket.nextInBucket = entry.nextInBucket;
+    } else {
+      buckets[entry.bucket] = entry.nextInBucket;
+      if (entry.nextInBucket == null) {
+        clearNonEmpty(entry.bucket);
+      }
+    }
+    if (entry.nextInBucket != null) {
+      entry.nextInBucket.previousInBucket = entry.previousInBucket;
+    }
+
+    if (entry.lessRecent != null) {
+      entry.lessRecent.moreRecent = entry.moreRecent;
+    } else {
+      leastRecent = entry.moreRecent;
+    }
+    if (entry.moreRecent != null) {
+      entry.moreRecent.lessRecent = entry.lessRecent;
+    } else {
+      mostRecent = entry.lessRecent;
+    }
+    count--;
+
+    entry.bitmap = null;
+    entry.previousInBucket = null;
+    entry.lessRecent = null;
+    entry.moreRecent = null;
+    entry.nextInBucket = recycledEntries;
+    recycledEntries = entry;
+  }
+
+  private Entry obtainEntry() {
+    Entry result = recycledEntries;
+    if (result == null) {
+      return new Entry();
+    }
+    recycledEntries = result.nextInBucket;
+    result.nextInBucket = null;
+    return result;
+  }
+
+  private void setNonEmpty(int bucket) {
+    nonEmptyBuckets[bucket >>> 6] |= 1L << bucket;
+  }
+
+  private void clearNonEmpty(int bucket) {
+    nonEmptyBuckets[bucket >>> 6] &= ~(1L << bucket);
+  }
+
+  /**
+   * Returns the smallest size class at least as large as the given size class that has a non-empty
+   * bucket for the given config, or {@code -1} if there is none.
+   */
+  private int nextNonEmptySizeClass(int config, int fromSizeClass) {
+    int configWord = config * WORDS_PER_CONFIG;
+    for (int word = fromSizeClass >>> 6; word < WORDS_PER_CONFIG; word++) {
+      long bits = nonEmptyBuckets[configWord + word];
+      if (word == fromSizeClass >>> 6) {
+        // Shifts are mod 64 in Java, so this clears the bits below fromSizeClass.
+        bits &= -1L << fromSizeClass;
+      }
+      if (bits != 0) {
+        return word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the size class for the given size in bytes, rounding down.
+   *
+   * <p>Sizes less than {@link #CLASSES_PER_DOUBLING} each have their own size class. Larger sizes
+   * are divided into {@link #CLASSES_PER_DOUBLING} equal ranges per power of two.
+   */
+  @VisibleForTesting
+  static int getSizeClass(int size) {
+    if (size < CLASSES_PER_DOUBLING) {
+      return Math.max(0, size);
+    }
+    int log2 = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(size);
+    int subClass = (size >>> (log2 - CLASS_BITS)) & (CLASSES_PER_DOUBLING - 1);
+    return (log2 - CLASS_BITS + 1) * CLASSES_PER_DOUBLING + subClass;
+  }
+
+  /** Returns the smallest size in bytes in the given size class. */
+  @VisibleForTesting
+  static int getSizeClassLowerBound(int sizeClass) {
+    if (sizeClass < CLASSES_PER_DOUBLING) {
+      return sizeClass;
+    }
+    int log2 = sizeClass / CLASSES_PER_DOUBLING - 1 + CLASS_BITS;
+    int subClass = sizeClass & (CLASSES_PER_DOUBLING - 1);
+    return (CLASSES_PER_DOUBLING + subClass) << (log2 - CLASS_BITS);
+  }
+
+  private static int getConfigIndex(@Nullable Bitmap.Config config) {
+    if (config == null) {
+      return CONFIG_NULL;
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      if (Bitmap.Config.RGBA_F16.equals(config)) { // NOPMD - Avoid short circuiting sdk checks.
+        return CONFIG_RGBA_F16;
+      }
+    }
+    switch (config) {
+      case ARGB_8888:
+        return CONFIG_ARGB_8888;
+      case RGB_565:
+        return CONFIG_RGB_565;
+      case ARGB_4444:
+        return CONFIG_ARGB_4444;
+      case ALPHA_8:
+        return CONFIG_ALPHA_8;
+      default:
+        return CONFIG_OTHER;
+    }
+  }
+
+  private static int[] getInConfigs(@Nullable Bitmap.Config requested) {
+    switch (getConfigIndex(requested)) {
+      case CONFIG_ARGB_8888:
+        return ARGB_8888_IN_CONFIGS;
+      case CONFIG_RGBA_F16:
+        return RGBA_F16_IN_CONFIGS;
+      case CONFIG_RGB_565:
+        return RGB_565_IN_CONFIGS;
+      case CONFIG_ARGB_4444:
+        return ARGB_4444_IN_CONFIGS;
+      case CONFIG_ALPHA_8:
+        return ALPHA_8_IN_CONFIGS;
+      case CONFIG_NULL:
+        return NULL_IN_CONFIGS;
+      default:
+        return OTHER_IN_CONFIGS;
+    }
+  }
+
+  @Override
+  public String logBitmap(Bitmap bitmap) {
+    int size = Util.getBitmapByteSize(bitmap);
+    return getBitmapString(size, bitmap.getConfig());
+  }
+
+  @Override
+  public String logBitmap(int width, int height, Bitmap.Config config) {
+    int size = Util.getBitmapByteSize(width, height, config);
+    return getBitmapString(size, config);
+  }
+
+  @Override
+  public int getSize(Bitmap bitmap) {
+    return Util.getBitmapByteSize(bitmap);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder()
+        .append("SizeClassStrategy{count=")
+        .append(count)
+        .append(", buckets=(");
+    boolean isFirst = true;
+    for (int bucket = 0; bucket < buckets.length; bucket++) {
+      int bucketCount = 0;
+      for (Entry entry = buckets[bucket]; entry != null; entry = entry.nextInBucket) {
+        bucketCount++;
+      }
+      if (bucketCount > 0) {
+        if (!isFirst) {
+          sb.append(", ");
+        }
+        isFirst = false;
+        sb.append('[').append(getSizeClassLowerBound(bucket % CLASS_COUNT)).append("+](")
+            .append(bucket / CLASS_COUNT).append(")=").append(bucketCount);
+      }
+    }
+    return sb.append(")}").toString();
+  }
+
+  private static String getBitmapString(int size, @Nullable Bitmap.Config config) {
+    return "[" + size + "](" + config + ")";
+  }
+
+  private static final class Entry {
+    @Synthetic Bitmap bitmap;
+    @Synthetic int size;
+    @Synthetic int bucket;
+    @Synthetic Entry previousInBucket;
+    @Synthetic Entry nextInBucket;
+    @Synthetic Entry lessRecent;
+    @Synthetic Entry moreRecent;
+
+    @Synthetic
+    Entry() { }
+  }
+}
@@ -0,0 +1,28 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A memory cache or pool that reports how effective it is and whose maximum size can be changed
+ * at runtime, allowing a {@link MemoryBudgetController} to rebalance memory between caches.
+ */
+public interface AdaptiveCache {
+
+  /**
+   * Returns the hit, miss and eviction counts since the cache was created along with its current
+   * and maximum sizes in bytes.
+   */
+  @NonNull
+  MemoryCacheStats getStats();
+
+  /**
+   * Multiplies the initial size of the cache by the given multiplier to dynamically and
+   * synchronously allow users to adjust the size of the cache at runtime.
+   *
+   * <p>If the current total size of the cache is larger than the max size after the given
+   * multiplier is applied, items will be evicted until the cache is smaller than the new max size.
+   *
+   * @param multiplier A size multiplier {@code >= 0}.
+   */
+  void setSizeMultiplier(float multiplier);
+}
@@ -0,0 +1,47 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link DiskCache} that can return cached entries as {@link ByteBuffer}s without first opening
+ * and reading a {@link java.io.File}.
+ *
+ * <p>When the disk cache implements this interface, Glide will read cached data as
+ * {@link ByteBuffer}s whenever the requested resource can be decoded from a {@link ByteBuffer}.
+ */
+public interface ByteBufferDiskCache extends DiskCache {
+
+  /**
+   * A {@link DiskCache.Writer} that can also write its data directly into a {@link ByteBuffer}, so
+   * that caches that store entries in memory mapped files don't need a temporary {@link
+   * java.io.File}.
+   */
+  interface BufferWriter extends DiskCache.Writer {
+    /**
+     * Returns the number of bytes {@link #write(ByteBuffer)} will write, or a negative number if
+     * the length isn't known in advance.
+     */
+    int getLength();
+
+    /**
+     * Writes exactly {@link #getLength()} bytes into the given buffer, starting at its current
+     * position, and returns true if the write was successful and should be committed.
+     *
+     * @param target The buffer to write to. Its remaining space is exactly {@link #getLength()}.
+     */
+    boolean write(@NonNull ByteBuffer target);
+  }
+
+  /**
+   * Returns a read only {@link ByteBuffer} containing the data for the given key, or {@code null}
+   * if no data is cached for the key.
+   *
+   * <p>The returned buffer is independent of the cache and remains valid even if the entry is
+   * later removed from the cache.
+   */
+  @Nullable
+  ByteBuffer getBuffer(@NonNull Key key);
+}
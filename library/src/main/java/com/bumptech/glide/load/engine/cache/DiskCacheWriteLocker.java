@@ -2,10 +2,11 @@ package com.bumptech.glide.load.engine.cache;
 
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
-import java.util.ArrayDeque;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -16,29 +17,46 @@ import java.util.concurrent.locks.ReentrantLock;
  * <p> This class will be accessed by multiple threads in a thread pool and ensures that the
  *  number of threads interested in each lock is updated atomically so that when the count reaches
  *  0, the lock can safely be removed from the map. </p>
+ *
+ * <p>The number of interested threads is guarded by each individual lock rather than by this
+ * object, so threads acquiring locks for different keys don't contend with each other. Because
+ * locks are pooled and reused for other keys, a thread that finds a lock in the map must re-check
+ * that the lock is still mapped to its key once it holds the lock's monitor.
  */
 final class DiskCacheWriteLocker {
-  private final Map<String, WriteLock> locks = new HashMap<>();
+  private final ConcurrentMap<String, WriteLock> locks = new ConcurrentHashMap<>();
   private final WriteLockPool writeLockPool = new WriteLockPool();
 
   void acquire(String safeKey) {
     WriteLock writeLock;
-    synchronized (this) {
+    while (true) {
       writeLock = locks.get(safeKey);
       if (writeLock == null) {
-        writeLock = writeLockPool.obtain();
-        locks.put(safeKey, writeLock);
+        WriteLock newLock = writeLockPool.obtain();
+        writeLock = locks.putIfAbsent(safeKey, newLock);
+        if (writeLock == null) {
+          writeLock = newLock;
+        } else {
+          writeLockPool.offer(newLock);
+        }
+      }
+      synchronized (writeLock) {
+        // The lock may have been released and removed, or even reused for a different key, after
+        // we read it from the map.
+        if (locks.get(safeKey) == writeLock) {
+          writeLock.interestedThreads++;
+          break;
+        }
       }
-      writeLock.interestedThreads++;
     }
 
     writeLock.lock.lock();
   }
 
   void release(String safeKey) {
-    WriteLock writeLock;
-    synchronized (this) {
-      writeLock = Preconditions.checkNotNull(locks.get(safeKey));
+    WriteLock writeLock = Preconditions.checkNotNull(locks.get(safeKey));
+    boolean isRemoved = false;
+    synchronized (writeLock) {
       if (writeLock.interestedThreads < 1) {
         throw new IllegalStateException("Cannot release a lock that is not held"
             + ", safeKey: " + safeKey
@@ -47,22 +65,26 @@ final class DiskCacheWriteLocker {
 
       writeLock.interestedThreads--;
       if (writeLock.interestedThreads == 0) {
-        WriteLock removed = locks.remove(safeKey);
-        if (!removed.equals(writeLock)) {
+        if (!locks.remove(safeKey, writeLock)) {
           throw new IllegalStateException("Removed the wrong lock"
               + ", expected to remove: " + writeLock
-              + ", but actually removed: " + removed
+              + ", but actually removed: " + locks.get(safeKey)
               + ", safeKey: " + safeKey);
         }
-        writeLockPool.offer(removed);
+        isRemoved = true;
       }
     }
 
     writeLock.lock.unlock();
+    // Only pool the lock once it's unlocked so that it's never handed out while still held.
+    if (isRemoved) {
+      writeLockPool.offer(writeLock);
+    }
   }
 
   private static class WriteLock  {
     final Lock lock = new ReentrantLock();
+    // Guarded by this.
     int interestedThreads;
 
     @Synthetic
@@ -71,27 +93,28 @@ final class DiskCacheWriteLocker {
 
   private static class WriteLockPool {
     private static final int MAX_POOL_SIZE = 10;
-    private final Queue<WriteLock> pool = new ArrayDeque<>();
+    private final Queue<WriteLock> pool = new ConcurrentLinkedQueue<>();
+    // Tracked separately because ConcurrentLinkedQueue#size() is O(n).
+    private final AtomicInteger size = new AtomicInteger();
 
     @Synthetic
     WriteLockPool() { }
 
     WriteLock obtain() {
-      WriteLock result;
-      synchronized (pool) {
-        result = pool.poll();
-      }
+      WriteLock result = pool.poll();
       if (result == null) {
         result = new WriteLock();
+      } else {
+        size.decrementAndGet();
       }
       return result;
     }
 
     void offer(WriteLock writeLock) {
-      synchronized (pool) {
-        if (pool.size() < MAX_POOL_SIZE) {
-          pool.offer(writeLock);
-        }
+      // The size may briefly exceed the limit when called concurrently, which is harmless.
+      if (size.get() < MAX_POOL_SIZE) {
+        size.incrementAndGet();
+        pool.offer(writeLock);
       }
     }
   }
@@ -17,7 +17,7 @@ import java.io.IOException;
  *
  * @see #get(java.io.File, long)
  */
-public class DiskLruCacheWrapper implements DiskCache {
+public class DiskLruCacheWrapper implements QueryableDiskCache {
   private static final String TAG = "DiskLruCacheWrapper";
 
   private static final int APP_VERSION = 1;
@@ -106,6 +106,20 @@ public class DiskLruCacheWrapper implements DiskCache {
     return result;
   }
 
+  @Override
+  public boolean contains(Key key) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    try {
+      // DiskLruCache doesn't open the entry's files until they're read, so this is cheap.
+      return getDiskCache().get(safeKey) != null;
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to check disk cache", e);
+      }
+      return false;
+    }
+  }
+
   @Override
   public void put(Key key, Writer writer) {
     // We want to make sure that puts block so that data is available when put completes. We may
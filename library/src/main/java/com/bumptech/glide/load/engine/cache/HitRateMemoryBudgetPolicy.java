@@ -0,0 +1,104 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.util.Preconditions;
+
+/**
+ * A {@link MemoryBudgetPolicy} that gradually moves memory from caches with low hit rates or spare
+ * capacity to the cache that is evicting the most useful items.
+ *
+ * <p>Each time {@link #rebalance(Budget, Budget, MemoryCacheStats, MemoryCacheStats,
+ * MemoryCacheStats)} is called, the cache with the highest hit rate among those that both missed
+ * and had to evict items receives a fixed fraction of the total budget. That memory is taken from
+ * whichever other cache either didn't need to evict anything or had a lower hit rate, preferring
+ * the cache with the lowest hit rate. For example, if few {@link android.graphics.Bitmap}s are reused from the
+ * {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool} while the {@link MemoryCache}
+ * is evicting resources that are later requested again, memory is moved from the pool to the
+ * cache. No cache is ever reduced below a fixed fraction of its initial size.
+ */
+public final class HitRateMemoryBudgetPolicy implements MemoryBudgetPolicy {
+  private static final float DEFAULT_STEP_FRACTION = 0.05f;
+  private static final float DEFAULT_MIN_SIZE_FRACTION = 0.5f;
+
+  private final float stepFraction;
+  private final float minSizeFraction;
+
+  public HitRateMemoryBudgetPolicy() {
+    this(DEFAULT_STEP_FRACTION, DEFAULT_MIN_SIZE_FRACTION);
+  }
+
+  /**
+   * Constructor for a policy with custom tuning parameters.
+   *
+   * @param stepFraction The fraction of the total budget to move each time the budget is
+   *                     rebalanced.
+   * @param minSizeFraction The fraction of its initial size below which a cache will never be
+   *                        shrunk.
+   */
+  public HitRateMemoryBudgetPolicy(float stepFraction, float minSizeFraction) {
+    Preconditions.checkArgument(
+        stepFraction > 0 && stepFraction <= 1, "stepFraction must be in (0, 1]");
+    Preconditions.checkArgument(
+        minSizeFraction >= 0 && minSizeFraction <= 1, "minSizeFraction must be in [0, 1]");
+    this.stepFraction = stepFraction;
+    this.minSizeFraction = minSizeFraction;
+  }
+
+  @NonNull
+  @Override
+  public Budget rebalance(
+      @NonNull Budget initial,
+      @NonNull Budget current,
+      @NonNull MemoryCacheStats memoryCacheStats,
+      @NonNull MemoryCacheStats bitmapPoolStats,
+      @NonNull MemoryCacheStats arrayPoolStats) {
+    MemoryCacheStats[] stats = {memoryCacheStats, bitmapPoolStats, arrayPoolStats};
+    long[] initialSizes = toArray(initial);
+    long[] sizes = toArray(current);
+
+    int recipient = -1;
+    for (int i = 0; i < stats.length; i++) {
+      if (stats[i].getEvictionCount() > 0 && stats[i].getMissCount() > 0
+          && (recipient == -1 || stats[i].getHitRate() > stats[recipient].getHitRate())) {
+        recipient = i;
+      }
+    }
+    if (recipient == -1) {
+      return current;
+    }
+
+    float recipientHitRate = stats[recipient].getHitRate();
+    int donor = -1;
+    for (int i = 0; i < stats.length; i++) {
+      if (i == recipient || sizes[i] <= getMinSize(initialSizes[i])) {
+        continue;
+      }
+      boolean hasSpareCapacity = stats[i].getEvictionCount() == 0;
+      boolean isLessEffective = stats[i].getHitRate() < recipientHitRate;
+      if ((hasSpareCapacity || isLessEffective)
+          && (donor == -1 || stats[i].getHitRate() < stats[donor].getHitRate())) {
+        donor = i;
+      }
+    }
+    if (donor == -1) {
+      return current;
+    }
+
+    long step = (long) (initial.getTotalSize() * stepFraction);
+    long available = sizes[donor] - getMinSize(initialSizes[donor]);
+    long moved = Math.min(step, available);
+    sizes[donor] -= moved;
+    sizes[recipient] += moved;
+    return new Budget(sizes[0], sizes[1], sizes[2]);
+  }
+
+  private long getMinSize(long initialSize) {
+    return (long) (initialSize * minSizeFraction);
+  }
+
+  private static long[] toArray(Budget budget) {
+    return new long[] {
+        budget.getMemoryCacheSize(), budget.getBitmapPoolSize(), budget.getArrayPoolSize()
+    };
+  }
+}
@@ -10,8 +10,12 @@ import com.bumptech.glide.util.LruCache;
 /**
  * An LRU in memory cache for {@link com.bumptech.glide.load.engine.Resource}s.
  */
-public class LruResourceCache extends LruCache<Key, Resource<?>> implements MemoryCache {
+public class LruResourceCache extends LruCache<Key, Resource<?>>
+    implements MemoryCache, AdaptiveCache {
   private ResourceRemovedListener listener;
+  private long hits;
+  private long misses;
+  private long evictions;
 
   /**
    * Constructor for LruResourceCache.
@@ -27,8 +31,33 @@ public class LruResourceCache extends LruCache<Key, Resource<?>> implements Memo
     this.listener = listener;
   }
 
+  /**
+   * Removes and returns the resource for the given key like {@link #remove(Key)}, and counts the
+   * lookup as a hit or a miss in {@link #getStats()}.
+   *
+   * <p>Only loads looking for a resource should use this method, so that other removes, like
+   * moving a resource back out of the cache to re-put it, don't skew the hit rate.
+   */
+  @Nullable
+  public synchronized Resource<?> removeForLoad(@NonNull Key key) {
+    Resource<?> result = remove(key);
+    if (result != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return result;
+  }
+
+  @NonNull
+  @Override
+  public synchronized MemoryCacheStats getStats() {
+    return new MemoryCacheStats(hits, misses, evictions, getCurrentSize(), getMaxSize());
+  }
+
   @Override
   protected void onItemEvicted(@NonNull Key key, @Nullable Resource<?> item) {
+    evictions++;
     if (listener != null && item != null) {
       listener.onResourceRemoved(item);
     }
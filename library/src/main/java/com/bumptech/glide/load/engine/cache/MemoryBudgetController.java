@@ -0,0 +1,201 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.annotation.SuppressLint;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.load.engine.cache.MemoryBudgetPolicy.Budget;
+import com.bumptech.glide.util.Util;
+
+/**
+ * Periodically redistributes memory between the {@link MemoryCache}, the
+ * {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool} and the
+ * {@link com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool} using a
+ * {@link MemoryBudgetPolicy}, without exceeding the total size the caches were created with.
+ *
+ * <p>The total budget is also temporarily reduced when the system reports memory pressure via
+ * {@link #onTrimMemory(int)} and restored gradually each time the budget is rebalanced, rather
+ * than only evicting the contents of each cache.
+ *
+ * <p>All methods other than {@link #start()} and {@link #stop()} must be called on the main
+ * thread.
+ */
+public final class MemoryBudgetController implements Runnable {
+  private static final String TAG = "MemoryBudget";
+  private static final long DEFAULT_REBALANCE_INTERVAL_MS = 10 * 1000;
+  @VisibleForTesting
+  static final float MIN_PRESSURE_MULTIPLIER = 0.25f;
+  @VisibleForTesting
+  static final float PRESSURE_RECOVERY_STEP = 0.25f;
+
+  private final MemoryBudgetPolicy policy;
+  private final AdaptiveCache memoryCache;
+  private final AdaptiveCache bitmapPool;
+  private final AdaptiveCache arrayPool;
+  private final Handler handler;
+  private final long rebalanceIntervalMs;
+  private final Budget initialBudget;
+
+  private Budget budget;
+  private MemoryCacheStats lastMemoryCacheStats;
+  private MemoryCacheStats lastBitmapPoolStats;
+  private MemoryCacheStats lastArrayPoolStats;
+  private float sizeMultiplier = 1f;
+  private float pressureMultiplier = 1f;
+  private volatile boolean isStarted;
+
+  public MemoryBudgetController(
+      @NonNull MemoryBudgetPolicy policy,
+      @NonNull AdaptiveCache memoryCache,
+      @NonNull AdaptiveCache bitmapPool,
+      @NonNull AdaptiveCache arrayPool) {
+    this(
+        policy,
+        memoryCache,
+        bitmapPool,
+        arrayPool,
+        new Handler(Looper.getMainLooper()),
+        DEFAULT_REBALANCE_INTERVAL_MS);
+  }
+
+  @VisibleForTesting
+  MemoryBudgetController(
+      MemoryBudgetPolicy policy,
+      AdaptiveCache memoryCache,
+      AdaptiveCache bitmapPool,
+      AdaptiveCache arrayPool,
+      Handler handler,
+      long rebalanceIntervalMs) {
+    this.policy = policy;
+    this.memoryCache = memoryCache;
+    this.bitmapPool = bitmapPool;
+    this.arrayPool = arrayPool;
+    this.handler = handler;
+    this.rebalanceIntervalMs = rebalanceIntervalMs;
+
+    lastMemoryCacheStats = memoryCache.getStats();
+    lastBitmapPoolStats = bitmapPool.getStats();
+    lastArrayPoolStats = arrayPool.getStats();
+    initialBudget = new Budget(
+        lastMemoryCacheStats.getMaxSize(),
+        lastBitmapPoolStats.getMaxSize(),
+        lastArrayPoolStats.getMaxSize());
+    budget = initialBudget;
+  }
+
+  /** Starts periodically rebalancing the budget. */
+  public void start() {
+    if (!isStarted) {
+      isStarted = true;
+      handler.postDelayed(this, rebalanceIntervalMs);
+    }
+  }
+
+  /** Stops rebalancing the budget. */
+  public void stop() {
+    isStarted = false;
+    handler.removeCallbacks(this);
+  }
+
+  @Override
+  public void run() {
+    if (!isStarted) {
+      return;
+    }
+    rebalance();
+    handler.postDelayed(this, rebalanceIntervalMs);
+  }
+
+  /**
+   * Sets a multiplier, typically from a {@link com.bumptech.glide.MemoryCategory}, applied to the
+   * sizes of every cache in addition to the current budget.
+   */
+  public void setSizeMultiplier(float multiplier) {
+    Util.assertMainThread();
+    sizeMultiplier = multiplier;
+    applyBudget();
+  }
+
+  /**
+   * Reduces the total budget when the system is running low on memory or the app's UI is hidden.
+   *
+   * @see android.content.ComponentCallbacks2#onTrimMemory(int)
+   */
+  @SuppressLint("InlinedApi")
+  public void onTrimMemory(int level) {
+    Util.assertMainThread();
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+      pressureMultiplier = Math.max(MIN_PRESSURE_MULTIPLIER, pressureMultiplier / 2);
+      applyBudget();
+    }
+  }
+
+  @NonNull
+  @VisibleForTesting
+  Budget getBudget() {
+    return budget;
+  }
+
+  @VisibleForTesting
+  void rebalance() {
+    MemoryCacheStats memoryCacheStats = memoryCache.getStats();
+    MemoryCacheStats bitmapPoolStats = bitmapPool.getStats();
+    MemoryCacheStats arrayPoolStats = arrayPool.getStats();
+    Budget requested = policy.rebalance(
+        initialBudget,
+        budget,
+        memoryCacheStats.since(lastMemoryCacheStats),
+        bitmapPoolStats.since(lastBitmapPoolStats),
+        arrayPoolStats.since(lastArrayPoolStats));
+    lastMemoryCacheStats = memoryCacheStats;
+    lastBitmapPoolStats = bitmapPoolStats;
+    lastArrayPoolStats = arrayPoolStats;
+
+    Budget previous = budget;
+    float previousPressureMultiplier = pressureMultiplier;
+    budget = clamp(requested);
+    pressureMultiplier = Math.min(1f, pressureMultiplier + PRESSURE_RECOVERY_STEP);
+    if (!budget.equals(previous) || pressureMultiplier != previousPressureMultiplier) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Rebalanced memory budget"
+            + ", budget: " + budget
+            + ", pressure multiplier: " + pressureMultiplier
+            + ", memory cache: " + memoryCacheStats
+            + ", bitmap pool: " + bitmapPoolStats
+            + ", array pool: " + arrayPoolStats);
+      }
+      applyBudget();
+    }
+  }
+
+  private Budget clamp(Budget requested) {
+    long memoryCacheSize = Math.max(0, requested.getMemoryCacheSize());
+    long bitmapPoolSize = Math.max(0, requested.getBitmapPoolSize());
+    long arrayPoolSize = Math.max(0, requested.getArrayPoolSize());
+    long total = memoryCacheSize + bitmapPoolSize + arrayPoolSize;
+    long maxTotal = initialBudget.getTotalSize();
+    if (total > maxTotal) {
+      double scale = maxTotal / (double) total;
+      memoryCacheSize = (long) (memoryCacheSize * scale);
+      bitmapPoolSize = (long) (bitmapPoolSize * scale);
+      arrayPoolSize = (long) (arrayPoolSize * scale);
+    }
+    return new Budget(memoryCacheSize, bitmapPoolSize, arrayPoolSize);
+  }
+
+  private void applyBudget() {
+    float multiplier = sizeMultiplier * pressureMultiplier;
+    memoryCache.setSizeMultiplier(
+        multiplier * getRatio(budget.getMemoryCacheSize(), initialBudget.getMemoryCacheSize()));
+    bitmapPool.setSizeMultiplier(
+        multiplier * getRatio(budget.getBitmapPoolSize(), initialBudget.getBitmapPoolSize()));
+    arrayPool.setSizeMultiplier(
+        multiplier * getRatio(budget.getArrayPoolSize(), initialBudget.getArrayPoolSize()));
+  }
+
+  private static float getRatio(long size, long initialSize) {
+    return initialSize == 0 ? 0f : size / (float) initialSize;
+  }
+}
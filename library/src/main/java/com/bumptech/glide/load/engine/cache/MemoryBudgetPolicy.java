@@ -0,0 +1,93 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Decides how Glide's total memory budget is split between the {@link MemoryCache}, the
+ * {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool} and the
+ * {@link com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool} based on how well each of them
+ * has performed recently.
+ *
+ * @see com.bumptech.glide.GlideBuilder#setMemoryBudgetPolicy(MemoryBudgetPolicy)
+ */
+public interface MemoryBudgetPolicy {
+
+  /**
+   * Returns the sizes in bytes each cache should have until the next time this method is called.
+   *
+   * <p>Called periodically on the main thread. The counts in the given stats only include
+   * requests made since the previous call. If the total size of the returned {@link Budget} is
+   * larger than the total size of {@code initial}, each size will be scaled down proportionally.
+   *
+   * @param initial The sizes each cache was created with.
+   * @param current The sizes returned by the previous call, or {@code initial}.
+   */
+  @NonNull
+  Budget rebalance(
+      @NonNull Budget initial,
+      @NonNull Budget current,
+      @NonNull MemoryCacheStats memoryCacheStats,
+      @NonNull MemoryCacheStats bitmapPoolStats,
+      @NonNull MemoryCacheStats arrayPoolStats);
+
+  /**
+   * The sizes in bytes of the {@link MemoryCache}, the
+   * {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool} and the
+   * {@link com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool}.
+   */
+  final class Budget {
+    private final long memoryCacheSize;
+    private final long bitmapPoolSize;
+    private final long arrayPoolSize;
+
+    public Budget(long memoryCacheSize, long bitmapPoolSize, long arrayPoolSize) {
+      this.memoryCacheSize = memoryCacheSize;
+      this.bitmapPoolSize = bitmapPoolSize;
+      this.arrayPoolSize = arrayPoolSize;
+    }
+
+    public long getMemoryCacheSize() {
+      return memoryCacheSize;
+    }
+
+    public long getBitmapPoolSize() {
+      return bitmapPoolSize;
+    }
+
+    public long getArrayPoolSize() {
+      return arrayPoolSize;
+    }
+
+    public long getTotalSize() {
+      return memoryCacheSize + bitmapPoolSize + arrayPoolSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof Budget) {
+        Budget other = (Budget) o;
+        return memoryCacheSize == other.memoryCacheSize
+            && bitmapPoolSize == other.bitmapPoolSize
+            && arrayPoolSize == other.arrayPoolSize;
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = (int) (memoryCacheSize ^ (memoryCacheSize >>> 32));
+      result = 31 * result + (int) (bitmapPoolSize ^ (bitmapPoolSize >>> 32));
+      result = 31 * result + (int) (arrayPoolSize ^ (arrayPoolSize >>> 32));
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return "Budget{"
+          + "memoryCacheSize=" + memoryCacheSize
+          + ", bitmapPoolSize=" + bitmapPoolSize
+          + ", arrayPoolSize=" + arrayPoolSize
+          + '}';
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+
+/**
+ * An immutable snapshot of the hit, miss and eviction counts and the current and maximum sizes in
+ * bytes of an {@link AdaptiveCache}.
+ */
+public final class MemoryCacheStats {
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+  private final long currentSize;
+  private final long maxSize;
+
+  public MemoryCacheStats(
+      long hitCount, long missCount, long evictionCount, long currentSize, long maxSize) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.currentSize = currentSize;
+    this.maxSize = maxSize;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public long getRequestCount() {
+    return hitCount + missCount;
+  }
+
+  /**
+   * Returns the fraction of requests that were hits, or {@code 0} if there were no requests.
+   */
+  public float getHitRate() {
+    long requestCount = getRequestCount();
+    return requestCount == 0 ? 0f : hitCount / (float) requestCount;
+  }
+
+  public long getCurrentSize() {
+    return currentSize;
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the counts accumulated between the given earlier snapshot and this one, along with the
+   * sizes from this snapshot.
+   */
+  @NonNull
+  public MemoryCacheStats since(@NonNull MemoryCacheStats previous) {
+    return new MemoryCacheStats(
+        hitCount - previous.hitCount,
+        missCount - previous.missCount,
+        evictionCount - previous.evictionCount,
+        currentSize,
+        maxSize);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof MemoryCacheStats) {
+      MemoryCacheStats other = (MemoryCacheStats) o;
+      return hitCount == other.hitCount
+          && missCount == other.missCount
+          && evictionCount == other.evictionCount
+          && currentSize == other.currentSize
+          && maxSize == other.maxSize;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = (int) (hitCount ^ (hitCount >>> 32));
+    result = 31 * result + (int) (missCount ^ (missCount >>> 32));
+    result = 31 * result + (int) (evictionCount ^ (evictionCount >>> 32));
+    result = 31 * result + (int) (currentSize ^ (currentSize >>> 32));
+    result = 31 * result + (int) (maxSize ^ (maxSize >>> 32));
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "MemoryCacheStats{"
+        + "hitCount=" + hitCount
+        + ", missCount=" + missCount
+        + ", evictionCount=" + evictionCount
+        + ", currentSize=" + currentSize
+        + ", maxSize=" + maxSize
+        + '}';
+  }
+}
@@ -0,0 +1,22 @@
+package com.bumptech.glide.load.engine.cache;
+
+import com.bumptech.glide.load.Key;
+
+/**
+ * A {@link DiskCache} that can check for an entry without opening or copying its data.
+ *
+ * <p>Callers check for this interface and fall back to {@link DiskCache#get(Key)} for caches that
+ * don't implement it.
+ */
+public interface QueryableDiskCache extends DiskCache {
+
+  /**
+   * Returns {@code true} if the cache currently contains a value for the given key.
+   *
+   * <p>Unlike {@link #get(Key)}, this method never copies or opens the cached data, so it's
+   * suitable for checking whether data needs to be written without reading it.
+   *
+   * @param key The key in the cache.
+   */
+  boolean contains(Key key);
+}
@@ -11,15 +11,25 @@ import com.bumptech.glide.util.pool.FactoryPools;
 import com.bumptech.glide.util.pool.StateVerifier;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A class that generates and caches safe and unique string file names from {@link
  * com.bumptech.glide.load.Key}s.
+ *
+ * <p>Keys are requested concurrently by every thread that reads from or writes to the disk cache,
+ * so generated names are cached in a number of independently locked LRU caches chosen by the
+ * hash code of each key rather than in a single cache.
  */
 // Public API.
 @SuppressWarnings("WeakerAccess")
 public class SafeKeyGenerator {
-  private final LruCache<Key, String> loadIdToSafeHash = new LruCache<>(1000);
+  private static final int MAX_SIZE = 1000;
+  // Must be a power of two.
+  private static final int STRIPE_COUNT = 8;
+
+  private final List<LruCache<Key, String>> loadIdToSafeHash = new ArrayList<>(STRIPE_COUNT);
   private final Pools.Pool<PoolableDigestContainer> digestPool = FactoryPools.threadSafe(10,
       new FactoryPools.Factory<PoolableDigestContainer>() {
         @Override
@@ -32,20 +42,31 @@ public class SafeKeyGenerator {
         }
       });
 
-  public String getSafeKey(Key key) {
-    String safeKey;
-    synchronized (loadIdToSafeHash) {
-      safeKey = loadIdToSafeHash.get(key);
+  public SafeKeyGenerator() {
+    for (int i = 0; i < STRIPE_COUNT; i++) {
+      loadIdToSafeHash.add(new LruCache<Key, String>(MAX_SIZE / STRIPE_COUNT));
     }
+  }
+
+  public String getSafeKey(Key key) {
+    LruCache<Key, String> stripe = getStripe(key);
+    String safeKey = stripe.get(key);
     if (safeKey == null) {
+      // Digests are calculated outside of the stripe's lock, so two threads may calculate the same
+      // digest, but the result is always the same.
       safeKey = calculateHexStringDigest(key);
-    }
-    synchronized (loadIdToSafeHash) {
-      loadIdToSafeHash.put(key, safeKey);
+      stripe.put(key, safeKey);
     }
     return safeKey;
   }
 
+  private LruCache<Key, String> getStripe(Key key) {
+    int hash = key.hashCode();
+    // Spread the high bits, as in HashMap, so that keys with poor hash codes still use all stripes.
+    hash ^= (hash >>> 16);
+    return loadIdToSafeHash.get(hash & (STRIPE_COUNT - 1));
+  }
+
   private String calculateHexStringDigest(Key key) {
     PoolableDigestContainer container = Preconditions.checkNotNull(digestPool.acquire());
     try {
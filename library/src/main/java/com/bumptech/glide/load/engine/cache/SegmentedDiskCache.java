@@ -0,0 +1,1027 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.ByteBufferUtil;
+import com.bumptech.glide.util.Synthetic;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link DiskCache} that packs entries into a small number of large, memory mapped, append only
+ * segment files rather than storing each entry in its own file.
+ *
+ * <p>An in memory index maps the safe key of each entry to the segment and offset of its data, so
+ * reads don't need to open, read and close a file per entry. Entries can be read via
+ * {@link #getBuffer(Key)} as {@link ByteBuffer}s that share memory with the mapped segment.
+ * {@link #get(Key)} is supported for callers that require {@link File}s, but copies the entry into
+ * a separate file the first time it's called for each entry. Those copies count towards the
+ * cache's maximum size and are removed, least recently used first, before any entries are.
+ *
+ * <p>Writes reserve space at the end of the newest segment and then copy their data into it
+ * without holding any lock, so reads and other writes aren't blocked while data is copied.
+ * {@link ByteBufferDiskCache.BufferWriter}s are written directly into the segment. Other
+ * {@link DiskCache.Writer}s can only write to {@link File}s, so their data is first written to a
+ * temporary file. When a segment is full, it's flushed to disk and a new segment is started.
+ * Deletes append a tombstone record.
+ *
+ * <p>Segments are evicted oldest first once the cache exceeds its maximum size, starting a new
+ * segment first if necessary. Entries in an evicted segment that have been read since the segment
+ * was filled, followed by the remaining most recently read entries that fit, are copied forward
+ * into the newest segment rather than dropped, which approximates least recently used eviction.
+ * Segments that contain mostly deleted or overwritten entries are compacted in the same way.
+ * Eviction and compaction are performed one entry at a time on a background thread.
+ *
+ * <p>There must be no more than one active instance for a given directory at a time.
+ */
+public final class SegmentedDiskCache implements ByteBufferDiskCache, QueryableDiskCache {
+  private static final String TAG = "SegmentedDiskCache";
+  @VisibleForTesting
+  static final String SEGMENT_PREFIX = "segment-";
+  private static final String TEMP_DIRECTORY = "tmp";
+  private static final String FILES_DIRECTORY = "files";
+  private static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+  private static final long COMPACTION_KEEP_ALIVE_TIME_MS = 1000;
+  private static final int BUFFER_SIZE = 8 * 1024;
+  // Segments whose live entries use less than this fraction of their size are compacted.
+  private static final float MIN_LIVE_RATIO = 0.5f;
+
+  // Each record is:
+  // magic (4 bytes), key length (2 bytes), data length (4 bytes), crc (4 bytes), key, data.
+  // The magic is written last, so a record with a valid magic has been completely written.
+  private static final int RECORD_MAGIC = 0x474c5331;
+  private static final int KEY_LENGTH_OFFSET = 4;
+  private static final int DATA_LENGTH_OFFSET = 6;
+  private static final int CRC_OFFSET = 10;
+  private static final int HEADER_SIZE = 14;
+  private static final int TOMBSTONE_LENGTH = -1;
+  private static final int MAX_DATA_LENGTH = Integer.MAX_VALUE - HEADER_SIZE - Short.MAX_VALUE;
+  // Space reserved for a write that failed is kept as a record whose key is filled with this
+  // character, which never appears in safe keys, so that later records can still be read.
+  private static final byte PADDING_KEY_BYTE = '.';
+  private static final Comparator<Map.Entry<String, Entry>> MOST_RECENTLY_READ_FIRST =
+      new Comparator<Map.Entry<String, Entry>>() {
+        @Override
+        public int compare(Map.Entry<String, Entry> lhs, Map.Entry<String, Entry> rhs) {
+          long lhsSequence = lhs.getValue().accessSequence;
+          long rhsSequence = rhs.getValue().accessSequence;
+          return rhsSequence < lhsSequence ? -1 : (rhsSequence == lhsSequence ? 0 : 1);
+        }
+      };
+
+  private final SafeKeyGenerator safeKeyGenerator = new SafeKeyGenerator();
+  private final DiskCacheWriteLocker writeLocker = new DiskCacheWriteLocker();
+  private final File directory;
+  private final File tempDirectory;
+  private final File filesDirectory;
+  private final long maxSize;
+  private final int segmentSize;
+  private final Executor compactionExecutor;
+  private final Runnable compactionRunnable = new Runnable() {
+    @Override
+    public void run() {
+      Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+      compact();
+    }
+  };
+  private final AtomicLong accessSequence = new AtomicLong();
+  private volatile boolean isOpen;
+
+  // Guards all of the following. Reads only need the read lock. Data is copied into and out of
+  // segments without holding the lock.
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, Entry> index = new HashMap<>();
+  // Ordered from oldest to newest. Only the newest segment is written to.
+  private final List<Segment> segments = new ArrayList<>();
+  // Sealed segments whose writes have all finished, but that haven't been flushed to disk yet.
+  private final List<Segment> segmentsToFlush = new ArrayList<>();
+  // The sizes of the files created by get, in least recently used order.
+  private final LinkedHashMap<String, Long> materializedFiles =
+      new LinkedHashMap<>(16 /*initialCapacity*/, 0.75f /*loadFactor*/, true /*accessOrder*/);
+  private long totalSize;
+  private long materializedSize;
+  private long nextSegmentId;
+  private boolean isCompactionPending;
+
+  /**
+   * Create a new DiskCache in the given directory with a specified max size.
+   *
+   * @param directory The directory for the disk cache
+   * @param maxSize   The max size for the disk cache
+   * @return The new disk cache with the given arguments
+   */
+  public static DiskCache create(File directory, long maxSize) {
+    return new SegmentedDiskCache(
+        directory, maxSize, DEFAULT_SEGMENT_SIZE, newCompactionExecutor());
+  }
+
+  @VisibleForTesting
+  SegmentedDiskCache(
+      File directory, long maxSize, int segmentSize, Executor compactionExecutor) {
+    this.directory = directory;
+    this.tempDirectory = new File(directory, TEMP_DIRECTORY);
+    this.filesDirectory = new File(directory, FILES_DIRECTORY);
+    this.maxSize = maxSize;
+    this.segmentSize = segmentSize;
+    this.compactionExecutor = compactionExecutor;
+  }
+
+  private static Executor newCompactionExecutor() {
+    return new ThreadPoolExecutor(
+        0 /*corePoolSize*/,
+        1 /*maximumPoolSize*/,
+        COMPACTION_KEEP_ALIVE_TIME_MS,
+        TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(@NonNull Runnable r) {
+            return new Thread(r, "glide-disk-cache-compaction");
+          }
+        });
+  }
+
+  @Nullable
+  @Override
+  public ByteBuffer getBuffer(@NonNull Key key) {
+    return getBuffer(safeKeyGenerator.getSafeKey(key));
+  }
+
+  @Nullable
+  private ByteBuffer getBuffer(String safeKey) {
+    if (!ensureOpen()) {
+      return null;
+    }
+    lock.readLock().lock();
+    try {
+      Entry entry = index.get(safeKey);
+      if (entry == null) {
+        return null;
+      }
+      entry.accessSequence = accessSequence.incrementAndGet();
+      return entry.slice();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean contains(Key key) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    if (!ensureOpen()) {
+      return false;
+    }
+    // Checking for an entry isn't a use of the entry, so its access sequence isn't updated.
+    lock.readLock().lock();
+    try {
+      return index.containsKey(safeKey);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public File get(Key key) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Get: Obtained: " + safeKey + " for for Key: " + key);
+    }
+    ByteBuffer data = getBuffer(safeKey);
+    if (data == null) {
+      return null;
+    }
+    File file = new File(filesDirectory, safeKey);
+    writeLocker.acquire(safeKey);
+    try {
+      lock.writeLock().lock();
+      try {
+        // Updates the order of materialized files, so this needs the write lock.
+        if (materializedFiles.get(safeKey) != null) {
+          return file;
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+      File temp = new File(tempDirectory, safeKey + ".file");
+      ByteBufferUtil.toFile(data, temp);
+      if (!temp.renameTo(file)) {
+        throw new IOException("Failed to rename: " + temp + " to: " + file);
+      }
+      lock.writeLock().lock();
+      try {
+        // The entry may have been removed while we were writing the file.
+        if (!index.containsKey(safeKey)) {
+          deleteQuietly(file);
+          return null;
+        }
+        long length = file.length();
+        materializedFiles.put(safeKey, length);
+        materializedSize += length;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to get from disk cache", e);
+      }
+      return null;
+    } finally {
+      writeLocker.release(safeKey);
+    }
+    scheduleCompactionIfNeeded();
+    return file;
+  }
+
+  @Override
+  public void put(Key key, Writer writer) {
+    // We want to make sure that puts block so that data is available when put completes. We may
+    // actually not write any data if we find that data is written by the time we acquire the lock.
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    writeLocker.acquire(safeKey);
+    try {
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Put: Obtained: " + safeKey + " for for Key: " + key);
+      }
+      if (!ensureOpen()) {
+        return;
+      }
+      lock.readLock().lock();
+      try {
+        // We assume we only need to put once, so if data was written while we were trying to get
+        // the lock, we can simply abort.
+        if (index.containsKey(safeKey)) {
+          return;
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+      if (writer instanceof BufferWriter && ((BufferWriter) writer).getLength() >= 0) {
+        putBuffer(safeKey, (BufferWriter) writer);
+      } else {
+        // Writer only supports Files, so the data is written to a temporary file and then copied
+        // into the current segment.
+        File temp = new File(tempDirectory, safeKey + ".tmp");
+        try {
+          if (writer.write(temp)) {
+            putFile(safeKey, temp);
+          }
+        } finally {
+          deleteQuietly(temp);
+        }
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to put to disk cache", e);
+      }
+    } finally {
+      writeLocker.release(safeKey);
+    }
+    flushSealedSegments();
+    scheduleCompactionIfNeeded();
+  }
+
+  @Override
+  public void delete(Key key) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    lock.writeLock().lock();
+    try {
+      openIfNeeded();
+      if (removeEntry(safeKey) != null) {
+        appendTombstone(safeKey);
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to delete from disk cache", e);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    flushSealedSegments();
+    scheduleCompactionIfNeeded();
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      // Buffers returned by getBuffer remain valid because their mappings outlive the deleted
+      // files. Writes that are in progress finish in their deleted segments and are discarded.
+      index.clear();
+      segments.clear();
+      segmentsToFlush.clear();
+      materializedFiles.clear();
+      totalSize = 0;
+      materializedSize = 0;
+      isOpen = false;
+      deleteContents(tempDirectory);
+      deleteContents(filesDirectory);
+      deleteContents(directory);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @VisibleForTesting
+  long getSize() {
+    lock.readLock().lock();
+    try {
+      return totalSize + materializedSize;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @VisibleForTesting
+  int getSegmentCount() {
+    lock.readLock().lock();
+    try {
+      return segments.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private boolean ensureOpen() {
+    if (isOpen) {
+      return true;
+    }
+    lock.writeLock().lock();
+    try {
+      openIfNeeded();
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to open disk cache", e);
+      }
+      return false;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    scheduleCompactionIfNeeded();
+    return true;
+  }
+
+  private void putBuffer(String safeKey, BufferWriter writer) throws IOException {
+    Reservation reservation = reserve(safeKey, writer.getLength());
+    boolean success = false;
+    try {
+      ByteBuffer target = reservation.getData();
+      success = writer.write(target) && !target.hasRemaining();
+    } finally {
+      commit(reservation, success, null /*expected*/, accessSequence.incrementAndGet());
+    }
+  }
+
+  private void putFile(String safeKey, File source) throws IOException {
+    FileInputStream is = new FileInputStream(source);
+    try {
+      FileChannel channel = is.getChannel();
+      long length = channel.size();
+      if (length > MAX_DATA_LENGTH) {
+        throw new IOException("Entry is too large: " + length);
+      }
+      Reservation reservation = reserve(safeKey, (int) length);
+      boolean success = false;
+      try {
+        ByteBuffer target = reservation.getData();
+        while (target.hasRemaining()) {
+          if (channel.read(target) == -1) {
+            throw new EOFException("Unexpected end of data for: " + safeKey);
+          }
+        }
+        success = true;
+      } finally {
+        commit(reservation, success, null /*expected*/, accessSequence.incrementAndGet());
+      }
+    } finally {
+      is.close();
+    }
+  }
+
+  // Copies an entry into the newest segment, unless the entry is removed or replaced first.
+  private void copyForward(String safeKey, Entry entry) throws IOException {
+    Reservation reservation = reserve(safeKey, entry.length);
+    boolean success = false;
+    try {
+      reservation.getData().put(entry.slice());
+      success = true;
+    } finally {
+      commit(reservation, success, entry, entry.accessSequence);
+    }
+  }
+
+  /**
+   * Reserves space for a record at the end of the newest segment. The caller must copy the data
+   * into {@link Reservation#getData()} and then call
+   * {@link #commit(Reservation, boolean, Entry, long)}, even if the copy fails.
+   */
+  private Reservation reserve(String safeKey, int length) throws IOException {
+    if (length > MAX_DATA_LENGTH) {
+      throw new IOException("Entry is too large: " + length);
+    }
+    byte[] keyBytes = safeKey.getBytes(Key.CHARSET);
+    int recordSize = HEADER_SIZE + keyBytes.length + length;
+    lock.writeLock().lock();
+    try {
+      openIfNeeded();
+      Segment segment = getWritableSegment(recordSize);
+      int offset = segment.writeOffset;
+      segment.writeOffset += recordSize;
+      segment.pendingWrites++;
+      totalSize += recordSize;
+      return new Reservation(segment, safeKey, keyBytes, offset, length);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Completes the record for the given reservation and, if successful, adds it to the index.
+   *
+   * @param expected If non-null, the record is only added to the index if the key still maps to
+   *                 this entry.
+   */
+  private void commit(
+      Reservation reservation, boolean success, @Nullable Entry expected, long sequence) {
+    Segment segment = reservation.segment;
+    int offset = reservation.offset;
+    byte[] keyBytes = reservation.keyBytes;
+    if (!success) {
+      // Keep the reserved space as padding so that the records after it can still be read.
+      keyBytes = new byte[keyBytes.length];
+      Arrays.fill(keyBytes, PADDING_KEY_BYTE);
+    }
+    writeHeader(segment.buffer, offset, keyBytes, reservation.length);
+
+    lock.writeLock().lock();
+    try {
+      segment.buffer.putInt(offset, RECORD_MAGIC);
+      segment.pendingWrites--;
+      if (segment.pendingWrites == 0 && segment.isSealed()) {
+        segmentsToFlush.add(segment);
+      }
+      // The segment is no longer part of the cache if the cache was cleared.
+      if (success && segments.contains(segment)
+          && (expected == null || index.get(reservation.safeKey) == expected)) {
+        putEntry(reservation.safeKey, new Entry(segment, reservation.getRecordSize(),
+            reservation.getDataOffset(), reservation.length, sequence));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // Requires the write lock. Tombstones are small, so they're written while holding the lock.
+  private void appendTombstone(String safeKey) throws IOException {
+    byte[] keyBytes = safeKey.getBytes(Key.CHARSET);
+    int recordSize = HEADER_SIZE + keyBytes.length;
+    Segment segment = getWritableSegment(recordSize);
+    int offset = segment.writeOffset;
+    writeHeader(segment.buffer, offset, keyBytes, TOMBSTONE_LENGTH);
+    segment.buffer.putInt(offset, RECORD_MAGIC);
+    segment.writeOffset += recordSize;
+    totalSize += recordSize;
+    segment.tombstones.add(safeKey);
+  }
+
+  // Requires the write lock.
+  private Segment getWritableSegment(int recordSize) throws IOException {
+    Segment current = getNewestSegment();
+    if (current != null && current.buffer.capacity() - current.writeOffset >= recordSize) {
+      return current;
+    }
+    return startSegment(Math.max(segmentSize, recordSize));
+  }
+
+  // Requires the write lock.
+  private Segment startSegment(int size) throws IOException {
+    Segment current = getNewestSegment();
+    if (current != null) {
+      current.sealedSequence = accessSequence.get();
+      // Flushing once per segment rather than once per entry is the main reason to use segments.
+      // Segments with writes in progress are flushed when their last write is committed.
+      if (current.pendingWrites == 0) {
+        segmentsToFlush.add(current);
+      }
+    }
+    Segment segment = openSegment(nextSegmentId++, size, true /*isWritable*/);
+    segments.add(segment);
+    return segment;
+  }
+
+  // Requires the write lock.
+  @Nullable
+  private Segment getNewestSegment() {
+    return segments.isEmpty() ? null : segments.get(segments.size() - 1);
+  }
+
+  private void flushSealedSegments() {
+    List<Segment> toFlush;
+    lock.writeLock().lock();
+    try {
+      if (segmentsToFlush.isEmpty()) {
+        return;
+      }
+      toFlush = new ArrayList<>(segmentsToFlush);
+      segmentsToFlush.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    for (Segment segment : toFlush) {
+      segment.buffer.force();
+    }
+  }
+
+  // Requires the write lock.
+  private void putEntry(String safeKey, Entry entry) {
+    Entry previous = index.put(safeKey, entry);
+    if (previous != null) {
+      previous.segment.liveSize -= previous.recordSize;
+      deleteMaterialized(safeKey);
+    }
+    entry.segment.liveSize += entry.recordSize;
+  }
+
+  // Requires the write lock.
+  @Nullable
+  private Entry removeEntry(String safeKey) {
+    Entry removed = index.remove(safeKey);
+    if (removed != null) {
+      removed.segment.liveSize -= removed.recordSize;
+      deleteMaterialized(safeKey);
+    }
+    return removed;
+  }
+
+  // Requires the write lock.
+  private void deleteMaterialized(String safeKey) {
+    Long size = materializedFiles.remove(safeKey);
+    if (size != null) {
+      materializedSize -= size;
+      deleteQuietly(new File(filesDirectory, safeKey));
+    }
+  }
+
+  // Requires the write lock. Materialized files are only copies of entries, so they're removed
+  // before any entries are evicted.
+  private void trimMaterializedFiles() {
+    Iterator<Map.Entry<String, Long>> iterator = materializedFiles.entrySet().iterator();
+    // The most recently used file is kept because get may have only just returned it.
+    while (isOverMaxSize() && materializedFiles.size() > 1) {
+      Map.Entry<String, Long> eldest = iterator.next();
+      iterator.remove();
+      materializedSize -= eldest.getValue();
+      deleteQuietly(new File(filesDirectory, eldest.getKey()));
+    }
+  }
+
+  // Requires the write lock.
+  private boolean isOverMaxSize() {
+    return totalSize + materializedSize > maxSize;
+  }
+
+  // Requires the write lock.
+  private void openIfNeeded() throws IOException {
+    if (isOpen) {
+      return;
+    }
+    if (!directory.mkdirs() && !directory.isDirectory()) {
+      throw new IOException("Unable to create cache directory: " + directory);
+    }
+    // Temporary and materialized files from previous instances are not tracked, so remove them.
+    deleteContents(tempDirectory);
+    deleteContents(filesDirectory);
+    if ((!tempDirectory.mkdir() && !tempDirectory.isDirectory())
+        || (!filesDirectory.mkdir() && !filesDirectory.isDirectory())) {
+      throw new IOException("Unable to create cache sub directories in: " + directory);
+    }
+
+    List<Long> segmentIds = new ArrayList<>();
+    String[] names = directory.list();
+    if (names != null) {
+      for (String name : names) {
+        if (name.startsWith(SEGMENT_PREFIX)) {
+          try {
+            segmentIds.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length())));
+          } catch (NumberFormatException e) {
+            deleteQuietly(new File(directory, name));
+          }
+        }
+      }
+    }
+    Collections.sort(segmentIds);
+    for (int i = 0; i < segmentIds.size(); i++) {
+      long id = segmentIds.get(i);
+      // Only the newest segment can contain partially written records.
+      boolean isNewest = i == segmentIds.size() - 1;
+      try {
+        Segment segment = openSegment(id, 0 /*size*/, isNewest);
+        scan(segment, isNewest);
+        segments.add(segment);
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Discarding unreadable segment: " + id, e);
+        }
+        deleteQuietly(getSegmentFile(id));
+      }
+      nextSegmentId = id + 1;
+    }
+    isOpen = true;
+  }
+
+  // Requires the write lock. Rebuilds the index from the records in the given segment.
+  private void scan(Segment segment, boolean isNewest) {
+    MappedByteBuffer buffer = segment.buffer;
+    int capacity = buffer.capacity();
+    int offset = 0;
+    // A write that was interrupted leaves a record without a magic, so any records written after
+    // it are discarded too.
+    while (capacity - offset >= HEADER_SIZE && buffer.getInt(offset) == RECORD_MAGIC) {
+      int keyLength = buffer.getShort(offset + KEY_LENGTH_OFFSET) & 0xFFFF;
+      int length = buffer.getInt(offset + DATA_LENGTH_OFFSET);
+      int storedLength = Math.max(length, 0);
+      if (keyLength == 0 || length < TOMBSTONE_LENGTH
+          || (long) HEADER_SIZE + keyLength + storedLength > capacity - offset) {
+        break;
+      }
+      if (isNewest && buffer.getInt(offset + CRC_OFFSET)
+          != checksum(buffer, offset + HEADER_SIZE, keyLength + storedLength)) {
+        break;
+      }
+      int recordSize = HEADER_SIZE + keyLength + storedLength;
+      if (buffer.get(offset + HEADER_SIZE) != PADDING_KEY_BYTE) {
+        String safeKey = readKey(buffer, offset + HEADER_SIZE, keyLength);
+        if (length == TOMBSTONE_LENGTH) {
+          removeEntry(safeKey);
+          segment.tombstones.add(safeKey);
+        } else {
+          putEntry(safeKey,
+              new Entry(segment, recordSize, offset + HEADER_SIZE + keyLength, length, 0));
+        }
+      }
+      offset += recordSize;
+    }
+    if (isNewest && capacity - offset > 0) {
+      // Discard anything left by a write that was interrupted, so new records can be appended.
+      fill(buffer, offset, capacity - offset, (byte) 0);
+    }
+    segment.writeOffset = offset;
+    segment.sealedSequence = isNewest ? Long.MAX_VALUE : 0;
+    totalSize += offset;
+  }
+
+  private Segment openSegment(long id, int size, boolean isWritable) throws IOException {
+    File file = getSegmentFile(id);
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, isWritable ? "rw" : "r");
+    try {
+      if (isWritable && randomAccessFile.length() < size) {
+        // Segment files are sparse, so unwritten space doesn't use any disk.
+        randomAccessFile.setLength(size);
+      }
+      MappedByteBuffer buffer = randomAccessFile.getChannel().map(
+          isWritable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+          0 /*position*/,
+          randomAccessFile.length());
+      return new Segment(id, file, buffer);
+    } finally {
+      // The mapping remains valid after the file is closed.
+      randomAccessFile.close();
+    }
+  }
+
+  private File getSegmentFile(long id) {
+    return new File(directory, SEGMENT_PREFIX + id);
+  }
+
+  // Must not be called while holding the lock, because the executor may run compaction inline.
+  private void scheduleCompactionIfNeeded() {
+    lock.writeLock().lock();
+    try {
+      if (isCompactionPending || !isOpen || getSegmentToReclaim() == null) {
+        return;
+      }
+      isCompactionPending = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    compactionExecutor.execute(compactionRunnable);
+  }
+
+  // Requires the write lock.
+  @Nullable
+  private Segment getSegmentToReclaim() {
+    if (segments.isEmpty()) {
+      return null;
+    }
+    // Segments with writes in progress can't be reclaimed until the writes are committed.
+    if (isOverMaxSize()) {
+      Segment oldest = segments.get(0);
+      return oldest.pendingWrites == 0 && oldest.writeOffset > 0 ? oldest : null;
+    }
+    // The newest segment is still being written to, so it's only compacted once it's full.
+    for (int i = 0; i < segments.size() - 1; i++) {
+      Segment segment = segments.get(i);
+      if (segment.pendingWrites == 0 && segment.liveSize < segment.writeOffset * MIN_LIVE_RATIO) {
+        return segment;
+      }
+    }
+    return null;
+  }
+
+  @Synthetic
+  void compact() {
+    // Reclaim one segment at a time, and copy one entry at a time, so that reads and writes can
+    // continue in between.
+    while (true) {
+      Segment segment = null;
+      boolean isEviction = false;
+      lock.writeLock().lock();
+      try {
+        if (isOpen) {
+          trimMaterializedFiles();
+          segment = getSegmentToReclaim();
+        }
+        if (segment != null) {
+          isEviction = isOverMaxSize();
+          if (segment == getNewestSegment()) {
+            // The only segment is being evicted, so new writes need to go somewhere else.
+            startSegment(segmentSize);
+          }
+        } else {
+          isCompactionPending = false;
+        }
+      } catch (IOException e) {
+        logCompactionFailure(e);
+        isCompactionPending = false;
+        segment = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      if (segment == null) {
+        flushSealedSegments();
+        return;
+      }
+
+      try {
+        reclaim(segment, isEviction);
+      } catch (IOException e) {
+        logCompactionFailure(e);
+        lock.writeLock().lock();
+        try {
+          isCompactionPending = false;
+        } finally {
+          lock.writeLock().unlock();
+        }
+        return;
+      } finally {
+        flushSealedSegments();
+      }
+    }
+  }
+
+  private void reclaim(Segment segment, boolean isEviction) throws IOException {
+    List<Map.Entry<String, Entry>> toCopy = new ArrayList<>();
+    int liveCount;
+    lock.writeLock().lock();
+    try {
+      for (Map.Entry<String, Entry> mapEntry : index.entrySet()) {
+        if (mapEntry.getValue().segment == segment) {
+          toCopy.add(new AbstractMap.SimpleImmutableEntry<>(mapEntry));
+        }
+      }
+      liveCount = toCopy.size();
+      if (isEviction) {
+        // Entries read since the segment was sealed are always kept. Of the remaining entries, the
+        // most recently read are kept while there's space for them once this segment is removed.
+        Collections.sort(toCopy, MOST_RECENTLY_READ_FIRST);
+        long available = maxSize - (totalSize + materializedSize - segment.writeOffset);
+        Iterator<Map.Entry<String, Entry>> iterator = toCopy.iterator();
+        while (iterator.hasNext()) {
+          Map.Entry<String, Entry> mapEntry = iterator.next();
+          Entry entry = mapEntry.getValue();
+          if (entry.accessSequence > segment.sealedSequence || entry.recordSize <= available) {
+            available -= entry.recordSize;
+          } else {
+            removeEntry(mapEntry.getKey());
+            iterator.remove();
+          }
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    for (Map.Entry<String, Entry> mapEntry : toCopy) {
+      copyForward(mapEntry.getKey(), mapEntry.getValue());
+    }
+
+    lock.writeLock().lock();
+    try {
+      // Tombstones are only needed to hide entries in older segments and only if the key hasn't
+      // been written again since.
+      if (segments.indexOf(segment) > 0) {
+        for (String safeKey : segment.tombstones) {
+          if (!index.containsKey(safeKey)) {
+            appendTombstone(safeKey);
+          }
+        }
+      }
+      // The segment has already been removed if the cache was cleared.
+      if (segments.remove(segment)) {
+        segmentsToFlush.remove(segment);
+        totalSize -= segment.writeOffset;
+        deleteQuietly(segment.file);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, (isEviction ? "Evicted" : "Compacted") + " segment: " + segment.id
+          + ", copied forward: " + toCopy.size() + " of: " + liveCount + " entries");
+    }
+  }
+
+  private static void logCompactionFailure(IOException e) {
+    if (Log.isLoggable(TAG, Log.WARN)) {
+      Log.w(TAG, "Unable to compact disk cache", e);
+    }
+  }
+
+  // Writes everything but the magic, which must be written last.
+  private static void writeHeader(
+      MappedByteBuffer segmentBuffer, int offset, byte[] keyBytes, int length) {
+    ByteBuffer target = segmentBuffer.duplicate();
+    target.position(offset + HEADER_SIZE);
+    target.put(keyBytes);
+    target.putShort(offset + KEY_LENGTH_OFFSET, (short) keyBytes.length);
+    target.putInt(offset + DATA_LENGTH_OFFSET, length);
+    target.putInt(offset + CRC_OFFSET,
+        checksum(segmentBuffer, offset + HEADER_SIZE, keyBytes.length + Math.max(length, 0)));
+  }
+
+  private static int checksum(ByteBuffer source, int offset, int length) {
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[Math.min(length, BUFFER_SIZE)];
+    ByteBuffer duplicate = source.duplicate();
+    duplicate.position(offset);
+    int remaining = length;
+    while (remaining > 0) {
+      int count = Math.min(remaining, buffer.length);
+      duplicate.get(buffer, 0, count);
+      crc.update(buffer, 0, count);
+      remaining -= count;
+    }
+    return (int) crc.getValue();
+  }
+
+  private static String readKey(ByteBuffer source, int offset, int length) {
+    ByteBuffer duplicate = source.duplicate();
+    duplicate.position(offset);
+    byte[] keyBytes = new byte[length];
+    duplicate.get(keyBytes);
+    return new String(keyBytes, Key.CHARSET);
+  }
+
+  private static void fill(ByteBuffer target, int offset, int length, byte value) {
+    byte[] buffer = new byte[Math.min(length, BUFFER_SIZE)];
+    Arrays.fill(buffer, value);
+    ByteBuffer duplicate = target.duplicate();
+    duplicate.position(offset);
+    int remaining = length;
+    while (remaining > 0) {
+      int count = Math.min(remaining, buffer.length);
+      duplicate.put(buffer, 0, count);
+      remaining -= count;
+    }
+  }
+
+  private static void deleteContents(File directory) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      if (file.isFile()) {
+        deleteQuietly(file);
+      }
+    }
+  }
+
+  private static void deleteQuietly(File file) {
+    if (!file.delete() && file.exists() && Log.isLoggable(TAG, Log.WARN)) {
+      Log.w(TAG, "Failed to delete: " + file);
+    }
+  }
+
+  private static final class Segment {
+    @Synthetic final long id;
+    @Synthetic final File file;
+    @Synthetic final MappedByteBuffer buffer;
+    @Synthetic final ByteBuffer readOnlyBuffer;
+    // Keys deleted by tombstones in this segment.
+    @Synthetic final Set<String> tombstones = new HashSet<>();
+    @Synthetic int writeOffset;
+    // The number of reserved records that haven't been committed yet.
+    @Synthetic int pendingWrites;
+    @Synthetic long liveSize;
+    // The access sequence at the time this segment stopped accepting writes.
+    @Synthetic long sealedSequence = Long.MAX_VALUE;
+
+    Segment(long id, File file, MappedByteBuffer buffer) {
+      this.id = id;
+      this.file = file;
+      this.buffer = buffer;
+      this.readOnlyBuffer = buffer.asReadOnlyBuffer();
+    }
+
+    boolean isSealed() {
+      return sealedSequence != Long.MAX_VALUE;
+    }
+  }
+
+  private static final class Entry {
+    @Synthetic final Segment segment;
+    @Synthetic final int recordSize;
+    @Synthetic final int dataOffset;
+    @Synthetic final int length;
+    // Updated while holding only the read lock.
+    @Synthetic volatile long accessSequence;
+
+    Entry(Segment segment, int recordSize, int dataOffset, int length, long accessSequence) {
+      this.segment = segment;
+      this.recordSize = recordSize;
+      this.dataOffset = dataOffset;
+      this.length = length;
+      this.accessSequence = accessSequence;
+    }
+
+    ByteBuffer slice() {
+      ByteBuffer duplicate = segment.readOnlyBuffer.duplicate();
+      duplicate.limit(dataOffset + length);
+      duplicate.position(dataOffset);
+      return duplicate.slice();
+    }
+  }
+
+  private static final class Reservation {
+    @Synthetic final Segment segment;
+    @Synthetic final String safeKey;
+    @Synthetic final byte[] keyBytes;
+    @Synthetic final int offset;
+    @Synthetic final int length;
+
+    Reservation(Segment segment, String safeKey, byte[] keyBytes, int offset, int length) {
+      this.segment = segment;
+      this.safeKey = safeKey;
+      this.keyBytes = keyBytes;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    int getRecordSize() {
+      return HEADER_SIZE + keyBytes.length + length;
+    }
+
+    int getDataOffset() {
+      return offset + HEADER_SIZE + keyBytes.length;
+    }
+
+    // Returns a buffer containing exactly the reserved space for the record's data.
+    ByteBuffer getData() {
+      ByteBuffer duplicate = segment.buffer.duplicate();
+      duplicate.limit(getDataOffset() + length);
+      duplicate.position(getDataOffset());
+      return duplicate.slice();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.content.Context;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheFactory.CacheDirectoryGetter;
+import java.io.File;
+
+/**
+ * Creates a {@link SegmentedDiskCache} in the specified disk cache directory, or in the internal
+ * cache directory by default.
+ *
+ * <p>Use {@link com.bumptech.glide.GlideBuilder#setDiskCache(DiskCache.Factory)} to replace
+ * the default {@link com.bumptech.glide.disklrucache.DiskLruCache} based disk cache.
+ */
+// Public API.
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class SegmentedDiskCacheFactory implements DiskCache.Factory {
+  /**
+   * The default directory name, which intentionally differs from
+   * {@link DiskCache.Factory#DEFAULT_DISK_CACHE_DIR} so that this cache never tries to read
+   * files written by the {@link com.bumptech.glide.disklrucache.DiskLruCache} based cache.
+   */
+  public static final String DEFAULT_SEGMENTED_DISK_CACHE_DIR = "image_manager_segmented_cache";
+
+  private final CacheDirectoryGetter cacheDirectoryGetter;
+  private final long diskCacheSize;
+
+  public SegmentedDiskCacheFactory(Context context) {
+    this(context, DEFAULT_SEGMENTED_DISK_CACHE_DIR, DiskCache.Factory.DEFAULT_DISK_CACHE_SIZE);
+  }
+
+  public SegmentedDiskCacheFactory(Context context, long diskCacheSize) {
+    this(context, DEFAULT_SEGMENTED_DISK_CACHE_DIR, diskCacheSize);
+  }
+
+  public SegmentedDiskCacheFactory(
+      final Context context, final String diskCacheName, long diskCacheSize) {
+    this(new CacheDirectoryGetter() {
+      @Override
+      public File getCacheDirectory() {
+        File cacheDirectory = context.getCacheDir();
+        if (cacheDirectory == null) {
+          return null;
+        }
+        return new File(cacheDirectory, diskCacheName);
+      }
+    }, diskCacheSize);
+  }
+
+  /**
+   * @param cacheDirectoryGetter Called off of the UI thread to get the cache folder.
+   * @param diskCacheSize        Desired max size in bytes of the disk cache.
+   */
+  public SegmentedDiskCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, long diskCacheSize) {
+    this.cacheDirectoryGetter = cacheDirectoryGetter;
+    this.diskCacheSize = diskCacheSize;
+  }
+
+  @Override
+  public DiskCache build() {
+    File cacheDir = cacheDirectoryGetter.getCacheDirectory();
+
+    if (cacheDir == null) {
+      return null;
+    }
+
+    if (!cacheDir.mkdirs() && (!cacheDir.exists() || !cacheDir.isDirectory())) {
+      return null;
+    }
+
+    return SegmentedDiskCache.create(cacheDir, diskCacheSize);
+  }
+}
@@ -21,6 +21,10 @@ import java.util.concurrent.TimeoutException;
 
 /**
  * A prioritized {@link ThreadPoolExecutor} for running jobs in Glide.
+ *
+ * <p>Executors created by the factory methods in this class, other than
+ * {@link #newUnlimitedSourceExecutor()}, queue tasks in a priority queue that supports removing
+ * queued tasks in O(log n). See {@link #remove(Runnable)}.
  */
 public final class GlideExecutor implements ExecutorService {
   /**
@@ -51,6 +55,20 @@ public final class GlideExecutor implements ExecutorService {
 
   private static final String ANIMATION_EXECUTOR_NAME = "animation";
 
+  /**
+   * The default thread name prefix for executors used to write decoded and transformed resources
+   * to Glide's disk cache.
+   */
+  private static final String ENCODE_EXECUTOR_NAME = "encode";
+  /**
+   * The default thread name prefix for executors used to prefetch source data into the disk cache.
+   */
+  private static final String PREFETCH_EXECUTOR_NAME = "prefetch";
+  /**
+   * The number of threads used to prefetch source data into the disk cache.
+   */
+  private static final int PREFETCH_EXECUTOR_THREADS = 2;
+
   /**
    * The default keep alive time for threads in our cached thread pools in milliseconds.
    */
@@ -125,7 +143,7 @@ public final class GlideExecutor implements ExecutorService {
             threadCount /* maximumPoolSize */,
             0 /* keepAliveTime */,
             TimeUnit.MILLISECONDS,
-            new PriorityBlockingQueue<Runnable>(),
+            new PriorityTaskQueue(),
             new DefaultThreadFactory(name, uncaughtThrowableStrategy, true)));
   }
 
@@ -190,7 +208,7 @@ public final class GlideExecutor implements ExecutorService {
             threadCount /* maximumPoolSize */,
             0 /* keepAliveTime */,
             TimeUnit.MILLISECONDS,
-            new PriorityBlockingQueue<Runnable>(),
+            new PriorityTaskQueue(),
             new DefaultThreadFactory(name, uncaughtThrowableStrategy, false)));
   }
 
@@ -221,6 +239,34 @@ public final class GlideExecutor implements ExecutorService {
             false)));
   }
 
+  /**
+   * Returns a new single threaded executor with the {@link #ENCODE_EXECUTOR_NAME} thread name
+   * prefix and the
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy#DEFAULT}
+   * uncaught throwable strategy, to use when writing transformed resources to the disk cache.
+   *
+   * <p>Encoding happens after a load has completed, so a single thread is used to avoid competing
+   * with loads for CPU time.
+   */
+  public static GlideExecutor newEncodeExecutor() {
+    return newDiskCacheExecutor(1, ENCODE_EXECUTOR_NAME, UncaughtThrowableStrategy.DEFAULT);
+  }
+
+  /**
+   * Returns a new fixed thread pool with the {@link #PREFETCH_EXECUTOR_NAME} thread name prefix and
+   * the
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy#DEFAULT}
+   * uncaught throwable strategy, to use when prefetching source data into the disk cache with
+   * {@link com.bumptech.glide.load.engine.DiskCachePrefetcher}.
+   *
+   * <p>Prefetches are less urgent than loads, so few threads are used to avoid competing with
+   * loads for bandwidth.
+   */
+  public static GlideExecutor newPrefetchExecutor() {
+    return newSourceExecutor(
+        PREFETCH_EXECUTOR_THREADS, PREFETCH_EXECUTOR_NAME, UncaughtThrowableStrategy.DEFAULT);
+  }
+
   /**
    * Returns a new cached thread pool that defaults to either one or two threads depending on the
    * number of available cores to use when loading frames of animations.
@@ -251,7 +297,7 @@ public final class GlideExecutor implements ExecutorService {
             threadCount,
             KEEP_ALIVE_TIME_MS,
             TimeUnit.MILLISECONDS,
-            new PriorityBlockingQueue<Runnable>(),
+            new PriorityTaskQueue(),
             new DefaultThreadFactory(
                 ANIMATION_EXECUTOR_NAME,
                 uncaughtThrowableStrategy,
@@ -316,6 +362,19 @@ public final class GlideExecutor implements ExecutorService {
     return delegate.submit(task);
   }
 
+  /**
+   * Removes the given task from this executor's queue if the task has not yet been started.
+   *
+   * <p>Removal is O(log n) for the prioritized executors created by this class and O(n) for other
+   * {@link ThreadPoolExecutor}s.
+   *
+   * @return {@code true} if the task was queued and will not be run unless it is re-submitted,
+   * {@code false} if the task has already been started or was never submitted to this executor.
+   */
+  public boolean remove(@NonNull Runnable task) {
+    return delegate instanceof ThreadPoolExecutor && ((ThreadPoolExecutor) delegate).remove(task);
+  }
+
   @Override
   public void shutdown() {
     delegate.shutdown();
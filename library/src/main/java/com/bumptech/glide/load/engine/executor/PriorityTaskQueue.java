@@ -0,0 +1,347 @@
+package com.bumptech.glide.load.engine.executor;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.util.Synthetic;
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An unbounded blocking priority queue for {@link Comparable} {@link Runnable}s that, unlike
+ * {@link java.util.concurrent.PriorityBlockingQueue}, tracks the position of each queued task so
+ * that queued tasks can be removed in O(log n) rather than O(n).
+ *
+ * <p>{@link java.util.concurrent.ThreadPoolExecutor#remove(Runnable)} delegates to
+ * {@link #remove(Object)}, which lets {@link GlideExecutor} cheaply drop cancelled loads and
+ * re-queue loads whose priority has changed.
+ *
+ * <p>Like {@link java.util.concurrent.PriorityBlockingQueue}, tasks are ordered by their natural
+ * ordering and the iteration order of this queue is undefined. Unlike
+ * {@link java.util.concurrent.PriorityBlockingQueue}, tasks that aren't {@link Comparable} are
+ * accepted rather than throwing. They're ordered ahead of all {@link Comparable} tasks, because
+ * they're typically short, time sensitive work like decoding the next frame of a running animation.
+ * {@link Comparable} tasks of different classes are grouped by class. Tasks that are otherwise
+ * equal run in the order they were queued. Tasks are compared by identity, so a given task is only
+ * queued once at a time. Offering a task that's already queued does nothing.
+ */
+final class PriorityTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Map<Runnable, Integer> indices = new IdentityHashMap<>();
+  private Node[] heap = new Node[INITIAL_CAPACITY];
+  private int size;
+  private long nextSequence;
+
+  @Override
+  public boolean offer(@NonNull Runnable runnable) {
+    if (runnable == null) {
+      throw new NullPointerException();
+    }
+    lock.lock();
+    try {
+      // The task will already run, so keep its current position rather than queuing it twice.
+      if (indices.containsKey(runnable)) {
+        return true;
+      }
+      if (size == heap.length) {
+        heap = Arrays.copyOf(heap, size * 2);
+      }
+      siftUp(size++, new Node(runnable, nextSequence++));
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(@NonNull Runnable runnable) {
+    offer(runnable);
+  }
+
+  @Override
+  public boolean offer(Runnable runnable, long timeout, @NonNull TimeUnit unit) {
+    // Never blocks, we're unbounded.
+    return offer(runnable);
+  }
+
+  @NonNull
+  @Override
+  public Runnable take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (size == 0) {
+        notEmpty.await();
+      }
+      return removeAt(0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable poll(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (size == 0) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return removeAt(0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable poll() {
+    lock.lock();
+    try {
+      return size == 0 ? null : removeAt(0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable peek() {
+    lock.lock();
+    try {
+      return size == 0 ? null : heap[0].task;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the given task from the queue in O(log n) if it's present.
+   *
+   * @return {@code true} if the task was queued and has been removed and {@code false} if the task
+   * was not queued, usually because it has already been taken by a thread.
+   */
+  @Override
+  public boolean remove(Object o) {
+    lock.lock();
+    try {
+      Integer index = indices.get(o);
+      if (index == null) {
+        return false;
+      }
+      removeAt(index);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    lock.lock();
+    try {
+      return indices.containsKey(o);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int drainTo(@NonNull Collection<? super Runnable> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(@NonNull Collection<? super Runnable> c, int maxElements) {
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    lock.lock();
+    try {
+      int count = 0;
+      while (size > 0 && count < maxElements) {
+        c.add(removeAt(0));
+        count++;
+      }
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      Arrays.fill(heap, 0, size, null);
+      indices.clear();
+      size = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns an iterator over a snapshot of the queued tasks in no particular order.
+   */
+  @NonNull
+  @Override
+  public Iterator<Runnable> iterator() {
+    lock.lock();
+    try {
+      Runnable[] snapshot = new Runnable[size];
+      for (int i = 0; i < size; i++) {
+        snapshot[i] = heap[i].task;
+      }
+      return new Itr(snapshot);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Runnable removeAt(int index) {
+    Node removed = heap[index];
+    indices.remove(removed.task);
+    int last = --size;
+    if (index == last) {
+      heap[last] = null;
+    } else {
+      Node moved = heap[last];
+      heap[last] = null;
+      siftDown(index, moved);
+      if (heap[index] == moved) {
+        siftUp(index, moved);
+      }
+    }
+    return removed.task;
+  }
+
+  private void siftUp(int index, Node node) {
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      Node parentNode = heap[parent];
+      if (compare(node, parentNode) >= 0) {
+        break;
+      }
+      setAt(index, parentNode);
+      index = parent;
+    }
+    setAt(index, node);
+  }
+
+  private void siftDown(int index, Node node) {
+    int half = size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      int right = child + 1;
+      if (right < size && compare(heap[right], heap[child]) < 0) {
+        child = right;
+      }
+      if (compare(node, heap[child]) <= 0) {
+        break;
+      }
+      setAt(index, heap[child]);
+      index = child;
+    }
+    setAt(index, node);
+  }
+
+  private void setAt(int index, Node node) {
+    heap[index] = node;
+    indices.put(node.task, index);
+  }
+
+  // Must be a total order, or the heap can return tasks out of order.
+  private static int compare(Node first, Node second) {
+    int result = compareTasks(first.task, second.task);
+    if (result != 0) {
+      return result;
+    }
+    return first.sequence < second.sequence ? -1 : (first.sequence == second.sequence ? 0 : 1);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int compareTasks(Runnable first, Runnable second) {
+    // Tasks of different types, like GIF frame prefetches queued alongside DecodeJobs on the
+    // animation executor, can't be compared to each other, so they're ranked by type instead.
+    boolean isFirstComparable = first instanceof Comparable;
+    boolean isSecondComparable = second instanceof Comparable;
+    if (!isFirstComparable || !isSecondComparable) {
+      return isFirstComparable == isSecondComparable ? 0 : (isFirstComparable ? 1 : -1);
+    }
+    if (first.getClass() != second.getClass()) {
+      return first.getClass().getName().compareTo(second.getClass().getName());
+    }
+    return ((Comparable<Object>) first).compareTo(second);
+  }
+
+  private static final class Node {
+    @Synthetic final Runnable task;
+    // Breaks ties between tasks that are otherwise equal, so they run in the order they're queued.
+    @Synthetic final long sequence;
+
+    Node(Runnable task, long sequence) {
+      this.task = task;
+      this.sequence = sequence;
+    }
+  }
+
+  private final class Itr implements Iterator<Runnable> {
+    private final Runnable[] snapshot;
+    private int cursor;
+    private int lastReturned = -1;
+
+    Itr(Runnable[] snapshot) {
+      this.snapshot = snapshot;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return cursor < snapshot.length;
+    }
+
+    @Override
+    public Runnable next() {
+      if (cursor >= snapshot.length) {
+        throw new NoSuchElementException();
+      }
+      lastReturned = cursor;
+      return snapshot[cursor++];
+    }
+
+    @Override
+    public void remove() {
+      if (lastReturned < 0) {
+        throw new IllegalStateException();
+      }
+      PriorityTaskQueue.this.remove(snapshot[lastReturned]);
+      lastReturned = -1;
+    }
+  }
+}
@@ -13,6 +13,12 @@ import java.util.Map;
 /**
  * Maintains an ordered put of {@link ModelLoader}s and the model and data types they handle in
  * order from highest priority to lowest.
+ *
+ * <p>The {@link ModelLoader}s and data classes for each model class are built once and then kept
+ * in immutable snapshots that are replaced whenever the registry changes. Looking up previously
+ * built {@link ModelLoader}s or data classes doesn't acquire any locks, so the many threads
+ * starting loads concurrently don't contend with each other. Changes to the registry and the
+ * first lookup for each model class are still serialized.
  */
 // Hides Model throughout.
 @SuppressWarnings("TypeParameterHidesVisibleType")
@@ -66,6 +72,11 @@ public class ModelLoaderRegistry {
     }
   }
 
+  /**
+   * Returns the {@link ModelLoader}s that can handle the given model.
+   *
+   * <p>The returned {@link List} is unmodifiable and may be shared with other callers.
+   */
   // We're allocating in a loop to avoid allocating empty lists that will never have anything added
   // to them.
   @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
@@ -73,20 +84,25 @@ public class ModelLoaderRegistry {
   public <A> List<ModelLoader<A, ?>> getModelLoaders(@NonNull A model) {
     List<ModelLoader<A, ?>> modelLoaders = getModelLoadersForClass(getClass(model));
     int size = modelLoaders.size();
-    boolean isEmpty = true;
-    List<ModelLoader<A, ?>> filteredLoaders = Collections.emptyList();
+    List<ModelLoader<A, ?>> filteredLoaders = null;
     //noinspection ForLoopReplaceableByForEach to improve perf
     for (int i = 0; i < size; i++) {
       ModelLoader<A, ?> loader = modelLoaders.get(i);
-      if (loader.handles(model)) {
-        if (isEmpty) {
-          filteredLoaders = new ArrayList<>(size - i);
-          isEmpty = false;
-        }
+      boolean handles = loader.handles(model);
+      if (filteredLoaders == null && !handles) {
+        // Usually every loader handles the model, so we only copy when one doesn't.
+        filteredLoaders = new ArrayList<>(size - 1);
+        filteredLoaders.addAll(modelLoaders.subList(0, i));
+      } else if (filteredLoaders != null && handles) {
         filteredLoaders.add(loader);
       }
     }
-    return filteredLoaders;
+    if (filteredLoaders == null) {
+      return modelLoaders;
+    }
+    return filteredLoaders.isEmpty()
+        ? Collections.<ModelLoader<A, ?>>emptyList()
+        : Collections.unmodifiableList(filteredLoaders);
   }
 
   public synchronized <Model, Data> ModelLoader<Model, Data> build(@NonNull Class<Model> modelClass,
@@ -94,14 +110,45 @@ public class ModelLoaderRegistry {
     return multiModelLoaderFactory.build(modelClass, dataClass);
   }
 
+  /**
+   * Returns the data classes that the given model class can be loaded into.
+   *
+   * <p>The returned {@link List} is unmodifiable and may be shared with other callers.
+   */
+  @NonNull
+  public List<Class<?>> getDataClasses(@NonNull Class<?> modelClass) {
+    List<Class<?>> dataClasses = cache.getDataClasses(modelClass);
+    if (dataClasses == null) {
+      dataClasses = buildDataClasses(modelClass);
+    }
+    return dataClasses;
+  }
+
+  @NonNull
+  private synchronized List<Class<?>> buildDataClasses(@NonNull Class<?> modelClass) {
+    // Another thread may have added the data classes while we were waiting for the lock.
+    List<Class<?>> dataClasses = cache.getDataClasses(modelClass);
+    if (dataClasses == null) {
+      dataClasses =
+          Collections.unmodifiableList(multiModelLoaderFactory.getDataClasses(modelClass));
+      cache.putDataClasses(modelClass, dataClasses);
+    }
+    return dataClasses;
+  }
+
   @NonNull
-  public synchronized List<Class<?>> getDataClasses(@NonNull Class<?> modelClass) {
-    return multiModelLoaderFactory.getDataClasses(modelClass);
+  private <A> List<ModelLoader<A, ?>> getModelLoadersForClass(@NonNull Class<A> modelClass) {
+    List<ModelLoader<A, ?>> loaders = cache.get(modelClass);
+    if (loaders == null) {
+      loaders = buildModelLoadersForClass(modelClass);
+    }
+    return loaders;
   }
 
   @NonNull
-  private synchronized <A> List<ModelLoader<A, ?>> getModelLoadersForClass(
+  private synchronized <A> List<ModelLoader<A, ?>> buildModelLoadersForClass(
       @NonNull Class<A> modelClass) {
+    // Another thread may have added the loaders while we were waiting for the lock.
     List<ModelLoader<A, ?>> loaders = cache.get(modelClass);
     if (loaders == null) {
       loaders = Collections.unmodifiableList(multiModelLoaderFactory.build(modelClass));
@@ -116,21 +163,42 @@ public class ModelLoaderRegistry {
     return (Class<A>) model.getClass();
   }
 
+  /**
+   * Copy-on-write caches of loaders and data classes by model class.
+   *
+   * <p>Reads may happen on any thread without synchronization. Writes must be made while holding
+   * the registry's lock and replace the cached maps rather than modifying them.
+   */
   private static class ModelLoaderCache {
-    private final Map<Class<?>, Entry<?>> cachedModelLoaders = new HashMap<>();
+    private volatile Map<Class<?>, Entry<?>> cachedModelLoaders = Collections.emptyMap();
+    private volatile Map<Class<?>, List<Class<?>>> cachedDataClasses = Collections.emptyMap();
 
     @Synthetic
     ModelLoaderCache() { }
 
     public void clear() {
-      cachedModelLoaders.clear();
+      cachedModelLoaders = Collections.emptyMap();
+      cachedDataClasses = Collections.emptyMap();
     }
 
     public <Model> void put(Class<Model> modelClass, List<ModelLoader<Model, ?>> loaders) {
-      Entry<?> previous = cachedModelLoaders.put(modelClass, new Entry<>(loaders));
+      Map<Class<?>, Entry<?>> updated = new HashMap<>(cachedModelLoaders);
+      Entry<?> previous = updated.put(modelClass, new Entry<>(loaders));
       if (previous != null) {
         throw new IllegalStateException("Already cached loaders for model: " + modelClass);
       }
+      cachedModelLoaders = updated;
+    }
+
+    public void putDataClasses(Class<?> modelClass, List<Class<?>> dataClasses) {
+      Map<Class<?>, List<Class<?>>> updated = new HashMap<>(cachedDataClasses);
+      updated.put(modelClass, dataClasses);
+      cachedDataClasses = updated;
+    }
+
+    @Nullable
+    public List<Class<?>> getDataClasses(Class<?> modelClass) {
+      return cachedDataClasses.get(modelClass);
     }
 
     @Nullable
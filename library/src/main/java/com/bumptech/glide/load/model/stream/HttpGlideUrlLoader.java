@@ -5,6 +5,7 @@ import android.support.annotation.Nullable;
 import com.bumptech.glide.load.Option;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.data.HttpUrlFetcher;
+import com.bumptech.glide.load.engine.PartialDownloadCache;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.load.model.ModelCache;
 import com.bumptech.glide.load.model.ModelLoader;
@@ -29,13 +30,27 @@ public class HttpGlideUrlLoader implements ModelLoader<GlideUrl, InputStream> {
       "com.bumptech.glide.load.model.stream.HttpGlideUrlLoader.Timeout", 2500);
 
   @Nullable private final ModelCache<GlideUrl, GlideUrl> modelCache;
+  @Nullable private final PartialDownloadCache partialDownloadCache;
 
   public HttpGlideUrlLoader() {
     this(null);
   }
 
   public HttpGlideUrlLoader(@Nullable ModelCache<GlideUrl, GlideUrl> modelCache) {
+    this(modelCache, null);
+  }
+
+  /**
+   * @param partialDownloadCache If non-null, interrupted downloads of large images are staged in
+   *                             the given cache and resumed by later loads of the same url, for
+   *                             loads that set
+   *                             {@link PartialDownloadCache#STAGE_PARTIAL_DOWNLOADS}.
+   */
+  public HttpGlideUrlLoader(
+      @Nullable ModelCache<GlideUrl, GlideUrl> modelCache,
+      @Nullable PartialDownloadCache partialDownloadCache) {
     this.modelCache = modelCache;
+    this.partialDownloadCache = partialDownloadCache;
   }
 
   @Override
@@ -52,7 +67,9 @@ public class HttpGlideUrlLoader implements ModelLoader<GlideUrl, InputStream> {
       }
     }
     int timeout = options.get(TIMEOUT);
-    return new LoadData<>(url, new HttpUrlFetcher(url, timeout));
+    PartialDownloadCache cache =
+        options.get(PartialDownloadCache.STAGE_PARTIAL_DOWNLOADS) ? partialDownloadCache : null;
+    return new LoadData<>(url, new HttpUrlFetcher(url, timeout, cache));
   }
 
   @Override
@@ -65,11 +82,26 @@ public class HttpGlideUrlLoader implements ModelLoader<GlideUrl, InputStream> {
    */
   public static class Factory implements ModelLoaderFactory<GlideUrl, InputStream> {
     private final ModelCache<GlideUrl, GlideUrl> modelCache = new ModelCache<>(500);
+    @Nullable private final PartialDownloadCache partialDownloadCache;
+
+    public Factory() {
+      this(null);
+    }
+
+    /**
+     * @param partialDownloadCache If non-null, interrupted downloads of large images are staged in
+     *                             the given cache and resumed by later loads of the same url, for
+     *                             loads that set
+     *                             {@link PartialDownloadCache#STAGE_PARTIAL_DOWNLOADS}.
+     */
+    public Factory(@Nullable PartialDownloadCache partialDownloadCache) {
+      this.partialDownloadCache = partialDownloadCache;
+    }
 
     @NonNull
     @Override
     public ModelLoader<GlideUrl, InputStream> build(MultiModelLoaderFactory multiFactory) {
-      return new HttpGlideUrlLoader(modelCache);
+      return new HttpGlideUrlLoader(modelCache, partialDownloadCache);
     }
 
     @Override
@@ -0,0 +1,424 @@
+package com.bumptech.glide.load.resource;
+
+import static com.bumptech.glide.request.RequestOptions.diskCacheStrategyOf;
+import static com.bumptech.glide.request.RequestOptions.signatureOf;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.SimpleTarget;
+import com.bumptech.glide.request.transition.Transition;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the frames of an animated image one at a time and notifies subscribers when each frame
+ * should be displayed.
+ *
+ * <p>Each frame is decoded by a request for the {@link FrameDecoder#getFrameModel() model} of the
+ * given {@link FrameDecoder}, so the format specific work of decoding a frame is done by the
+ * {@link com.bumptech.glide.load.ResourceDecoder} registered for that model. At most the currently
+ * displayed frame and the next frame are held at once, regardless of the number of frames in the
+ * animation.
+ */
+public class AnimationFrameLoader {
+  private final FrameDecoder frameDecoder;
+  private final Handler handler;
+  private final List<FrameCallback> callbacks = new ArrayList<>();
+  @SuppressWarnings("WeakerAccess") @Synthetic final RequestManager requestManager;
+  private final BitmapPool bitmapPool;
+
+  private boolean isRunning;
+  private boolean isLoadPending;
+  private boolean startFromFirstFrame;
+  private RequestBuilder<Bitmap> requestBuilder;
+  private DelayTarget current;
+  private boolean isCleared;
+  private DelayTarget next;
+  private Bitmap firstFrame;
+  private DelayTarget pendingTarget;
+  @Nullable
+  private OnEveryFrameListener onEveryFrameListener;
+
+  /** Notified when the next frame of an animation is ready to be displayed. */
+  public interface FrameCallback {
+    void onFrameReady();
+  }
+
+  /**
+   * Steps through the frames of an animated image for an {@link AnimationFrameLoader}.
+   */
+  public interface FrameDecoder {
+    /**
+     * Returns the delay in milliseconds to display the current frame for, or 0 if no frame has
+     * been advanced to yet.
+     */
+    int getNextDelay();
+
+    /** Moves to the next frame, wrapping around to the first frame after the last one. */
+    void advance();
+
+    int getCurrentFrameIndex();
+
+    /** Moves back to before the first frame so that the next call to advance selects it. */
+    void resetFrameIndex();
+
+    int getFrameCount();
+
+    /** Returns the approximate number of bytes retained by the decoder. */
+    int getByteSize();
+
+    /** Releases any resources held by the decoder. */
+    void clear();
+
+    /**
+     * Returns the model loaded by the loader's {@link RequestBuilder} to decode the current frame.
+     */
+    @NonNull
+    Object getFrameModel();
+  }
+
+  protected AnimationFrameLoader(
+      BitmapPool bitmapPool,
+      RequestManager requestManager,
+      FrameDecoder frameDecoder,
+      @Nullable Handler handler,
+      RequestBuilder<Bitmap> requestBuilder,
+      Bitmap firstFrame) {
+    this.requestManager = requestManager;
+    if (handler == null) {
+      handler = new Handler(Looper.getMainLooper(), new FrameLoaderCallback());
+    }
+    this.bitmapPool = bitmapPool;
+    this.handler = handler;
+    this.requestBuilder = requestBuilder;
+    this.frameDecoder = frameDecoder;
+    this.firstFrame = Preconditions.checkNotNull(firstFrame);
+  }
+
+  /**
+   * Returns a {@link RequestBuilder} that decodes frames of the given size without caching them.
+   */
+  protected static RequestBuilder<Bitmap> getFrameRequestBuilder(
+      RequestManager requestManager, int width, int height) {
+    return requestManager
+        .asBitmap()
+        .apply(
+            diskCacheStrategyOf(DiskCacheStrategy.NONE)
+                .useAnimationPool(true)
+                .skipMemoryCache(true)
+                .override(width, height));
+  }
+
+  protected final Handler getHandler() {
+    return handler;
+  }
+
+  /** Applies the given options to the requests for all subsequent frames. */
+  protected final void applyToFrameRequests(RequestOptions options) {
+    requestBuilder = requestBuilder.apply(options);
+  }
+
+  protected final void setFirstFrame(Bitmap firstFrame) {
+    this.firstFrame = Preconditions.checkNotNull(firstFrame);
+  }
+
+  public Bitmap getFirstFrame() {
+    return firstFrame;
+  }
+
+  public void subscribe(FrameCallback frameCallback) {
+    if (isCleared) {
+      throw new IllegalStateException("Cannot subscribe to a cleared frame loader");
+    }
+    if (callbacks.contains(frameCallback)) {
+      throw new IllegalStateException("Cannot subscribe twice in a row");
+    }
+    boolean start = callbacks.isEmpty();
+    callbacks.add(frameCallback);
+    if (start) {
+      start();
+    }
+  }
+
+  public void unsubscribe(FrameCallback frameCallback) {
+    callbacks.remove(frameCallback);
+    if (callbacks.isEmpty()) {
+      stop();
+    }
+  }
+
+  public int getWidth() {
+    return getCurrentFrame().getWidth();
+  }
+
+  public int getHeight() {
+    return getCurrentFrame().getHeight();
+  }
+
+  /** Returns the approximate number of bytes held by the decoder and the displayed frame. */
+  public int getSize() {
+    return frameDecoder.getByteSize() + getFrameSize();
+  }
+
+  public int getCurrentIndex() {
+    return current != null ? current.index : -1;
+  }
+
+  protected final int getFrameSize() {
+    return Util.getBitmapByteSize(getCurrentFrame().getWidth(), getCurrentFrame().getHeight(),
+        getCurrentFrame().getConfig());
+  }
+
+  public int getFrameCount() {
+    return frameDecoder.getFrameCount();
+  }
+
+  private void start() {
+    if (isRunning) {
+      return;
+    }
+    isRunning = true;
+    isCleared = false;
+
+    loadNextFrame();
+  }
+
+  private void stop() {
+    isRunning = false;
+  }
+
+  public void clear() {
+    callbacks.clear();
+    recycleFirstFrame();
+    stop();
+    if (current != null) {
+      clearFrame(current);
+      current = null;
+    }
+    if (next != null) {
+      clearFrame(next);
+      next = null;
+    }
+    if (pendingTarget != null) {
+      clearFrame(pendingTarget);
+      pendingTarget = null;
+    }
+    clearDecoder();
+    isCleared = true;
+  }
+
+  public Bitmap getCurrentFrame() {
+    return current != null ? current.getResource() : firstFrame;
+  }
+
+  private void loadNextFrame() {
+    if (!isRunning || isLoadPending) {
+      return;
+    }
+    if (startFromFirstFrame) {
+      Preconditions.checkArgument(
+          pendingTarget == null, "Pending target must be null when starting from the first frame");
+      resetFrameIndex();
+      startFromFirstFrame = false;
+    }
+    if (pendingTarget != null) {
+      DelayTarget temp = pendingTarget;
+      pendingTarget = null;
+      onFrameReady(temp);
+      return;
+    }
+    isLoadPending = true;
+    if (loadNextFrameWithoutRequest()) {
+      return;
+    }
+    // Get the delay before incrementing the pointer because the delay indicates the amount of time
+    // we want to spend on the current frame.
+    int delay = frameDecoder.getNextDelay();
+    long targetTime = SystemClock.uptimeMillis() + delay;
+
+    frameDecoder.advance();
+    next = new DelayTarget(handler, frameDecoder.getCurrentFrameIndex(), targetTime);
+    requestBuilder.apply(signatureOf(getFrameSignature())).load(frameDecoder.getFrameModel())
+        .into(next);
+  }
+
+  /**
+   * Gives subclasses a chance to provide the next frame without starting a request, for example
+   * from frames decoded ahead of time.
+   *
+   * <p>Subclasses that return {@code true} must either call {@link #onNextFrameLoaded(int, int,
+   * Bitmap)} or, if no frame is available yet, call {@link #retryLoadNextFrame()} once one is.
+   *
+   * @return {@code true} if the next frame is provided by the subclass.
+   */
+  protected boolean loadNextFrameWithoutRequest() {
+    return false;
+  }
+
+  /** Displays the given frame after the given delay, as though it had been loaded by a request. */
+  protected final void onNextFrameLoaded(int index, int delay, Bitmap frame) {
+    next = new DelayTarget(handler, index, SystemClock.uptimeMillis() + delay);
+    next.onResourceReady(frame, null /*transition*/);
+  }
+
+  /** Tries to load the next frame again after {@link #loadNextFrameWithoutRequest()} failed to. */
+  protected final void retryLoadNextFrame() {
+    isLoadPending = false;
+    loadNextFrame();
+  }
+
+  /** Moves the decoder back to before the first frame. */
+  protected void resetFrameIndex() {
+    frameDecoder.resetFrameIndex();
+  }
+
+  /** Releases the resources held by the decoder once the loader is cleared. */
+  protected void clearDecoder() {
+    frameDecoder.clear();
+  }
+
+  /** Releases the frame held by the given target once it's no longer displayed. */
+  protected void clearFrame(DelayTarget target) {
+    requestManager.clear(target);
+  }
+
+  private void recycleFirstFrame() {
+    if (firstFrame != null) {
+      bitmapPool.put(firstFrame);
+      firstFrame = null;
+    }
+  }
+
+  public void setNextStartFromFirstFrame() {
+    Preconditions.checkArgument(!isRunning, "Can't restart a running animation");
+    startFromFirstFrame = true;
+    if (pendingTarget != null) {
+      clearFrame(pendingTarget);
+      pendingTarget = null;
+    }
+  }
+
+  @VisibleForTesting
+  public void setOnEveryFrameReadyListener(@Nullable OnEveryFrameListener onEveryFrameListener) {
+    this.onEveryFrameListener = onEveryFrameListener;
+  }
+
+  @VisibleForTesting
+  public void onFrameReady(DelayTarget delayTarget) {
+    if (onEveryFrameListener != null) {
+      onEveryFrameListener.onFrameReady();
+    }
+    isLoadPending = false;
+    if (isCleared) {
+      handler.obtainMessage(FrameLoaderCallback.MSG_CLEAR, delayTarget).sendToTarget();
+      return;
+    }
+    // If we're not running, notifying here will recycle the frame that we might currently be
+    // showing, which breaks things (see #2526). We also can't discard this frame because we've
+    // already incremented the frame pointer and can't decode the same frame again. Instead we'll
+    // just hang on to this next frame until start() or clear() are called.
+    if (!isRunning) {
+      pendingTarget = delayTarget;
+      return;
+    }
+
+    if (delayTarget.getResource() != null) {
+      recycleFirstFrame();
+      DelayTarget previous = current;
+      current = delayTarget;
+      // The callbacks may unregister when onFrameReady is called, so iterate in reverse to avoid
+      // concurrent modifications.
+      for (int i = callbacks.size() - 1; i >= 0; i--) {
+        FrameCallback cb = callbacks.get(i);
+        cb.onFrameReady();
+      }
+      if (previous != null) {
+        handler.obtainMessage(FrameLoaderCallback.MSG_CLEAR, previous).sendToTarget();
+      }
+    }
+
+    loadNextFrame();
+  }
+
+  private class FrameLoaderCallback implements Handler.Callback {
+    static final int MSG_DELAY = 1;
+    static final int MSG_CLEAR = 2;
+
+    @Synthetic
+    FrameLoaderCallback() { }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+      if (msg.what == MSG_DELAY) {
+        DelayTarget target = (DelayTarget) msg.obj;
+        onFrameReady(target);
+        return true;
+      } else if (msg.what == MSG_CLEAR) {
+        DelayTarget target = (DelayTarget) msg.obj;
+        clearFrame(target);
+      }
+      return false;
+    }
+  }
+
+  /** Holds a loaded frame until it's time to display it. */
+  @VisibleForTesting
+  public static class DelayTarget extends SimpleTarget<Bitmap> {
+    private final Handler handler;
+    @Synthetic final int index;
+    private final long targetTime;
+    private Bitmap resource;
+
+    public DelayTarget(Handler handler, int index, long targetTime) {
+      this.handler = handler;
+      this.index = index;
+      this.targetTime = targetTime;
+    }
+
+    public Bitmap getResource() {
+      return resource;
+    }
+
+    @Nullable
+    public Bitmap takeResource() {
+      Bitmap result = resource;
+      resource = null;
+      return result;
+    }
+
+    @Override
+    public void onResourceReady(@NonNull Bitmap resource,
+        @Nullable Transition<? super Bitmap> transition) {
+      this.resource = resource;
+      Message msg = handler.obtainMessage(FrameLoaderCallback.MSG_DELAY, this);
+      handler.sendMessageAtTime(msg, targetTime);
+    }
+  }
+
+  private static Key getFrameSignature() {
+    // Some devices seem to have crypto bugs that throw exceptions when you create a new UUID.
+    // See #1510.
+    return new ObjectKey(Math.random());
+  }
+
+  @VisibleForTesting
+  public interface OnEveryFrameListener {
+    void onFrameReady();
+  }
+}
@@ -0,0 +1,389 @@
+package com.bumptech.glide.load.resource.apng;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.load.resource.AnimationFrameLoader;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Decodes the frames of an animated PNG one at a time from the compressed chunks indexed by an
+ * {@link ApngHeader}.
+ *
+ * <p>Unlike {@link ApngResourceDecoder}, which materializes every frame up front, this class only
+ * holds on to the source bytes, a single composition canvas and, for frames that are disposed to
+ * their previous contents, a copy of the region they overwrite. Each call to
+ * {@link #getNextFrame()} inflates the current frame's {@code IDAT}/{@code fdAT} data, composes it
+ * onto the canvas and returns a copy of the canvas obtained from the {@link ApngBitmapProvider}.
+ * </p>
+ *
+ * <p>Frames are inflated by wrapping their compressed data in a minimal standalone PNG stream
+ * so that the platform decoder can do the work and decode directly into a pooled
+ * {@link Bitmap}.</p>
+ */
+public class ApngDecoder implements AnimationFrameLoader.FrameDecoder {
+  private static final String TAG = ApngDecoder.class.getSimpleName();
+
+  private static final int INITIAL_FRAME_POINTER = -1;
+  private static final byte[] PNG_SIGNATURE =
+      new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+  private static final int CHUNK_OVERHEAD = 12;
+  private static final int BYTES_PER_INTEGER = 4;
+
+  private final ApngBitmapProvider bitmapProvider;
+  private final ApngHeader header;
+  private final ByteBuffer rawData;
+  private final CRC32 crc = new CRC32();
+  private final BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+  private final Paint srcPaint = new Paint();
+  private final Paint clearPaint = new Paint();
+  private final Rect frameRect = new Rect();
+  private final Rect restoreRect = new Rect();
+  private final Canvas outputCanvas = new Canvas();
+  private final int ancillarySize;
+
+  private int framePointer = INITIAL_FRAME_POINTER;
+  private int lastRenderedIndex = INITIAL_FRAME_POINTER;
+  @Nullable private Bitmap canvasBitmap;
+  @Nullable private Canvas canvas;
+  @Nullable private Bitmap restoreBitmap;
+  @Nullable private Canvas restoreCanvas;
+
+  public ApngDecoder(
+      @NonNull ApngBitmapProvider bitmapProvider,
+      @NonNull ApngHeader header,
+      @NonNull ByteBuffer rawData) {
+    this.bitmapProvider = bitmapProvider;
+    this.header = header;
+    this.rawData = rawData.asReadOnlyBuffer();
+    this.rawData.position(0);
+
+    int size = 0;
+    for (int[] chunk : header.ancillaryChunks) {
+      size += chunk[1];
+    }
+    ancillarySize = size;
+
+    decodeOptions.inPreferredConfig = Bitmap.Config.ARGB_8888;
+    decodeOptions.inMutable = true;
+    srcPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+    clearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+  }
+
+  public int getWidth() {
+    return header.width;
+  }
+
+  public int getHeight() {
+    return header.height;
+  }
+
+  @NonNull
+  public ByteBuffer getData() {
+    return rawData;
+  }
+
+  @Override
+  public int getFrameCount() {
+    return header.getNumFrames();
+  }
+
+  /**
+   * Returns the number of times the animation should be played or
+   * {@link ApngHeader#NUM_PLAYS_FOREVER} if it should loop forever.
+   */
+  public int getNumPlays() {
+    return header.numPlays;
+  }
+
+  @Override
+  public int getCurrentFrameIndex() {
+    return framePointer;
+  }
+
+  @Override
+  public void advance() {
+    framePointer = (framePointer + 1) % header.getNumFrames();
+  }
+
+  @Override
+  public void resetFrameIndex() {
+    framePointer = INITIAL_FRAME_POINTER;
+  }
+
+  /**
+   * Returns the delay in milliseconds to display the current frame for, or 0 if no frame has been
+   * advanced to yet.
+   */
+  @Override
+  public int getNextDelay() {
+    if (header.getNumFrames() <= 0 || framePointer < 0) {
+      return 0;
+    }
+    return header.frames.get(framePointer).delay;
+  }
+
+  /**
+   * Returns the approximate number of bytes retained by this decoder, which is independent of the
+   * number of frames in the animation.
+   */
+  @Override
+  public int getByteSize() {
+    return rawData.limit() + header.width * header.height * BYTES_PER_INTEGER;
+  }
+
+  @NonNull
+  @Override
+  public Object getFrameModel() {
+    return this;
+  }
+
+  /**
+   * Composes and returns the current frame, or {@code null} if the frame can't be decoded.
+   *
+   * <p>The returned {@link Bitmap} is owned by the caller and should be returned to the
+   * {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool} when it's no longer
+   * displayed.</p>
+   */
+  @Nullable
+  public synchronized Bitmap getNextFrame() {
+    if (header.getNumFrames() <= 0 || framePointer < 0) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Unable to decode frame"
+            + ", frameCount=" + header.getNumFrames()
+            + ", framePointer=" + framePointer);
+      }
+      return null;
+    }
+    if (canvasBitmap == null) {
+      canvasBitmap =
+          bitmapProvider.obtain(header.width, header.height, Bitmap.Config.ARGB_8888);
+      canvas = newCanvas();
+      canvas.setBitmap(canvasBitmap);
+      lastRenderedIndex = INITIAL_FRAME_POINTER;
+    }
+
+    // Frames are composed on top of one another, so if we've jumped (typically back to the first
+    // frame), start from a clear canvas and compose all of the frames up to the current one.
+    if (framePointer <= lastRenderedIndex || lastRenderedIndex == INITIAL_FRAME_POINTER) {
+      canvasBitmap.eraseColor(Color.TRANSPARENT);
+      releaseRestoreBitmap();
+      lastRenderedIndex = INITIAL_FRAME_POINTER;
+    }
+    while (lastRenderedIndex < framePointer) {
+      if (!renderFrame(lastRenderedIndex + 1)) {
+        return null;
+      }
+    }
+
+    Bitmap result = bitmapProvider.obtain(header.width, header.height, Bitmap.Config.ARGB_8888);
+    outputCanvas.setBitmap(result);
+    outputCanvas.drawBitmap(canvasBitmap, 0, 0, srcPaint);
+    outputCanvas.setBitmap(null);
+    return result;
+  }
+
+  @Override
+  public synchronized void clear() {
+    if (canvasBitmap != null) {
+      canvas = null;
+      bitmapProvider.release(canvasBitmap);
+      canvasBitmap = null;
+    }
+    releaseRestoreBitmap();
+    lastRenderedIndex = INITIAL_FRAME_POINTER;
+  }
+
+  private boolean renderFrame(int index) {
+    if (lastRenderedIndex >= 0) {
+      dispose(lastRenderedIndex);
+    }
+    ApngFrame frame = header.frames.get(index);
+    frameRect.set(frame.xOffset, frame.yOffset, frame.xOffset + frame.width,
+        frame.yOffset + frame.height);
+
+    if (getDisposeOp(index) == ApngFrame.DISPOSE_OP_PREVIOUS) {
+      saveRegion(frame);
+    }
+
+    Bitmap frameBitmap = decodeFrame(frame);
+    if (frameBitmap == null) {
+      return false;
+    }
+    Canvas target = canvas;
+    if (target != null) {
+      target.drawBitmap(frameBitmap, frame.xOffset, frame.yOffset,
+          frame.blendOp == ApngFrame.BLEND_OP_SOURCE ? srcPaint : null);
+    }
+    bitmapProvider.release(frameBitmap);
+    lastRenderedIndex = index;
+    return true;
+  }
+
+  /**
+   * Returns the dispose op of the given frame, treating {@link ApngFrame#DISPOSE_OP_PREVIOUS} on
+   * the first frame as {@link ApngFrame#DISPOSE_OP_BACKGROUND} as required by the spec.
+   */
+  private int getDisposeOp(int index) {
+    int disposeOp = header.frames.get(index).disposeOp;
+    return index == 0 && disposeOp == ApngFrame.DISPOSE_OP_PREVIOUS
+        ? ApngFrame.DISPOSE_OP_BACKGROUND : disposeOp;
+  }
+
+  private void dispose(int index) {
+    Canvas target = canvas;
+    if (target == null) {
+      return;
+    }
+    ApngFrame previous = header.frames.get(index);
+    switch (getDisposeOp(index)) {
+      case ApngFrame.DISPOSE_OP_BACKGROUND:
+        if (previous.isFullFrame(header.width, header.height)) {
+          target.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        } else {
+          restoreRect.set(previous.xOffset, previous.yOffset, previous.xOffset + previous.width,
+              previous.yOffset + previous.height);
+          target.drawRect(restoreRect, clearPaint);
+        }
+        break;
+      case ApngFrame.DISPOSE_OP_PREVIOUS:
+        if (restoreBitmap != null) {
+          target.drawBitmap(restoreBitmap, previous.xOffset, previous.yOffset, srcPaint);
+          releaseRestoreBitmap();
+        }
+        break;
+      case ApngFrame.DISPOSE_OP_NONE:
+      default:
+        // Do nothing.
+        break;
+    }
+  }
+
+  private void saveRegion(ApngFrame frame) {
+    releaseRestoreBitmap();
+    restoreBitmap = bitmapProvider.obtain(frame.width, frame.height, Bitmap.Config.ARGB_8888);
+    if (restoreCanvas == null) {
+      restoreCanvas = newCanvas();
+    }
+    restoreRect.set(0, 0, frame.width, frame.height);
+    restoreCanvas.setBitmap(restoreBitmap);
+    restoreCanvas.drawBitmap(canvasBitmap, frameRect, restoreRect, srcPaint);
+    restoreCanvas.setBitmap(null);
+  }
+
+  private void releaseRestoreBitmap() {
+    if (restoreBitmap != null) {
+      bitmapProvider.release(restoreBitmap);
+      restoreBitmap = null;
+    }
+  }
+
+  @VisibleForTesting
+  Canvas newCanvas() {
+    return new Canvas();
+  }
+
+  @VisibleForTesting
+  @Nullable
+  Bitmap decodeFrame(ApngFrame frame) {
+    int length = PNG_SIGNATURE.length
+        + CHUNK_OVERHEAD + ApngHeaderParser.IHDR_LENGTH
+        + ancillarySize
+        + CHUNK_OVERHEAD + frame.getDataSize()
+        + CHUNK_OVERHEAD;
+    byte[] png = bitmapProvider.obtainByteArray(length);
+    Bitmap inBitmap = bitmapProvider.obtain(frame.width, frame.height, Bitmap.Config.ARGB_8888);
+    Bitmap result;
+    try {
+      writeFramePng(frame, png);
+      decodeOptions.inBitmap = inBitmap;
+      try {
+        result = BitmapFactory.decodeByteArray(png, 0, length, decodeOptions);
+      } catch (IllegalArgumentException e) {
+        // The pooled Bitmap couldn't be reused, fall back to allocating a new one.
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to reuse Bitmap for frame, retrying without inBitmap", e);
+        }
+        bitmapProvider.release(inBitmap);
+        inBitmap = null;
+        decodeOptions.inBitmap = null;
+        result = BitmapFactory.decodeByteArray(png, 0, length, decodeOptions);
+      }
+    } finally {
+      decodeOptions.inBitmap = null;
+      bitmapProvider.release(png);
+    }
+    if (result == null && inBitmap != null) {
+      bitmapProvider.release(inBitmap);
+    }
+    return result;
+  }
+
+  /**
+   * Writes a standalone PNG for the given frame: the original header with the frame's
+   * dimensions, any ancillary chunks (palettes, transparency) and one {@code IDAT} chunk
+   * containing the frame's compressed data.
+   */
+  private void writeFramePng(ApngFrame frame, byte[] png) {
+    int position = 0;
+    System.arraycopy(PNG_SIGNATURE, 0, png, position, PNG_SIGNATURE.length);
+    position += PNG_SIGNATURE.length;
+
+    int chunkStart = position;
+    position = writeInt(png, position, ApngHeaderParser.IHDR_LENGTH);
+    position = writeInt(png, position, ApngHeaderParser.IHDR);
+    System.arraycopy(header.ihdr, 0, png, position, ApngHeaderParser.IHDR_LENGTH);
+    writeInt(png, position, frame.width);
+    writeInt(png, position + BYTES_PER_INTEGER, frame.height);
+    position += ApngHeaderParser.IHDR_LENGTH;
+    position = writeCrc(png, chunkStart, position);
+
+    ByteBuffer source = rawData.duplicate();
+    for (int[] chunk : header.ancillaryChunks) {
+      source.position(chunk[0]);
+      source.get(png, position, chunk[1]);
+      position += chunk[1];
+    }
+
+    chunkStart = position;
+    position = writeInt(png, position, frame.getDataSize());
+    position = writeInt(png, position, ApngHeaderParser.IDAT);
+    for (int i = 0; i < frame.getDataChunkCount(); i++) {
+      source.position(frame.getDataOffset(i));
+      source.get(png, position, frame.getDataLength(i));
+      position += frame.getDataLength(i);
+    }
+    position = writeCrc(png, chunkStart, position);
+
+    chunkStart = position;
+    position = writeInt(png, position, 0);
+    position = writeInt(png, position, ApngHeaderParser.IEND);
+    writeCrc(png, chunkStart, position);
+  }
+
+  /** Writes the CRC of the chunk type and data that start four bytes after the given offset. */
+  private int writeCrc(byte[] png, int chunkStart, int chunkEnd) {
+    int typeStart = chunkStart + BYTES_PER_INTEGER;
+    crc.reset();
+    crc.update(png, typeStart, chunkEnd - typeStart);
+    return writeInt(png, chunkEnd, (int) crc.getValue());
+  }
+
+  private static int writeInt(byte[] bytes, int offset, int value) {
+    bytes[offset] = (byte) (value >>> 24);
+    bytes[offset + 1] = (byte) (value >>> 16);
+    bytes[offset + 2] = (byte) (value >>> 8);
+    bytes[offset + 3] = (byte) value;
+    return offset + BYTES_PER_INTEGER;
+  }
+}
@@ -0,0 +1,87 @@
+package com.bumptech.glide.load.resource.apng;
+
+/**
+ * Metadata for a single frame of an animated PNG, parsed from its {@code fcTL} chunk, along with
+ * the locations of the frame's compressed image data in the source buffer.
+ *
+ * <p>Only offsets are retained, the compressed data itself is left in the source buffer and read
+ * each time the frame is decoded.</p>
+ *
+ * @see <a href="https://wiki.mozilla.org/APNG_Specification">APNG Specification</a>
+ */
+final class ApngFrame {
+  /** No disposal, the output buffer is left as is before rendering the next frame. */
+  static final int DISPOSE_OP_NONE = 0;
+  /** The frame's region is cleared to fully transparent black before the next frame. */
+  static final int DISPOSE_OP_BACKGROUND = 1;
+  /** The frame's region is reverted to its previous contents before the next frame. */
+  static final int DISPOSE_OP_PREVIOUS = 2;
+
+  /** All color components of the frame overwrite the frame's region of the output buffer. */
+  static final int BLEND_OP_SOURCE = 0;
+  /** The frame is alpha composited over the current contents of the output buffer. */
+  static final int BLEND_OP_OVER = 1;
+
+  private static final int INITIAL_CHUNK_CAPACITY = 2;
+
+  final int width;
+  final int height;
+  final int xOffset;
+  final int yOffset;
+  /** Delay in milliseconds before the next frame is displayed. */
+  final int delay;
+  final int disposeOp;
+  final int blendOp;
+
+  private int[] dataOffsets = new int[INITIAL_CHUNK_CAPACITY];
+  private int[] dataLengths = new int[INITIAL_CHUNK_CAPACITY];
+  private int dataChunkCount;
+  private int dataSize;
+
+  ApngFrame(int width, int height, int xOffset, int yOffset, int delay, int disposeOp,
+      int blendOp) {
+    this.width = width;
+    this.height = height;
+    this.xOffset = xOffset;
+    this.yOffset = yOffset;
+    this.delay = delay;
+    this.disposeOp = disposeOp;
+    this.blendOp = blendOp;
+  }
+
+  void addData(int offset, int length) {
+    if (dataChunkCount == dataOffsets.length) {
+      int[] newOffsets = new int[dataChunkCount * 2];
+      int[] newLengths = new int[dataChunkCount * 2];
+      System.arraycopy(dataOffsets, 0, newOffsets, 0, dataChunkCount);
+      System.arraycopy(dataLengths, 0, newLengths, 0, dataChunkCount);
+      dataOffsets = newOffsets;
+      dataLengths = newLengths;
+    }
+    dataOffsets[dataChunkCount] = offset;
+    dataLengths[dataChunkCount] = length;
+    dataChunkCount++;
+    dataSize += length;
+  }
+
+  int getDataChunkCount() {
+    return dataChunkCount;
+  }
+
+  int getDataOffset(int chunk) {
+    return dataOffsets[chunk];
+  }
+
+  int getDataLength(int chunk) {
+    return dataLengths[chunk];
+  }
+
+  /** Returns the total number of compressed bytes across all of this frame's data chunks. */
+  int getDataSize() {
+    return dataSize;
+  }
+
+  boolean isFullFrame(int canvasWidth, int canvasHeight) {
+    return xOffset == 0 && yOffset == 0 && width == canvasWidth && height == canvasHeight;
+  }
+}
@@ -0,0 +1,54 @@
+package com.bumptech.glide.load.resource.apng;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.AnimationFrameLoader;
+
+/**
+ * Loads the frames of an animated PNG one at a time on Glide's animation executor.
+ *
+ * <p>At most the currently displayed frame, the next frame and the decoder's composition canvas
+ * are held in memory at any time, regardless of how many frames the animation contains.</p>
+ */
+class ApngFrameLoader extends AnimationFrameLoader {
+  private final ApngDecoder apngDecoder;
+
+  ApngFrameLoader(Glide glide, ApngDecoder apngDecoder, int width, int height, Bitmap firstFrame) {
+    this(
+        glide.getBitmapPool(),
+        Glide.with(glide.getContext()),
+        apngDecoder,
+        null /*handler*/,
+        getFrameRequestBuilder(Glide.with(glide.getContext()), width, height),
+        firstFrame);
+  }
+
+  ApngFrameLoader(
+      BitmapPool bitmapPool,
+      RequestManager requestManager,
+      ApngDecoder apngDecoder,
+      Handler handler,
+      RequestBuilder<Bitmap> requestBuilder,
+      Bitmap firstFrame) {
+    super(bitmapPool, requestManager, apngDecoder, handler, requestBuilder, firstFrame);
+    this.apngDecoder = apngDecoder;
+  }
+
+  @Override
+  public int getSize() {
+    // The currently displayed frame plus the frame being loaded.
+    return super.getSize() + getFrameSize();
+  }
+
+  ApngDecoder getDecoder() {
+    return apngDecoder;
+  }
+
+  int getNumPlays() {
+    return apngDecoder.getNumPlays();
+  }
+}
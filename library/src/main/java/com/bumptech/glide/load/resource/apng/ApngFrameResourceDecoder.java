@@ -0,0 +1,33 @@
+package com.bumptech.glide.load.resource.apng;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.BitmapResource;
+
+/**
+ * Decodes {@link Bitmap}s from {@link ApngDecoder}s representing a particular frame of a
+ * particular animated PNG.
+ */
+public final class ApngFrameResourceDecoder implements ResourceDecoder<ApngDecoder, Bitmap> {
+  private final BitmapPool bitmapPool;
+
+  public ApngFrameResourceDecoder(BitmapPool bitmapPool) {
+    this.bitmapPool = bitmapPool;
+  }
+
+  @Override
+  public boolean handles(@NonNull ApngDecoder source, @NonNull Options options) {
+    return true;
+  }
+
+  @Override
+  public Resource<Bitmap> decode(@NonNull ApngDecoder source, int width, int height,
+      @NonNull Options options) {
+    Bitmap bitmap = source.getNextFrame();
+    return BitmapResource.obtain(bitmap, bitmapPool);
+  }
+}
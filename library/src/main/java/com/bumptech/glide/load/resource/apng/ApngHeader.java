@@ -0,0 +1,49 @@
+package com.bumptech.glide.load.resource.apng;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An index over the chunks of an animated PNG containing the image dimensions, the animation
+ * control values and the {@link ApngFrame}s that can be used to decode each individual frame
+ * lazily. Can be shared by one or more {@link ApngDecoder}s to play the same image in multiple
+ * views.
+ */
+public final class ApngHeader {
+  /** Indicates that the image has been successfully indexed. */
+  public static final int STATUS_OK = 0;
+  /** Indicates that the image is not a valid PNG or one of its chunks is truncated. */
+  public static final int STATUS_FORMAT_ERROR = 1;
+  /** The {@code acTL} play count which means loop forever. */
+  public static final int NUM_PLAYS_FOREVER = 0;
+
+  final List<ApngFrame> frames = new ArrayList<>();
+  /** Offsets and lengths of whole ancillary chunks that precede the image data. */
+  final List<int[]> ancillaryChunks = new ArrayList<>();
+  /** The 13 bytes of {@code IHDR} chunk data. */
+  final byte[] ihdr = new byte[ApngHeaderParser.IHDR_LENGTH];
+  int status = STATUS_OK;
+  int width;
+  int height;
+  int numPlays = NUM_PLAYS_FOREVER;
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getNumFrames() {
+    return frames.size();
+  }
+
+  public int getNumPlays() {
+    return numPlays;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+}
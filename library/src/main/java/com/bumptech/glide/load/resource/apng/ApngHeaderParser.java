@@ -0,0 +1,181 @@
+package com.bumptech.glide.load.resource.apng;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Walks the chunks of an animated PNG once and records where each frame's compressed data lives
+ * without inflating any of it.
+ *
+ * <p>The resulting {@link ApngHeader} is small (a handful of ints per frame) so that the source
+ * bytes and the header are all that needs to be kept in memory while an animation plays.</p>
+ */
+public final class ApngHeaderParser {
+  private static final String TAG = "ApngHeaderParser";
+
+  static final int IHDR_LENGTH = 13;
+  static final int IHDR = 'I' << 24 | 'H' << 16 | 'D' << 8 | 'R';
+  static final int IDAT = 'I' << 24 | 'D' << 16 | 'A' << 8 | 'T';
+  static final int IEND = 'I' << 24 | 'E' << 16 | 'N' << 8 | 'D';
+  static final int ACTL = 'a' << 24 | 'c' << 16 | 'T' << 8 | 'L';
+  static final int FCTL = 'f' << 24 | 'c' << 16 | 'T' << 8 | 'L';
+  static final int FDAT = 'f' << 24 | 'd' << 16 | 'A' << 8 | 'T';
+
+  private static final long PNG_SIGNATURE = 0x89504E470D0A1A0AL;
+  private static final int SIGNATURE_LENGTH = 8;
+  private static final int CRC_LENGTH = 4;
+  private static final int SEQUENCE_NUMBER_LENGTH = 4;
+  private static final int DEFAULT_DENOMINATOR = 100;
+  // Matches the behavior of browsers and of the GIF decoder for very short delays.
+  private static final int MIN_FRAME_DELAY_MS = 11;
+  private static final int DEFAULT_FRAME_DELAY_MS = 100;
+
+  private ByteBuffer rawData;
+  private ApngHeader header;
+
+  public ApngHeaderParser setData(@NonNull ByteBuffer data) {
+    reset();
+    rawData = data.asReadOnlyBuffer();
+    rawData.position(0);
+    rawData.order(ByteOrder.BIG_ENDIAN);
+    return this;
+  }
+
+  public void clear() {
+    rawData = null;
+    header = null;
+  }
+
+  private void reset() {
+    rawData = null;
+    header = new ApngHeader();
+  }
+
+  @NonNull
+  public ApngHeader parseHeader() {
+    if (rawData == null) {
+      throw new IllegalStateException("You must call setData() before parseHeader()");
+    }
+    try {
+      readChunks();
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Truncated or malformed APNG", e);
+      }
+      header.status = ApngHeader.STATUS_FORMAT_ERROR;
+    }
+    if (header.status == ApngHeader.STATUS_OK && header.frames.isEmpty()) {
+      header.status = ApngHeader.STATUS_FORMAT_ERROR;
+    }
+    return header;
+  }
+
+  private void readChunks() {
+    if (rawData.remaining() < SIGNATURE_LENGTH || rawData.getLong() != PNG_SIGNATURE) {
+      header.status = ApngHeader.STATUS_FORMAT_ERROR;
+      return;
+    }
+    boolean isAnimated = false;
+    boolean seenImageData = false;
+    ApngFrame currentFrame = null;
+    while (rawData.remaining() > 0) {
+      int chunkStart = rawData.position();
+      int length = rawData.getInt();
+      int type = rawData.getInt();
+      int dataStart = rawData.position();
+      if (length < 0 || length + CRC_LENGTH > rawData.remaining()) {
+        header.status = ApngHeader.STATUS_FORMAT_ERROR;
+        return;
+      }
+      switch (type) {
+        case IHDR:
+          if (length != IHDR_LENGTH) {
+            header.status = ApngHeader.STATUS_FORMAT_ERROR;
+            return;
+          }
+          rawData.get(header.ihdr);
+          header.width = readInt(header.ihdr, 0);
+          header.height = readInt(header.ihdr, 4);
+          break;
+        case ACTL:
+          isAnimated = true;
+          // The first int is the frame count, which we derive from the fcTL chunks instead.
+          rawData.getInt();
+          header.numPlays = rawData.getInt();
+          break;
+        case FCTL:
+          currentFrame = readFrameControl();
+          header.frames.add(currentFrame);
+          break;
+        case IDAT:
+          seenImageData = true;
+          if (!isAnimated && currentFrame == null) {
+            // A static PNG is treated as a single frame animation.
+            currentFrame = new ApngFrame(header.width, header.height, 0 /*xOffset*/,
+                0 /*yOffset*/, 0 /*delay*/, ApngFrame.DISPOSE_OP_NONE,
+                ApngFrame.BLEND_OP_SOURCE);
+            header.frames.add(currentFrame);
+          }
+          // If no fcTL precedes the IDAT chunks, the default image isn't part of the animation.
+          if (currentFrame != null) {
+            currentFrame.addData(dataStart, length);
+          }
+          break;
+        case FDAT:
+          if (currentFrame != null) {
+            currentFrame.addData(
+                dataStart + SEQUENCE_NUMBER_LENGTH, length - SEQUENCE_NUMBER_LENGTH);
+          }
+          break;
+        case IEND:
+          return;
+        default:
+          // Palettes, transparency and color space chunks must be passed along to each frame.
+          if (!seenImageData) {
+            header.ancillaryChunks.add(new int[] {chunkStart, length + 3 * CRC_LENGTH});
+          }
+          break;
+      }
+      rawData.position(dataStart + length + CRC_LENGTH);
+    }
+  }
+
+  private ApngFrame readFrameControl() {
+    // Sequence number.
+    rawData.getInt();
+    int width = rawData.getInt();
+    int height = rawData.getInt();
+    int xOffset = rawData.getInt();
+    int yOffset = rawData.getInt();
+    int delayNumerator = rawData.getShort() & 0xFFFF;
+    int delayDenominator = rawData.getShort() & 0xFFFF;
+    int disposeOp = rawData.get();
+    int blendOp = rawData.get();
+    if (width <= 0 || height <= 0 || xOffset < 0 || yOffset < 0
+        || xOffset + width > header.width || yOffset + height > header.height) {
+      throw new IllegalArgumentException("Frame region outside of image bounds");
+    }
+    if (delayDenominator == 0) {
+      delayDenominator = DEFAULT_DENOMINATOR;
+    }
+    int delay = delayNumerator * 1000 / delayDenominator;
+    if (delay < MIN_FRAME_DELAY_MS) {
+      delay = DEFAULT_FRAME_DELAY_MS;
+    }
+    // The first frame can't restore to a previous state, per the spec it's treated as a clear.
+    if (header.frames.isEmpty() && disposeOp == ApngFrame.DISPOSE_OP_PREVIOUS) {
+      disposeOp = ApngFrame.DISPOSE_OP_BACKGROUND;
+    }
+    return new ApngFrame(width, height, xOffset, yOffset, delay, disposeOp, blendOp);
+  }
+
+  private static int readInt(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xFF) << 24
+        | (bytes[offset + 1] & 0xFF) << 16
+        | (bytes[offset + 2] & 0xFF) << 8
+        | (bytes[offset + 3] & 0xFF);
+  }
+}
@@ -0,0 +1,318 @@
+package com.bumptech.glide.load.resource.apng;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.view.Gravity;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.util.Preconditions;
+import java.nio.ByteBuffer;
+
+/**
+ * An animated {@link Drawable} that plays the frames of an animated PNG, decoding each frame on
+ * demand.
+ *
+ * <p>Where {@link ApngDrawable} holds every frame of the animation in memory, this drawable only
+ * holds the compressed source and roughly three frames worth of {@link Bitmap}s, which makes it a
+ * better fit for long animations or for lists that display many animations at once.</p>
+ *
+ * @see com.bumptech.glide.RequestManager#asStreamingApng()
+ */
+public class StreamingApngDrawable extends Drawable
+    implements ApngFrameLoader.FrameCallback, Animatable {
+  /** A constant indicating that the animation should loop continuously. */
+  public static final int LOOP_FOREVER = -1;
+  /**
+   * A constant indicating that the animation should loop for the number of times specified in the
+   * image's {@code acTL} chunk.
+   */
+  public static final int LOOP_INTRINSIC = 0;
+  private static final int GRAVITY = Gravity.FILL;
+
+  private final ApngState state;
+  private boolean isRunning;
+  private boolean isStarted;
+  private boolean isRecycled;
+  // See GifDrawable#isVisible, setVisible isn't always called on Drawables.
+  private boolean isVisible = true;
+  private int loopCount;
+  private int maxLoopCount = LOOP_FOREVER;
+
+  private boolean applyGravity;
+  private Paint paint;
+  private Rect destRect;
+
+  /**
+   * Constructor for StreamingApngDrawable.
+   *
+   * @param context           A context.
+   * @param apngDecoder       The decoder to use to decode the frames of the animation.
+   * @param targetFrameWidth  The desired width of the frames displayed by this drawable.
+   * @param targetFrameHeight The desired height of the frames displayed by this drawable.
+   * @param firstFrame        The decoded first frame of the animation.
+   */
+  public StreamingApngDrawable(
+      Context context,
+      ApngDecoder apngDecoder,
+      int targetFrameWidth,
+      int targetFrameHeight,
+      Bitmap firstFrame) {
+    this(
+        new ApngState(
+            new ApngFrameLoader(
+                Glide.get(context),
+                apngDecoder,
+                targetFrameWidth,
+                targetFrameHeight,
+                firstFrame)));
+  }
+
+  StreamingApngDrawable(ApngState state) {
+    this.state = Preconditions.checkNotNull(state);
+  }
+
+  @VisibleForTesting
+  StreamingApngDrawable(ApngFrameLoader frameLoader, Paint paint) {
+    this(new ApngState(frameLoader));
+    this.paint = paint;
+  }
+
+  public int getSize() {
+    return state.frameLoader.getSize();
+  }
+
+  public Bitmap getFirstFrame() {
+    return state.frameLoader.getFirstFrame();
+  }
+
+  /** Returns the original, compressed bytes of the animated PNG. */
+  public ByteBuffer getBuffer() {
+    return state.frameLoader.getDecoder().getData().asReadOnlyBuffer();
+  }
+
+  public int getFrameCount() {
+    return state.frameLoader.getFrameCount();
+  }
+
+  /**
+   * Returns the current frame index in the range 0..{@link #getFrameCount()} - 1, or -1 if no frame
+   * is displayed.
+   */
+  public int getFrameIndex() {
+    return state.frameLoader.getCurrentIndex();
+  }
+
+  /**
+   * Starts the animation from the first frame. Can only be called while animation is not running.
+   */
+  public void startFromFirstFrame() {
+    Preconditions.checkArgument(!isRunning, "You cannot restart a currently running animation.");
+    state.frameLoader.setNextStartFromFirstFrame();
+    start();
+  }
+
+  @Override
+  public void start() {
+    isStarted = true;
+    loopCount = 0;
+    if (isVisible) {
+      startRunning();
+    }
+  }
+
+  @Override
+  public void stop() {
+    isStarted = false;
+    stopRunning();
+  }
+
+  private void startRunning() {
+    Preconditions.checkArgument(!isRecycled, "You cannot start a recycled Drawable. Ensure that"
+        + "you clear any references to the Drawable when clearing the corresponding request.");
+    if (state.frameLoader.getFrameCount() == 1) {
+      invalidateSelf();
+    } else if (!isRunning) {
+      isRunning = true;
+      state.frameLoader.subscribe(this);
+      invalidateSelf();
+    }
+  }
+
+  private void stopRunning() {
+    isRunning = false;
+    state.frameLoader.unsubscribe(this);
+  }
+
+  @Override
+  public boolean setVisible(boolean visible, boolean restart) {
+    Preconditions.checkArgument(!isRecycled, "Cannot change the visibility of a recycled resource."
+        + " Ensure that you unset the Drawable from your View before changing the View's"
+        + " visibility.");
+    isVisible = visible;
+    if (!visible) {
+      stopRunning();
+    } else if (isStarted) {
+      startRunning();
+    }
+    return super.setVisible(visible, restart);
+  }
+
+  @Override
+  public int getIntrinsicWidth() {
+    return state.frameLoader.getWidth();
+  }
+
+  @Override
+  public int getIntrinsicHeight() {
+    return state.frameLoader.getHeight();
+  }
+
+  @Override
+  public boolean isRunning() {
+    return isRunning;
+  }
+
+  @Override
+  protected void onBoundsChange(Rect bounds) {
+    super.onBoundsChange(bounds);
+    applyGravity = true;
+  }
+
+  @Override
+  public void draw(@NonNull Canvas canvas) {
+    if (isRecycled) {
+      return;
+    }
+
+    if (applyGravity) {
+      Gravity.apply(GRAVITY, getIntrinsicWidth(), getIntrinsicHeight(), getBounds(), getDestRect());
+      applyGravity = false;
+    }
+
+    Bitmap currentFrame = state.frameLoader.getCurrentFrame();
+    canvas.drawBitmap(currentFrame, null, getDestRect(), getPaint());
+  }
+
+  @Override
+  public void setAlpha(int i) {
+    getPaint().setAlpha(i);
+  }
+
+  @Override
+  public void setColorFilter(ColorFilter colorFilter) {
+    getPaint().setColorFilter(colorFilter);
+  }
+
+  private Rect getDestRect() {
+    if (destRect == null) {
+      destRect = new Rect();
+    }
+    return destRect;
+  }
+
+  private Paint getPaint() {
+    if (paint == null) {
+      paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    }
+    return paint;
+  }
+
+  @Override
+  public int getOpacity() {
+    // APNGs almost always contain transparency, so default to transparent to be safe.
+    return PixelFormat.TRANSPARENT;
+  }
+
+  private Callback findCallback() {
+    Callback callback = getCallback();
+    while (callback instanceof Drawable) {
+      callback = ((Drawable) callback).getCallback();
+    }
+    return callback;
+  }
+
+  @Override
+  public void onFrameReady() {
+    if (findCallback() == null) {
+      stop();
+      invalidateSelf();
+      return;
+    }
+
+    invalidateSelf();
+
+    if (getFrameIndex() == getFrameCount() - 1) {
+      loopCount++;
+    }
+
+    if (maxLoopCount != LOOP_FOREVER && loopCount >= maxLoopCount) {
+      stop();
+    }
+  }
+
+  @Override
+  public ConstantState getConstantState() {
+    return state;
+  }
+
+  /**
+   * Clears any resources for loading frames that are currently held on to by this object.
+   */
+  public void recycle() {
+    isRecycled = true;
+    state.frameLoader.clear();
+  }
+
+  boolean isRecycled() {
+    return isRecycled;
+  }
+
+  public void setLoopCount(int loopCount) {
+    if (loopCount <= 0 && loopCount != LOOP_FOREVER && loopCount != LOOP_INTRINSIC) {
+      throw new IllegalArgumentException("Loop count must be greater than 0, or equal to "
+          + "LOOP_FOREVER, or equal to LOOP_INTRINSIC");
+    }
+
+    if (loopCount == LOOP_INTRINSIC) {
+      int numPlays = state.frameLoader.getNumPlays();
+      maxLoopCount = numPlays == ApngHeader.NUM_PLAYS_FOREVER ? LOOP_FOREVER : numPlays;
+    } else {
+      maxLoopCount = loopCount;
+    }
+  }
+
+  static final class ApngState extends ConstantState {
+    @VisibleForTesting
+    final ApngFrameLoader frameLoader;
+
+    ApngState(ApngFrameLoader frameLoader) {
+      this.frameLoader = frameLoader;
+    }
+
+    @NonNull
+    @Override
+    public Drawable newDrawable(Resources res) {
+      return newDrawable();
+    }
+
+    @NonNull
+    @Override
+    public Drawable newDrawable() {
+      return new StreamingApngDrawable(this);
+    }
+
+    @Override
+    public int getChangingConfigurations() {
+      return 0;
+    }
+  }
+}
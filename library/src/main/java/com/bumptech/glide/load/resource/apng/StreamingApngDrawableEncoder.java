@@ -0,0 +1,40 @@
+package com.bumptech.glide.load.resource.apng;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+import com.bumptech.glide.load.EncodeStrategy;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes the original bytes of a {@link StreamingApngDrawable} to a {@link File}.
+ */
+public class StreamingApngDrawableEncoder implements ResourceEncoder<StreamingApngDrawable> {
+  private static final String TAG = "StreamingApngEncoder";
+
+  @NonNull
+  @Override
+  public EncodeStrategy getEncodeStrategy(@NonNull Options options) {
+    return EncodeStrategy.SOURCE;
+  }
+
+  @Override
+  public boolean encode(@NonNull Resource<StreamingApngDrawable> data, @NonNull File file,
+      @NonNull Options options) {
+    StreamingApngDrawable drawable = data.get();
+    boolean success = false;
+    try {
+      ByteBufferUtil.toFile(drawable.getBuffer(), file);
+      success = true;
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Failed to encode APNG drawable data", e);
+      }
+    }
+    return success;
+  }
+}
@@ -0,0 +1,38 @@
+package com.bumptech.glide.load.resource.apng;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.engine.Initializable;
+import com.bumptech.glide.load.resource.drawable.DrawableResource;
+
+/**
+ * A resource wrapping a {@link StreamingApngDrawable}.
+ */
+public class StreamingApngDrawableResource extends DrawableResource<StreamingApngDrawable>
+    implements Initializable {
+
+  public StreamingApngDrawableResource(StreamingApngDrawable drawable) {
+    super(drawable);
+  }
+
+  @NonNull
+  @Override
+  public Class<StreamingApngDrawable> getResourceClass() {
+    return StreamingApngDrawable.class;
+  }
+
+  @Override
+  public int getSize() {
+    return drawable.getSize();
+  }
+
+  @Override
+  public void recycle() {
+    drawable.stop();
+    drawable.recycle();
+  }
+
+  @Override
+  public void initialize() {
+    drawable.getFirstFrame().prepareToDraw();
+  }
+}
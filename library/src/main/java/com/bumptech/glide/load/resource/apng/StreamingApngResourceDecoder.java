@@ -0,0 +1,78 @@
+package com.bumptech.glide.load.resource.apng;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.load.ImageHeaderParserUtils;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.util.ByteBufferUtil;
+import com.bumptech.glide.util.LogTime;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * A {@link ResourceDecoder} that indexes animated PNG data from an {@link InputStream} and returns
+ * a {@link StreamingApngDrawable} that decodes its frames on demand.
+ */
+public class StreamingApngResourceDecoder
+    implements ResourceDecoder<InputStream, StreamingApngDrawable> {
+  private static final String TAG = "StreamingApngDecoder";
+
+  private final Context context;
+  private final List<ImageHeaderParser> parsers;
+  private final ArrayPool arrayPool;
+  private final ApngBitmapProvider provider;
+
+  public StreamingApngResourceDecoder(Context context, List<ImageHeaderParser> parsers,
+      BitmapPool bitmapPool, ArrayPool arrayPool) {
+    this.context = context.getApplicationContext();
+    this.parsers = parsers;
+    this.arrayPool = arrayPool;
+    this.provider = new ApngBitmapProvider(bitmapPool, arrayPool);
+  }
+
+  @Override
+  public boolean handles(@NonNull InputStream source, @NonNull Options options)
+      throws IOException {
+    ImageType type = ImageHeaderParserUtils.getType(parsers, source, arrayPool);
+    return type == ImageType.PNG || type == ImageType.PNG_A;
+  }
+
+  @Nullable
+  @Override
+  public StreamingApngDrawableResource decode(@NonNull InputStream source, int width, int height,
+      @NonNull Options options) throws IOException {
+    long startTime = LogTime.getLogTime();
+    ByteBuffer data = ByteBufferUtil.fromStream(source);
+    ApngHeaderParser parser = new ApngHeaderParser();
+    try {
+      ApngHeader header = parser.setData(data).parseHeader();
+      if (header.getStatus() != ApngHeader.STATUS_OK) {
+        return null;
+      }
+      ApngDecoder apngDecoder = new ApngDecoder(provider, header, data);
+      apngDecoder.advance();
+      Bitmap firstFrame = apngDecoder.getNextFrame();
+      if (firstFrame == null) {
+        apngDecoder.clear();
+        return null;
+      }
+      return new StreamingApngDrawableResource(
+          new StreamingApngDrawable(context, apngDecoder, width, height, firstFrame));
+    } finally {
+      parser.clear();
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Indexed APNG from stream in " + LogTime.getElapsedMillis(startTime));
+      }
+    }
+  }
+}
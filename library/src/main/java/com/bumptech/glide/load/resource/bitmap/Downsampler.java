@@ -12,12 +12,14 @@ import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.load.ImageHeaderParser;
 import com.bumptech.glide.load.ImageHeaderParser.ImageType;
 import com.bumptech.glide.load.ImageHeaderParserUtils;
+import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Option;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.engine.Resource;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy.SampleSizeRounding;
+import com.bumptech.glide.load.resource.bitmap.ImageMetadataCache.ImageMetadata;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.util.LogTime;
@@ -91,6 +93,20 @@ public final class Downsampler {
       Option.memory(
           "com.bumptech.glide.load.resource.bitmap.Downsampler.AllowHardwareDecode", false);
 
+  /**
+   * Indicates that intermediate, lower quality results may be decoded from partially downloaded
+   * JPEG and PNG source data and delivered to the {@link com.bumptech.glide.request.target.Target}
+   * before the final result.
+   *
+   * <p>Intermediate results are decoded from the bytes read so far while the source data is being
+   * written to the disk cache, so this option has no effect unless the source data is cached (the
+   * default for remote images) or for image types other than JPEG and PNG.
+   *
+   * @see com.bumptech.glide.request.BaseRequestOptions#progressive()
+   */
+  public static final Option<Boolean> PROGRESSIVE =
+      Option.memory("com.bumptech.glide.load.resource.bitmap.Downsampler.Progressive", false);
+
   private static final String WBMP_MIME_TYPE = "image/vnd.wap.wbmp";
   private static final String ICO_MIME_TYPE = "image/x-ico";
   private static final Set<String> NO_DOWNSAMPLE_PRE_N_MIME_TYPES =
@@ -130,14 +146,21 @@ public final class Downsampler {
   private final DisplayMetrics displayMetrics;
   private final ArrayPool byteArrayPool;
   private final List<ImageHeaderParser> parsers;
+  private final ImageMetadataCache metadataCache;
   private final HardwareConfigState hardwareConfigState = HardwareConfigState.getInstance();
 
   public Downsampler(List<ImageHeaderParser> parsers, DisplayMetrics displayMetrics,
       BitmapPool bitmapPool, ArrayPool byteArrayPool) {
+    this(parsers, displayMetrics, bitmapPool, byteArrayPool, new ImageMetadataCache());
+  }
+
+  public Downsampler(List<ImageHeaderParser> parsers, DisplayMetrics displayMetrics,
+      BitmapPool bitmapPool, ArrayPool byteArrayPool, ImageMetadataCache metadataCache) {
     this.parsers = parsers;
     this.displayMetrics = Preconditions.checkNotNull(displayMetrics);
     this.bitmapPool = Preconditions.checkNotNull(bitmapPool);
     this.byteArrayPool = Preconditions.checkNotNull(byteArrayPool);
+    this.metadataCache = Preconditions.checkNotNull(metadataCache);
   }
 
   public boolean handles(@SuppressWarnings("unused") InputStream is) {
@@ -201,11 +224,12 @@ public final class Downsampler {
     boolean fixBitmapToRequestedDimensions = options.get(FIX_BITMAP_SIZE_TO_REQUESTED_DIMENSIONS);
     boolean isHardwareConfigAllowed =
       options.get(ALLOW_HARDWARE_CONFIG) != null && options.get(ALLOW_HARDWARE_CONFIG);
+    Key sourceKey = options.get(ImageMetadataCache.SOURCE_KEY);
 
     try {
       Bitmap result = decodeFromWrappedStreams(is, bitmapFactoryOptions,
           downsampleStrategy, decodeFormat, isHardwareConfigAllowed, requestedWidth,
-          requestedHeight, fixBitmapToRequestedDimensions, callbacks);
+          requestedHeight, fixBitmapToRequestedDimensions, sourceKey, callbacks);
       return BitmapResource.obtain(result, bitmapPool);
     } finally {
       releaseOptions(bitmapFactoryOptions);
@@ -216,14 +240,27 @@ public final class Downsampler {
   private Bitmap decodeFromWrappedStreams(InputStream is,
       BitmapFactory.Options options, DownsampleStrategy downsampleStrategy,
       DecodeFormat decodeFormat, boolean isHardwareConfigAllowed, int requestedWidth,
-      int requestedHeight, boolean fixBitmapToRequestedDimensions,
+      int requestedHeight, boolean fixBitmapToRequestedDimensions, @Nullable Key sourceKey,
       DecodeCallbacks callbacks) throws IOException {
     long startTime = LogTime.getLogTime();
 
-    int[] sourceDimensions = getDimensions(is, options, callbacks, bitmapPool);
-    int sourceWidth = sourceDimensions[0];
-    int sourceHeight = sourceDimensions[1];
-    String sourceMimeType = options.outMimeType;
+    ImageMetadata metadata = sourceKey != null ? metadataCache.get(sourceKey) : null;
+    boolean isMetadataCached = metadata != null;
+    if (!isMetadataCached) {
+      metadata = getMetadata(is, options, callbacks);
+    } else {
+      // Matches the state the stream would be left in by the bounds decode we're skipping so that
+      // we can still retry decoding without inBitmap.
+      is.mark(MARK_POSITION);
+      options.outMimeType = metadata.mimeType;
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+        // Options are re-used, so clear any config from a previous decode.
+        options.outConfig = null;
+      }
+    }
+    int sourceWidth = metadata.width;
+    int sourceHeight = metadata.height;
+    String sourceMimeType = metadata.mimeType;
 
     // If we failed to obtain the image dimensions, we may end up with an incorrectly sized Bitmap,
     // so we want to use a mutable Bitmap type. One way this can happen is if the image header is so
@@ -233,14 +270,14 @@ public final class Downsampler {
       isHardwareConfigAllowed = false;
     }
 
-    int orientation = ImageHeaderParserUtils.getOrientation(parsers, is, byteArrayPool);
+    int orientation = metadata.orientation;
     int degreesToRotate = TransformationUtils.getExifOrientationDegrees(orientation);
     boolean isExifOrientationRequired = TransformationUtils.isExifOrientationRequired(orientation);
 
     int targetWidth = requestedWidth == Target.SIZE_ORIGINAL ? sourceWidth : requestedWidth;
     int targetHeight = requestedHeight == Target.SIZE_ORIGINAL ? sourceHeight : requestedHeight;
 
-    ImageType imageType = ImageHeaderParserUtils.getType(parsers, is, byteArrayPool);
+    ImageType imageType = metadata.imageType;
 
     calculateScaling(
         imageType,
@@ -255,7 +292,7 @@ public final class Downsampler {
         targetHeight,
         options);
     calculateConfig(
-        is,
+        imageType,
         decodeFormat,
         isHardwareConfigAllowed,
         isExifOrientationRequired,
@@ -299,6 +336,11 @@ public final class Downsampler {
     Bitmap downsampled = decodeStream(is, options, callbacks, bitmapPool);
     callbacks.onDecodeComplete(bitmapPool, downsampled);
 
+    if (sourceKey != null && !isMetadataCached && downsampled != null
+        && imageType != ImageType.UNKNOWN && sourceWidth > 0 && sourceHeight > 0) {
+      metadataCache.put(sourceKey, metadata);
+    }
+
     if (Log.isLoggable(TAG, Log.VERBOSE)) {
       logDecode(sourceWidth, sourceHeight, sourceMimeType, options, downsampled,
           requestedWidth, requestedHeight, startTime);
@@ -500,9 +542,23 @@ public final class Downsampler {
     return TYPES_THAT_USE_POOL_PRE_KITKAT.contains(imageType);
   }
 
+  /**
+   * Reads the dimensions, orientation and type of the image from the given stream, leaving the
+   * stream marked at its start.
+   */
+  private ImageMetadata getMetadata(InputStream is, BitmapFactory.Options options,
+      DecodeCallbacks callbacks) throws IOException {
+    int[] sourceDimensions = getDimensions(is, options, callbacks, bitmapPool);
+    String mimeType = options.outMimeType;
+    int orientation = ImageHeaderParserUtils.getOrientation(parsers, is, byteArrayPool);
+    ImageType imageType = ImageHeaderParserUtils.getType(parsers, is, byteArrayPool);
+    return new ImageMetadata(
+        imageType, sourceDimensions[0], sourceDimensions[1], orientation, mimeType);
+  }
+
   @SuppressWarnings("deprecation")
   private void calculateConfig(
-      InputStream is,
+      ImageType imageType,
       DecodeFormat format,
       boolean isHardwareConfigAllowed,
       boolean isExifOrientationRequired,
@@ -527,16 +583,7 @@ public final class Downsampler {
       return;
     }
 
-    boolean hasAlpha = false;
-    try {
-      hasAlpha = ImageHeaderParserUtils.getType(parsers, is, byteArrayPool).hasAlpha();
-    } catch (IOException e) {
-      if (Log.isLoggable(TAG, Log.DEBUG)) {
-        Log.d(TAG, "Cannot determine whether the image has alpha or not from header"
-            + ", format " + format, e);
-      }
-    }
-
+    boolean hasAlpha = imageType.hasAlpha();
     optionsWithScaling.inPreferredConfig =
         hasAlpha ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565;
     if (optionsWithScaling.inPreferredConfig == Config.RGB_565) {
@@ -0,0 +1,187 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Accumulates a sequence of transformations so that they can be applied to a {@link Bitmap} with
+ * a single draw into a single {@link Bitmap}.
+ *
+ * <p>Scales, crops and translations are concatenated into one {@link Matrix}. The last step may
+ * mask the result to a circle or to a rounded rectangle, which is drawn in the same pass with a
+ * {@link BitmapShader}. No steps can be added after a mask because they'd have to transform the
+ * mask as well.
+ *
+ * <p>Each step mirrors the method of the same name in {@link TransformationUtils}, including how
+ * intermediate sizes are rounded, so the result matches applying the steps one at a time except
+ * that the source is only resampled once.
+ */
+final class FusedBitmapDraw {
+  private static final int SHAPE_NONE = 0;
+  private static final int SHAPE_CIRCLE = 1;
+  private static final int SHAPE_ROUNDED_RECT = 2;
+
+  private final Matrix matrix = new Matrix();
+  private final Matrix stepMatrix = new Matrix();
+  private int width;
+  private int height;
+  private int shape;
+  private int roundingRadius;
+
+  /** Removes all steps, starting again from a {@link Bitmap} of the given size. */
+  void reset(int width, int height) {
+    matrix.reset();
+    this.width = width;
+    this.height = height;
+    shape = SHAPE_NONE;
+    roundingRadius = 0;
+  }
+
+  /** Returns the width of the result of the steps added so far. */
+  int getWidth() {
+    return width;
+  }
+
+  /** Returns the height of the result of the steps added so far. */
+  int getHeight() {
+    return height;
+  }
+
+  /**
+   * Adds a {@link TransformationUtils#centerCrop(BitmapPool, Bitmap, int, int)} step, or returns
+   * {@code false} if it can't be added to the steps so far.
+   */
+  boolean centerCrop(int width, int height) {
+    if (shape != SHAPE_NONE) {
+      return false;
+    }
+    if (this.width == width && this.height == height) {
+      return true;
+    }
+    TransformationUtils.setCenterCropMatrix(this.width, this.height, width, height, stepMatrix);
+    matrix.postConcat(stepMatrix);
+    this.width = width;
+    this.height = height;
+    return true;
+  }
+
+  /**
+   * Adds a {@link TransformationUtils#fitCenter(BitmapPool, Bitmap, int, int)} step, or returns
+   * {@code false} if it can't be added to the steps so far.
+   */
+  boolean fitCenter(int width, int height) {
+    if (shape != SHAPE_NONE) {
+      return false;
+    }
+    if (this.width == width && this.height == height) {
+      return true;
+    }
+    float minPercentage = Math.min(width / (float) this.width, height / (float) this.height);
+    if (Math.round(minPercentage * this.width) == this.width
+        && Math.round(minPercentage * this.height) == this.height) {
+      return true;
+    }
+    matrix.postScale(minPercentage, minPercentage);
+    this.width = (int) (minPercentage * this.width);
+    this.height = (int) (minPercentage * this.height);
+    return true;
+  }
+
+  /**
+   * Adds a {@link TransformationUtils#centerInside(BitmapPool, Bitmap, int, int)} step, or returns
+   * {@code false} if it can't be added to the steps so far.
+   */
+  boolean centerInside(int width, int height) {
+    return (this.width <= width && this.height <= height) || fitCenter(width, height);
+  }
+
+  /**
+   * Adds a {@link TransformationUtils#circleCrop(BitmapPool, Bitmap, int, int)} step, or returns
+   * {@code false} if it can't be added to the steps so far.
+   */
+  boolean circleCrop(int destWidth, int destHeight) {
+    if (shape != SHAPE_NONE) {
+      return false;
+    }
+    int destMinEdge = Math.min(destWidth, destHeight);
+    float maxScale = Math.max(destMinEdge / (float) width, destMinEdge / (float) height);
+    float left = (destMinEdge - maxScale * width) / 2f;
+    float top = (destMinEdge - maxScale * height) / 2f;
+    matrix.postScale(maxScale, maxScale);
+    matrix.postTranslate(left, top);
+    width = destMinEdge;
+    height = destMinEdge;
+    shape = SHAPE_CIRCLE;
+    return true;
+  }
+
+  /**
+   * Adds a {@link TransformationUtils#roundedCorners(BitmapPool, Bitmap, int)} step, or returns
+   * {@code false} if it can't be added to the steps so far.
+   */
+  boolean roundedCorners(int roundingRadius) {
+    if (shape != SHAPE_NONE) {
+      return false;
+    }
+    this.roundingRadius = roundingRadius;
+    shape = SHAPE_ROUNDED_RECT;
+    return true;
+  }
+
+  /**
+   * Applies the steps added so far to the given {@link Bitmap}, which isn't modified, and returns
+   * the result, or the given {@link Bitmap} if the steps don't change it.
+   */
+  @NonNull
+  Bitmap draw(@NonNull BitmapPool pool, @NonNull Bitmap inBitmap) {
+    if (shape == SHAPE_NONE) {
+      if (matrix.isIdentity() && inBitmap.getWidth() == width && inBitmap.getHeight() == height) {
+        return inBitmap;
+      }
+      Bitmap result = pool.get(width, height, TransformationUtils.getNonNullConfig(inBitmap));
+      // We don't add or remove alpha, so keep the alpha setting of the Bitmap we were given.
+      TransformationUtils.setAlpha(inBitmap, result);
+      TransformationUtils.applyMatrix(inBitmap, result, matrix);
+      return result;
+    }
+
+    // Alpha is required for masks. The shader reads the source directly, so unlike
+    // TransformationUtils the source doesn't need to be copied into an alpha safe Bitmap first.
+    Bitmap result = pool.get(width, height, TransformationUtils.getAlphaSafeConfig(inBitmap));
+    result.setHasAlpha(true);
+
+    BitmapShader shader =
+        new BitmapShader(inBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+    shader.setLocalMatrix(matrix);
+    Paint paint = new Paint(TransformationUtils.CIRCLE_CROP_PAINT_FLAGS);
+    paint.setShader(shader);
+
+    Lock lock = TransformationUtils.getBitmapDrawableLock();
+    lock.lock();
+    try {
+      Canvas canvas = new Canvas(result);
+      canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+      if (shape == SHAPE_CIRCLE) {
+        float radius = width / 2f;
+        canvas.drawCircle(radius, radius, radius, paint);
+      } else {
+        canvas.drawRoundRect(
+            new RectF(0, 0, width, height), roundingRadius, roundingRadius, paint);
+      }
+      TransformationUtils.clear(canvas);
+    } finally {
+      lock.unlock();
+    }
+    return result;
+  }
+}
@@ -0,0 +1,136 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.Util;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Applies sequences of Glide's {@link BitmapTransformation}s, like {@link CenterCrop} followed by
+ * {@link RoundedCorners}, with a single draw into a single {@link Bitmap} from the
+ * {@link BitmapPool} rather than with one draw into one {@link Bitmap} per transformation.
+ *
+ * <p>Used by {@link com.bumptech.glide.load.MultiTransformation}. Any other transformations in a
+ * sequence, including subclasses of Glide's transformations, which may override their behavior,
+ * are applied one at a time as usual.
+ */
+public final class FusedBitmapTransformer {
+  private static final Set<Class<?>> FUSIBLE_CLASSES = new HashSet<Class<?>>(
+      Arrays.asList(
+          CenterCrop.class,
+          CenterInside.class,
+          CircleCrop.class,
+          FitCenter.class,
+          RoundedCorners.class));
+
+  private FusedBitmapTransformer() {
+    // Utility class.
+  }
+
+  /**
+   * Returns {@code true} if at least two consecutive transformations in the given sequence can be
+   * applied together by {@link #transform(Context, Resource, Iterable, int, int)}.
+   */
+  public static boolean canFuse(@NonNull Iterable<? extends Transformation<?>> transformations) {
+    boolean isPreviousFusible = false;
+    for (Transformation<?> transformation : transformations) {
+      boolean isFusible = isFusible(transformation);
+      if (isFusible && isPreviousFusible) {
+        return true;
+      }
+      isPreviousFusible = isFusible;
+    }
+    return false;
+  }
+
+  /**
+   * Applies the given transformations in iteration order to the given {@link Bitmap}, returning the
+   * same result as applying them one at a time with fewer intermediate {@link Bitmap}s.
+   */
+  @NonNull
+  public static Resource<Bitmap> transform(
+      @NonNull Context context,
+      @NonNull Resource<Bitmap> resource,
+      @NonNull Iterable<? extends Transformation<Bitmap>> transformations,
+      int outWidth,
+      int outHeight) {
+    if (!Util.isValidDimensions(outWidth, outHeight)) {
+      throw new IllegalArgumentException(
+          "Cannot apply transformation on width: " + outWidth + " or height: " + outHeight
+              + " less than or equal to zero and not Target.SIZE_ORIGINAL");
+    }
+    BitmapPool bitmapPool = Glide.get(context).getBitmapPool();
+    FusedBitmapDraw draw = new FusedBitmapDraw();
+    Resource<Bitmap> current = resource;
+    draw.reset(current.get().getWidth(), current.get().getHeight());
+
+    for (Transformation<Bitmap> transformation : transformations) {
+      if (isFusible(transformation)) {
+        // As in BitmapTransformation, SIZE_ORIGINAL is the size of the Bitmap being transformed.
+        int targetWidth = outWidth == Target.SIZE_ORIGINAL ? draw.getWidth() : outWidth;
+        int targetHeight = outHeight == Target.SIZE_ORIGINAL ? draw.getHeight() : outHeight;
+        if (!fuse(transformation, draw, targetWidth, targetHeight)) {
+          current = draw(bitmapPool, draw, resource, current);
+          fuse(transformation, draw, targetWidth, targetHeight);
+        }
+      } else {
+        current = draw(bitmapPool, draw, resource, current);
+        Resource<Bitmap> transformed =
+            transformation.transform(context, current, outWidth, outHeight);
+        if (!current.equals(resource) && !current.equals(transformed)) {
+          current.recycle();
+        }
+        current = transformed;
+        draw.reset(current.get().getWidth(), current.get().getHeight());
+      }
+    }
+    return draw(bitmapPool, draw, resource, current);
+  }
+
+  private static boolean isFusible(Transformation<?> transformation) {
+    return FUSIBLE_CLASSES.contains(transformation.getClass());
+  }
+
+  private static boolean fuse(
+      Transformation<Bitmap> transformation, FusedBitmapDraw draw, int width, int height) {
+    if (transformation instanceof CenterCrop) {
+      return draw.centerCrop(width, height);
+    } else if (transformation instanceof CenterInside) {
+      return draw.centerInside(width, height);
+    } else if (transformation instanceof CircleCrop) {
+      return draw.circleCrop(width, height);
+    } else if (transformation instanceof FitCenter) {
+      return draw.fitCenter(width, height);
+    } else if (transformation instanceof RoundedCorners) {
+      return draw.roundedCorners(((RoundedCorners) transformation).getRoundingRadius());
+    }
+    throw new IllegalArgumentException("Unrecognized transformation: " + transformation);
+  }
+
+  /**
+   * Applies the steps in the given draw to the current {@link Bitmap}, recycling it if it was
+   * produced by an earlier draw or transformation, and resets the draw.
+   */
+  private static Resource<Bitmap> draw(BitmapPool bitmapPool, FusedBitmapDraw draw,
+      Resource<Bitmap> original, Resource<Bitmap> current) {
+    Bitmap toTransform = current.get();
+    Bitmap transformed = draw.draw(bitmapPool, toTransform);
+    Resource<Bitmap> result = current;
+    if (!toTransform.equals(transformed)) {
+      if (!current.equals(original)) {
+        current.recycle();
+      }
+      result = BitmapResource.obtain(transformed, bitmapPool);
+    }
+    draw.reset(transformed.getWidth(), transformed.getHeight());
+    return result;
+  }
+}
@@ -0,0 +1,71 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Option;
+import com.bumptech.glide.util.LruCache;
+
+/**
+ * Caches the type, dimensions and EXIF orientation of images decoded by {@link Downsampler} so that
+ * repeated decodes of the same data can skip parsing the image header and decoding its bounds.
+ *
+ * <p>Metadata is only cached for data identified by {@link #SOURCE_KEY}, which Glide sets when it
+ * decodes data that it read from its disk cache, because the data for a disk cache key doesn't
+ * change.
+ */
+public final class ImageMetadataCache {
+  /**
+   * A {@link Key} that uniquely identifies the data being decoded, or {@code null} if the data
+   * isn't known to be immutable.
+   *
+   * <p>Set by Glide for each decode, there's no need for callers to set this option.
+   */
+  public static final Option<Key> SOURCE_KEY =
+      Option.memory("com.bumptech.glide.load.resource.bitmap.ImageMetadataCache.SourceKey");
+  private static final int DEFAULT_SIZE = 500;
+
+  private final LruCache<Key, ImageMetadata> cache;
+
+  public ImageMetadataCache() {
+    this(DEFAULT_SIZE);
+  }
+
+  /** @param size The maximum number of entries to keep. */
+  public ImageMetadataCache(long size) {
+    cache = new LruCache<>(size);
+  }
+
+  @Nullable
+  ImageMetadata get(@NonNull Key key) {
+    return cache.get(key);
+  }
+
+  void put(@NonNull Key key, @NonNull ImageMetadata metadata) {
+    cache.put(key, metadata);
+  }
+
+  /** Removes all entries from the cache. */
+  public void clearMemory() {
+    cache.clearMemory();
+  }
+
+  /** The metadata of an image that {@link Downsampler} would otherwise read from its header. */
+  static final class ImageMetadata {
+    final ImageType imageType;
+    final int width;
+    final int height;
+    final int orientation;
+    @Nullable final String mimeType;
+
+    ImageMetadata(
+        ImageType imageType, int width, int height, int orientation, @Nullable String mimeType) {
+      this.imageType = imageType;
+      this.width = width;
+      this.height = height;
+      this.orientation = orientation;
+      this.mimeType = mimeType;
+    }
+  }
+}
@@ -32,6 +32,10 @@ public final class RoundedCorners extends BitmapTransformation {
     return TransformationUtils.roundedCorners(pool, toTransform, roundingRadius);
   }
 
+  int getRoundingRadius() {
+    return roundingRadius;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (o instanceof RoundedCorners) {
@@ -18,6 +18,7 @@ import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
 import java.util.Arrays;
@@ -37,7 +38,7 @@ public final class TransformationUtils {
   private static final String TAG = "TransformationUtils";
   public static final int PAINT_FLAGS = Paint.DITHER_FLAG | Paint.FILTER_BITMAP_FLAG;
   private static final Paint DEFAULT_PAINT = new Paint(PAINT_FLAGS);
-  private static final int CIRCLE_CROP_PAINT_FLAGS = PAINT_FLAGS | Paint.ANTI_ALIAS_FLAG;
+  static final int CIRCLE_CROP_PAINT_FLAGS = PAINT_FLAGS | Paint.ANTI_ALIAS_FLAG;
   private static final Paint CIRCLE_CROP_SHAPE_PAINT = new Paint(CIRCLE_CROP_PAINT_FLAGS);
   private static final Paint CIRCLE_CROP_BITMAP_PAINT;
 
@@ -120,30 +121,39 @@ public final class TransformationUtils {
     if (inBitmap.getWidth() == width && inBitmap.getHeight() == height) {
       return inBitmap;
     }
+    Matrix m = new Matrix();
+    setCenterCropMatrix(inBitmap.getWidth(), inBitmap.getHeight(), width, height, m);
+
+    Bitmap result = pool.get(width, height, getNonNullConfig(inBitmap));
+    // We don't add or remove alpha, so keep the alpha setting of the Bitmap we were given.
+    TransformationUtils.setAlpha(inBitmap, result);
+
+    applyMatrix(inBitmap, result, m);
+    return result;
+  }
+
+  /**
+   * Sets the given {@link Matrix} to scale and translate an image of the given source size so that
+   * it fills and is centered in the given dimensions.
+   */
+  static void setCenterCropMatrix(
+      int srcWidth, int srcHeight, int width, int height, @NonNull Matrix m) {
     // From ImageView/Bitmap.createScaledBitmap.
     final float scale;
     final float dx;
     final float dy;
-    Matrix m = new Matrix();
-    if (inBitmap.getWidth() * height > width * inBitmap.getHeight()) {
-      scale = (float) height / (float) inBitmap.getHeight();
-      dx = (width - inBitmap.getWidth() * scale) * 0.5f;
+    if (srcWidth * height > width * srcHeight) {
+      scale = (float) height / (float) srcHeight;
+      dx = (width - srcWidth * scale) * 0.5f;
       dy = 0;
     } else {
-      scale = (float) width / (float) inBitmap.getWidth();
+      scale = (float) width / (float) srcWidth;
       dx = 0;
-      dy = (height - inBitmap.getHeight() * scale) * 0.5f;
+      dy = (height - srcHeight * scale) * 0.5f;
     }
 
     m.setScale(scale, scale);
     m.postTranslate((int) (dx + 0.5f), (int) (dy + 0.5f));
-
-    Bitmap result = pool.get(width, height, getNonNullConfig(inBitmap));
-    // We don't add or remove alpha, so keep the alpha setting of the Bitmap we were given.
-    TransformationUtils.setAlpha(inBitmap, result);
-
-    applyMatrix(inBitmap, result, m);
-    return result;
   }
 
   /**
@@ -233,6 +243,50 @@ public final class TransformationUtils {
     }
   }
 
+  /**
+   * Returns a new Bitmap containing the given Bitmap scaled down as the given
+   * {@link DownsampleStrategy} would scale it when decoding for the given target size.
+   *
+   * <p>Unlike the other methods in this class, the given Bitmap is never returned or modified, so
+   * it can be used to derive several smaller Bitmaps. If the strategy doesn't require the given
+   * Bitmap to be smaller, a copy is returned.
+   *
+   * @param pool     The BitmapPool to obtain a bitmap from.
+   * @param inBitmap The Bitmap to downsample.
+   * @param strategy The DownsampleStrategy to determine the scale factor with.
+   * @param width    The width in pixels of the target, or
+   *                 {@link com.bumptech.glide.request.target.Target#SIZE_ORIGINAL}.
+   * @param height   The height in pixels of the target, or
+   *                 {@link com.bumptech.glide.request.target.Target#SIZE_ORIGINAL}.
+   */
+  @NonNull
+  public static Bitmap downsample(@NonNull BitmapPool pool, @NonNull Bitmap inBitmap,
+      @NonNull DownsampleStrategy strategy, int width, int height) {
+    int sourceWidth = inBitmap.getWidth();
+    int sourceHeight = inBitmap.getHeight();
+    int targetWidth = width == Target.SIZE_ORIGINAL ? sourceWidth : width;
+    int targetHeight = height == Target.SIZE_ORIGINAL ? sourceHeight : height;
+    float scaleFactor = Math.min(1f,
+        strategy.getScaleFactor(sourceWidth, sourceHeight, targetWidth, targetHeight));
+    int outWidth = Math.max(1, Math.round(scaleFactor * sourceWidth));
+    int outHeight = Math.max(1, Math.round(scaleFactor * sourceHeight));
+
+    Bitmap result = pool.get(outWidth, outHeight, getNonNullConfig(inBitmap));
+    // We don't add or remove alpha, so keep the alpha setting of the Bitmap we were given.
+    TransformationUtils.setAlpha(inBitmap, result);
+
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "request: " + width + "x" + height);
+      Log.v(TAG, "toDownsample: " + sourceWidth + "x" + sourceHeight);
+      Log.v(TAG, "result: " + outWidth + "x" + outHeight);
+    }
+
+    Matrix matrix = new Matrix();
+    matrix.setScale(outWidth / (float) sourceWidth, outHeight / (float) sourceHeight);
+    applyMatrix(inBitmap, result, matrix);
+    return result;
+  }
+
   /**
    * Sets the alpha of the Bitmap we're going to re-use to the alpha of the Bitmap we're going to
    * transform. This keeps {@link android.graphics.Bitmap#hasAlpha()}} consistent before and after
@@ -425,7 +479,7 @@ public final class TransformationUtils {
   }
 
   @NonNull
-  private static Config getAlphaSafeConfig(@NonNull Bitmap inBitmap) {
+  static Config getAlphaSafeConfig(@NonNull Bitmap inBitmap) {
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
       // Avoid short circuiting the sdk check.
       if (Bitmap.Config.RGBA_F16.equals(inBitmap.getConfig())) { // NOPMD
@@ -507,16 +561,16 @@ public final class TransformationUtils {
   }
 
   // Avoids warnings in M+.
-  private static void clear(Canvas canvas) {
+  static void clear(Canvas canvas) {
     canvas.setBitmap(null);
   }
 
   @NonNull
-  private static Bitmap.Config getNonNullConfig(@NonNull Bitmap bitmap) {
+  static Bitmap.Config getNonNullConfig(@NonNull Bitmap bitmap) {
     return bitmap.getConfig() != null ? bitmap.getConfig() : Bitmap.Config.ARGB_8888;
   }
 
-  private static void applyMatrix(@NonNull Bitmap inBitmap, @NonNull Bitmap targetBitmap,
+  static void applyMatrix(@NonNull Bitmap inBitmap, @NonNull Bitmap targetBitmap,
       Matrix matrix) {
     BITMAP_DRAWABLE_LOCK.lock();
     try {
@@ -25,6 +25,9 @@ import java.security.MessageDigest;
  * Decodes video data to Bitmaps from {@link ParcelFileDescriptor}s and
  * {@link AssetFileDescriptor}s.
  *
+ * <p>Frames are extracted by a {@link VideoFrameEngine}, which may share retrievers and prefetched
+ * frames between decoders.
+ *
  * @param <T> The type of data, currently either {@link ParcelFileDescriptor} or
  * {@link AssetFileDescriptor}.
  */
@@ -99,24 +102,31 @@ public class VideoDecoder<T> implements ResourceDecoder<T, Bitmap> {
       }
   );
 
-  private static final MediaMetadataRetrieverFactory DEFAULT_FACTORY =
-      new MediaMetadataRetrieverFactory();
-
   private final MediaMetadataRetrieverInitializer<T> initializer;
   private final BitmapPool bitmapPool;
-  private final MediaMetadataRetrieverFactory factory;
+  private final VideoFrameEngine engine;
 
   public static ResourceDecoder<AssetFileDescriptor, Bitmap> asset(BitmapPool bitmapPool) {
-    return new VideoDecoder<>(bitmapPool, new AssetFileDescriptorInitializer());
+    return asset(bitmapPool, new VideoFrameEngine(bitmapPool));
+  }
+
+  public static ResourceDecoder<AssetFileDescriptor, Bitmap> asset(
+      BitmapPool bitmapPool, VideoFrameEngine engine) {
+    return new VideoDecoder<>(bitmapPool, new AssetFileDescriptorInitializer(), engine);
   }
 
   public static ResourceDecoder<ParcelFileDescriptor, Bitmap> parcel(BitmapPool bitmapPool) {
-    return new VideoDecoder<>(bitmapPool, new ParcelFileDescriptorInitializer());
+    return parcel(bitmapPool, new VideoFrameEngine(bitmapPool));
+  }
+
+  public static ResourceDecoder<ParcelFileDescriptor, Bitmap> parcel(
+      BitmapPool bitmapPool, VideoFrameEngine engine) {
+    return new VideoDecoder<>(bitmapPool, new ParcelFileDescriptorInitializer(), engine);
   }
 
   VideoDecoder(
       BitmapPool bitmapPool, MediaMetadataRetrieverInitializer<T> initializer) {
-    this(bitmapPool, initializer, DEFAULT_FACTORY);
+    this(bitmapPool, initializer, new VideoFrameEngine(bitmapPool));
   }
 
   @VisibleForTesting
@@ -124,9 +134,16 @@ public class VideoDecoder<T> implements ResourceDecoder<T, Bitmap> {
       BitmapPool bitmapPool,
       MediaMetadataRetrieverInitializer<T> initializer,
       MediaMetadataRetrieverFactory factory) {
+    this(bitmapPool, initializer, new VideoFrameEngine(bitmapPool, factory, 0, 0));
+  }
+
+  private VideoDecoder(
+      BitmapPool bitmapPool,
+      MediaMetadataRetrieverInitializer<T> initializer,
+      VideoFrameEngine engine) {
     this.bitmapPool = bitmapPool;
     this.initializer = initializer;
-    this.factory = factory;
+    this.engine = engine;
   }
 
   @Override
@@ -142,44 +159,48 @@ public class VideoDecoder<T> implements ResourceDecoder<T, Bitmap> {
       @NonNull T resource, int outWidth, int outHeight, @NonNull Options options)
       throws IOException {
     long frameTimeMicros = options.get(TARGET_FRAME);
-    if (frameTimeMicros < 0 && frameTimeMicros != DEFAULT_FRAME) {
-      throw new IllegalArgumentException(
-          "Requested frame must be non-negative, or DEFAULT_FRAME, given: " + frameTimeMicros);
-    }
-    Integer frameOption = options.get(FRAME_OPTION);
-    if (frameOption == null) {
-      frameOption = DEFAULT_FRAME_OPTION;
-    }
-    DownsampleStrategy downsampleStrategy = options.get(DownsampleStrategy.OPTION);
-    if (downsampleStrategy == null) {
-      downsampleStrategy = DownsampleStrategy.DEFAULT;
-    }
+    checkFrameTime(frameTimeMicros);
+    int frameOption = getFrameOption(options);
+    DownsampleStrategy downsampleStrategy = getDownsampleStrategy(options);
 
     final Bitmap result;
-    MediaMetadataRetriever mediaMetadataRetriever = factory.build();
     try {
-      initializer.initialize(mediaMetadataRetriever, resource);
       result =
-          decodeFrame(
-              mediaMetadataRetriever,
+          engine.decodeFrame(
+              resource,
+              initializer,
               frameTimeMicros,
               frameOption,
               outWidth,
               outHeight,
               downsampleStrategy);
-
     } catch (RuntimeException e) {
       // MediaMetadataRetriever APIs throw generic runtime exceptions when given invalid data.
       throw new IOException(e);
-    } finally {
-      mediaMetadataRetriever.release();
     }
 
     return BitmapResource.obtain(result, bitmapPool);
   }
 
+  static void checkFrameTime(long frameTimeMicros) {
+    if (frameTimeMicros < 0 && frameTimeMicros != DEFAULT_FRAME) {
+      throw new IllegalArgumentException(
+          "Requested frame must be non-negative, or DEFAULT_FRAME, given: " + frameTimeMicros);
+    }
+  }
+
+  static int getFrameOption(Options options) {
+    Integer frameOption = options.get(FRAME_OPTION);
+    return frameOption != null ? frameOption : DEFAULT_FRAME_OPTION;
+  }
+
+  static DownsampleStrategy getDownsampleStrategy(Options options) {
+    DownsampleStrategy downsampleStrategy = options.get(DownsampleStrategy.OPTION);
+    return downsampleStrategy != null ? downsampleStrategy : DownsampleStrategy.DEFAULT;
+  }
+
   @Nullable
-  private static Bitmap decodeFrame(
+  static Bitmap decodeFrame(
       MediaMetadataRetriever mediaMetadataRetriever,
       long frameTimeMicros,
       int frameOption,
@@ -276,15 +297,30 @@ public class VideoDecoder<T> implements ResourceDecoder<T, Bitmap> {
   @VisibleForTesting
   interface MediaMetadataRetrieverInitializer<T> {
     void initialize(MediaMetadataRetriever retriever, T data);
+
+    /**
+     * Returns a key that identifies the video in the given data, so that a retriever initialized
+     * with it can be re-used for other data with an equal key, or {@code null} if the video can't
+     * be identified.
+     */
+    @Nullable
+    Object getSourceKey(T data);
   }
 
-  private static final class AssetFileDescriptorInitializer
+  static final class AssetFileDescriptorInitializer
       implements MediaMetadataRetrieverInitializer<AssetFileDescriptor> {
 
     @Override
     public void initialize(MediaMetadataRetriever retriever, AssetFileDescriptor data) {
       retriever.setDataSource(data.getFileDescriptor(), data.getStartOffset(), data.getLength());
     }
+
+    @Nullable
+    @Override
+    public Object getSourceKey(AssetFileDescriptor data) {
+      return VideoFrameEngine.getSourceKey(
+          data.getFileDescriptor(), data.getStartOffset(), data.getLength());
+    }
   }
 
   // Visible for VideoBitmapDecoder.
@@ -295,5 +331,12 @@ public class VideoDecoder<T> implements ResourceDecoder<T, Bitmap> {
     public void initialize(MediaMetadataRetriever retriever, ParcelFileDescriptor data) {
       retriever.setDataSource(data.getFileDescriptor());
     }
+
+    @Nullable
+    @Override
+    public Object getSourceKey(ParcelFileDescriptor data) {
+      return VideoFrameEngine.getSourceKey(
+          data.getFileDescriptor(), /*offset=*/ 0, AssetFileDescriptor.UNKNOWN_LENGTH);
+    }
   }
 }
@@ -0,0 +1,459 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.res.AssetFileDescriptor;
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.StructStat;
+import android.util.Log;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.VideoDecoder.MediaMetadataRetrieverFactory;
+import com.bumptech.glide.load.resource.bitmap.VideoDecoder.MediaMetadataRetrieverInitializer;
+import com.bumptech.glide.util.LruCache;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Extracts frames from videos for {@link VideoDecoder}, re-using {@link MediaMetadataRetriever}s
+ * across decodes of the same video and caching frames extracted ahead of time by
+ * {@link #prefetchFrames(ParcelFileDescriptor, long[], int, int, Options)}.
+ *
+ * <p>Setting the data source of a {@link MediaMetadataRetriever} parses the container and starts a
+ * decoder, which for requests for many frames of the same video, like a scrubbing strip, is often
+ * slower than extracting the frames themselves. Retrievers are kept in a small pool after each
+ * decode, bound to the file they were opened with, and handed to the next decode of the same file.
+ *
+ * <p>Files are identified by device, inode, size and modification time, which requires
+ * {@link android.system.Os#fstat(FileDescriptor)}. Prior to Lollipop, or when a file can't be
+ * identified, each decode uses a new retriever, as {@link VideoDecoder} always has.
+ */
+public final class VideoFrameEngine {
+  private static final String TAG = "VideoFrameEngine";
+  private static final int DEFAULT_MAX_IDLE_RETRIEVERS = 2;
+  private static final long DEFAULT_FRAME_CACHE_SIZE_BYTES = 4 * 1024 * 1024;
+
+  private final BitmapPool bitmapPool;
+  private final MediaMetadataRetrieverFactory factory;
+  private final int maxIdleRetrievers;
+  private final LinkedList<IdleRetriever> idleRetrievers = new LinkedList<>();
+  private final FrameCache frameCache;
+
+  public VideoFrameEngine(@NonNull BitmapPool bitmapPool) {
+    this(bitmapPool, new MediaMetadataRetrieverFactory(), DEFAULT_MAX_IDLE_RETRIEVERS,
+        DEFAULT_FRAME_CACHE_SIZE_BYTES);
+  }
+
+  /**
+   * @param maxIdleRetrievers The maximum number of unused {@link MediaMetadataRetriever}s to keep
+   *                          open between decodes.
+   * @param frameCacheSizeBytes The maximum size in bytes of the frames kept for later decodes.
+   */
+  public VideoFrameEngine(
+      @NonNull BitmapPool bitmapPool, int maxIdleRetrievers, long frameCacheSizeBytes) {
+    this(bitmapPool, new MediaMetadataRetrieverFactory(), maxIdleRetrievers, frameCacheSizeBytes);
+  }
+
+  @VisibleForTesting
+  VideoFrameEngine(
+      BitmapPool bitmapPool,
+      MediaMetadataRetrieverFactory factory,
+      int maxIdleRetrievers,
+      long frameCacheSizeBytes) {
+    this.bitmapPool = bitmapPool;
+    this.factory = factory;
+    this.maxIdleRetrievers = maxIdleRetrievers;
+    frameCache = new FrameCache(bitmapPool, frameCacheSizeBytes);
+  }
+
+  /**
+   * Extracts the frames at each of the given times from the given video with a single
+   * {@link MediaMetadataRetriever} and keeps them for subsequent loads of the same video and times
+   * with the same size and {@link Options}, each of which consumes its frame.
+   *
+   * <p>Frames are extracted in ascending order of time, which lets the retriever's decoder continue
+   * from the previous frame rather than seeking backwards. Frames are kept in a fixed size cache,
+   * so prefetching more frames than fit evicts the earliest.
+   *
+   * <p>Must be called on a background thread. The given descriptor isn't closed.
+   *
+   * @param frameTimesMicros The times, as in {@link VideoDecoder#TARGET_FRAME}, of the frames to
+   *                         extract.
+   * @param outWidth The width that will be requested by the loads of each frame.
+   * @param outHeight The height that will be requested by the loads of each frame.
+   * @param options The {@link Options} that will be used by the loads of each frame, including any
+   *                {@link VideoDecoder#FRAME_OPTION} and {@link DownsampleStrategy#OPTION}.
+   * @return The number of frames extracted.
+   */
+  public int prefetchFrames(
+      @NonNull ParcelFileDescriptor data,
+      @NonNull long[] frameTimesMicros,
+      int outWidth,
+      int outHeight,
+      @NonNull Options options)
+      throws IOException {
+    return prefetchFrames(
+        data,
+        new VideoDecoder.ParcelFileDescriptorInitializer(),
+        frameTimesMicros,
+        outWidth,
+        outHeight,
+        options);
+  }
+
+  /**
+   * Extracts frames from the given {@link AssetFileDescriptor}.
+   *
+   * @see #prefetchFrames(ParcelFileDescriptor, long[], int, int, Options)
+   */
+  public int prefetchFrames(
+      @NonNull AssetFileDescriptor data,
+      @NonNull long[] frameTimesMicros,
+      int outWidth,
+      int outHeight,
+      @NonNull Options options)
+      throws IOException {
+    return prefetchFrames(
+        data,
+        new VideoDecoder.AssetFileDescriptorInitializer(),
+        frameTimesMicros,
+        outWidth,
+        outHeight,
+        options);
+  }
+
+  @VisibleForTesting
+  <T> int prefetchFrames(
+      T data,
+      MediaMetadataRetrieverInitializer<T> initializer,
+      long[] frameTimesMicros,
+      int outWidth,
+      int outHeight,
+      Options options)
+      throws IOException {
+    Object sourceKey = initializer.getSourceKey(data);
+    if (sourceKey == null) {
+      // Without a key, there's no way for subsequent decodes to find the frames.
+      return 0;
+    }
+    int frameOption = VideoDecoder.getFrameOption(options);
+    DownsampleStrategy strategy = VideoDecoder.getDownsampleStrategy(options);
+    long[] sortedFrameTimesMicros = Arrays.copyOf(frameTimesMicros, frameTimesMicros.length);
+    Arrays.sort(sortedFrameTimesMicros);
+
+    int extracted = 0;
+    MediaMetadataRetriever retriever = obtain(data, initializer, sourceKey);
+    boolean isSuccessful = false;
+    try {
+      for (long frameTimeMicros : sortedFrameTimesMicros) {
+        VideoDecoder.checkFrameTime(frameTimeMicros);
+        FrameKey key =
+            new FrameKey(sourceKey, frameTimeMicros, frameOption, outWidth, outHeight, strategy);
+        if (frameCache.contains(key)) {
+          continue;
+        }
+        Bitmap frame = VideoDecoder.decodeFrame(
+            retriever, frameTimeMicros, frameOption, outWidth, outHeight, strategy);
+        if (frame != null) {
+          frameCache.put(key, frame);
+          extracted++;
+        }
+      }
+      isSuccessful = true;
+    } catch (RuntimeException e) {
+      // MediaMetadataRetriever APIs throw generic runtime exceptions when given invalid data.
+      throw new IOException(e);
+    } finally {
+      release(sourceKey, retriever, isSuccessful);
+    }
+    return extracted;
+  }
+
+  /**
+   * Returns the frame at the given time from the given video, or {@code null} if the retriever
+   * doesn't return one.
+   */
+  @Nullable
+  <T> Bitmap decodeFrame(
+      T data,
+      MediaMetadataRetrieverInitializer<T> initializer,
+      long frameTimeMicros,
+      int frameOption,
+      int outWidth,
+      int outHeight,
+      DownsampleStrategy strategy) {
+    Object sourceKey = initializer.getSourceKey(data);
+    if (sourceKey != null) {
+      Bitmap cached = frameCache.remove(
+          new FrameKey(sourceKey, frameTimeMicros, frameOption, outWidth, outHeight, strategy));
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    MediaMetadataRetriever retriever = obtain(data, initializer, sourceKey);
+    boolean isSuccessful = false;
+    try {
+      Bitmap result = VideoDecoder.decodeFrame(
+          retriever, frameTimeMicros, frameOption, outWidth, outHeight, strategy);
+      isSuccessful = true;
+      return result;
+    } finally {
+      release(sourceKey, retriever, isSuccessful);
+    }
+  }
+
+  private <T> MediaMetadataRetriever obtain(
+      T data, MediaMetadataRetrieverInitializer<T> initializer, @Nullable Object sourceKey) {
+    if (sourceKey != null) {
+      synchronized (idleRetrievers) {
+        Iterator<IdleRetriever> iterator = idleRetrievers.iterator();
+        while (iterator.hasNext()) {
+          IdleRetriever idle = iterator.next();
+          if (idle.sourceKey.equals(sourceKey)) {
+            iterator.remove();
+            return idle.retriever;
+          }
+        }
+      }
+    }
+
+    MediaMetadataRetriever retriever = factory.build();
+    try {
+      initializer.initialize(retriever, data);
+    } catch (RuntimeException e) {
+      retriever.release();
+      throw e;
+    }
+    return retriever;
+  }
+
+  private void release(
+      @Nullable Object sourceKey, MediaMetadataRetriever retriever, boolean isReusable) {
+    if (sourceKey == null || !isReusable || maxIdleRetrievers <= 0) {
+      retriever.release();
+      return;
+    }
+    MediaMetadataRetriever toRelease = null;
+    synchronized (idleRetrievers) {
+      idleRetrievers.addFirst(new IdleRetriever(sourceKey, retriever));
+      if (idleRetrievers.size() > maxIdleRetrievers) {
+        toRelease = idleRetrievers.removeLast().retriever;
+      }
+    }
+    if (toRelease != null) {
+      toRelease.release();
+    }
+  }
+
+  /** Releases all unused {@link MediaMetadataRetriever}s and all prefetched frames. */
+  public void clearMemory() {
+    releaseIdleRetrievers();
+    frameCache.clearMemory();
+  }
+
+  /**
+   * Releases unused {@link MediaMetadataRetriever}s and some or all prefetched frames, depending on
+   * the given level.
+   *
+   * @see android.content.ComponentCallbacks2#onTrimMemory(int)
+   */
+  public void trimMemory(int level) {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      clearMemory();
+    } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      releaseIdleRetrievers();
+      frameCache.trimToSize(frameCache.getMaxSize() / 2);
+    }
+  }
+
+  private void releaseIdleRetrievers() {
+    LinkedList<IdleRetriever> toRelease;
+    synchronized (idleRetrievers) {
+      toRelease = new LinkedList<>(idleRetrievers);
+      idleRetrievers.clear();
+    }
+    for (IdleRetriever idle : toRelease) {
+      idle.retriever.release();
+    }
+  }
+
+  @VisibleForTesting
+  int getIdleRetrieverCount() {
+    synchronized (idleRetrievers) {
+      return idleRetrievers.size();
+    }
+  }
+
+  /**
+   * Returns a key that identifies the video in the given range of the given file, or {@code null}
+   * if the file can't be identified.
+   */
+  @Nullable
+  static Object getSourceKey(FileDescriptor fileDescriptor, long offset, long length) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+      return null;
+    }
+    return getSourceKeyLollipop(fileDescriptor, offset, length);
+  }
+
+  @Nullable
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  private static Object getSourceKeyLollipop(
+      FileDescriptor fileDescriptor, long offset, long length) {
+    try {
+      StructStat stat = Os.fstat(fileDescriptor);
+      return new SourceKey(
+          stat.st_dev, stat.st_ino, stat.st_size, stat.st_mtime, offset, length);
+    } catch (ErrnoException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to stat video file, not re-using retrievers", e);
+      }
+      return null;
+    }
+  }
+
+  private static final class IdleRetriever {
+    @Synthetic final Object sourceKey;
+    @Synthetic final MediaMetadataRetriever retriever;
+
+    IdleRetriever(Object sourceKey, MediaMetadataRetriever retriever) {
+      this.sourceKey = sourceKey;
+      this.retriever = retriever;
+    }
+  }
+
+  @VisibleForTesting
+  static final class SourceKey {
+    private final long device;
+    private final long inode;
+    private final long size;
+    private final long modifiedTime;
+    private final long offset;
+    private final long length;
+
+    SourceKey(
+        long device, long inode, long size, long modifiedTime, long offset, long length) {
+      this.device = device;
+      this.inode = inode;
+      this.size = size;
+      this.modifiedTime = modifiedTime;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof SourceKey) {
+        SourceKey other = (SourceKey) o;
+        return device == other.device
+            && inode == other.inode
+            && size == other.size
+            && modifiedTime == other.modifiedTime
+            && offset == other.offset
+            && length == other.length;
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = (int) (device ^ (device >>> 32));
+      result = 31 * result + (int) (inode ^ (inode >>> 32));
+      result = 31 * result + (int) (size ^ (size >>> 32));
+      result = 31 * result + (int) (modifiedTime ^ (modifiedTime >>> 32));
+      result = 31 * result + (int) (offset ^ (offset >>> 32));
+      result = 31 * result + (int) (length ^ (length >>> 32));
+      return result;
+    }
+  }
+
+  private static final class FrameKey {
+    private final Object sourceKey;
+    private final long frameTimeMicros;
+    private final int frameOption;
+    private final int outWidth;
+    private final int outHeight;
+    private final DownsampleStrategy strategy;
+
+    FrameKey(
+        Object sourceKey,
+        long frameTimeMicros,
+        int frameOption,
+        int outWidth,
+        int outHeight,
+        DownsampleStrategy strategy) {
+      this.sourceKey = sourceKey;
+      this.frameTimeMicros = frameTimeMicros;
+      this.frameOption = frameOption;
+      this.outWidth = outWidth;
+      this.outHeight = outHeight;
+      this.strategy = strategy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof FrameKey) {
+        FrameKey other = (FrameKey) o;
+        return sourceKey.equals(other.sourceKey)
+            && frameTimeMicros == other.frameTimeMicros
+            && frameOption == other.frameOption
+            && outWidth == other.outWidth
+            && outHeight == other.outHeight
+            && strategy.equals(other.strategy);
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = sourceKey.hashCode();
+      result = 31 * result + (int) (frameTimeMicros ^ (frameTimeMicros >>> 32));
+      result = 31 * result + frameOption;
+      result = 31 * result + outWidth;
+      result = 31 * result + outHeight;
+      result = 31 * result + strategy.hashCode();
+      return result;
+    }
+  }
+
+  private static final class FrameCache extends LruCache<FrameKey, Bitmap> {
+    private final BitmapPool bitmapPool;
+
+    FrameCache(BitmapPool bitmapPool, long size) {
+      super(size);
+      this.bitmapPool = bitmapPool;
+    }
+
+    @Override
+    protected int getSize(@Nullable Bitmap item) {
+      return item == null ? super.getSize(null) : Util.getBitmapByteSize(item);
+    }
+
+    @Override
+    protected void onItemEvicted(@NonNull FrameKey key, @Nullable Bitmap item) {
+      if (item != null) {
+        bitmapPool.put(item);
+      }
+    }
+
+    @Override
+    protected void trimToSize(long size) {
+      super.trimToSize(size);
+    }
+  }
+}
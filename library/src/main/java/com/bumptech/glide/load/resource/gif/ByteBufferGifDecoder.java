@@ -113,8 +113,9 @@ public class ByteBufferGifDecoder implements ResourceDecoder<ByteBuffer, GifDraw
 
       Transformation<Bitmap> unitTransformation = UnitTransformation.get();
 
-      GifDrawable gifDrawable =
-          new GifDrawable(context, gifDecoder, unitTransformation, width, height, firstFrame);
+      Integer decodeAheadFrameCount = options.get(GifOptions.DECODE_AHEAD_FRAME_COUNT);
+      GifDrawable gifDrawable = new GifDrawable(context, gifDecoder, unitTransformation, width,
+          height, firstFrame, decodeAheadFrameCount != null ? decodeAheadFrameCount : 0);
 
       return new GifDrawableResource(gifDrawable);
     } finally {
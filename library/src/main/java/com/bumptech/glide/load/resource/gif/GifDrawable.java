@@ -135,6 +135,18 @@ public class GifDrawable extends Drawable implements GifFrameLoader.FrameCallbac
       int targetFrameWidth,
       int targetFrameHeight,
       Bitmap firstFrame) {
+    this(context, gifDecoder, frameTransformation, targetFrameWidth, targetFrameHeight, firstFrame,
+        0 /*decodeAheadFrameCount*/);
+  }
+
+  GifDrawable(
+      Context context,
+      GifDecoder gifDecoder,
+      Transformation<Bitmap> frameTransformation,
+      int targetFrameWidth,
+      int targetFrameHeight,
+      Bitmap firstFrame,
+      int decodeAheadFrameCount) {
     this(
         new GifState(
             new GifFrameLoader(
@@ -144,7 +156,8 @@ public class GifDrawable extends Drawable implements GifFrameLoader.FrameCallbac
                 targetFrameWidth,
                 targetFrameHeight,
                 frameTransformation,
-                firstFrame)));
+                firstFrame,
+                decodeAheadFrameCount)));
   }
 
   GifDrawable(GifState state) {
@@ -1,57 +1,37 @@
 package com.bumptech.glide.load.resource.gif;
 
-import static com.bumptech.glide.request.RequestOptions.diskCacheStrategyOf;
-import static com.bumptech.glide.request.RequestOptions.signatureOf;
-
 import android.graphics.Bitmap;
 import android.os.Handler;
-import android.os.Looper;
-import android.os.Message;
-import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.annotation.VisibleForTesting;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.RequestBuilder;
 import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.gifdecoder.GifDecoder;
-import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Transformation;
-import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.AnimationFrameLoader;
 import com.bumptech.glide.request.RequestOptions;
-import com.bumptech.glide.request.target.SimpleTarget;
-import com.bumptech.glide.request.transition.Transition;
-import com.bumptech.glide.signature.ObjectKey;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
-import com.bumptech.glide.util.Util;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
 
-class GifFrameLoader {
+class GifFrameLoader extends AnimationFrameLoader {
   private final GifDecoder gifDecoder;
-  private final Handler handler;
-  private final List<FrameCallback> callbacks = new ArrayList<>();
-  @SuppressWarnings("WeakerAccess") @Synthetic final RequestManager requestManager;
   private final BitmapPool bitmapPool;
+  @Nullable private final GifFramePrefetcher prefetcher;
 
-  private boolean isRunning;
-  private boolean isLoadPending;
-  private boolean startFromFirstFrame;
-  private RequestBuilder<Bitmap> requestBuilder;
-  private DelayTarget current;
-  private boolean isCleared;
-  private DelayTarget next;
-  private Bitmap firstFrame;
+  private boolean isWaitingForPrefetcher;
   private Transformation<Bitmap> transformation;
-  private DelayTarget pendingTarget;
-  @Nullable
-  private GifFrameLoader.OnEveryFrameListener onEveryFrameListener;
 
-  public interface FrameCallback {
-    void onFrameReady();
+  GifFrameLoader(
+      Glide glide,
+      GifDecoder gifDecoder,
+      int width,
+      int height,
+      Transformation<Bitmap> transformation,
+      Bitmap firstFrame) {
+    this(glide, gifDecoder, width, height, transformation, firstFrame, 0 /*decodeAheadFrameCount*/);
   }
 
   GifFrameLoader(
@@ -60,18 +40,29 @@ class GifFrameLoader {
       int width,
       int height,
       Transformation<Bitmap> transformation,
-      Bitmap firstFrame) {
+      Bitmap firstFrame,
+      int decodeAheadFrameCount) {
     this(
         glide.getBitmapPool(),
         Glide.with(glide.getContext()),
         gifDecoder,
         null /*handler*/,
-        getRequestBuilder(Glide.with(glide.getContext()), width, height),
+        getFrameRequestBuilder(Glide.with(glide.getContext()), width, height),
         transformation,
-        firstFrame);
+        firstFrame,
+        decodeAheadFrameCount > 0
+            ? new GifFramePrefetcher(
+                glide.getContext(),
+                glide.getBitmapPool(),
+                glide.getAnimationExecutor(),
+                gifDecoder,
+                width,
+                height,
+                decodeAheadFrameCount,
+                transformation)
+            : null);
   }
 
-  @SuppressWarnings("PMD.ConstructorCallsOverridableMethod")
   GifFrameLoader(
       BitmapPool bitmapPool,
       RequestManager requestManager,
@@ -80,276 +71,185 @@ class GifFrameLoader {
       RequestBuilder<Bitmap> requestBuilder,
       Transformation<Bitmap> transformation,
       Bitmap firstFrame) {
-    this.requestManager = requestManager;
-    if (handler == null) {
-      handler = new Handler(Looper.getMainLooper(), new FrameLoaderCallback());
-    }
-    this.bitmapPool = bitmapPool;
-    this.handler = handler;
-    this.requestBuilder = requestBuilder;
+    this(bitmapPool, requestManager, gifDecoder, handler, requestBuilder, transformation,
+        firstFrame, null /*prefetcher*/);
+  }
 
+  @SuppressWarnings("PMD.ConstructorCallsOverridableMethod")
+  GifFrameLoader(
+      BitmapPool bitmapPool,
+      RequestManager requestManager,
+      GifDecoder gifDecoder,
+      Handler handler,
+      RequestBuilder<Bitmap> requestBuilder,
+      Transformation<Bitmap> transformation,
+      Bitmap firstFrame,
+      @Nullable GifFramePrefetcher prefetcher) {
+    super(bitmapPool, requestManager, new GifFrameDecoder(gifDecoder), handler, requestBuilder,
+        firstFrame);
+    this.bitmapPool = bitmapPool;
     this.gifDecoder = gifDecoder;
+    this.prefetcher = prefetcher;
+    if (prefetcher != null) {
+      final Handler prefetchHandler = getHandler();
+      prefetcher.setFrameListener(new GifFramePrefetcher.FrameListener() {
+        @Override
+        public void onFramePrefetched() {
+          prefetchHandler.post(new Runnable() {
+            @Override
+            public void run() {
+              GifFrameLoader.this.onFramePrefetched();
+            }
+          });
+        }
+      });
+    }
 
     setFrameTransformation(transformation, firstFrame);
   }
 
   void setFrameTransformation(Transformation<Bitmap> transformation, Bitmap firstFrame) {
     this.transformation = Preconditions.checkNotNull(transformation);
-    this.firstFrame = Preconditions.checkNotNull(firstFrame);
-    requestBuilder = requestBuilder.apply(new RequestOptions().transform(transformation));
+    setFirstFrame(firstFrame);
+    applyToFrameRequests(new RequestOptions().transform(transformation));
+    if (prefetcher != null) {
+      prefetcher.setTransformation(transformation);
+    }
   }
 
   Transformation<Bitmap> getFrameTransformation() {
     return transformation;
   }
 
-  Bitmap getFirstFrame() {
-    return firstFrame;
-  }
-
-  void subscribe(FrameCallback frameCallback) {
-    if (isCleared) {
-      throw new IllegalStateException("Cannot subscribe to a cleared frame loader");
-    }
-    if (callbacks.contains(frameCallback)) {
-      throw new IllegalStateException("Cannot subscribe twice in a row");
-    }
-    boolean start = callbacks.isEmpty();
-    callbacks.add(frameCallback);
-    if (start) {
-      start();
-    }
-  }
-
-  void unsubscribe(FrameCallback frameCallback) {
-    callbacks.remove(frameCallback);
-    if (callbacks.isEmpty()) {
-      stop();
+  @Override
+  public int getSize() {
+    int size = super.getSize();
+    if (prefetcher != null) {
+      size += prefetcher.getDecodeAheadFrameCount() * getFrameSize();
     }
-  }
-
-  int getWidth() {
-    return getCurrentFrame().getWidth();
-  }
-
-  int getHeight() {
-    return getCurrentFrame().getHeight();
-  }
-
-  int getSize() {
-    return gifDecoder.getByteSize() + getFrameSize();
-  }
-
-  int getCurrentIndex() {
-    return current != null ? current.index : -1;
-  }
-
-  private int getFrameSize() {
-    return Util.getBitmapByteSize(getCurrentFrame().getWidth(), getCurrentFrame().getHeight(),
-        getCurrentFrame().getConfig());
+    return size;
   }
 
   ByteBuffer getBuffer() {
     return gifDecoder.getData().asReadOnlyBuffer();
   }
 
-  int getFrameCount() {
-    return gifDecoder.getFrameCount();
-  }
-
   int getLoopCount() {
     return gifDecoder.getTotalIterationCount();
   }
 
-  private void start() {
-    if (isRunning) {
-      return;
-    }
-    isRunning = true;
-    isCleared = false;
-
-    loadNextFrame();
-  }
-
-  private void stop() {
-    isRunning = false;
+  @Override
+  public void clear() {
+    super.clear();
+    isWaitingForPrefetcher = false;
   }
 
-  void clear() {
-    callbacks.clear();
-    recycleFirstFrame();
-    stop();
-    if (current != null) {
-      requestManager.clear(current);
-      current = null;
+  @Override
+  protected void clearDecoder() {
+    if (prefetcher != null) {
+      // The prefetcher owns the decoder and clears it once any in progress decode has finished.
+      prefetcher.clear();
+    } else {
+      gifDecoder.clear();
     }
-    if (next != null) {
-      requestManager.clear(next);
-      next = null;
-    }
-    if (pendingTarget != null) {
-      requestManager.clear(pendingTarget);
-      pendingTarget = null;
-    }
-    gifDecoder.clear();
-    isCleared = true;
   }
 
-  Bitmap getCurrentFrame() {
-    return current != null ? current.getResource() : firstFrame;
-  }
-
-  private void loadNextFrame() {
-    if (!isRunning || isLoadPending) {
-      return;
-    }
-    if (startFromFirstFrame) {
-      Preconditions.checkArgument(
-          pendingTarget == null, "Pending target must be null when starting from the first frame");
+  @Override
+  protected void resetFrameIndex() {
+    if (prefetcher != null) {
+      prefetcher.resetFrameIndex();
+    } else {
       gifDecoder.resetFrameIndex();
-      startFromFirstFrame = false;
-    }
-    if (pendingTarget != null) {
-      DelayTarget temp = pendingTarget;
-      pendingTarget = null;
-      onFrameReady(temp);
-      return;
     }
-    isLoadPending = true;
-    // Get the delay before incrementing the pointer because the delay indicates the amount of time
-    // we want to spend on the current frame.
-    int delay = gifDecoder.getNextDelay();
-    long targetTime = SystemClock.uptimeMillis() + delay;
-
-    gifDecoder.advance();
-    next = new DelayTarget(handler, gifDecoder.getCurrentFrameIndex(), targetTime);
-    requestBuilder.apply(signatureOf(getFrameSignature())).load(gifDecoder).into(next);
   }
 
-  private void recycleFirstFrame() {
-    if (firstFrame != null) {
-      bitmapPool.put(firstFrame);
-      firstFrame = null;
+  @Override
+  protected boolean loadNextFrameWithoutRequest() {
+    if (prefetcher == null) {
+      return false;
     }
-  }
-
-  void setNextStartFromFirstFrame() {
-    Preconditions.checkArgument(!isRunning, "Can't restart a running animation");
-    startFromFirstFrame = true;
-    if (pendingTarget != null) {
-      requestManager.clear(pendingTarget);
-      pendingTarget = null;
+    GifFramePrefetcher.Frame frame;
+    do {
+      frame = prefetcher.poll();
+    } while (frame != null && frame.bitmap == null);
+    if (frame == null) {
+      // We'll be notified via onFramePrefetched once the next frame is available.
+      isWaitingForPrefetcher = true;
+    } else {
+      onNextFrameLoaded(frame.index, frame.delay, frame.bitmap);
     }
+    return true;
   }
 
-  @VisibleForTesting
-  void setOnEveryFrameReadyListener(@Nullable OnEveryFrameListener onEveryFrameListener) {
-    this.onEveryFrameListener = onEveryFrameListener;
-  }
-
-  @VisibleForTesting
-  void onFrameReady(DelayTarget delayTarget) {
-    if (onEveryFrameListener != null) {
-      onEveryFrameListener.onFrameReady();
-    }
-    isLoadPending = false;
-    if (isCleared) {
-      handler.obtainMessage(FrameLoaderCallback.MSG_CLEAR, delayTarget).sendToTarget();
-      return;
-    }
-    // If we're not running, notifying here will recycle the frame that we might currently be
-    // showing, which breaks things (see #2526). We also can't discard this frame because we've
-    // already incremented the frame pointer and can't decode the same frame again. Instead we'll
-    // just hang on to this next frame until start() or clear() are called.
-    if (!isRunning) {
-      pendingTarget = delayTarget;
+  @Synthetic
+  void onFramePrefetched() {
+    if (!isWaitingForPrefetcher) {
       return;
     }
+    isWaitingForPrefetcher = false;
+    retryLoadNextFrame();
+  }
 
-    if (delayTarget.getResource() != null) {
-      recycleFirstFrame();
-      DelayTarget previous = current;
-      current = delayTarget;
-      // The callbacks may unregister when onFrameReady is called, so iterate in reverse to avoid
-      // concurrent modifications.
-      for (int i = callbacks.size() - 1; i >= 0; i--) {
-        FrameCallback cb = callbacks.get(i);
-        cb.onFrameReady();
-      }
-      if (previous != null) {
-        handler.obtainMessage(FrameLoaderCallback.MSG_CLEAR, previous).sendToTarget();
+  @Override
+  protected void clearFrame(DelayTarget target) {
+    if (prefetcher != null) {
+      // Prefetched frames aren't loaded by a request, so we're responsible for recycling them.
+      Bitmap resource = target.takeResource();
+      if (resource != null) {
+        bitmapPool.put(resource);
       }
+    } else {
+      super.clearFrame(target);
     }
-
-    loadNextFrame();
   }
 
-  private class FrameLoaderCallback implements Handler.Callback {
-    static final int MSG_DELAY = 1;
-    static final int MSG_CLEAR = 2;
+  private static final class GifFrameDecoder implements FrameDecoder {
+    private final GifDecoder gifDecoder;
 
     @Synthetic
-    FrameLoaderCallback() { }
+    GifFrameDecoder(GifDecoder gifDecoder) {
+      this.gifDecoder = gifDecoder;
+    }
 
     @Override
-    public boolean handleMessage(Message msg) {
-      if (msg.what == MSG_DELAY) {
-        GifFrameLoader.DelayTarget target = (DelayTarget) msg.obj;
-        onFrameReady(target);
-        return true;
-      } else if (msg.what == MSG_CLEAR) {
-        GifFrameLoader.DelayTarget target = (DelayTarget) msg.obj;
-        requestManager.clear(target);
-      }
-      return false;
+    public int getNextDelay() {
+      return gifDecoder.getNextDelay();
     }
-  }
 
-  @VisibleForTesting
-  static class DelayTarget extends SimpleTarget<Bitmap> {
-    private final Handler handler;
-    @Synthetic final int index;
-    private final long targetTime;
-    private Bitmap resource;
+    @Override
+    public void advance() {
+      gifDecoder.advance();
+    }
 
-    DelayTarget(Handler handler, int index, long targetTime) {
-      this.handler = handler;
-      this.index = index;
-      this.targetTime = targetTime;
+    @Override
+    public int getCurrentFrameIndex() {
+      return gifDecoder.getCurrentFrameIndex();
     }
 
-    Bitmap getResource() {
-      return resource;
+    @Override
+    public void resetFrameIndex() {
+      gifDecoder.resetFrameIndex();
     }
 
     @Override
-    public void onResourceReady(@NonNull Bitmap resource,
-        @Nullable Transition<? super Bitmap> transition) {
-      this.resource = resource;
-      Message msg = handler.obtainMessage(FrameLoaderCallback.MSG_DELAY, this);
-      handler.sendMessageAtTime(msg, targetTime);
+    public int getFrameCount() {
+      return gifDecoder.getFrameCount();
     }
-  }
 
-  private static RequestBuilder<Bitmap> getRequestBuilder(
-      RequestManager requestManager, int width, int height) {
-    return requestManager
-        .asBitmap()
-        .apply(
-            diskCacheStrategyOf(DiskCacheStrategy.NONE)
-                .useAnimationPool(true)
-                .skipMemoryCache(true)
-                .override(width, height));
-  }
+    @Override
+    public int getByteSize() {
+      return gifDecoder.getByteSize();
+    }
 
-  private static Key getFrameSignature() {
-    // Some devices seem to have crypto bugs that throw exceptions when you create a new UUID.
-    // See #1510.
-    return new ObjectKey(Math.random());
-  }
+    @Override
+    public void clear() {
+      gifDecoder.clear();
+    }
 
-  @VisibleForTesting
-  interface OnEveryFrameListener {
-    void onFrameReady();
+    @NonNull
+    @Override
+    public Object getFrameModel() {
+      return gifDecoder;
+    }
   }
 }
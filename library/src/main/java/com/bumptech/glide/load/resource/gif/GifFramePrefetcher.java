@@ -0,0 +1,229 @@
+package com.bumptech.glide.load.resource.gif;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.gifdecoder.GifDecoder;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.BitmapResource;
+import com.bumptech.glide.util.Preconditions;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Decodes and transforms frames of a GIF on a background {@link Executor} ahead of when they're
+ * displayed, without going through a Glide request for each frame.
+ *
+ * <p>At most one frame is decoded per task, after which the next task is re-queued, so that many
+ * GIFs sharing the same {@link Executor} are interleaved fairly across its threads. Once this
+ * object is created, the {@link GifDecoder} must only be used by this object until
+ * {@link #clear()} is called, after which this object will clear the decoder once any in progress
+ * decode has finished.
+ */
+final class GifFramePrefetcher implements Runnable {
+  private final Context context;
+  private final BitmapPool bitmapPool;
+  private final Executor executor;
+  private final GifDecoder gifDecoder;
+  private final int width;
+  private final int height;
+  private final int maxFrames;
+  private final Queue<Frame> frames;
+
+  private Transformation<Bitmap> transformation;
+  @Nullable private FrameListener listener;
+  private boolean isScheduled;
+  private boolean isResetRequested;
+  private boolean isCleared;
+
+  interface FrameListener {
+    /** Called on a background thread when a frame is added to an empty queue. */
+    void onFramePrefetched();
+  }
+
+  GifFramePrefetcher(
+      Context context,
+      BitmapPool bitmapPool,
+      Executor executor,
+      GifDecoder gifDecoder,
+      int width,
+      int height,
+      int maxFrames,
+      Transformation<Bitmap> transformation) {
+    Preconditions.checkArgument(maxFrames > 0, "Must decode ahead at least one frame");
+    this.context = context;
+    this.bitmapPool = bitmapPool;
+    this.executor = executor;
+    this.gifDecoder = gifDecoder;
+    this.width = width;
+    this.height = height;
+    this.maxFrames = maxFrames;
+    this.transformation = transformation;
+    frames = new ArrayDeque<>(maxFrames);
+  }
+
+  /**
+   * Sets the transformation applied to frames decoded after this call, frames that have already
+   * been decoded keep their existing transformation.
+   */
+  synchronized void setTransformation(Transformation<Bitmap> transformation) {
+    this.transformation = transformation;
+  }
+
+  /**
+   * Sets the listener to notify when the next frame becomes available after {@link #poll()} has
+   * returned {@code null}.
+   */
+  synchronized void setFrameListener(@Nullable FrameListener listener) {
+    this.listener = listener;
+  }
+
+  int getDecodeAheadFrameCount() {
+    return maxFrames;
+  }
+
+  /**
+   * Returns the next decoded frame, or {@code null} if the next frame hasn't been decoded yet, in
+   * which case the {@link FrameListener} will be called once it has been.
+   *
+   * <p>Decoding starts the first time this method is called.
+   */
+  @Nullable
+  synchronized Frame poll() {
+    Frame result = frames.poll();
+    scheduleIfNeeded();
+    return result;
+  }
+
+  /** Discards any decoded frames and restarts decoding from the first frame. */
+  synchronized void resetFrameIndex() {
+    recycleFrames();
+    isResetRequested = true;
+    scheduleIfNeeded();
+  }
+
+  /**
+   * Discards any decoded frames and stops decoding, then clears the {@link GifDecoder} once no
+   * frame is being decoded.
+   */
+  void clear() {
+    boolean clearDecoder;
+    synchronized (this) {
+      if (isCleared) {
+        return;
+      }
+      isCleared = true;
+      recycleFrames();
+      clearDecoder = !isScheduled;
+    }
+    if (clearDecoder) {
+      gifDecoder.clear();
+    }
+  }
+
+  @Override
+  public void run() {
+    Transformation<Bitmap> transformation;
+    boolean isReset;
+    synchronized (this) {
+      if (isCleared) {
+        isScheduled = false;
+        gifDecoder.clear();
+        return;
+      }
+      transformation = this.transformation;
+      isReset = isResetRequested;
+      isResetRequested = false;
+    }
+
+    Frame frame = null;
+    FrameListener listenerToNotify = null;
+    boolean clearDecoder;
+    try {
+      frame = decodeNextFrame(isReset, transformation);
+    } finally {
+      synchronized (this) {
+        isScheduled = false;
+        // If we're reset while decoding, the frame we decoded is no longer the next frame.
+        if (frame != null && !isCleared && !isResetRequested) {
+          if (frames.isEmpty()) {
+            listenerToNotify = listener;
+          }
+          frames.add(frame);
+          frame = null;
+        }
+        clearDecoder = isCleared;
+        scheduleIfNeeded();
+      }
+      if (frame != null) {
+        frame.recycle(bitmapPool);
+      }
+      if (clearDecoder) {
+        gifDecoder.clear();
+      }
+    }
+    if (listenerToNotify != null) {
+      listenerToNotify.onFramePrefetched();
+    }
+  }
+
+  private Frame decodeNextFrame(boolean isReset, Transformation<Bitmap> transformation) {
+    if (isReset) {
+      gifDecoder.resetFrameIndex();
+    }
+    // Get the delay before incrementing the pointer because the delay indicates the amount of time
+    // we want to spend on the current frame.
+    int delay = gifDecoder.getNextDelay();
+    gifDecoder.advance();
+    int index = gifDecoder.getCurrentFrameIndex();
+    Bitmap decoded = gifDecoder.getNextFrame();
+    return new Frame(index, delay, decoded != null ? transform(decoded, transformation) : null);
+  }
+
+  private Bitmap transform(Bitmap decoded, Transformation<Bitmap> transformation) {
+    Resource<Bitmap> decodedResource = BitmapResource.obtain(decoded, bitmapPool);
+    Resource<Bitmap> transformed =
+        transformation.transform(context, decodedResource, width, height);
+    if (!decodedResource.equals(transformed)) {
+      decodedResource.recycle();
+    }
+    return transformed.get();
+  }
+
+  private void scheduleIfNeeded() {
+    if (!isScheduled && !isCleared && (isResetRequested || frames.size() < maxFrames)) {
+      isScheduled = true;
+      executor.execute(this);
+    }
+  }
+
+  private void recycleFrames() {
+    Frame frame;
+    while ((frame = frames.poll()) != null) {
+      frame.recycle(bitmapPool);
+    }
+  }
+
+  /** A decoded, transformed frame and the time to wait before displaying it. */
+  static final class Frame {
+    final int index;
+    final int delay;
+    @Nullable final Bitmap bitmap;
+
+    Frame(int index, int delay, @Nullable Bitmap bitmap) {
+      this.index = index;
+      this.delay = delay;
+      this.bitmap = bitmap;
+    }
+
+    void recycle(@NonNull BitmapPool bitmapPool) {
+      if (bitmap != null) {
+        bitmapPool.put(bitmap);
+      }
+    }
+  }
+}
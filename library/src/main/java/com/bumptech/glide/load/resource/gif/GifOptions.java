@@ -26,6 +26,20 @@ public final class GifOptions {
   public static final Option<Boolean> DISABLE_ANIMATION = Option.memory(
       "com.bumptech.glide.load.resource.gif.GifOptions.DisableAnimation", false);
 
+  /**
+   * The number of frames to decode ahead of the frame that's currently displayed, or {@code 0} to
+   * load each frame with a separate Glide request. Defaults to {@code 0}.
+   *
+   * <p>When greater than {@code 0}, frames are decoded directly into {@link
+   * android.graphics.Bitmap}s from the {@link
+   * com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool} on the executor set with {@link
+   * com.bumptech.glide.GlideBuilder#setAnimationExecutor}, one frame at a time per GIF so that
+   * many GIFs animating at once are spread across the executor's threads. Each frame decoded
+   * ahead holds on to one additional frame sized {@link android.graphics.Bitmap}.
+   */
+  public static final Option<Integer> DECODE_AHEAD_FRAME_COUNT = Option.memory(
+      "com.bumptech.glide.load.resource.gif.GifOptions.DecodeAheadFrameCount", 0);
+
   private GifOptions() {
     // Utility class.
   }
@@ -0,0 +1,96 @@
+package com.bumptech.glide.load.resource.tile;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.util.Util;
+
+/**
+ * A {@link Bitmap} containing one region of a {@link TiledImage} decoded at a particular sample
+ * size.
+ *
+ * <p>Tiles are obtained from {@link TiledImage#acquireTile(int, int, int)} and must be returned
+ * with {@link TiledImage#releaseTile(Tile)} once they're no longer drawn.
+ */
+public final class Tile implements Resource<Bitmap> {
+  private final TileKey key;
+  private final Bitmap bitmap;
+  private final BitmapPool bitmapPool;
+  private final Rect region;
+  private final int column;
+  private final int row;
+  private final int sampleSize;
+
+  Tile(TileKey key, Bitmap bitmap, BitmapPool bitmapPool, Rect region, int column, int row,
+      int sampleSize) {
+    this.key = key;
+    this.bitmap = bitmap;
+    this.bitmapPool = bitmapPool;
+    this.region = region;
+    this.column = column;
+    this.row = row;
+    this.sampleSize = sampleSize;
+  }
+
+  TileKey getKey() {
+    return key;
+  }
+
+  /** Returns the column of this tile in the grid of tiles for its sample size. */
+  public int getColumn() {
+    return column;
+  }
+
+  /** Returns the row of this tile in the grid of tiles for its sample size. */
+  public int getRow() {
+    return row;
+  }
+
+  /**
+   * Returns the sample size this tile was decoded with, so that the {@link Bitmap} is
+   * {@code sampleSize} times smaller than its region in each dimension.
+   */
+  public int getSampleSize() {
+    return sampleSize;
+  }
+
+  /**
+   * Sets the given {@link Rect} to the region of the full size image this tile contains.
+   */
+  public void getRegion(@NonNull Rect outRect) {
+    outRect.set(region);
+  }
+
+  @NonNull
+  @Override
+  public Class<Bitmap> getResourceClass() {
+    return Bitmap.class;
+  }
+
+  @NonNull
+  @Override
+  public Bitmap get() {
+    return bitmap;
+  }
+
+  @Override
+  public int getSize() {
+    return Util.getBitmapByteSize(bitmap);
+  }
+
+  @Override
+  public void recycle() {
+    bitmapPool.put(bitmap);
+  }
+
+  @Override
+  public String toString() {
+    return "Tile{"
+        + "key=" + key
+        + ", region=" + region
+        + ", bitmap=" + bitmap.getWidth() + "x" + bitmap.getHeight()
+        + '}';
+  }
+}
@@ -0,0 +1,66 @@
+package com.bumptech.glide.load.resource.tile;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+/**
+ * Identifies a {@link Tile} of a particular {@link TiledImage} in the memory cache.
+ */
+final class TileKey implements Key {
+  private final long imageId;
+  private final int column;
+  private final int row;
+  private final int sampleSize;
+
+  TileKey(long imageId, int column, int row, int sampleSize) {
+    this.imageId = imageId;
+    this.column = column;
+    this.row = row;
+    this.sampleSize = sampleSize;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof TileKey) {
+      TileKey other = (TileKey) o;
+      return imageId == other.imageId
+          && column == other.column
+          && row == other.row
+          && sampleSize == other.sampleSize;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = (int) (imageId ^ (imageId >>> 32));
+    result = 31 * result + column;
+    result = 31 * result + row;
+    result = 31 * result + sampleSize;
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "TileKey{"
+        + "imageId=" + imageId
+        + ", column=" + column
+        + ", row=" + row
+        + ", sampleSize=" + sampleSize
+        + '}';
+  }
+
+  @Override
+  public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+    // Tiles are only cached in memory, but we implement this to satisfy the Key contract.
+    byte[] data = ByteBuffer.allocate(20)
+        .putLong(imageId)
+        .putInt(column)
+        .putInt(row)
+        .putInt(sampleSize)
+        .array();
+    messageDigest.update(data);
+  }
+}
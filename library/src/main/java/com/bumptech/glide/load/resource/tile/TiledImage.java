@@ -0,0 +1,247 @@
+package com.bumptech.glide.load.resource.tile;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.util.Log;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.cache.MemoryCache;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An image that's too large to decode all at once at full resolution, for example to allow deep
+ * zoom into photos with tens of megapixels, that instead decodes square tiles of the image on
+ * demand using {@link BitmapRegionDecoder}.
+ *
+ * <p>Tiles are arranged in a grid for each sample size. A tile decoded with a sample size of
+ * {@code n} covers {@code n} times the width and height of the image that a tile decoded with a
+ * sample size of {@code 1} does, so that every tile {@link Bitmap} is at most
+ * {@link #getTileSize()} pixels wide and high. Use {@link #getSampleSize(float)} to pick the sample
+ * size for the scale at which the image is displayed, and only acquire the tiles that intersect the
+ * visible region.
+ *
+ * <p>Tiles that are no longer displayed are released into Glide's memory cache, so that they can be
+ * acquired again cheaply while they remain in the cache, and their {@link Bitmap}s are returned to
+ * the {@link BitmapPool} when they're evicted. The memory used by tiles is therefore bounded by the
+ * tiles currently displayed plus the size of the memory cache.
+ *
+ * <p>Tiles don't reflect the EXIF orientation of the image.
+ *
+ * <p>Load instances of this class with {@code as(TiledImage.class)}. They can't be written to the
+ * resource disk cache, and remote images are decoded from the data disk cache rather than from
+ * the network, so use {@link com.bumptech.glide.load.engine.DiskCacheStrategy#DATA} or
+ * {@link com.bumptech.glide.load.engine.DiskCacheStrategy#AUTOMATIC} when loading them.
+ */
+public final class TiledImage {
+  /** The default maximum width and height of tiles in pixels. */
+  public static final int DEFAULT_TILE_SIZE = 512;
+  private static final String TAG = "TiledImage";
+  private static final AtomicLong NEXT_ID = new AtomicLong();
+
+  private final long id = NEXT_ID.getAndIncrement();
+  private final BitmapRegionDecoder decoder;
+  private final MemoryCache memoryCache;
+  private final BitmapPool bitmapPool;
+  private final Bitmap.Config config;
+  private final int tileSize;
+  private final int width;
+  private final int height;
+  // Guarded by this.
+  private final Set<TileKey> releasedTileKeys = new HashSet<>();
+  private boolean isRecycled;
+
+  TiledImage(@NonNull BitmapRegionDecoder decoder, @NonNull MemoryCache memoryCache,
+      @NonNull BitmapPool bitmapPool, @NonNull Bitmap.Config config, int tileSize) {
+    this.decoder = decoder;
+    this.memoryCache = memoryCache;
+    this.bitmapPool = bitmapPool;
+    this.config = config;
+    this.tileSize = tileSize;
+    width = decoder.getWidth();
+    height = decoder.getHeight();
+  }
+
+  /**
+   * Returns the largest power of two sample size at which tiles have at least as many pixels as
+   * they're displayed with at the given scale, where a scale of {@code 1} displays the image at
+   * its full resolution.
+   */
+  public static int getSampleSize(float scale) {
+    if (scale >= 1f) {
+      return 1;
+    }
+    return Math.max(1, Integer.highestOneBit((int) (1f / scale)));
+  }
+
+  /** Returns the width of the full size image in pixels. */
+  public int getWidth() {
+    return width;
+  }
+
+  /** Returns the height of the full size image in pixels. */
+  public int getHeight() {
+    return height;
+  }
+
+  /** Returns the maximum width and height of the {@link Bitmap} of each tile in pixels. */
+  public int getTileSize() {
+    return tileSize;
+  }
+
+  /** Returns the number of columns in the grid of tiles for the given sample size. */
+  public int getColumnCount(int sampleSize) {
+    return divideRoundingUp(width, tileSize * sampleSize);
+  }
+
+  /** Returns the number of rows in the grid of tiles for the given sample size. */
+  public int getRowCount(int sampleSize) {
+    return divideRoundingUp(height, tileSize * sampleSize);
+  }
+
+  /**
+   * Returns the tile at the given position in the grid of tiles for the given sample size, either
+   * from the memory cache or by decoding it.
+   *
+   * <p>Decoding tiles is slow, so this method should be called on a background thread. The
+   * returned tile must be passed to {@link #releaseTile(Tile)} once it's no longer displayed.
+   *
+   * @param sampleSize A power of two, see {@link #getSampleSize(float)}.
+   * @throws IOException           If the tile couldn't be decoded.
+   * @throws IllegalStateException If this image has been recycled.
+   */
+  @NonNull
+  public Tile acquireTile(int column, int row, int sampleSize) throws IOException {
+    TileKey key = new TileKey(id, column, row, sampleSize);
+    Resource<?> cached = memoryCache.remove(key);
+    if (cached instanceof Tile) {
+      return (Tile) cached;
+    } else if (cached != null) {
+      // Not expected, but keys are shared with everything else in the memory cache.
+      memoryCache.put(key, cached);
+    }
+
+    Rect region = getRegion(column, row, sampleSize);
+    Bitmap bitmap = decodeRegion(region, sampleSize);
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Decoded tile, key: " + key + ", region: " + region + ", bitmap: "
+          + bitmap.getWidth() + "x" + bitmap.getHeight());
+    }
+    return new Tile(key, bitmap, bitmapPool, region, column, row, sampleSize);
+  }
+
+  /**
+   * Returns a tile obtained from {@link #acquireTile(int, int, int)} that's no longer displayed to
+   * the memory cache.
+   */
+  public void releaseTile(@NonNull Tile tile) {
+    boolean isImageRecycled;
+    synchronized (this) {
+      isImageRecycled = isRecycled;
+      if (!isImageRecycled) {
+        releasedTileKeys.add(tile.getKey());
+      }
+    }
+    if (isImageRecycled) {
+      tile.recycle();
+    } else {
+      memoryCache.put(tile.getKey(), tile);
+    }
+  }
+
+  /**
+   * Releases the decoder and removes any tiles in the memory cache. Tiles that are currently
+   * acquired are recycled when they're released.
+   */
+  void recycle() {
+    List<TileKey> keys;
+    synchronized (this) {
+      if (isRecycled) {
+        return;
+      }
+      isRecycled = true;
+      decoder.recycle();
+      keys = new ArrayList<>(releasedTileKeys);
+      releasedTileKeys.clear();
+    }
+    for (int i = 0, size = keys.size(); i < size; i++) {
+      Resource<?> removed = memoryCache.remove(keys.get(i));
+      if (removed != null) {
+        removed.recycle();
+      }
+    }
+  }
+
+  private Rect getRegion(int column, int row, int sampleSize) {
+    if (sampleSize < 1 || Integer.bitCount(sampleSize) != 1) {
+      throw new IllegalArgumentException("Sample size must be a power of two: " + sampleSize);
+    }
+    if (column < 0 || column >= getColumnCount(sampleSize)
+        || row < 0 || row >= getRowCount(sampleSize)) {
+      throw new IllegalArgumentException("Invalid tile, column: " + column + ", row: " + row
+          + ", sampleSize: " + sampleSize);
+    }
+    int regionSize = tileSize * sampleSize;
+    int left = column * regionSize;
+    int top = row * regionSize;
+    return new Rect(left, top, Math.min(width, left + regionSize),
+        Math.min(height, top + regionSize));
+  }
+
+  private Bitmap decodeRegion(Rect region, int sampleSize) throws IOException {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inSampleSize = sampleSize;
+    options.inPreferredConfig = config;
+    // Prior to KitKat, the reused Bitmap would have to match the size of each tile exactly.
+    Bitmap toReuse = null;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+      toReuse = bitmapPool.getDirty(tileSize, tileSize, config);
+      options.inMutable = true;
+      options.inBitmap = toReuse;
+    }
+
+    Bitmap result;
+    synchronized (this) {
+      if (isRecycled) {
+        if (toReuse != null) {
+          bitmapPool.put(toReuse);
+        }
+        throw new IllegalStateException("Cannot decode tiles of a recycled TiledImage");
+      }
+      try {
+        result = decoder.decodeRegion(region, options);
+      } catch (IllegalArgumentException e) {
+        if (toReuse == null) {
+          throw e;
+        }
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to decode tile into reused Bitmap, trying without", e);
+        }
+        bitmapPool.put(toReuse);
+        toReuse = null;
+        options.inBitmap = null;
+        result = decoder.decodeRegion(region, options);
+      }
+    }
+
+    if (toReuse != null && toReuse != result) {
+      bitmapPool.put(toReuse);
+    }
+    if (result == null) {
+      throw new IOException("Failed to decode tile, region: " + region);
+    }
+    return result;
+  }
+
+  private static int divideRoundingUp(int dividend, int divisor) {
+    return (dividend + divisor - 1) / divisor;
+  }
+}
@@ -0,0 +1,105 @@
+package com.bumptech.glide.load.resource.tile;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapRegionDecoder;
+import android.os.ParcelFileDescriptor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.ImageHeaderParser;
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.load.ImageHeaderParserUtils;
+import com.bumptech.glide.load.Option;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.cache.MemoryCache;
+import com.bumptech.glide.load.resource.bitmap.Downsampler;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Decodes a {@link TiledImage} from a {@link ParcelFileDescriptor} for a JPEG, PNG or WebP image.
+ *
+ * <p>Only the image header is decoded up front. Tiles are decoded on demand by the
+ * {@link TiledImage}, so the requested width and height are ignored.
+ *
+ * <p>The {@link BitmapRegionDecoder} reads the image from the file rather than from a copy of it
+ * on the Java heap, which is why there's no decoder for {@link java.io.InputStream}s. Remote
+ * images are decoded from the data disk cache once they've been written to it.
+ */
+public final class TiledImageDecoder
+    implements ResourceDecoder<ParcelFileDescriptor, TiledImage> {
+  /**
+   * The maximum width and height in pixels of the {@link android.graphics.Bitmap} of each tile,
+   * defaults to {@link TiledImage#DEFAULT_TILE_SIZE}.
+   */
+  public static final Option<Integer> TILE_SIZE = Option.memory(
+      "com.bumptech.glide.load.resource.tile.TiledImageDecoder.TileSize",
+      TiledImage.DEFAULT_TILE_SIZE);
+
+  private final List<ImageHeaderParser> parsers;
+  private final MemoryCache memoryCache;
+  private final BitmapPool bitmapPool;
+  private final ArrayPool arrayPool;
+
+  public TiledImageDecoder(@NonNull List<ImageHeaderParser> parsers,
+      @NonNull MemoryCache memoryCache, @NonNull BitmapPool bitmapPool,
+      @NonNull ArrayPool arrayPool) {
+    this.parsers = parsers;
+    this.memoryCache = memoryCache;
+    this.bitmapPool = bitmapPool;
+    this.arrayPool = arrayPool;
+  }
+
+  @Override
+  public boolean handles(@NonNull ParcelFileDescriptor source, @NonNull Options options)
+      throws IOException {
+    ImageType type = getType(source);
+    return type == ImageType.JPEG || type == ImageType.PNG || type == ImageType.PNG_A
+        || type == ImageType.WEBP || type == ImageType.WEBP_A;
+  }
+
+  @Nullable
+  @Override
+  public Resource<TiledImage> decode(@NonNull ParcelFileDescriptor source, int width, int height,
+      @NonNull Options options) throws IOException {
+    Bitmap.Config config = getConfig(source, options);
+    BitmapRegionDecoder decoder =
+        BitmapRegionDecoder.newInstance(source.getFileDescriptor(), false /*isShareable*/);
+    if (decoder == null) {
+      return null;
+    }
+    TiledImage tiledImage =
+        new TiledImage(decoder, memoryCache, bitmapPool, config, options.get(TILE_SIZE));
+    long encodedSize = source.getStatSize();
+    return new TiledImageResource(
+        tiledImage, (int) Math.max(0, Math.min(Integer.MAX_VALUE, encodedSize)));
+  }
+
+  private Bitmap.Config getConfig(ParcelFileDescriptor source, Options options)
+      throws IOException {
+    if (options.get(Downsampler.DECODE_FORMAT) != DecodeFormat.PREFER_RGB_565) {
+      return Bitmap.Config.ARGB_8888;
+    }
+    return getType(source).hasAlpha() ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565;
+  }
+
+  private ImageType getType(ParcelFileDescriptor source) throws IOException {
+    // The stream shares its offset with the descriptor, so we have to restore it afterwards for
+    // the BitmapRegionDecoder. We can't close the stream without closing the descriptor, but it
+    // doesn't own any other resources.
+    FileInputStream is = new FileInputStream(source.getFileDescriptor());
+    FileChannel channel = is.getChannel();
+    long position = channel.position();
+    try {
+      return ImageHeaderParserUtils.getType(parsers, is, arrayPool);
+    } finally {
+      channel.position(position);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.bumptech.glide.load.resource.tile;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.engine.Resource;
+
+/**
+ * A resource wrapping a {@link TiledImage}.
+ */
+public final class TiledImageResource implements Resource<TiledImage> {
+  private final TiledImage tiledImage;
+  private final int encodedSize;
+
+  /**
+   * @param encodedSize The size in bytes of the encoded image the decoder reads tiles from.
+   */
+  public TiledImageResource(@NonNull TiledImage tiledImage, int encodedSize) {
+    this.tiledImage = tiledImage;
+    this.encodedSize = encodedSize;
+  }
+
+  @NonNull
+  @Override
+  public Class<TiledImage> getResourceClass() {
+    return TiledImage.class;
+  }
+
+  @NonNull
+  @Override
+  public TiledImage get() {
+    return tiledImage;
+  }
+
+  @Override
+  public int getSize() {
+    // Decoded tiles are accounted for separately in the memory cache.
+    return encodedSize;
+  }
+
+  @Override
+  public void recycle() {
+    tiledImage.recycle();
+  }
+}
@@ -682,6 +682,22 @@ public abstract class BaseRequestOptions<T extends BaseRequestOptions<T>> implem
     return set(Downsampler.ALLOW_HARDWARE_CONFIG, false);
   }
 
+  /**
+   * Allows intermediate, lower quality images decoded from partially downloaded JPEG and PNG data
+   * to be displayed in the {@link com.bumptech.glide.request.target.Target} while the rest of the
+   * image is downloaded.
+   *
+   * <p>Intermediate images are only produced while source data is written to the disk cache, see
+   * {@link Downsampler#PROGRESSIVE}. They're displayed without a transition and aren't passed to
+   * {@link RequestListener}s. Once an intermediate image has been displayed, the final image also
+   * replaces it without a transition.
+   */
+  @NonNull
+  @CheckResult
+  public T progressive() {
+    return set(Downsampler.PROGRESSIVE, true);
+  }
+
   /**
    * Sets the {@link DownsampleStrategy} to use when decoding {@link Bitmap Bitmaps} using
    * {@link Downsampler}.
@@ -1,6 +1,8 @@
 package com.bumptech.glide.request;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import com.bumptech.glide.Priority;
 
 /**
  * Runs a single primary {@link Request} until it completes and then a fallback error request only
@@ -40,6 +42,12 @@ public final class ErrorRequestCoordinator implements RequestCoordinator,
     }
   }
 
+  @Override
+  public void setPriority(@NonNull Priority priority) {
+    primary.setPriority(priority);
+    error.setPriority(priority);
+  }
+
   @Override
   public boolean isRunning() {
     return primary.isFailed() ? error.isRunning() : primary.isRunning();
@@ -1,5 +1,8 @@
 package com.bumptech.glide.request;
 
+import android.support.annotation.NonNull;
+import com.bumptech.glide.Priority;
+
 /**
  * A request that loads a resource for an {@link com.bumptech.glide.request.target.Target}.
  */
@@ -17,6 +20,13 @@ public interface Request {
    */
   void clear();
 
+  /**
+   * Changes the priority of this request's load, for example to promote a load for a view that has
+   * just scrolled on screen. Has no effect on requests that have completed, failed or been
+   * cleared.
+   */
+  void setPriority(@NonNull Priority priority);
+
   /**
    * Returns true if this request is running and has not completed or failed.
    */
@@ -138,13 +138,13 @@ public class RequestFutureTarget<R> implements FutureTarget<R>,
   }
 
   @Override
-  public void setRequest(@Nullable Request request) {
+  public synchronized void setRequest(@Nullable Request request) {
     this.request = request;
   }
 
   @Override
   @Nullable
-  public Request getRequest() {
+  public synchronized Request getRequest() {
     return request;
   }
 
@@ -224,10 +224,15 @@ public class RequestFutureTarget<R> implements FutureTarget<R>,
    */
   @Override
   public void run() {
-    if (request != null) {
-      request.clear();
+    Request toClear;
+    // Clear outside of our lock, the Request calls back into us while holding its own lock.
+    synchronized (this) {
+      toClear = request;
       request = null;
     }
+    if (toClear != null) {
+      toClear.clear();
+    }
   }
 
   private void clearOnMainThread() {
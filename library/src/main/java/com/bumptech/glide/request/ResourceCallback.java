@@ -17,6 +17,17 @@ public interface ResourceCallback {
    */
   void onResourceReady(Resource<?> resource, DataSource dataSource);
 
+  /**
+   * Called zero or more times before {@link #onResourceReady(Resource, DataSource)} with
+   * intermediate, lower quality resources decoded from partially loaded data.
+   *
+   * <p>Implementations must release the given resource once it's replaced or no longer used.
+   *
+   * @param resource The intermediate resource.
+   * @see com.bumptech.glide.request.BaseRequestOptions#progressive()
+   */
+  void onPartialResourceReady(Resource<?> resource, DataSource dataSource);
+
   /**
    * Called when a resource fails to load successfully.
    *
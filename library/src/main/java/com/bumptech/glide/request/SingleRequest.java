@@ -17,6 +17,7 @@ import com.bumptech.glide.load.engine.Resource;
 import com.bumptech.glide.load.resource.drawable.DrawableDecoderCompat;
 import com.bumptech.glide.request.target.SizeReadyCallback;
 import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.request.transition.NoTransition;
 import com.bumptech.glide.request.transition.Transition;
 import com.bumptech.glide.request.transition.TransitionFactory;
 import com.bumptech.glide.util.LogTime;
@@ -40,7 +41,7 @@ public final class SingleRequest<R> implements Request,
   private static final String TAG = "Request";
   /** Tag for logging externally useful events (request completion, timing etc). */
   private static final String GLIDE_TAG = "Glide";
-  private static final Pools.Pool<SingleRequest<?>> POOL = FactoryPools.simple(150,
+  private static final Pools.Pool<SingleRequest<?>> POOL = FactoryPools.threadSafe(150,
       new FactoryPools.Factory<SingleRequest<?>>() {
         @Override
         public SingleRequest<?> create() {
@@ -100,6 +101,7 @@ public final class SingleRequest<R> implements Request,
   private Engine engine;
   private TransitionFactory<? super R> animationFactory;
   private Resource<R> resource;
+  @Nullable private Resource<?> partialResource;
   private Engine.LoadStatus loadStatus;
   private long startTime;
   private Status status;
@@ -192,7 +194,7 @@ public final class SingleRequest<R> implements Request,
   }
 
   @Override
-  public void recycle() {
+  public synchronized void recycle() {
     assertNotCallingCallbacks();
     context = null;
     glideContext = null;
@@ -216,7 +218,7 @@ public final class SingleRequest<R> implements Request,
   }
 
   @Override
-  public void begin() {
+  public synchronized void begin() {
     assertNotCallingCallbacks();
     stateVerifier.throwIfRecycled();
     startTime = LogTime.getLogTime();
@@ -284,6 +286,19 @@ public final class SingleRequest<R> implements Request,
     }
   }
 
+  /**
+   * Changes the priority used to start this request's load once a size is available, or passes
+   * the new priority on to the load if it has already started.
+   */
+  @Override
+  public synchronized void setPriority(@NonNull Priority priority) {
+    stateVerifier.throwIfRecycled();
+    this.priority = priority;
+    if (loadStatus != null) {
+      loadStatus.setPriority(priority);
+    }
+  }
+
   // Avoids difficult to understand errors like #2413.
   private void assertNotCallingCallbacks() {
     if (isCallingCallbacks) {
@@ -303,7 +318,7 @@ public final class SingleRequest<R> implements Request,
    * @see #cancel()
    */
   @Override
-  public void clear() {
+  public synchronized void clear() {
     Util.assertMainThread();
     assertNotCallingCallbacks();
     stateVerifier.throwIfRecycled();
@@ -311,6 +326,7 @@ public final class SingleRequest<R> implements Request,
       return;
     }
     cancel();
+    releasePartialResource();
     // Resource must be released before canNotifyStatusChanged is called.
     if (resource != null) {
       releaseResource(resource);
@@ -327,28 +343,35 @@ public final class SingleRequest<R> implements Request,
     this.resource = null;
   }
 
+  private void releasePartialResource() {
+    if (partialResource != null) {
+      engine.release(partialResource);
+      partialResource = null;
+    }
+  }
+
   @Override
-  public boolean isRunning() {
+  public synchronized boolean isRunning() {
     return status == Status.RUNNING || status == Status.WAITING_FOR_SIZE;
   }
 
   @Override
-  public boolean isComplete() {
+  public synchronized boolean isComplete() {
     return status == Status.COMPLETE;
   }
 
   @Override
-  public boolean isResourceSet() {
+  public synchronized boolean isResourceSet() {
     return isComplete();
   }
 
   @Override
-  public boolean isCleared() {
+  public synchronized boolean isCleared() {
     return status == Status.CLEARED;
   }
 
   @Override
-  public boolean isFailed() {
+  public synchronized boolean isFailed() {
     return status == Status.FAILED;
   }
 
@@ -412,7 +435,7 @@ public final class SingleRequest<R> implements Request,
    * A callback method that should never be invoked directly.
    */
   @Override
-  public void onSizeReady(int width, int height) {
+  public synchronized void onSizeReady(int width, int height) {
     stateVerifier.throwIfRecycled();
     if (IS_VERBOSE_LOGGABLE) {
       logV("Got onSizeReady in " + LogTime.getElapsedMillis(startTime));
@@ -497,7 +520,7 @@ public final class SingleRequest<R> implements Request,
    */
   @SuppressWarnings("unchecked")
   @Override
-  public void onResourceReady(Resource<?> resource, DataSource dataSource) {
+  public synchronized void onResourceReady(Resource<?> resource, DataSource dataSource) {
     stateVerifier.throwIfRecycled();
     loadStatus = null;
     if (resource == null) {
@@ -521,6 +544,7 @@ public final class SingleRequest<R> implements Request,
     }
 
     if (!canSetResource()) {
+      releasePartialResource();
       releaseResource(resource);
       // We can't put the status to complete before asking canSetResource().
       status = Status.COMPLETE;
@@ -563,22 +587,60 @@ public final class SingleRequest<R> implements Request,
               && targetListener.onResourceReady(result, model, target, dataSource, isFirstResource);
 
       if (!anyListenerHandledUpdatingTarget) {
-        Transition<? super R> animation =
-            animationFactory.build(dataSource, isFirstResource);
+        // Intermediate resources are recycled as soon as they're replaced, so they can't be drawn
+        // by a transition.
+        Transition<? super R> animation;
+        if (partialResource != null) {
+          animation = NoTransition.get();
+        } else {
+          animation = animationFactory.build(dataSource, isFirstResource);
+        }
         target.onResourceReady(result, animation);
       }
     } finally {
       isCallingCallbacks = false;
     }
+    // The final resource has replaced any intermediate resource.
+    releasePartialResource();
 
     notifyLoadSuccess();
   }
 
+  /**
+   * A callback method that should never be invoked directly.
+   *
+   * <p>Intermediate resources are passed directly to the {@link Target} without a transition and
+   * without notifying any {@link RequestListener}s, which only see the final resource.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public synchronized void onPartialResourceReady(Resource<?> resource, DataSource dataSource) {
+    stateVerifier.throwIfRecycled();
+    Object received = resource.get();
+    if (status != Status.RUNNING || !transcodeClass.isInstance(received) || !canSetResource()) {
+      engine.release(resource);
+      return;
+    }
+    Resource<?> previous = partialResource;
+    partialResource = resource;
+
+    isCallingCallbacks = true;
+    try {
+      target.onResourceReady((R) received, NoTransition.<R>get());
+    } finally {
+      isCallingCallbacks = false;
+    }
+
+    if (previous != null) {
+      engine.release(previous);
+    }
+  }
+
   /**
    * A callback method that should never be invoked directly.
    */
   @Override
-  public void onLoadFailed(GlideException e) {
+  public synchronized void onLoadFailed(GlideException e) {
     onLoadFailed(e, Log.WARN);
   }
 
@@ -594,6 +656,7 @@ public final class SingleRequest<R> implements Request,
 
     loadStatus = null;
     status = Status.FAILED;
+    releasePartialResource();
 
     isCallingCallbacks = true;
     try {
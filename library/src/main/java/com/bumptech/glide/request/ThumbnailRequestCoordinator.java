@@ -1,7 +1,9 @@
 package com.bumptech.glide.request;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
+import com.bumptech.glide.Priority;
 
 /**
  * A coordinator that coordinates two individual {@link Request}s that load a small thumbnail
@@ -127,6 +129,12 @@ public class ThumbnailRequestCoordinator implements RequestCoordinator,
     full.clear();
   }
 
+  @Override
+  public void setPriority(@NonNull Priority priority) {
+    full.setPriority(priority);
+    thumb.setPriority(priority);
+  }
+
   /**
    * Returns true if the full request is still running.
    */
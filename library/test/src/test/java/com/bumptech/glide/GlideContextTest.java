@@ -45,7 +45,8 @@ public final class GlideContextTest {
         transitionOptions,
         /*defaultRequestListeners=*/ Collections.<RequestListener<Object>>emptyList(),
         mock(Engine.class),
-        Log.DEBUG);
+        Log.DEBUG,
+        /*loadMetricsListener=*/ null);
   }
 
   @Test
@@ -0,0 +1,101 @@
+package com.bumptech.glide;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.tests.Util.ReturnsSelfAnswer;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class PredictiveListPreloaderTest {
+  private static final int MIN_PRELOAD = 4;
+  private static final int MAX_PRELOAD = 20;
+
+  @Mock private RequestManager requestManager;
+  private RequestBuilder<Object> request;
+  private RequestBuilder<Object> clonedRequest;
+  private PredictiveListPreloader<Object> preloader;
+
+  @SuppressWarnings("unchecked")
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    request = mock(RequestBuilder.class, new ReturnsSelfAnswer());
+    clonedRequest = mock(RequestBuilder.class, new ReturnsSelfAnswer());
+    when(request.clone()).thenReturn(clonedRequest);
+    Provider provider = new Provider();
+    preloader = new PredictiveListPreloader<>(
+        requestManager, provider, provider, MIN_PRELOAD, MAX_PRELOAD);
+  }
+
+  @Test
+  public void onScroll_setsPriorityOnCloneNotOnAppsRequestBuilder() {
+    preloader.onScroll(null, 1, 10, 100);
+
+    verify(request, times(MIN_PRELOAD)).clone();
+    verify(request, never()).priority(any(Priority.class));
+    verify(clonedRequest, times(MIN_PRELOAD)).into(any(Target.class));
+  }
+
+  @Test
+  public void onScroll_loadsNearerHalfOfWindowAtHigherPriority() {
+    preloader.onScroll(null, 1, 10, 100);
+
+    verify(clonedRequest, times(MIN_PRELOAD / 2)).priority(Priority.NORMAL);
+    verify(clonedRequest, times(MIN_PRELOAD / 2)).priority(Priority.LOW);
+  }
+
+  @Test
+  public void onScroll_pastEndOfList_doesNotPreload() {
+    preloader.onScroll(null, 1, 10, 11);
+
+    verify(request, never()).clone();
+  }
+
+  @Test
+  public void onScroll_reversingDirection_clearsPreloadsOutOfRange() {
+    preloader.onScroll(null, 1, 10, 100);
+
+    preloader.onScroll(null, 0, 10, 100);
+
+    verify(requestManager, times(MIN_PRELOAD)).clear(any(Target.class));
+  }
+
+  private final class Provider implements ListPreloader.PreloadModelProvider<Object>,
+      ListPreloader.PreloadSizeProvider<Object> {
+
+    @NonNull
+    @Override
+    public List<Object> getPreloadItems(int position) {
+      return Collections.<Object>singletonList(position);
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull Object item) {
+      return request;
+    }
+
+    @Nullable
+    @Override
+    public int[] getPreloadSize(@NonNull Object item, int adapterPosition, int itemPosition) {
+      return new int[] { 100, 100 };
+    }
+  }
+}
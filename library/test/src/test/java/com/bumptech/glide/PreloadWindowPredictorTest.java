@@ -0,0 +1,153 @@
+package com.bumptech.glide;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PreloadWindowPredictorTest {
+  private static final int MIN_PRELOAD = 2;
+  private static final int MAX_PRELOAD = 20;
+  private static final int VISIBLE_COUNT = 5;
+
+  private PreloadWindowPredictor predictor;
+
+  @Before
+  public void setUp() {
+    predictor = new PreloadWindowPredictor(MIN_PRELOAD, MAX_PRELOAD);
+  }
+
+  @Test
+  public void predictWindow_withNoSamples_preloadsMinimumFromEdge() {
+    predictor.predictWindow(VISIBLE_COUNT);
+
+    assertThat(predictor.getWindowStart()).isEqualTo(0);
+    assertThat(predictor.getWindowEnd()).isEqualTo(MIN_PRELOAD);
+  }
+
+  @Test
+  public void addSample_estimatesVelocityInPositionsPerMillisecond() {
+    predictor.addSample(0, 0);
+    predictor.addSample(10, 100);
+
+    assertThat(predictor.getVelocity()).isWithin(1e-6f).of(0.1f);
+  }
+
+  @Test
+  public void addSample_whenScrollingBackwards_estimatesNegativeVelocity() {
+    predictor.addSample(20, 0);
+    predictor.addSample(10, 100);
+
+    assertThat(predictor.getVelocity()).isWithin(1e-6f).of(-0.1f);
+  }
+
+  @Test
+  public void addSample_afterLongPause_resetsVelocity() {
+    predictor.addSample(0, 0);
+    predictor.addSample(10, 100);
+
+    predictor.addSample(11, 100 + PreloadWindowPredictor.MAX_SAMPLE_INTERVAL_MS + 1);
+
+    assertThat(predictor.getVelocity()).isEqualTo(0f);
+  }
+
+  @Test
+  public void predictWindow_withSlowScroll_preloadsMinimumFromEdge() {
+    predictor.addSample(0, 0);
+    predictor.addSample(1, 200);
+
+    predictor.predictWindow(VISIBLE_COUNT);
+
+    assertThat(predictor.getWindowStart()).isEqualTo(0);
+    assertThat(predictor.getWindowEnd()).isEqualTo(MIN_PRELOAD + 1);
+  }
+
+  @Test
+  public void predictWindow_withFastScroll_growsAndShiftsWindow() {
+    predictor.addSample(0, 0);
+    predictor.addSample(3, 100);
+
+    predictor.predictWindow(VISIBLE_COUNT);
+
+    // 0.03 positions per ms skips the position that passes within the lead time, then preloads
+    // the 15 positions that will be reached within the horizon.
+    assertThat(predictor.getWindowStart()).isEqualTo(1);
+    assertThat(predictor.getWindowEnd()).isEqualTo(1 + 15);
+  }
+
+  @Test
+  public void predictWindow_withVeryFastScroll_limitsWindowToMaximum() {
+    predictor.addSample(0, 0);
+    predictor.addSample(100, 100);
+
+    predictor.predictWindow(VISIBLE_COUNT);
+
+    assertThat(predictor.getWindowEnd() - predictor.getWindowStart()).isEqualTo(MAX_PRELOAD);
+  }
+
+  @Test
+  public void addSample_whileDraggingAndSlowingDown_doesNotEstimateDeceleration() {
+    predictor.addSample(0, 0);
+    predictor.addSample(10, 100);
+    predictor.addSample(15, 200);
+
+    assertThat(predictor.getDeceleration()).isEqualTo(0f);
+  }
+
+  @Test
+  public void addSample_whileFlingingAndSlowingDown_estimatesDeceleration() {
+    predictor.setFlinging(true);
+    predictor.addSample(0, 0);
+    predictor.addSample(10, 100);
+    predictor.addSample(15, 200);
+
+    assertThat(predictor.getDeceleration()).isGreaterThan(0f);
+  }
+
+  @Test
+  public void predictWindow_withDeceleratingFling_doesNotPreloadPastStop() {
+    predictor.setFlinging(true);
+    predictor.addSample(0, 0);
+    predictor.addSample(10, 100);
+    // Velocity drops from 0.1 to 0.075 positions per ms over 100ms.
+    predictor.addSample(15, 200);
+
+    predictor.predictWindow(VISIBLE_COUNT);
+
+    // Stops about 0.075^2 / (2 * 0.00025) = 11.25 positions ahead, so don't preload beyond that.
+    assertThat(predictor.getWindowEnd()).isEqualTo(13);
+    // Positions visible when the fling stops are preloaded even though we're moving fast.
+    assertThat(predictor.getWindowStart()).isEqualTo(3);
+  }
+
+  @Test
+  public void setFlinging_false_clearsDeceleration() {
+    predictor.setFlinging(true);
+    predictor.addSample(0, 0);
+    predictor.addSample(10, 100);
+    predictor.addSample(15, 200);
+
+    predictor.setFlinging(false);
+
+    assertThat(predictor.getDeceleration()).isEqualTo(0f);
+  }
+
+  @Test
+  public void reset_clearsVelocity() {
+    predictor.addSample(0, 0);
+    predictor.addSample(10, 100);
+
+    predictor.reset();
+    predictor.addSample(20, 150);
+
+    assertThat(predictor.getVelocity()).isEqualTo(0f);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructor_withMaxLessThanMin_throws() {
+    new PreloadWindowPredictor(10, 5);
+  }
+}
@@ -1,6 +1,7 @@
 package com.bumptech.glide;
 
 import static com.bumptech.glide.tests.BackgroundUtil.testInBackground;
+import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.eq;
@@ -11,9 +12,11 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.app.Application;
+import android.graphics.drawable.Drawable;
 import android.widget.ImageView;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.resource.SimpleResource;
+import com.bumptech.glide.request.FutureTarget;
 import com.bumptech.glide.request.Request;
 import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.RequestOptions;
@@ -22,6 +25,7 @@ import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.request.target.ViewTarget;
 import com.bumptech.glide.tests.BackgroundUtil.BackgroundTester;
 import com.bumptech.glide.tests.TearDownGlide;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -33,6 +37,7 @@ import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 
 @SuppressWarnings("unchecked")
 @RunWith(RobolectricTestRunner.class)
@@ -122,6 +127,42 @@ public class RequestBuilderTest {
     });
   }
 
+  @Test
+  public void testSubmitOnBackgroundThreadStartsRequestWithoutMainThread()
+      throws InterruptedException {
+    final RequestManager requestManager = Glide.with(context);
+    final AtomicReference<FutureTarget<Drawable>> future = new AtomicReference<>();
+    ShadowLooper.pauseMainLooper();
+
+    testInBackground(new BackgroundTester() {
+      @Override
+      public void runTest() {
+        future.set(requestManager.load((Object) null).submit());
+      }
+    });
+
+    assertThat(future.get().isDone()).isTrue();
+  }
+
+  @Test
+  public void testSubmitOnBackgroundThreadWithThumbnailStartsRequestOnMainThread()
+      throws InterruptedException {
+    final RequestManager requestManager = Glide.with(context);
+    final AtomicReference<FutureTarget<Drawable>> future = new AtomicReference<>();
+    ShadowLooper.pauseMainLooper();
+
+    testInBackground(new BackgroundTester() {
+      @Override
+      public void runTest() {
+        future.set(requestManager.load((Object) null).thumbnail(0.5f).submit());
+      }
+    });
+    assertThat(future.get().isDone()).isFalse();
+
+    ShadowLooper.runUiThreadTasks();
+    assertThat(future.get().isDone()).isTrue();
+  }
+
   @Test
   public void testMultipleRequestListeners() {
     getNullModelRequest().addListener(listener1).addListener(listener2).into(target);
@@ -21,6 +21,7 @@ import com.bumptech.glide.manager.ConnectivityMonitorFactory;
 import com.bumptech.glide.manager.Lifecycle;
 import com.bumptech.glide.manager.RequestManagerTreeNode;
 import com.bumptech.glide.manager.RequestTracker;
+import com.bumptech.glide.request.Request;
 import com.bumptech.glide.request.target.BaseTarget;
 import com.bumptech.glide.request.target.SizeReadyCallback;
 import com.bumptech.glide.request.transition.Transition;
@@ -190,6 +191,21 @@ public class RequestManagerTest {
     assertFalse(manager.isPaused());
   }
 
+  @Test
+  public void setPriority_withTargetRequest_setsRequestPriority() {
+    Request request = mock(Request.class);
+    target.setRequest(request);
+
+    manager.setPriority(target, Priority.IMMEDIATE);
+
+    verify(request).setPriority(Priority.IMMEDIATE);
+  }
+
+  @Test
+  public void setPriority_withoutTargetRequest_doesNothing() {
+    manager.setPriority(target, Priority.IMMEDIATE);
+  }
+
   @Test
   public void clear_withRequestStartedInSiblingManager_doesNotThrow() {
     final RequestManager child1 = new RequestManager(Glide.get(context), lifecycle,
@@ -97,6 +97,14 @@ public class HttpUrlFetcherTest {
     verify(urlConnection, never()).disconnect();
   }
 
+  @Test
+  public void testCancelDoesNotCloseStreamIfAlreadyConnected() throws IOException {
+    fetcher.loadData(Priority.HIGH, callback);
+    fetcher.cancel();
+
+    verify(stream, never()).close();
+  }
+
   @Test
   public void testClosesStreamInCleanupIfNotNull() throws IOException {
     fetcher.loadData(Priority.HIGH, callback);
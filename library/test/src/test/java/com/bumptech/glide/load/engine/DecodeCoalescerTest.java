@@ -0,0 +1,204 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.tests.Util;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class DecodeCoalescerTest {
+  private final ObjectKey signature = new ObjectKey("signature");
+  private final Options options = new Options();
+  private DecodeCoalescer coalescer;
+  private DecodeCoalescer.Waiter large;
+  private DecodeCoalescer.Waiter small;
+  private BitmapPool bitmapPool;
+
+  @Before
+  public void setUp() {
+    coalescer = new DecodeCoalescer();
+    large = mock(DecodeCoalescer.Waiter.class);
+    small = mock(DecodeCoalescer.Waiter.class);
+    bitmapPool = mock(BitmapPool.class);
+    when(bitmapPool.get(anyInt(), anyInt(), any(Bitmap.Config.class)))
+        .thenAnswer(new Util.CreateBitmap());
+  }
+
+  @Test
+  public void await_withNoOtherLoads_returnsFalse() {
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 100, 100, small);
+
+    assertThat(coalescer.await(member)).isFalse();
+  }
+
+  @Test
+  public void await_withLargerLoad_returnsTrue() {
+    coalescer.join("model", signature, options, 500, 500, large);
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 100, 100, small);
+
+    assertThat(coalescer.await(member)).isTrue();
+  }
+
+  @Test
+  public void await_withLargerLoadForOriginalSize_returnsTrue() {
+    coalescer.join(
+        "model", signature, options, Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL, large);
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 100, 100, small);
+
+    assertThat(coalescer.await(member)).isTrue();
+  }
+
+  @Test
+  public void await_withSmallerLoad_returnsFalse() {
+    coalescer.join("model", signature, options, 100, 100, small);
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 500, 500, large);
+
+    assertThat(coalescer.await(member)).isFalse();
+  }
+
+  @Test
+  public void await_withLoadThatIsLargerInOnlyOneDimension_returnsFalse() {
+    coalescer.join("model", signature, options, 500, 50, large);
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 100, 100, small);
+
+    assertThat(coalescer.await(member)).isFalse();
+  }
+
+  @Test
+  public void await_withSameSizeLoads_onlyLaterLoadWaits() {
+    DecodeCoalescer.Member first = coalescer.join("model", signature, options, 100, 100, large);
+    DecodeCoalescer.Member second = coalescer.join("model", signature, options, 100, 100, small);
+
+    assertThat(coalescer.await(second)).isTrue();
+    assertThat(coalescer.await(first)).isFalse();
+  }
+
+  @Test
+  public void await_withLargerLoadForDifferentModel_returnsFalse() {
+    coalescer.join("other", signature, options, 500, 500, large);
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 100, 100, small);
+
+    assertThat(coalescer.await(member)).isFalse();
+  }
+
+  @Test
+  public void await_withLargerLoadForDifferentOptions_returnsFalse() {
+    Options otherOptions = new Options().set(DownsampleStrategy.OPTION, DownsampleStrategy.NONE);
+    coalescer.join("model", signature, otherOptions, 500, 500, large);
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 100, 100, small);
+
+    assertThat(coalescer.await(member)).isFalse();
+  }
+
+  @Test
+  public void await_afterLargerLoadHasDecoded_returnsFalse() {
+    DecodeCoalescer.Member largeMember =
+        coalescer.join("model", signature, options, 500, 500, large);
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 100, 100, small);
+
+    coalescer.onDecoded(largeMember, null, DownsampleStrategy.DEFAULT, bitmapPool);
+
+    assertThat(coalescer.await(member)).isFalse();
+  }
+
+  @Test
+  public void onDecoded_withBitmap_derivesSmallerBitmapForWaiter() {
+    DecodeCoalescer.Member largeMember =
+        coalescer.join("model", signature, options, 500, 500, large);
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 100, 100, small);
+    coalescer.await(member);
+
+    Bitmap decoded = Bitmap.createBitmap(500, 250, Bitmap.Config.ARGB_8888);
+    coalescer.onDecoded(largeMember, decoded, DownsampleStrategy.FIT_CENTER, bitmapPool);
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Resource<Bitmap>> captor =
+        (ArgumentCaptor<Resource<Bitmap>>) (ArgumentCaptor<?>) ArgumentCaptor.forClass(
+            Resource.class);
+    verify(small).onSharedDecodeComplete(captor.capture());
+    Bitmap derived = captor.getValue().get();
+    assertThat(derived).isNotSameAs(decoded);
+    assertThat(derived.getWidth()).isEqualTo(100);
+    assertThat(derived.getHeight()).isEqualTo(50);
+    verify(large, never()).onSharedDecodeComplete(any(Resource.class));
+  }
+
+  @Test
+  public void onDecoded_withoutBitmap_notifiesWaiterToDecodeItself() {
+    DecodeCoalescer.Member largeMember =
+        coalescer.join("model", signature, options, 500, 500, large);
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 100, 100, small);
+    coalescer.await(member);
+
+    coalescer.onDecoded(largeMember, null, DownsampleStrategy.DEFAULT, null);
+
+    verify(small).onSharedDecodeComplete(isNull(Resource.class));
+  }
+
+  @Test
+  public void leave_withLargerLoadThatDidNotDecode_notifiesWaiterToDecodeItself() {
+    DecodeCoalescer.Member largeMember =
+        coalescer.join("model", signature, options, 500, 500, large);
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 100, 100, small);
+    coalescer.await(member);
+
+    coalescer.leave(largeMember);
+
+    verify(small).onSharedDecodeComplete(isNull(Resource.class));
+  }
+
+  @Test
+  public void leave_withAnotherLargerLoad_keepsWaiting() {
+    DecodeCoalescer.Member first = coalescer.join("model", signature, options, 500, 500, large);
+    coalescer.join("model", signature, options, 400, 400, mock(DecodeCoalescer.Waiter.class));
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 100, 100, small);
+    coalescer.await(member);
+
+    coalescer.leave(first);
+
+    verify(small, never()).onSharedDecodeComplete(any(Resource.class));
+  }
+
+  @Test
+  public void removeWaiter_whileWaiting_returnsTrueAndPreventsNotification() {
+    DecodeCoalescer.Member largeMember =
+        coalescer.join("model", signature, options, 500, 500, large);
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 100, 100, small);
+    coalescer.await(member);
+
+    assertThat(coalescer.removeWaiter(member)).isTrue();
+    coalescer.leave(largeMember);
+
+    verify(small, never()).onSharedDecodeComplete(any(Resource.class));
+  }
+
+  @Test
+  public void removeWaiter_afterNotification_returnsFalse() {
+    DecodeCoalescer.Member largeMember =
+        coalescer.join("model", signature, options, 500, 500, large);
+    DecodeCoalescer.Member member = coalescer.join("model", signature, options, 100, 100, small);
+    coalescer.await(member);
+    coalescer.leave(largeMember);
+
+    assertThat(coalescer.removeWaiter(member)).isFalse();
+  }
+}
@@ -0,0 +1,367 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Intent;
+import android.os.BatteryManager;
+import com.bumptech.glide.GlideContext;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Encoder;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.QueryableDiskCache;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.manager.ConnectivityMonitor;
+import com.bumptech.glide.manager.ConnectivityMonitor.ConnectivityListener;
+import com.bumptech.glide.manager.ConnectivityMonitorFactory;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.signature.EmptySignature;
+import com.bumptech.glide.signature.ObjectKey;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class DiskCachePrefetcherTest {
+  private static final String DATA = "data";
+
+  private GlideContext glideContext;
+  private Registry registry;
+  private QueryableDiskCache diskCache;
+  private ConnectivityMonitor connectivityMonitor;
+  private ConnectivityMonitorFactory connectivityMonitorFactory;
+  private ConnectivityListener connectivityListener;
+  private Encoder<Object> encoder;
+  private RecordingListener listener;
+  private DiskCachePrefetcher prefetcher;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Registry.NoSourceEncoderAvailableException {
+    glideContext = mock(GlideContext.class);
+    registry = mock(Registry.class);
+    when(glideContext.getRegistry()).thenReturn(registry);
+    when(glideContext.getDefaultRequestOptions()).thenReturn(new RequestOptions());
+    encoder = mock(Encoder.class);
+    when(encoder.encode(any(), any(File.class), any(Options.class))).thenReturn(true);
+    when(registry.getSourceEncoder(any())).thenReturn(encoder);
+
+    diskCache = mock(QueryableDiskCache.class);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        DiskCache.Writer writer = (DiskCache.Writer) invocation.getArguments()[1];
+        writer.write(new File("fake"));
+        return null;
+      }
+    }).when(diskCache).put(any(Key.class), any(DiskCache.Writer.class));
+    DecodeJob.DiskCacheProvider diskCacheProvider = mock(DecodeJob.DiskCacheProvider.class);
+    when(diskCacheProvider.getDiskCache()).thenReturn(diskCache);
+
+    connectivityMonitor = mock(ConnectivityMonitor.class);
+    connectivityMonitorFactory = mock(ConnectivityMonitorFactory.class);
+    when(connectivityMonitorFactory.build(eq(glideContext), any(ConnectivityListener.class)))
+        .thenAnswer(new Answer<ConnectivityMonitor>() {
+          @Override
+          public ConnectivityMonitor answer(InvocationOnMock invocation) {
+            connectivityListener = (ConnectivityListener) invocation.getArguments()[1];
+            return connectivityMonitor;
+          }
+        });
+
+    listener = new RecordingListener();
+    prefetcher = new DiskCachePrefetcher(glideContext, diskCacheProvider,
+        MoreExecutors.newDirectExecutorService(), connectivityMonitorFactory);
+  }
+
+  @Test
+  public void prefetch_withRemoteModel_writesDataToDiskCache() throws Exception {
+    DataFetcher<Object> fetcher = registerModel("model", DataSource.REMOTE);
+
+    DiskCachePrefetcher.Task task =
+        prefetcher.prefetch(Collections.singletonList("model"), listener);
+
+    verify(fetcher).loadData(eq(Priority.LOW), any(DataFetcher.DataCallback.class));
+    verify(diskCache).put(eq(dataCacheKey("model")), any(DiskCache.Writer.class));
+    verify(encoder).encode(eq(DATA), any(File.class), any(Options.class));
+    verify(fetcher).cleanup();
+    assertThat(listener.results).containsExactly(DiskCachePrefetcher.Result.FETCHED);
+    assertThat(listener.completeCount).isEqualTo(1);
+    assertThat(task.isDone()).isTrue();
+    assertThat(task.getCount(DiskCachePrefetcher.Result.FETCHED)).isEqualTo(1);
+  }
+
+  @Test
+  public void prefetch_withDataAlreadyInDiskCache_doesNotFetch() {
+    DataFetcher<Object> fetcher = registerModel("model", DataSource.REMOTE);
+    when(diskCache.contains(dataCacheKey("model"))).thenReturn(true);
+
+    prefetcher.prefetch(Collections.singletonList("model"), listener);
+
+    verify(fetcher, never()).loadData(any(Priority.class), any(DataFetcher.DataCallback.class));
+    verify(diskCache, never()).get(any(Key.class));
+    assertThat(listener.results).containsExactly(DiskCachePrefetcher.Result.ALREADY_CACHED);
+  }
+
+  @Test
+  public void prefetch_withDataInDiskCacheThatCannotBeQueried_doesNotFetch() {
+    DataFetcher<Object> fetcher = registerModel("model", DataSource.REMOTE);
+    DiskCache plainDiskCache = mock(DiskCache.class);
+    when(plainDiskCache.get(dataCacheKey("model"))).thenReturn(new File("fake"));
+    DecodeJob.DiskCacheProvider diskCacheProvider = mock(DecodeJob.DiskCacheProvider.class);
+    when(diskCacheProvider.getDiskCache()).thenReturn(plainDiskCache);
+    prefetcher = new DiskCachePrefetcher(glideContext, diskCacheProvider,
+        MoreExecutors.newDirectExecutorService(), connectivityMonitorFactory);
+
+    prefetcher.prefetch(Collections.singletonList("model"), listener);
+
+    verify(fetcher, never()).loadData(any(Priority.class), any(DataFetcher.DataCallback.class));
+    assertThat(listener.results).containsExactly(DiskCachePrefetcher.Result.ALREADY_CACHED);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void prefetch_doesNotReadModelsOnCallingThread() {
+    ExecutorService executor = mock(ExecutorService.class);
+    prefetcher = new DiskCachePrefetcher(glideContext, mock(DecodeJob.DiskCacheProvider.class),
+        executor, connectivityMonitorFactory);
+    Iterator<Object> models = mock(Iterator.class);
+    Iterable<Object> iterable = mock(Iterable.class);
+    when(iterable.iterator()).thenReturn(models);
+
+    DiskCachePrefetcher.Task task = prefetcher.prefetch(iterable, listener);
+    connectivityListener.onConnectivityChanged(true);
+    task.cancel();
+
+    verify(executor, atLeastOnce()).execute(any(Runnable.class));
+    verify(models, never()).hasNext();
+    verify(models, never()).next();
+    assertThat(listener.completeCount).isEqualTo(1);
+  }
+
+  @Test
+  public void prefetch_withNoModels_completesOnWorker() {
+    ExecutorService executor = mock(ExecutorService.class);
+    prefetcher = new DiskCachePrefetcher(glideContext, mock(DecodeJob.DiskCacheProvider.class),
+        executor, connectivityMonitorFactory);
+
+    DiskCachePrefetcher.Task task = prefetcher.prefetch(Collections.emptyList(), listener);
+    assertThat(task.isDone()).isFalse();
+    ArgumentCaptor<Runnable> workers = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor, atLeastOnce()).execute(workers.capture());
+
+    for (Runnable worker : workers.getAllValues()) {
+      worker.run();
+    }
+
+    assertThat(task.isDone()).isTrue();
+    assertThat(listener.completeCount).isEqualTo(1);
+  }
+
+  @Test
+  public void prefetch_withLocalModel_doesNotFetch() {
+    DataFetcher<Object> fetcher = registerModel("model", DataSource.LOCAL);
+
+    prefetcher.prefetch(Collections.singletonList("model"), listener);
+
+    verify(fetcher, never()).loadData(any(Priority.class), any(DataFetcher.DataCallback.class));
+    assertThat(listener.results).containsExactly(DiskCachePrefetcher.Result.NOT_CACHEABLE);
+  }
+
+  @Test
+  public void prefetch_withModelWithoutLoaders_reportsNotCacheable() {
+    when(registry.getModelLoaders(any()))
+        .thenThrow(new Registry.NoModelLoaderAvailableException("model"));
+
+    DiskCachePrefetcher.Task task =
+        prefetcher.prefetch(Collections.singletonList("model"), listener);
+
+    assertThat(listener.results).containsExactly(DiskCachePrefetcher.Result.NOT_CACHEABLE);
+    assertThat(task.isDone()).isTrue();
+  }
+
+  @Test
+  public void prefetch_withFailedFetch_reportsFailure() {
+    DataFetcher<Object> fetcher = registerModel("model", DataSource.REMOTE);
+    doAnswer(new Answer<Void>() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        ((DataFetcher.DataCallback<Object>) invocation.getArguments()[1])
+            .onLoadFailed(new RuntimeException("test"));
+        return null;
+      }
+    }).when(fetcher).loadData(any(Priority.class), any(DataFetcher.DataCallback.class));
+
+    prefetcher.prefetch(Collections.singletonList("model"), listener);
+
+    verify(diskCache, never()).put(any(Key.class), any(DiskCache.Writer.class));
+    verify(fetcher).cleanup();
+    assertThat(listener.results).containsExactly(DiskCachePrefetcher.Result.FAILED);
+  }
+
+  @Test
+  public void prefetch_withMultipleModels_reportsProgressForEach() {
+    registerModel("first", DataSource.REMOTE);
+    registerModel("second", DataSource.REMOTE);
+
+    DiskCachePrefetcher.Task task =
+        prefetcher.prefetch(Arrays.asList("first", "second"), listener);
+
+    assertThat(listener.models).containsExactly("first", "second").inOrder();
+    assertThat(task.getCompletedCount()).isEqualTo(2);
+    assertThat(listener.completeCount).isEqualTo(1);
+  }
+
+  @Test
+  public void prefetch_startsAndStopsConnectivityMonitor() {
+    registerModel("model", DataSource.REMOTE);
+
+    prefetcher.prefetch(Collections.singletonList("model"), listener);
+
+    verify(connectivityMonitor).onStart();
+    verify(connectivityMonitor).onStop();
+  }
+
+  @Test
+  public void prefetch_whileDisconnected_waitsForConnectivity() {
+    DataFetcher<Object> fetcher = registerModel("model", DataSource.REMOTE);
+    connectivityListener.onConnectivityChanged(false);
+
+    prefetcher.prefetch(Collections.singletonList("model"), listener);
+    verify(fetcher, never()).loadData(any(Priority.class), any(DataFetcher.DataCallback.class));
+
+    connectivityListener.onConnectivityChanged(true);
+    assertThat(listener.results).containsExactly(DiskCachePrefetcher.Result.FETCHED);
+  }
+
+  @Test
+  public void prefetch_withNoModels_completes() {
+    DiskCachePrefetcher.Task task = prefetcher.prefetch(Collections.emptyList(), listener);
+
+    assertThat(task.isDone()).isTrue();
+    assertThat(listener.completeCount).isEqualTo(1);
+    verify(connectivityMonitor).onStop();
+  }
+
+  @Test
+  public void cancel_beforeModelsAreFetched_completesWithoutFetching() {
+    DataFetcher<Object> fetcher = registerModel("model", DataSource.REMOTE);
+    connectivityListener.onConnectivityChanged(false);
+    prefetcher.prefetch(Collections.singletonList("other"), null);
+
+    DiskCachePrefetcher.Task task =
+        prefetcher.prefetch(Collections.singletonList("model"), listener);
+    task.cancel();
+    connectivityListener.onConnectivityChanged(true);
+
+    verify(fetcher, never()).loadData(any(Priority.class), any(DataFetcher.DataCallback.class));
+    assertThat(task.isDone()).isTrue();
+    assertThat(listener.completeCount).isEqualTo(1);
+    assertThat(listener.results).isEmpty();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void prefetch_afterShutdown_throws() {
+    prefetcher.shutdown();
+    prefetcher.prefetch(Collections.singletonList("model"), listener);
+  }
+
+  @Test
+  public void isBatteryLow_withLowLevelAndUnplugged_returnsTrue() {
+    assertThat(DiskCachePrefetcher.isBatteryLow(batteryIntent(10, 0))).isTrue();
+  }
+
+  @Test
+  public void isBatteryLow_withLowLevelAndPlugged_returnsFalse() {
+    assertThat(DiskCachePrefetcher.isBatteryLow(
+        batteryIntent(10, BatteryManager.BATTERY_PLUGGED_AC))).isFalse();
+  }
+
+  @Test
+  public void isBatteryLow_withHighLevel_returnsFalse() {
+    assertThat(DiskCachePrefetcher.isBatteryLow(batteryIntent(80, 0))).isFalse();
+  }
+
+  @Test
+  public void isBatteryLow_withNoStatus_returnsFalse() {
+    assertThat(DiskCachePrefetcher.isBatteryLow(null)).isFalse();
+  }
+
+  private static Key dataCacheKey(String model) {
+    return new DataCacheKey(new ObjectKey(model), EmptySignature.obtain());
+  }
+
+  private static Intent batteryIntent(int level, int plugged) {
+    return new Intent(Intent.ACTION_BATTERY_CHANGED)
+        .putExtra(BatteryManager.EXTRA_LEVEL, level)
+        .putExtra(BatteryManager.EXTRA_SCALE, 100)
+        .putExtra(BatteryManager.EXTRA_PLUGGED, plugged);
+  }
+
+  @SuppressWarnings("unchecked")
+  private DataFetcher<Object> registerModel(String model, DataSource dataSource) {
+    final DataFetcher<Object> fetcher = mock(DataFetcher.class);
+    when(fetcher.getDataSource()).thenReturn(dataSource);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        ((DataFetcher.DataCallback<Object>) invocation.getArguments()[1]).onDataReady(DATA);
+        return null;
+      }
+    }).when(fetcher).loadData(any(Priority.class), any(DataFetcher.DataCallback.class));
+
+    ModelLoader<Object, Object> modelLoader = mock(ModelLoader.class);
+    when(modelLoader.buildLoadData(eq((Object) model), anyInt(), anyInt(), any(Options.class)))
+        .thenReturn(new ModelLoader.LoadData<>(new ObjectKey(model), fetcher));
+    List<ModelLoader<Object, ?>> modelLoaders = new ArrayList<>();
+    modelLoaders.add(modelLoader);
+    when(registry.getModelLoaders((Object) model)).thenReturn(modelLoaders);
+    return fetcher;
+  }
+
+  private static final class RecordingListener implements DiskCachePrefetcher.Listener {
+    private final List<Object> models = new ArrayList<>();
+    private final List<DiskCachePrefetcher.Result> results = new ArrayList<>();
+    private int completeCount;
+
+    @Override
+    public void onModelPrefetched(DiskCachePrefetcher.Task task, Object model,
+        DiskCachePrefetcher.Result result) {
+      models.add(model);
+      results.add(result);
+    }
+
+    @Override
+    public void onPrefetchComplete(DiskCachePrefetcher.Task task) {
+      completeCount++;
+    }
+  }
+}
@@ -3,7 +3,10 @@ package com.bumptech.glide.load.engine;
 import static com.bumptech.glide.tests.Util.anyResource;
 import static com.bumptech.glide.tests.Util.isADataSource;
 import static com.bumptech.glide.tests.Util.mockResource;
+import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
@@ -19,6 +22,7 @@ import static org.mockito.Mockito.when;
 import android.os.Handler;
 import android.os.Looper;
 import android.support.v4.util.Pools;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
@@ -26,9 +30,14 @@ import com.bumptech.glide.load.engine.executor.MockGlideExecutor;
 import com.bumptech.glide.request.ResourceCallback;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -57,6 +66,32 @@ public class EngineJobTest {
     verify(harness.cb).onResourceReady(eq(harness.engineResource), eq(harness.dataSource));
   }
 
+  @Test
+  public void onPartialResourceReady_whenReleasedByCallback_recyclesResource() {
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+    job.onPartialResourceReady(harness.resource, harness.dataSource);
+    ShadowLooper.runUiThreadTasks();
+
+    ArgumentCaptor<EngineResource> partial = ArgumentCaptor.forClass(EngineResource.class);
+    verify(harness.cb).onPartialResourceReady(partial.capture(), eq(harness.dataSource));
+    verify(harness.resource, never()).recycle();
+
+    partial.getValue().release();
+
+    verify(harness.resource).recycle();
+  }
+
+  @Test
+  public void executePartialDecode_runsDecodeOnAnimationExecutor() {
+    EngineJob<Object> job = harness.getJob();
+    Runnable decode = mock(Runnable.class);
+
+    job.executePartialDecode(decode);
+
+    verify(decode).run();
+  }
+
   @Test
   public void testListenerNotifiedJobCompleteOnOnResourceReady() {
     EngineJob<Object> job = harness.getJob();
@@ -261,7 +296,7 @@ public class EngineJobTest {
     doAnswer(new Answer<Void>() {
       @Override
       public Void answer(InvocationOnMock invocationOnMock) throws Throwable {
-        job.addCallback(newCallback);
+        job.addCallback(newCallback).deliverTo(newCallback);
         return null;
       }
     }).when(existingCallback).onResourceReady(anyResource(), isADataSource());
@@ -271,6 +306,9 @@ public class EngineJobTest {
     job.onResourceReady(harness.resource, harness.dataSource);
 
     verify(newCallback).onResourceReady(eq(harness.engineResource), eq(harness.dataSource));
+    // Once while notifying, once for each of the harness's and the existing callbacks and once for
+    // the new callback.
+    verify(harness.engineResource, times(4)).acquire();
   }
 
   @Test
@@ -283,7 +321,7 @@ public class EngineJobTest {
     doAnswer(new Answer<Void>() {
       @Override
       public Void answer(InvocationOnMock invocationOnMock) throws Throwable {
-        job.addCallback(newCallback);
+        job.addCallback(newCallback).deliverTo(newCallback);
         return null;
       }
     }).when(existingCallback).onLoadFailed(any(GlideException.class));
@@ -296,6 +334,40 @@ public class EngineJobTest {
     verify(newCallback).onLoadFailed(eq(exception));
   }
 
+  @Test
+  public void addCallback_afterResourceReady_returnsResultWithoutCallingCallback() {
+    final EngineJob<Object> job = harness.getJob();
+    final ResourceCallback existingCallback = mock(ResourceCallback.class);
+    final ResourceCallback newCallback = mock(ResourceCallback.class);
+    final EngineJob.CompletedLoad[] completedLoad = new EngineJob.CompletedLoad[1];
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocationOnMock) throws Throwable {
+        completedLoad[0] = job.addCallback(newCallback);
+        return null;
+      }
+    }).when(existingCallback).onResourceReady(anyResource(), isADataSource());
+    job.addCallback(existingCallback);
+    job.start(harness.decodeJob);
+    job.onResourceReady(harness.resource, harness.dataSource);
+
+    verify(newCallback, never()).onResourceReady(anyResource(), isADataSource());
+    assertNotNull(completedLoad[0]);
+    // As above, the new callback's resource is acquired even though the job has been released.
+    verify(harness.engineResource, times(4)).acquire();
+
+    completedLoad[0].deliverTo(newCallback);
+
+    verify(newCallback).onResourceReady(eq(harness.engineResource), eq(harness.dataSource));
+  }
+
+  @Test
+  public void addCallback_beforeComplete_returnsNull() {
+    EngineJob<Object> job = harness.getJob();
+
+    assertNull(job.addCallback(mock(ResourceCallback.class)));
+  }
+
   @Test
   public void testRemovingCallbackDuringOnResourceReadyIsIgnoredIfCallbackHasAlreadyBeenCalled() {
     final EngineJob<Object> job = harness.getJob();
@@ -414,6 +486,65 @@ public class EngineJobTest {
     verify(harness.decodeJob).cancel();
   }
 
+  @Test
+  public void setPriority_withQueuedDecodeJob_requeuesJobWithNewPriority()
+      throws InterruptedException {
+    final CountDownLatch blockerStarted = new CountDownLatch(1);
+    final CountDownLatch releaseBlocker = new CountDownLatch(1);
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        blockerStarted.countDown();
+        try {
+          releaseBlocker.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    blockerStarted.await();
+    harness.sourceService = MockGlideExecutor.newTestExecutor(executor);
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+
+    try {
+      job.setPriority(Priority.IMMEDIATE);
+
+      verify(harness.decodeJob).setPriority(Priority.IMMEDIATE);
+      verify(harness.decodeJob, never()).setRunningPriority(any(Priority.class));
+      assertThat(executor.getQueue()).containsExactly(harness.decodeJob);
+    } finally {
+      releaseBlocker.countDown();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void setPriority_withRunningDecodeJob_updatesRunningPriority() {
+    EngineJob<Object> job = harness.getJob();
+    when(harness.decodeJob.hasStarted()).thenReturn(true);
+    job.start(harness.decodeJob);
+
+    job.setPriority(Priority.LOW);
+
+    verify(harness.decodeJob).setRunningPriority(Priority.LOW);
+    verify(harness.decodeJob, never()).setPriority(any(Priority.class));
+  }
+
+  @Test
+  public void setPriority_afterCancel_doesNothing() {
+    EngineJob<Object> job = harness.getJob();
+    when(harness.decodeJob.hasStarted()).thenReturn(true);
+    job.start(harness.decodeJob);
+    job.cancel();
+
+    job.setPriority(Priority.LOW);
+
+    verify(harness.decodeJob, never()).setRunningPriority(any(Priority.class));
+  }
+
   @Test
   public void testSubmitsDecodeJobToSourceServiceOnSubmitForSource() {
     EngineJob<Object> job = harness.getJob();
@@ -513,7 +644,7 @@ public class EngineJobTest {
     final EngineResource<Object> engineResource = mock(EngineResource.class);
     final EngineJobListener listener = mock(EngineJobListener.class);
     final GlideExecutor diskCacheService = MockGlideExecutor.newMainThreadExecutor();
-    final GlideExecutor sourceService = MockGlideExecutor.newMainThreadExecutor();
+    GlideExecutor sourceService = MockGlideExecutor.newMainThreadExecutor();
     final GlideExecutor sourceUnlimitedService = MockGlideExecutor.newMainThreadExecutor();
     final GlideExecutor animationService = MockGlideExecutor.newMainThreadExecutor();
     boolean isCacheable = true;
@@ -4,7 +4,6 @@ import static com.bumptech.glide.tests.Util.mockResource;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
-import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
@@ -12,6 +11,8 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.bumptech.glide.load.Key;
+import com.bumptech.glide.tests.BackgroundUtil;
+import com.bumptech.glide.tests.BackgroundUtil.BackgroundTester;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -100,38 +101,30 @@ public class EngineResourceTest {
   }
 
   @Test
-  public void testThrowsIfAcquiredOnBackgroundThread() throws InterruptedException {
-    Thread otherThread = new Thread(new Runnable() {
+  public void testCanAcquireAndReleaseOnBackgroundThread() throws InterruptedException {
+    BackgroundUtil.testInBackground(new BackgroundTester() {
       @Override
-      public void run() {
-        try {
-          engineResource.acquire();
-        } catch (IllegalThreadStateException e) {
-          return;
-        }
-        fail("Failed to receive expected IllegalThreadStateException");
+      public void runTest() {
+        engineResource.acquire();
+        engineResource.release();
       }
     });
-    otherThread.start();
-    otherThread.join();
+
+    verify(listener).onResourceReleased(cacheKey, engineResource);
   }
 
   @Test
-  public void testThrowsIfReleasedOnBackgroundThread() throws InterruptedException {
+  public void testCanReleaseOnBackgroundThreadAfterAcquiringOnMainThread()
+      throws InterruptedException {
     engineResource.acquire();
-    Thread otherThread = new Thread(new Runnable() {
+    BackgroundUtil.testInBackground(new BackgroundTester() {
       @Override
-      public void run() {
-        try {
-          engineResource.release();
-        } catch (IllegalThreadStateException e) {
-          return;
-        }
-        fail("Failed to receive expected IllegalThreadStateException");
+      public void runTest() {
+        engineResource.release();
       }
     });
-    otherThread.start();
-    otherThread.join();
+
+    verify(listener).onResourceReleased(cacheKey, engineResource);
   }
 
   @Test(expected = IllegalStateException.class)
@@ -166,4 +159,25 @@ public class EngineResourceTest {
     verify(listener, never()).onResourceReleased(any(Key.class), any(EngineResource.class));
     verify(resource, never()).recycle();
   }
+
+  @Test
+  public void release_withoutListener_doesNotThrow() {
+    engineResource = new EngineResource<>(resource, /*isCacheable=*/ true, /*isRecyclable=*/ true);
+    engineResource.acquire();
+
+    engineResource.release();
+
+    assertFalse(engineResource.isAcquired());
+  }
+
+  @Test
+  public void isAcquired_returnsTrueUntilLastConsumerReleases() {
+    engineResource.acquire();
+    engineResource.acquire();
+    engineResource.release();
+
+    assertTrue(engineResource.isAcquired());
+    engineResource.release();
+    assertFalse(engineResource.isAcquired());
+  }
 }
@@ -9,7 +9,9 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyDouble;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
@@ -80,6 +82,14 @@ public class EngineTest {
     verify(harness.job).removeCallback(eq(harness.cb));
   }
 
+  @Test
+  public void setPriority_onLoadStatus_setsEngineJobPriority() {
+    Engine.LoadStatus loadStatus = harness.doLoad();
+    loadStatus.setPriority(Priority.LOW);
+
+    verify(harness.job).setPriority(Priority.LOW);
+  }
+
   @Test
   public void testNewRunnerIsAddedToRunnersMap() {
     harness.doLoad();
@@ -106,6 +116,34 @@ public class EngineTest {
     verify(harness.job).addCallback(eq(newCallback));
   }
 
+  @Test
+  public void load_withExistingCompletedJob_notifiesCallbackAndReturnsNullLoadStatus() {
+    harness.doLoad();
+    ResourceCallback newCallback = mock(ResourceCallback.class);
+    harness.cb = newCallback;
+    EngineResource<?> resource = mock(EngineResource.class);
+    when(harness.job.addCallback(newCallback)).thenReturn(
+        new EngineJob.CompletedLoad(resource, DataSource.REMOTE, null /*exception*/));
+
+    assertNull(harness.doLoad());
+
+    verify(newCallback).onResourceReady(resource, DataSource.REMOTE);
+  }
+
+  @Test
+  public void load_withExistingFailedJob_notifiesCallback() {
+    harness.doLoad();
+    ResourceCallback newCallback = mock(ResourceCallback.class);
+    harness.cb = newCallback;
+    GlideException exception = new GlideException("test");
+    when(harness.job.addCallback(newCallback)).thenReturn(
+        new EngineJob.CompletedLoad(null /*resource*/, null /*dataSource*/, exception));
+
+    harness.doLoad();
+
+    verify(newCallback).onLoadFailed(exception);
+  }
+
   @Test
   public void testLoadStatusIsReturnedForExistingJob() {
     harness.doLoad();
@@ -132,6 +170,33 @@ public class EngineTest {
     verify(harness.resource).acquire();
   }
 
+  @Test
+  public void load_withMetricsListenerAndResourceInMemory_reportsMemoryCacheLoad() {
+    LoadMetricsListener listener = mock(LoadMetricsListener.class);
+    when(harness.glideContext.getLoadMetricsListener()).thenReturn(listener);
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
+
+    harness.doLoad();
+
+    verify(listener).onStageComplete(eq(harness.model), eq(harness.cacheKey),
+        eq(LoadMetricsListener.Stage.MEMORY_CACHE), anyDouble());
+    verify(listener).onLoadComplete(eq(harness.model), eq(harness.cacheKey),
+        eq(DataSource.MEMORY_CACHE), eq(-1L), anyDouble());
+  }
+
+  @Test
+  public void load_withMetricsListenerAndResourceNotInMemory_reportsOnlyMemoryCacheStage() {
+    LoadMetricsListener listener = mock(LoadMetricsListener.class);
+    when(harness.glideContext.getLoadMetricsListener()).thenReturn(listener);
+
+    harness.doLoad();
+
+    verify(listener).onStageComplete(eq(harness.model), eq(harness.cacheKey),
+        eq(LoadMetricsListener.Stage.MEMORY_CACHE), anyDouble());
+    verify(listener, never()).onLoadComplete(any(), any(Key.class), any(DataSource.class),
+        anyLong(), anyDouble());
+  }
+
   @Test
   public void testNewLoadIsNotStartedIfResourceIsActive() {
     harness.activeResources.activate(harness.cacheKey, harness.resource);
@@ -352,6 +417,17 @@ public class EngineTest {
     verify(harness.resourceRecycler).recycle(eq(harness.resource));
   }
 
+  @Test
+  public void onResourceReleased_whenReacquired_keepsResourceActive() {
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
+    when(harness.resource.isAcquired()).thenReturn(true);
+
+    harness.getEngine().onResourceReleased(harness.cacheKey, harness.resource);
+
+    assertThat(harness.activeResources.get(harness.cacheKey)).isNotNull();
+    verify(harness.cache, never()).put(eq(harness.cacheKey), anyResource());
+  }
+
   @Test
   public void testResourceIsRemovedFromActiveResourcesWhenReleased() {
     harness.activeResources.activate(harness.cacheKey, harness.resource);
@@ -426,14 +502,57 @@ public class EngineTest {
     harness.getEngine().release(mockResource());
   }
 
-  @Test(expected = RuntimeException.class)
-  public void testThrowsIfLoadCalledOnBackgroundThread() throws InterruptedException {
+  @Test
+  public void load_onBackgroundThread_withResourceInCache_returnsFromMemoryCache()
+      throws InterruptedException {
+    when(harness.cache.remove(eq(harness.cacheKey))).thenReturn(harness.resource);
+    final Engine.LoadStatus[] result = new Engine.LoadStatus[1];
+
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() {
+        result[0] = harness.doLoad();
+      }
+    });
+
+    assertNull(result[0]);
+    verify(harness.resource).acquire();
+    verify(harness.cb).onResourceReady(eq(harness.resource), eq(DataSource.MEMORY_CACHE));
+    verify(harness.job, never()).start(any(DecodeJob.class));
+  }
+
+  @Test
+  public void load_onBackgroundThread_withResourceInActiveResources_returnsFromMemoryCache()
+      throws InterruptedException {
+    harness.activeResources.activate(harness.cacheKey, harness.resource);
+
     BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
       @Override
       public void runTest() {
         harness.doLoad();
       }
     });
+
+    verify(harness.cb).onResourceReady(eq(harness.resource), eq(DataSource.MEMORY_CACHE));
+    verify(harness.cache, never()).remove(any(Key.class));
+  }
+
+  @Test
+  public void load_onBackgroundThread_withExistingLoad_addsCallbackToExistingJob()
+      throws InterruptedException {
+    harness.doLoad();
+    final ResourceCallback backgroundCb = mock(ResourceCallback.class);
+    harness.cb = backgroundCb;
+
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() {
+        harness.doLoad();
+      }
+    });
+
+    verify(harness.job).addCallback(eq(backgroundCb));
+    verify(harness.job, times(1)).start(any(DecodeJob.class));
   }
 
   @Test
@@ -700,6 +819,7 @@ public class EngineTest {
                 MockGlideExecutor.newMainThreadExecutor(),
                 MockGlideExecutor.newMainThreadExecutor(),
                 MockGlideExecutor.newMainThreadExecutor(),
+                MockGlideExecutor.newMainThreadExecutor(),
                 jobs,
                 keyFactory,
                 activeResources,
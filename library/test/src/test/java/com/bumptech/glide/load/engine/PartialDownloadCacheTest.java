@@ -0,0 +1,252 @@
+package com.bumptech.glide.load.engine;
+
+import static com.bumptech.glide.testutil.TestUtil.assertStreamOf;
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheFactory.CacheDirectoryGetter;
+import com.bumptech.glide.load.engine.cache.DiskLruCacheWrapper;
+import com.bumptech.glide.load.model.GlideUrl;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class PartialDownloadCacheTest {
+  private static final String BODY = "0123456789";
+  private static final String ETAG = "\"etag\"";
+  private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+
+  private final GlideUrl url = new GlideUrl("http://www.google.com/image.jpg");
+  private final ArrayPool arrayPool = new LruArrayPool();
+  private File dir;
+  private DiskCache diskCache;
+  private PartialDownloadCache cache;
+
+  @Before
+  public void setUp() {
+    dir = RuntimeEnvironment.application.getCacheDir();
+    diskCache = DiskLruCacheWrapper.create(new File(dir, "disk"), 10 * 1024 * 1024);
+    cache = new PartialDownloadCache(new DecodeJob.DiskCacheProvider() {
+      @Override
+      public DiskCache getDiskCache() {
+        return diskCache;
+      }
+    }, new CacheDirectoryGetter() {
+      @Override
+      public File getCacheDirectory() {
+        return new File(dir, "staging");
+      }
+    }, /*minStagedLength=*/ 4);
+  }
+
+  @After
+  public void tearDown() {
+    diskCache.clear();
+  }
+
+  @Test
+  public void stage_closedBeforeComplete_stagesBytesRead() throws IOException {
+    readAndClose(stage(ETAG, null, "bytes"), 4);
+
+    PartialDownloadCache.PartialDownload partial = cache.get(url);
+    assertThat(partial).isNotNull();
+    assertThat(partial.getLength()).isEqualTo(4);
+    assertThat(partial.getTotalLength()).isEqualTo(BODY.length());
+    Map<String, String> headers = partial.getResumeHeaders();
+    assertThat(headers).containsEntry("Range", "bytes=4-");
+    assertThat(headers).containsEntry("If-Range", ETAG);
+  }
+
+  @Test
+  public void stage_readCompletely_doesNotStage() throws IOException {
+    assertStreamOf(BODY, stage(ETAG, null, "bytes"));
+
+    assertThat(cache.get(url)).isNull();
+  }
+
+  @Test
+  public void stage_closedWithoutReading_doesNotStage() throws IOException {
+    stage(ETAG, null, "bytes").close();
+
+    assertThat(cache.get(url)).isNull();
+  }
+
+  @Test
+  public void stage_withoutAcceptRanges_returnsBody() {
+    InputStream body = body(BODY);
+
+    assertThat(cache.stage(url, body, BODY.length(), ETAG, null, null)).isSameAs(body);
+  }
+
+  @Test
+  public void stage_withoutValidator_returnsBody() {
+    InputStream body = body(BODY);
+
+    assertThat(cache.stage(url, body, BODY.length(), null, null, "bytes")).isSameAs(body);
+  }
+
+  @Test
+  public void stage_withOnlyWeakETag_returnsBody() {
+    InputStream body = body(BODY);
+
+    assertThat(cache.stage(url, body, BODY.length(), "W/" + ETAG, null, "bytes")).isSameAs(body);
+  }
+
+  @Test
+  public void stage_belowMinimumLength_returnsBody() {
+    InputStream body = body("abc");
+
+    assertThat(cache.stage(url, body, 3, ETAG, null, "bytes")).isSameAs(body);
+  }
+
+  @Test
+  public void getResumeHeaders_withWeakETagAndLastModified_usesLastModified() throws IOException {
+    readAndClose(stage("W/" + ETAG, LAST_MODIFIED, "bytes"), 4);
+
+    assertThat(cache.get(url).getResumeHeaders()).containsEntry("If-Range", LAST_MODIFIED);
+  }
+
+  @Test
+  public void isResumedBy_withMatchingContentRange_returnsTrue() throws IOException {
+    readAndClose(stage(ETAG, null, "bytes"), 4);
+    PartialDownloadCache.PartialDownload partial = cache.get(url);
+
+    assertThat(partial.isResumedBy(206, "bytes 4-9/10")).isTrue();
+    assertThat(partial.isResumedBy(200, "bytes 4-9/10")).isFalse();
+    assertThat(partial.isResumedBy(206, "bytes 0-9/10")).isFalse();
+    assertThat(partial.isResumedBy(206, "bytes 4-9/11")).isFalse();
+    assertThat(partial.isResumedBy(206, null)).isFalse();
+  }
+
+  @Test
+  public void resume_readsStagedBytesThenRemainingBody() throws IOException {
+    readAndClose(stage(ETAG, null, "bytes"), 4);
+    PartialDownloadCache.PartialDownload partial = cache.get(url);
+
+    assertStreamOf(BODY, cache.resume(url, partial, body(BODY.substring(4))));
+    assertThat(cache.get(url)).isNull();
+  }
+
+  @Test
+  public void resume_closedBeforeComplete_stagesAllBytesRead() throws IOException {
+    readAndClose(stage(ETAG, null, "bytes"), 4);
+
+    readAndClose(cache.resume(url, cache.get(url), body(BODY.substring(4))), 7);
+
+    PartialDownloadCache.PartialDownload partial = cache.get(url);
+    assertThat(partial.getLength()).isEqualTo(7);
+    assertStreamOf(BODY, cache.resume(url, partial, body(BODY.substring(7))));
+  }
+
+  @Test
+  public void getStagedBodyWriter_withUnstagedStream_returnsNull() {
+    InputStream body = body(BODY);
+
+    assertThat(PartialDownloadCache.getStagedBodyWriter(body, body, arrayPool)).isNull();
+  }
+
+  @Test
+  public void getStagedBodyWriter_write_movesCompleteBodyToFile() throws IOException {
+    InputStream staged = stage(ETAG, null, "bytes");
+    File file = new File(dir, "data");
+
+    assertThat(PartialDownloadCache.getStagedBodyWriter(staged, staged, arrayPool).write(file))
+        .isTrue();
+    staged.close();
+
+    assertStreamOf(BODY, new FileInputStream(file));
+    assertThat(cache.get(url)).isNull();
+    assertThat(new File(dir, "staging").list()).isEmpty();
+  }
+
+  @Test
+  public void getStagedBodyWriter_write_withWrappedStream_readsThroughWrapper() throws IOException {
+    final InputStream staged = stage(ETAG, null, "bytes");
+    final int[] bytesRead = new int[1];
+    InputStream wrapper = new FilterInputStream(staged) {
+      @Override
+      public int read(@NonNull byte[] buffer, int offset, int count) throws IOException {
+        int result = super.read(buffer, offset, count);
+        bytesRead[0] += Math.max(0, result);
+        return result;
+      }
+    };
+    File file = new File(dir, "data");
+
+    assertThat(PartialDownloadCache.getStagedBodyWriter(staged, wrapper, arrayPool).write(file))
+        .isTrue();
+
+    assertThat(bytesRead[0]).isEqualTo(BODY.length());
+    assertStreamOf(BODY, new FileInputStream(file));
+  }
+
+  @Test
+  public void getStagedBodyWriter_write_withResumedDownload_removesPartialDownload()
+      throws IOException {
+    readAndClose(stage(ETAG, null, "bytes"), 4);
+    InputStream resumed = cache.resume(url, cache.get(url), body(BODY.substring(4)));
+    File file = new File(dir, "data");
+
+    assertThat(PartialDownloadCache.getStagedBodyWriter(resumed, resumed, arrayPool).write(file))
+        .isTrue();
+    resumed.close();
+
+    assertStreamOf(BODY, new FileInputStream(file));
+    assertThat(cache.get(url)).isNull();
+  }
+
+  @Test
+  public void getStagedBodyWriter_write_withTruncatedBody_failsAndStagesBytesRead()
+      throws IOException {
+    InputStream staged =
+        cache.stage(url, body(BODY.substring(0, 6)), BODY.length(), ETAG, null, "bytes");
+
+    assertThat(PartialDownloadCache.getStagedBodyWriter(staged, staged, arrayPool)
+        .write(new File(dir, "data"))).isFalse();
+    staged.close();
+
+    assertThat(cache.get(url).getLength()).isEqualTo(6);
+  }
+
+  @Test
+  public void remove_removesStagedDownload() throws IOException {
+    readAndClose(stage(ETAG, null, "bytes"), 4);
+
+    cache.remove(url);
+
+    assertThat(cache.get(url)).isNull();
+  }
+
+  private InputStream stage(String eTag, String lastModified, String acceptRanges) {
+    return cache.stage(url, body(BODY), BODY.length(), eTag, lastModified, acceptRanges);
+  }
+
+  private static void readAndClose(InputStream is, int count) throws IOException {
+    byte[] buffer = new byte[count];
+    int read = 0;
+    while (read < count) {
+      read += is.read(buffer, read, count - read);
+    }
+    is.close();
+  }
+
+  private static InputStream body(String value) {
+    return new ByteArrayInputStream(value.getBytes());
+  }
+}
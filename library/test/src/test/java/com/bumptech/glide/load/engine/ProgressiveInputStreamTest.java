@@ -0,0 +1,143 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ProgressiveInputStreamTest {
+  private final List<byte[]> partialData = new ArrayList<>();
+  private ProgressiveInputStream.PartialDataListener listener;
+
+  @Before
+  public void setUp() {
+    listener = new ProgressiveInputStream.PartialDataListener() {
+      @Override
+      public void onPartialDataReady(@NonNull ByteBuffer data) {
+        partialData.add(ByteBufferUtil.toBytes(data));
+      }
+    };
+  }
+
+  @Test
+  public void read_belowMinPartialDataSize_doesNotNotifyListener() throws IOException {
+    ProgressiveInputStream is =
+        newStream(data(ProgressiveInputStream.MIN_PARTIAL_DATA_SIZE - 1));
+
+    readFully(is, 1024);
+
+    assertThat(partialData).isEmpty();
+  }
+
+  @Test
+  public void read_notifiesListenerEachTimeDataSizeDoubles() throws IOException {
+    int size = 5 * ProgressiveInputStream.MIN_PARTIAL_DATA_SIZE;
+    byte[] data = data(size);
+    ProgressiveInputStream is = newStream(data);
+
+    readFully(is, 1024);
+
+    assertThat(partialData).hasSize(3);
+    int[] expectedSizes = new int[] {1, 2, 4};
+    for (int i = 0; i < expectedSizes.length; i++) {
+      int expectedSize = expectedSizes[i] * ProgressiveInputStream.MIN_PARTIAL_DATA_SIZE;
+      assertThat(partialData.get(i)).isEqualTo(Arrays.copyOf(data, expectedSize));
+    }
+  }
+
+  @Test
+  public void read_singleBytes_retainsAllBytes() throws IOException {
+    byte[] data = data(ProgressiveInputStream.MIN_PARTIAL_DATA_SIZE);
+    ProgressiveInputStream is = newStream(data);
+
+    while (is.read() != -1) {
+      // Keep reading.
+    }
+
+    assertThat(partialData).hasSize(1);
+    assertThat(partialData.get(0)).isEqualTo(data);
+  }
+
+  @Test
+  public void skip_retainsSkippedBytes() throws IOException {
+    byte[] data = data(ProgressiveInputStream.MIN_PARTIAL_DATA_SIZE);
+    ProgressiveInputStream is = newStream(data);
+
+    long remaining = data.length;
+    while (remaining > 0) {
+      remaining -= is.skip(remaining);
+    }
+
+    assertThat(partialData).hasSize(1);
+    assertThat(partialData.get(0)).isEqualTo(data);
+  }
+
+  @Test
+  public void read_beyondMaxBufferedSize_stopsNotifyingListenerButReturnsAllData()
+      throws IOException {
+    byte[] data = data(ProgressiveInputStream.MAX_BUFFERED_SIZE + 1);
+    ProgressiveInputStream is = newStream(data);
+
+    byte[] read = readFully(is, 64 * 1024);
+
+    assertThat(read).isEqualTo(data);
+    int lastSize = partialData.get(partialData.size() - 1).length;
+    assertThat(lastSize).isAtMost(ProgressiveInputStream.MAX_BUFFERED_SIZE);
+  }
+
+  @Test
+  public void read_afterRelease_doesNotNotifyListener() throws IOException {
+    ProgressiveInputStream is = newStream(data(ProgressiveInputStream.MIN_PARTIAL_DATA_SIZE));
+
+    is.release();
+    readFully(is, 1024);
+
+    assertThat(partialData).isEmpty();
+  }
+
+  @Test
+  public void markSupported_returnsFalse() {
+    assertThat(newStream(data(1)).markSupported()).isFalse();
+  }
+
+  @Test(expected = IOException.class)
+  public void reset_throws() throws IOException {
+    newStream(data(1)).reset();
+  }
+
+  private ProgressiveInputStream newStream(byte[] data) {
+    return new ProgressiveInputStream(
+        new ByteArrayInputStream(data), new LruArrayPool(), listener);
+  }
+
+  private static byte[] readFully(ProgressiveInputStream is, int chunkSize) throws IOException {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    byte[] chunk = new byte[chunkSize];
+    int read;
+    while ((read = is.read(chunk)) != -1) {
+      result.write(chunk, 0, read);
+    }
+    return result.toByteArray();
+  }
+
+  private static byte[] data(int size) {
+    byte[] data = new byte[size];
+    for (int i = 0; i < size; i++) {
+      data[i] = (byte) i;
+    }
+    return data;
+  }
+}
@@ -0,0 +1,185 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ResourceEncodeQueueTest {
+  private static final int MAX_PENDING = 2;
+
+  private ManualExecutor executor;
+  private DiskCache diskCache;
+  private DecodeJob.DiskCacheProvider diskCacheProvider;
+  private ResourceEncodeQueue queue;
+
+  @Before
+  public void setUp() {
+    executor = new ManualExecutor();
+    diskCache = mock(DiskCache.class);
+    diskCacheProvider = mock(DecodeJob.DiskCacheProvider.class);
+    when(diskCacheProvider.getDiskCache()).thenReturn(diskCache);
+    queue = new ResourceEncodeQueue(executor, MAX_PENDING);
+  }
+
+  @Test
+  public void encode_doesNotWriteOnCallingThread() {
+    queue.encode(newTask("first"));
+
+    verify(diskCache, never()).put(any(Key.class), any(DiskCache.Writer.class));
+    assertThat(queue.getMetrics().getQueueDepth()).isEqualTo(1);
+  }
+
+  @Test
+  public void encode_withMultipleTasks_drainsAllInSingleExecutorTask() {
+    queue.encode(newTask("first"));
+    queue.encode(newTask("second"));
+
+    assertThat(executor.runnables).hasSize(1);
+    executor.runAll();
+
+    verify(diskCache).put(eq(new ObjectKey("first")), any(DiskCache.Writer.class));
+    verify(diskCache).put(eq(new ObjectKey("second")), any(DiskCache.Writer.class));
+    assertThat(queue.getMetrics().getQueueDepth()).isEqualTo(0);
+    assertThat(queue.getMetrics().getEncodedCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void encode_afterDrain_schedulesAnotherDrain() {
+    queue.encode(newTask("first"));
+    executor.runAll();
+
+    queue.encode(newTask("second"));
+
+    assertThat(executor.runnables).hasSize(1);
+  }
+
+  @Test
+  public void encode_withKeyAlreadyPending_dropsAndReleasesTask() {
+    Resource<Object> wrapped = mockResource();
+    queue.encode(newTask("first"));
+
+    queue.encode(newTask("first", LockedResource.obtain(wrapped)));
+    executor.runAll();
+
+    verify(diskCache, times(1)).put(eq(new ObjectKey("first")), any(DiskCache.Writer.class));
+    assertThat(queue.getMetrics().getCoalescedCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void encode_withFullQueue_writesOnCallingThread() {
+    queue.encode(newTask("first"));
+    queue.encode(newTask("second"));
+
+    queue.encode(newTask("third"));
+
+    verify(diskCache).put(eq(new ObjectKey("third")), any(DiskCache.Writer.class));
+    verify(diskCache, never()).put(eq(new ObjectKey("first")), any(DiskCache.Writer.class));
+    assertThat(queue.getMetrics().getSynchronousCount()).isEqualTo(1);
+    assertThat(queue.getMetrics().getPeakQueueDepth()).isEqualTo(MAX_PENDING);
+  }
+
+  @Test
+  public void encode_withRejectingExecutor_writesOnCallingThread() {
+    queue =
+        new ResourceEncodeQueue(
+            new Executor() {
+              @Override
+              public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+              }
+            },
+            MAX_PENDING);
+
+    queue.encode(newTask("first"));
+
+    verify(diskCache).put(eq(new ObjectKey("first")), any(DiskCache.Writer.class));
+  }
+
+  @Test
+  public void encode_afterWrite_unlocksResultSoItCanBeRecycled() {
+    Resource<Object> wrapped = mockResource();
+    LockedResource<Object> result = LockedResource.obtain(wrapped);
+    queue.encode(
+        new ResourceEncodeQueue.EncodeTask<>(
+            new ObjectKey("first"),
+            mockEncoder(),
+            newLockedResource(),
+            new Options(),
+            diskCacheProvider,
+            result));
+    result.recycle();
+    verify(wrapped, never()).recycle();
+
+    executor.runAll();
+
+    verify(wrapped).recycle();
+  }
+
+  private ResourceEncodeQueue.EncodeTask<Object> newTask(String key) {
+    return newTask(key, newLockedResource());
+  }
+
+  private ResourceEncodeQueue.EncodeTask<Object> newTask(
+      String key, LockedResource<Object> toEncode) {
+    return new ResourceEncodeQueue.EncodeTask<>(
+        new ObjectKey(key),
+        mockEncoder(),
+        toEncode,
+        new Options(),
+        diskCacheProvider,
+        /*result=*/ null);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ResourceEncoder<Object> mockEncoder() {
+    return mock(ResourceEncoder.class);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Resource<Object> mockResource() {
+    Resource<Object> resource = mock(Resource.class);
+    when(resource.get()).thenReturn(mock(Object.class));
+    return resource;
+  }
+
+  private static LockedResource<Object> newLockedResource() {
+    return LockedResource.obtain(mockResource());
+  }
+
+  private static final class ManualExecutor implements Executor {
+    final List<Runnable> runnables = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable command) {
+      runnables.add(command);
+    }
+
+    void runAll() {
+      while (!runnables.isEmpty()) {
+        runnables.remove(0).run();
+      }
+    }
+  }
+}
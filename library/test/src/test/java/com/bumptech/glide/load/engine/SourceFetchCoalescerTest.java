@@ -0,0 +1,79 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SourceFetchCoalescerTest {
+  private final Key key = new DataCacheKey(new ObjectKey("model"), new ObjectKey("signature"));
+  private SourceFetchCoalescer coalescer;
+  private SourceFetchCoalescer.Waiter first;
+  private SourceFetchCoalescer.Waiter second;
+
+  @Before
+  public void setUp() {
+    coalescer = new SourceFetchCoalescer();
+    first = mock(SourceFetchCoalescer.Waiter.class);
+    second = mock(SourceFetchCoalescer.Waiter.class);
+  }
+
+  @Test
+  public void acquire_withNoFetchInProgress_returnsTrue() {
+    assertThat(coalescer.acquire(key, first)).isTrue();
+  }
+
+  @Test
+  public void acquire_withFetchInProgress_returnsFalse() {
+    coalescer.acquire(key, first);
+
+    assertThat(coalescer.acquire(key, second)).isFalse();
+  }
+
+  @Test
+  public void acquire_withFetchInProgressForDifferentSignature_returnsTrue() {
+    coalescer.acquire(key, first);
+    Key otherKey = new DataCacheKey(new ObjectKey("model"), new ObjectKey("other"));
+
+    assertThat(coalescer.acquire(otherKey, second)).isTrue();
+  }
+
+  @Test
+  public void release_notifiesWaitersWithResult() {
+    coalescer.acquire(key, first);
+    coalescer.acquire(key, second);
+
+    coalescer.release(key, true /*isDataCached*/);
+
+    verify(second).onSourceFetchComplete(true);
+    verify(first, never()).onSourceFetchComplete(anyBoolean());
+  }
+
+  @Test
+  public void release_allowsKeyToBeAcquiredAgain() {
+    coalescer.acquire(key, first);
+    coalescer.release(key, false /*isDataCached*/);
+
+    assertThat(coalescer.acquire(key, second)).isTrue();
+  }
+
+  @Test
+  public void removeWaiter_preventsNotification() {
+    coalescer.acquire(key, first);
+    coalescer.acquire(key, second);
+
+    coalescer.removeWaiter(key, second);
+    coalescer.release(key, true /*isDataCached*/);
+
+    verify(second, never()).onSourceFetchComplete(anyBoolean());
+  }
+}
@@ -0,0 +1,137 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bumptech.glide.GlideContext;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+@RunWith(JUnit4.class)
+public class SourceGeneratorTest {
+  private final Object model = new Object();
+  private final Key sourceKey = new ObjectKey("source");
+  private final Key signature = new ObjectKey("signature");
+  private final DataCacheKey dataCacheKey = new DataCacheKey(sourceKey, signature);
+  @Mock private GlideContext glideContext;
+  @Mock private Registry registry;
+  @Mock private ModelLoader<Object, Object> modelLoader;
+  @Mock private DataFetcher<Object> fetcher;
+  @Mock private DiskCache diskCache;
+  @Mock private DecodeJob.DiskCacheProvider diskCacheProvider;
+  @Mock private DataFetcherGenerator.FetcherReadyCallback cb;
+  private SourceFetchCoalescer coalescer;
+  private SourceGenerator generator;
+
+  @SuppressWarnings("unchecked")
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(glideContext.getRegistry()).thenReturn(registry);
+    List<ModelLoader<Object, ?>> modelLoaders =
+        Collections.<ModelLoader<Object, ?>>singletonList(modelLoader);
+    when(registry.getModelLoaders(model)).thenReturn(modelLoaders);
+    when(modelLoader.buildLoadData(eq(model), anyInt(), anyInt(), any(Options.class)))
+        .thenReturn(new ModelLoader.LoadData<>(sourceKey, fetcher));
+    when(fetcher.getDataSource()).thenReturn(DataSource.REMOTE);
+    when(fetcher.getDataClass()).thenReturn(Object.class);
+    when(diskCacheProvider.getDiskCache()).thenReturn(diskCache);
+
+    DecodeHelper<Object> helper = new DecodeHelper<>();
+    helper.init(
+        glideContext,
+        model,
+        signature,
+        100 /*width*/,
+        100 /*height*/,
+        DiskCacheStrategy.ALL,
+        Object.class,
+        Object.class,
+        Priority.NORMAL,
+        new Options(),
+        Collections.<Class<?>, Transformation<?>>emptyMap(),
+        false /*isTransformationRequired*/,
+        false /*isScaleOnlyOrNoTransform*/,
+        diskCacheProvider);
+    coalescer = new SourceFetchCoalescer();
+    generator = new SourceGenerator(helper, cb, coalescer);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void startNext_withSameFetchInProgress_waitsWithoutFetching() {
+    coalescer.acquire(dataCacheKey, mock(SourceFetchCoalescer.Waiter.class));
+
+    assertThat(generator.startNext()).isTrue();
+
+    verify(fetcher, never()).loadData(any(Priority.class), any(DataFetcher.DataCallback.class));
+  }
+
+  @Test
+  public void cancel_whileWaitingForOtherFetch_reschedulesSoTheJobCanFinish() {
+    coalescer.acquire(dataCacheKey, mock(SourceFetchCoalescer.Waiter.class));
+    generator.startNext();
+
+    generator.cancel();
+
+    verify(cb).reschedule();
+  }
+
+  @Test
+  public void cancel_whileWaitingForOtherFetch_isNotNotifiedWhenOtherFetchCompletes() {
+    coalescer.acquire(dataCacheKey, mock(SourceFetchCoalescer.Waiter.class));
+    generator.startNext();
+    generator.cancel();
+
+    coalescer.release(dataCacheKey, true /*isDataCached*/);
+
+    verify(cb, times(1)).reschedule();
+  }
+
+  @Test
+  public void cancel_afterOtherFetchCompletes_doesNotRescheduleAgain() {
+    coalescer.acquire(dataCacheKey, mock(SourceFetchCoalescer.Waiter.class));
+    generator.startNext();
+    coalescer.release(dataCacheKey, false /*isDataCached*/);
+    verify(cb).reschedule();
+
+    generator.cancel();
+
+    verify(cb, times(1)).reschedule();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void cancel_whileFetching_cancelsFetcherWithoutRescheduling() {
+    assertThat(generator.startNext()).isTrue();
+    verify(fetcher).loadData(eq(Priority.NORMAL), any(DataFetcher.DataCallback.class));
+
+    generator.cancel();
+
+    verify(fetcher).cancel();
+    verify(cb, never()).reschedule();
+  }
+}
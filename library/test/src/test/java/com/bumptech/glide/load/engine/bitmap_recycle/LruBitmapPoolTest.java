@@ -11,9 +11,11 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.graphics.Bitmap;
+import com.bumptech.glide.load.engine.LoadMetricsListener;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -48,6 +50,27 @@ public class LruBitmapPoolTest {
     assertNotNull(pool.get(100, 100, Bitmap.Config.ARGB_8888));
   }
 
+  @Test
+  public void get_withMetricsListenerAndBitmapInPool_reportsHit() {
+    LoadMetricsListener listener = mock(LoadMetricsListener.class);
+    pool.setMetricsListener(listener);
+    pool.put(createMutableBitmap());
+
+    pool.get(100, 100, Bitmap.Config.ARGB_8888);
+
+    verify(listener).onBitmapPoolGet(true);
+  }
+
+  @Test
+  public void getDirty_withMetricsListenerAndEmptyPool_reportsMiss() {
+    LoadMetricsListener listener = mock(LoadMetricsListener.class);
+    pool.setMetricsListener(listener);
+
+    pool.getDirty(100, 100, Bitmap.Config.ARGB_8888);
+
+    verify(listener).onBitmapPoolGet(false);
+  }
+
   @Test
   public void testImmutableBitmapsAreNotAdded() {
     Bitmap bitmap = createMutableBitmap();
@@ -0,0 +1,290 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.graphics.Bitmap;
+import com.bumptech.glide.util.Util;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowBitmap;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 27, shadows = {
+    SizeClassStrategyTest.ReconfigurableShadowBitmap.class })
+public class SizeClassStrategyTest {
+  private SizeClassStrategy strategy;
+
+  @Before
+  public void setUp() {
+    strategy = new SizeClassStrategy();
+  }
+
+  @Test
+  public void getSizeClass_withSmallSizes_returnsOneClassPerSize() {
+    for (int size = 0; size < SizeClassStrategy.CLASSES_PER_DOUBLING; size++) {
+      assertThat(SizeClassStrategy.getSizeClass(size)).isEqualTo(size);
+    }
+  }
+
+  @Test
+  public void getSizeClass_dividesEachPowerOfTwoIntoEqualRanges() {
+    int size = 1024 * 1024;
+    int sizeClass = SizeClassStrategy.getSizeClass(size);
+
+    assertThat(SizeClassStrategy.getSizeClass(size + size / 4 - 1)).isEqualTo(sizeClass);
+    assertThat(SizeClassStrategy.getSizeClass(size + size / 4)).isEqualTo(sizeClass + 1);
+    assertThat(SizeClassStrategy.getSizeClass(2 * size - 1))
+        .isEqualTo(sizeClass + SizeClassStrategy.CLASSES_PER_DOUBLING - 1);
+    assertThat(SizeClassStrategy.getSizeClass(2 * size))
+        .isEqualTo(sizeClass + SizeClassStrategy.CLASSES_PER_DOUBLING);
+  }
+
+  @Test
+  public void getSizeClass_withMaxSize_returnsValidClass() {
+    assertThat(SizeClassStrategy.getSizeClass(Integer.MAX_VALUE)).isLessThan(128);
+  }
+
+  @Test
+  public void getSizeClassLowerBound_returnsSmallestSizeInClass() {
+    int[] sizes = new int[] { 0, 3, 4, 7, 8, 100, 4096, 40_000, 1_000_000, 1 << 30 };
+    for (int size : sizes) {
+      int sizeClass = SizeClassStrategy.getSizeClass(size);
+      int lowerBound = SizeClassStrategy.getSizeClassLowerBound(sizeClass);
+
+      assertThat(lowerBound).isAtMost(size);
+      assertThat(SizeClassStrategy.getSizeClass(lowerBound)).isEqualTo(sizeClass);
+      if (lowerBound > 0) {
+        assertThat(SizeClassStrategy.getSizeClass(lowerBound - 1)).isEqualTo(sizeClass - 1);
+      }
+    }
+  }
+
+  @Test
+  public void get_withNoBitmaps_returnsNull() {
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isNull();
+  }
+
+  @Test
+  public void get_withSameSizeAndConfig_returnsBitmapOnce() {
+    Bitmap bitmap = createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    strategy.put(bitmap);
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isNull();
+  }
+
+  @Test
+  public void get_withSmallerSize_reconfiguresLargerBitmap() {
+    Bitmap bitmap = createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    strategy.put(bitmap);
+
+    Bitmap result = strategy.get(50, 60, Bitmap.Config.ARGB_8888);
+
+    assertThat(result).isSameAs(bitmap);
+    assertThat(result.getWidth()).isEqualTo(50);
+    assertThat(result.getHeight()).isEqualTo(60);
+    assertThat(Util.getBitmapByteSize(result)).isEqualTo(100 * 100 * 4);
+  }
+
+  @Test
+  public void get_withLargerSize_returnsNull() {
+    strategy.put(createBitmap(50, 50, Bitmap.Config.ARGB_8888));
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isNull();
+  }
+
+  @Test
+  public void get_withBitmapAtMostEightTimesLarger_returnsBitmap() {
+    Bitmap bitmap = createBitmap(80, 100, Bitmap.Config.ARGB_8888);
+    strategy.put(bitmap);
+
+    assertThat(strategy.get(10, 100, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+  }
+
+  @Test
+  public void get_withBitmapMoreThanEightTimesLarger_returnsNull() {
+    // In the same size class as a Bitmap exactly eight times larger.
+    strategy.put(createBitmap(81, 100, Bitmap.Config.ARGB_8888));
+
+    assertThat(strategy.get(10, 100, Bitmap.Config.ARGB_8888)).isNull();
+  }
+
+  @Test
+  public void get_withArgb8888_returnsNullConfigBitmap() {
+    Bitmap bitmap = createBitmap(100, 100, null /*config*/);
+    strategy.put(bitmap);
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+  }
+
+  @Test
+  public void get_withArgb8888_returnsRgbaF16Bitmap() {
+    Bitmap bitmap = createBitmap(100, 100, Bitmap.Config.RGBA_F16);
+    strategy.put(bitmap);
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+  }
+
+  @Test
+  public void get_withRgbaF16_returnsArgb8888Bitmap() {
+    Bitmap bitmap = createBitmap(200, 100, Bitmap.Config.ARGB_8888);
+    strategy.put(bitmap);
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.RGBA_F16)).isSameAs(bitmap);
+  }
+
+  @Test
+  public void get_withArgb8888_prefersArgb8888OverOtherCompatibleConfigs() {
+    strategy.put(createBitmap(100, 100, null /*config*/));
+    Bitmap argb8888 = createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    strategy.put(argb8888);
+    strategy.put(createBitmap(100, 100, Bitmap.Config.RGBA_F16));
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(argb8888);
+  }
+
+  @Test
+  public void get_withNullConfig_onlyReturnsNullConfigBitmaps() {
+    strategy.put(createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+
+    assertThat(strategy.get(100, 100, null /*config*/)).isNull();
+  }
+
+  @Test
+  public void get_withIncompatibleConfig_returnsNull() {
+    strategy.put(createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.RGB_565)).isNull();
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_4444)).isNull();
+    assertThat(strategy.get(100, 100, Bitmap.Config.ALPHA_8)).isNull();
+  }
+
+  @Test
+  public void get_withRgb565_doesNotReturnArgb8888Bitmap() {
+    strategy.put(createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+    Bitmap rgb565 = createBitmap(100, 100, Bitmap.Config.RGB_565);
+    strategy.put(rgb565);
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.RGB_565)).isSameAs(rgb565);
+  }
+
+  @Test
+  public void get_withSeveralBitmapsInSizeClass_returnsMostRecentlyAddedThatFits() {
+    // 512x512 and 520x512 ARGB_8888 Bitmaps are in the same size class.
+    Bitmap larger = createBitmap(520, 512, Bitmap.Config.ARGB_8888);
+    Bitmap smaller = createBitmap(512, 512, Bitmap.Config.ARGB_8888);
+    strategy.put(larger);
+    strategy.put(smaller);
+
+    assertThat(strategy.get(516, 512, Bitmap.Config.ARGB_8888)).isSameAs(larger);
+    assertThat(strategy.get(512, 512, Bitmap.Config.ARGB_8888)).isSameAs(smaller);
+  }
+
+  @Test
+  public void get_withSameSizeBitmaps_returnsMostRecentlyAdded() {
+    Bitmap first = createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    Bitmap second = createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    strategy.put(first);
+    strategy.put(second);
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(second);
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(first);
+  }
+
+  @Test
+  public void removeLast_withNoBitmaps_returnsNull() {
+    assertThat(strategy.removeLast()).isNull();
+  }
+
+  @Test
+  public void removeLast_removesBitmapsInOrderAdded() {
+    Bitmap first = createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    Bitmap second = createBitmap(10, 10, Bitmap.Config.RGB_565);
+    Bitmap third = createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    strategy.put(first);
+    strategy.put(second);
+    strategy.put(third);
+
+    assertThat(strategy.removeLast()).isSameAs(first);
+    assertThat(strategy.removeLast()).isSameAs(second);
+    assertThat(strategy.removeLast()).isSameAs(third);
+    assertThat(strategy.removeLast()).isNull();
+  }
+
+  @Test
+  public void removeLast_afterGet_skipsBitmapReturnedByGet() {
+    Bitmap first = createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    Bitmap second = createBitmap(200, 200, Bitmap.Config.ARGB_8888);
+    Bitmap third = createBitmap(300, 300, Bitmap.Config.ARGB_8888);
+    strategy.put(first);
+    strategy.put(second);
+    strategy.put(third);
+
+    assertThat(strategy.get(200, 200, Bitmap.Config.ARGB_8888)).isSameAs(second);
+
+    assertThat(strategy.removeLast()).isSameAs(first);
+    assertThat(strategy.removeLast()).isSameAs(third);
+    assertThat(strategy.removeLast()).isNull();
+  }
+
+  @Test
+  public void get_afterRemoveLast_doesNotReturnRemovedBitmap() {
+    strategy.put(createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+    strategy.removeLast();
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isNull();
+  }
+
+  @Test
+  public void put_afterRemovingAllBitmaps_reusesBitmapsAgain() {
+    Bitmap first = createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    strategy.put(first);
+    strategy.removeLast();
+    Bitmap second = createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+
+    strategy.put(second);
+
+    assertThat(strategy.get(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(second);
+    assertThat(strategy.removeLast()).isNull();
+  }
+
+  private static Bitmap createBitmap(int width, int height, Bitmap.Config config) {
+    Bitmap bitmap =
+        Bitmap.createBitmap(width, height, config != null ? config : Bitmap.Config.ARGB_8888);
+    shadowOf(bitmap).setConfig(config);
+    return bitmap;
+  }
+
+  /**
+   * Robolectric doesn't implement {@link Bitmap#reconfigure(int, int, Bitmap.Config)} or
+   * {@link Bitmap#getAllocationByteCount()}, both of which the strategy relies on.
+   */
+  @Implements(Bitmap.class)
+  public static class ReconfigurableShadowBitmap extends ShadowBitmap {
+    private int allocationByteCount;
+
+    @Implementation
+    public int getAllocationByteCount() {
+      if (allocationByteCount == 0) {
+        allocationByteCount = Util.getBitmapByteSize(getWidth(), getHeight(), getConfig());
+      }
+      return allocationByteCount;
+    }
+
+    @Implementation
+    public void reconfigure(int width, int height, Bitmap.Config config) {
+      if (Util.getBitmapByteSize(width, height, config) > getAllocationByteCount()) {
+        throw new IllegalArgumentException("Bitmap is too small to reconfigure");
+      }
+      setWidth(width);
+      setHeight(height);
+      setConfig(config);
+    }
+  }
+}
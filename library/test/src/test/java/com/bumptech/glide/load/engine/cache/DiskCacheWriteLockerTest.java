@@ -0,0 +1,106 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class DiskCacheWriteLockerTest {
+  private static final int THREAD_COUNT = 8;
+  private static final int KEY_COUNT = 4;
+  private static final int ITERATIONS = 2000;
+
+  private DiskCacheWriteLocker locker;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    locker = new DiskCacheWriteLocker();
+    executor = Executors.newFixedThreadPool(THREAD_COUNT);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    executor.shutdownNow();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void acquire_withSameKeyOnOneThread_isReentrant() {
+    locker.acquire("key");
+    locker.acquire("key");
+    locker.release("key");
+    locker.release("key");
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void release_withoutAcquire_throws() {
+    locker.release("key");
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void release_moreTimesThanAcquired_throws() {
+    locker.acquire("key");
+    locker.release("key");
+    locker.release("key");
+  }
+
+  @Test
+  public void acquire_fromManyThreads_excludesOtherThreadsForTheSameKey() throws Exception {
+    final AtomicInteger[] holders = new AtomicInteger[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      holders[i] = new AtomicInteger();
+    }
+    final AtomicInteger violations = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int thread = 0; thread < THREAD_COUNT; thread++) {
+      final int offset = thread;
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          for (int i = 0; i < ITERATIONS; i++) {
+            int keyIndex = (i + offset) % KEY_COUNT;
+            String safeKey = "key" + keyIndex;
+            locker.acquire(safeKey);
+            try {
+              if (holders[keyIndex].incrementAndGet() != 1) {
+                violations.incrementAndGet();
+              }
+              Thread.yield();
+              holders[keyIndex].decrementAndGet();
+            } finally {
+              locker.release(safeKey);
+            }
+          }
+          return null;
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+
+    assertThat(violations.get()).isEqualTo(0);
+    // All locks were removed once released, so releasing again must fail.
+    for (int i = 0; i < KEY_COUNT; i++) {
+      try {
+        locker.release("key" + i);
+        throw new AssertionError("Expected release to fail for key" + i);
+      } catch (NullPointerException e) {
+        // Expected.
+      }
+    }
+  }
+}
@@ -1,7 +1,9 @@
 package com.bumptech.glide.load.engine.cache;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
 import static org.mockito.Mockito.mock;
@@ -23,7 +25,7 @@ import org.robolectric.annotation.Config;
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE, sdk = 18)
 public class DiskLruCacheWrapperTest {
-  private DiskCache cache;
+  private QueryableDiskCache cache;
   private byte[] data;
   private ObjectKey key;
   private File dir;
@@ -31,7 +33,7 @@ public class DiskLruCacheWrapperTest {
   @Before
   public void setUp() {
     dir = RuntimeEnvironment.application.getCacheDir();
-    cache = DiskLruCacheWrapper.create(dir, 10 * 1024 * 1024);
+    cache = (QueryableDiskCache) DiskLruCacheWrapper.create(dir, 10 * 1024 * 1024);
     key = new ObjectKey("test" + Math.random());
     data = new byte[] { 1, 2, 3, 4, 5, 6 };
   }
@@ -80,6 +82,27 @@ public class DiskLruCacheWrapperTest {
     assertArrayEquals(data, received);
   }
 
+  @Test
+  public void contains_reflectsPutAndDelete() {
+    assertFalse(cache.contains(key));
+
+    cache.put(key, new DiskCache.Writer() {
+      @Override
+      public boolean write(@NonNull File file) {
+        try {
+          Util.writeFile(file, data);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+    });
+    assertTrue(cache.contains(key));
+
+    cache.delete(key);
+    assertFalse(cache.contains(key));
+  }
+
   @Test
   public void testDoesNotCommitIfWriterReturnsFalse() {
     cache.put(key, new DiskCache.Writer() {
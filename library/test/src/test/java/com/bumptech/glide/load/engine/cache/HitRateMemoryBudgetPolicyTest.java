@@ -0,0 +1,78 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.bumptech.glide.load.engine.cache.MemoryBudgetPolicy.Budget;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class HitRateMemoryBudgetPolicyTest {
+  private static final Budget INITIAL = new Budget(1000, 1000, 100);
+  private static final long STEP = (long) (INITIAL.getTotalSize() * 0.05f);
+
+  private final HitRateMemoryBudgetPolicy policy = new HitRateMemoryBudgetPolicy();
+
+  @Test
+  public void rebalance_withNoEvictions_returnsCurrentBudget() {
+    Budget result = policy.rebalance(
+        INITIAL, INITIAL, stats(10, 10, 0), stats(10, 10, 0), stats(10, 10, 0));
+
+    assertThat(result).isEqualTo(INITIAL);
+  }
+
+  @Test
+  public void rebalance_withEvictingCacheAndLowPoolReuse_movesBudgetFromPoolToCache() {
+    Budget result = policy.rebalance(
+        INITIAL, INITIAL, stats(50, 50, 10), stats(5, 95, 10), stats(90, 10, 0));
+
+    assertThat(result).isEqualTo(new Budget(1000 + STEP, 1000 - STEP, 100));
+  }
+
+  @Test
+  public void rebalance_withUnusedCache_movesBudgetFromUnusedCache() {
+    Budget result = policy.rebalance(
+        INITIAL, INITIAL, stats(0, 0, 0), stats(50, 50, 10), stats(90, 10, 0));
+
+    assertThat(result).isEqualTo(new Budget(1000 - STEP, 1000 + STEP, 100));
+  }
+
+  @Test
+  public void rebalance_withEquallyEffectiveFullCaches_returnsCurrentBudget() {
+    Budget result = policy.rebalance(
+        INITIAL, INITIAL, stats(50, 50, 10), stats(50, 50, 10), stats(50, 50, 10));
+
+    assertThat(result).isEqualTo(INITIAL);
+  }
+
+  @Test
+  public void rebalance_neverShrinksDonorBelowMinimumSize() {
+    Budget current = new Budget(1000, 500 + STEP / 2, 100);
+
+    Budget result = policy.rebalance(
+        INITIAL, current, stats(50, 50, 10), stats(5, 95, 10), stats(90, 10, 0));
+
+    assertThat(result.getBitmapPoolSize()).isEqualTo(500);
+    assertThat(result.getTotalSize()).isEqualTo(current.getTotalSize());
+  }
+
+  @Test
+  public void rebalance_withPreferredDonorAtMinimumSize_usesNextDonor() {
+    Budget current = new Budget(1000, 500, 100);
+
+    Budget result = policy.rebalance(
+        INITIAL, current, stats(50, 50, 10), stats(5, 95, 10), stats(90, 10, 0));
+
+    assertThat(result).isEqualTo(new Budget(1000 + 50, 500, 50));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructor_withZeroStepFraction_throws() {
+    new HitRateMemoryBudgetPolicy(0f, 0.5f);
+  }
+
+  private static MemoryCacheStats stats(long hits, long misses, long evictions) {
+    return new MemoryCacheStats(hits, misses, evictions, 0 /*currentSize*/, 0 /*maxSize*/);
+  }
+}
@@ -75,6 +75,34 @@ public class LruResourceCacheTest {
     verify(harness.listener).onResourceRemoved(harness.second);
   }
 
+  @Test
+  public void removeForLoad_countsHitsAndMisses() {
+    LruResourceCache cache = new LruResourceCache(100);
+    Key key = new MockKey();
+    cache.put(key, getResource(10));
+
+    assertThat(cache.removeForLoad(key)).isNotNull();
+    assertThat(cache.removeForLoad(key)).isNull();
+
+    MemoryCacheStats stats = cache.getStats();
+    assertThat(stats.getHitCount()).isEqualTo(1);
+    assertThat(stats.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void remove_doesNotCountHitsOrMisses() {
+    LruResourceCache cache = new LruResourceCache(100);
+    Key key = new MockKey();
+    cache.put(key, getResource(10));
+
+    cache.remove(key);
+    cache.remove(key);
+
+    MemoryCacheStats stats = cache.getStats();
+    assertThat(stats.getHitCount()).isEqualTo(0);
+    assertThat(stats.getMissCount()).isEqualTo(0);
+  }
+
   @Test
   public void testTrimMemoryBackground() {
     TrimClearMemoryCacheHarness harness = new TrimClearMemoryCacheHarness();
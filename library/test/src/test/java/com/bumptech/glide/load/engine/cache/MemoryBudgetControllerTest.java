@@ -0,0 +1,155 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyFloat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentCallbacks2;
+import android.os.Handler;
+import com.bumptech.glide.load.engine.cache.MemoryBudgetPolicy.Budget;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class MemoryBudgetControllerTest {
+  private static final long INTERVAL_MS = 1000;
+
+  @Mock private MemoryBudgetPolicy policy;
+  @Mock private AdaptiveCache memoryCache;
+  @Mock private AdaptiveCache bitmapPool;
+  @Mock private AdaptiveCache arrayPool;
+  @Mock private Handler handler;
+  private MemoryBudgetController controller;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(memoryCache.getStats()).thenReturn(new MemoryCacheStats(0, 0, 0, 0, 1000));
+    when(bitmapPool.getStats()).thenReturn(new MemoryCacheStats(0, 0, 0, 0, 1000));
+    when(arrayPool.getStats()).thenReturn(new MemoryCacheStats(0, 0, 0, 0, 100));
+    controller =
+        new MemoryBudgetController(policy, memoryCache, bitmapPool, arrayPool, handler, INTERVAL_MS);
+  }
+
+  @Test
+  public void start_schedulesRebalance() {
+    controller.start();
+
+    verify(handler).postDelayed(controller, INTERVAL_MS);
+  }
+
+  @Test
+  public void run_afterStop_doesNotRebalance() {
+    controller.start();
+    controller.stop();
+
+    controller.run();
+
+    verify(policy, never()).rebalance(any(Budget.class), any(Budget.class),
+        any(MemoryCacheStats.class), any(MemoryCacheStats.class), any(MemoryCacheStats.class));
+  }
+
+  @Test
+  public void rebalance_passesStatsSinceLastRebalance() {
+    returnBudget(new Budget(1000, 1000, 100));
+    when(memoryCache.getStats()).thenReturn(new MemoryCacheStats(10, 5, 1, 0, 1000));
+    controller.rebalance();
+
+    when(memoryCache.getStats()).thenReturn(new MemoryCacheStats(15, 7, 1, 0, 1000));
+    controller.rebalance();
+
+    verify(policy).rebalance(any(Budget.class), any(Budget.class),
+        eq(new MemoryCacheStats(5, 2, 0, 0, 1000)), any(MemoryCacheStats.class),
+        any(MemoryCacheStats.class));
+  }
+
+  @Test
+  public void rebalance_appliesBudgetRelativeToInitialSizes() {
+    returnBudget(new Budget(1500, 500, 100));
+
+    controller.rebalance();
+
+    verify(memoryCache).setSizeMultiplier(1.5f);
+    verify(bitmapPool).setSizeMultiplier(0.5f);
+    verify(arrayPool).setSizeMultiplier(1f);
+  }
+
+  @Test
+  public void rebalance_withBudgetLargerThanInitialTotal_scalesBudgetDown() {
+    returnBudget(new Budget(2100, 2100, 0));
+
+    controller.rebalance();
+
+    assertThat(controller.getBudget()).isEqualTo(new Budget(1050, 1050, 0));
+  }
+
+  @Test
+  public void rebalance_withUnchangedBudget_doesNotResizeCaches() {
+    returnBudget(new Budget(1000, 1000, 100));
+
+    controller.rebalance();
+
+    verify(memoryCache, never()).setSizeMultiplier(anyFloat());
+  }
+
+  @Test
+  public void onTrimMemory_runningLow_shrinksAllCaches() {
+    controller.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+    verify(memoryCache).setSizeMultiplier(0.5f);
+    verify(bitmapPool).setSizeMultiplier(0.5f);
+    verify(arrayPool).setSizeMultiplier(0.5f);
+  }
+
+  @Test
+  public void onTrimMemory_runningModerate_doesNotShrinkCaches() {
+    controller.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+
+    verify(memoryCache, never()).setSizeMultiplier(anyFloat());
+  }
+
+  @Test
+  public void rebalance_afterTrimMemory_graduallyRestoresCaches() {
+    returnBudget(new Budget(1000, 1000, 100));
+    controller.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+    controller.rebalance();
+
+    verify(memoryCache).setSizeMultiplier(0.5f + MemoryBudgetController.PRESSURE_RECOVERY_STEP);
+  }
+
+  @Test
+  public void setSizeMultiplier_appliesMultiplierToBudget() {
+    returnBudget(new Budget(1500, 500, 100));
+    controller.rebalance();
+
+    controller.setSizeMultiplier(2f);
+
+    verify(memoryCache).setSizeMultiplier(3f);
+    verify(bitmapPool).setSizeMultiplier(1f);
+    verify(arrayPool).setSizeMultiplier(2f);
+  }
+
+  @Test
+  public void stop_removesScheduledRebalance() {
+    controller.start();
+    controller.stop();
+
+    verify(handler).removeCallbacks(controller);
+  }
+
+  private void returnBudget(Budget budget) {
+    when(policy.rebalance(any(Budget.class), any(Budget.class), any(MemoryCacheStats.class),
+        any(MemoryCacheStats.class), any(MemoryCacheStats.class))).thenReturn(budget);
+  }
+}
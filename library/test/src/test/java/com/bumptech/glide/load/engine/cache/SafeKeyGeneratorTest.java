@@ -5,6 +5,15 @@ import static org.junit.Assert.assertTrue;
 import android.support.annotation.NonNull;
 import com.bumptech.glide.load.Key;
 import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.junit.Before;
@@ -35,6 +44,40 @@ public class SafeKeyGeneratorTest {
     }
   }
 
+  @Test
+  public void testKeysAreConsistentAcrossThreads() throws Exception {
+    int threadCount = 8;
+    final int keyCount = 2000;
+    final Map<Integer, String> expected = new HashMap<>();
+    SafeKeyGenerator reference = new SafeKeyGenerator();
+    for (int i = 0; i < keyCount; i++) {
+      expected.put(i, reference.getSafeKey(new MockKey(String.valueOf(i))));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int thread = 0; thread < threadCount; thread++) {
+        futures.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() {
+            for (int i = 0; i < keyCount; i++) {
+              String safeKey = keyGenerator.getSafeKey(new MockKey(String.valueOf(i)));
+              if (!expected.get(i).equals(safeKey)) {
+                return false;
+              }
+            }
+            return true;
+          }
+        }));
+      }
+      for (Future<Boolean> future : futures) {
+        assertTrue(future.get(30, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private String getRandomKeyFromGenerator() {
     return keyGenerator.getSafeKey(new MockKey(getNextId()));
   }
@@ -50,6 +93,16 @@ public class SafeKeyGeneratorTest {
       this.id = id;
     }
 
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof MockKey && id.equals(((MockKey) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+      return id.hashCode();
+    }
+
     @Override
     public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
       messageDigest.update(id.getBytes(CHARSET));
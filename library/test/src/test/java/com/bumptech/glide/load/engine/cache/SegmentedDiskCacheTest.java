@@ -0,0 +1,409 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.tests.Util;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SegmentedDiskCacheTest {
+  // Header plus a 64 character safe key.
+  private static final int RECORD_OVERHEAD = 14 + 64;
+  private static final int DATA_SIZE = 100;
+  private static final int RECORD_SIZE = RECORD_OVERHEAD + DATA_SIZE;
+  // Fits two records.
+  private static final int SEGMENT_SIZE = 512;
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private File dir;
+  private SegmentedDiskCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = temporaryFolder.newFolder();
+    cache = newCache(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void getBuffer_withMissingKey_returnsNull() {
+    assertThat(cache.getBuffer(key(0))).isNull();
+  }
+
+  @Test
+  public void getBuffer_afterPut_returnsData() {
+    put(cache, 0);
+
+    assertThat(ByteBufferUtil.toBytes(cache.getBuffer(key(0)))).isEqualTo(data(0));
+  }
+
+  @Test
+  public void getBuffer_returnsReadOnlyBuffer() {
+    put(cache, 0);
+
+    assertThat(cache.getBuffer(key(0)).isReadOnly()).isTrue();
+  }
+
+  @Test
+  public void get_afterPut_returnsFileWithData() throws IOException {
+    put(cache, 0);
+
+    File file = cache.get(key(0));
+    assertThat(Util.readFile(file, DATA_SIZE)).isEqualTo(data(0));
+    assertThat(cache.get(key(0))).isEqualTo(file);
+  }
+
+  @Test
+  public void put_withWriterThatFails_doesNotStoreData() {
+    cache.put(key(0), new DiskCache.Writer() {
+      @Override
+      public boolean write(@NonNull File file) {
+        return false;
+      }
+    });
+
+    assertThat(cache.getBuffer(key(0))).isNull();
+    assertThat(cache.getSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void put_withExistingKey_keepsOriginalData() {
+    put(cache, 0);
+    cache.put(key(0), writer(data(1)));
+
+    assertThat(ByteBufferUtil.toBytes(cache.getBuffer(key(0)))).isEqualTo(data(0));
+  }
+
+  @Test
+  public void put_withMoreDataThanFitsInSegment_startsNewSegment() {
+    put(cache, 0);
+    put(cache, 1);
+    assertThat(cache.getSegmentCount()).isEqualTo(1);
+
+    put(cache, 2);
+
+    assertThat(cache.getSegmentCount()).isEqualTo(2);
+    for (int i = 0; i < 3; i++) {
+      assertThat(ByteBufferUtil.toBytes(cache.getBuffer(key(i)))).isEqualTo(data(i));
+    }
+  }
+
+  @Test
+  public void delete_removesEntryAndMaterializedFile() {
+    put(cache, 0);
+    File file = cache.get(key(0));
+
+    cache.delete(key(0));
+
+    assertThat(cache.getBuffer(key(0))).isNull();
+    assertThat(cache.get(key(0))).isNull();
+    assertThat(file.exists()).isFalse();
+  }
+
+  @Test
+  public void getBuffer_afterDelete_remainsReadable() {
+    put(cache, 0);
+    ByteBuffer buffer = cache.getBuffer(key(0));
+
+    cache.delete(key(0));
+
+    assertThat(ByteBufferUtil.toBytes(buffer)).isEqualTo(data(0));
+  }
+
+  @Test
+  public void reopen_restoresEntriesAndDeletes() {
+    put(cache, 0);
+    put(cache, 1);
+    put(cache, 2);
+    cache.delete(key(1));
+
+    SegmentedDiskCache reopened = newCache(Long.MAX_VALUE);
+
+    assertThat(ByteBufferUtil.toBytes(reopened.getBuffer(key(0)))).isEqualTo(data(0));
+    assertThat(reopened.getBuffer(key(1))).isNull();
+    assertThat(ByteBufferUtil.toBytes(reopened.getBuffer(key(2)))).isEqualTo(data(2));
+  }
+
+  @Test
+  public void reopen_withCorruptLastRecord_discardsRecordAndAcceptsNewWrites()
+      throws IOException {
+    put(cache, 0);
+    put(cache, 1);
+    RandomAccessFile file =
+        new RandomAccessFile(new File(dir, SegmentedDiskCache.SEGMENT_PREFIX + 0), "rw");
+    try {
+      file.seek(2 * RECORD_SIZE - 1);
+      file.write(data(1)[DATA_SIZE - 1] + 1);
+    } finally {
+      file.close();
+    }
+
+    SegmentedDiskCache reopened = newCache(Long.MAX_VALUE);
+    assertThat(ByteBufferUtil.toBytes(reopened.getBuffer(key(0)))).isEqualTo(data(0));
+    assertThat(reopened.getBuffer(key(1))).isNull();
+
+    put(reopened, 2);
+    SegmentedDiskCache reopenedAgain = newCache(Long.MAX_VALUE);
+    assertThat(ByteBufferUtil.toBytes(reopenedAgain.getBuffer(key(0)))).isEqualTo(data(0));
+    assertThat(ByteBufferUtil.toBytes(reopenedAgain.getBuffer(key(2)))).isEqualTo(data(2));
+  }
+
+  @Test
+  public void delete_withMostlyDeletedSegment_compactsSegment() {
+    put(cache, 0);
+    put(cache, 1);
+    put(cache, 2);
+
+    cache.delete(key(0));
+    cache.delete(key(1));
+
+    assertThat(cache.getSegmentCount()).isEqualTo(1);
+    assertThat(new File(dir, SegmentedDiskCache.SEGMENT_PREFIX + 0).exists()).isFalse();
+    SegmentedDiskCache reopened = newCache(Long.MAX_VALUE);
+    assertThat(reopened.getBuffer(key(0))).isNull();
+    assertThat(reopened.getBuffer(key(1))).isNull();
+    assertThat(ByteBufferUtil.toBytes(reopened.getBuffer(key(2)))).isEqualTo(data(2));
+  }
+
+  @Test
+  public void put_overMaxSize_evictsOldestSegmentButKeepsRecentlyReadEntries() {
+    cache = newCache(5 * RECORD_SIZE + RECORD_SIZE / 2);
+    for (int i = 0; i < 5; i++) {
+      put(cache, i);
+    }
+    cache.getBuffer(key(0));
+
+    put(cache, 5);
+
+    assertThat(cache.getSize()).isAtMost((long) (5 * RECORD_SIZE + RECORD_SIZE / 2));
+    assertThat(cache.getBuffer(key(1))).isNull();
+    assertThat(ByteBufferUtil.toBytes(cache.getBuffer(key(0)))).isEqualTo(data(0));
+    for (int i = 2; i < 6; i++) {
+      assertThat(ByteBufferUtil.toBytes(cache.getBuffer(key(i)))).isEqualTo(data(i));
+    }
+  }
+
+  @Test
+  public void put_overMaxSizeWithSingleSegment_evictsLeastRecentlyWrittenEntry() {
+    cache = newCache(RECORD_SIZE + RECORD_SIZE / 2);
+    put(cache, 0);
+
+    put(cache, 1);
+
+    assertThat(cache.getSize()).isAtMost((long) (RECORD_SIZE + RECORD_SIZE / 2));
+    assertThat(cache.getBuffer(key(0))).isNull();
+    assertThat(ByteBufferUtil.toBytes(cache.getBuffer(key(1)))).isEqualTo(data(1));
+    assertThat(new File(dir, SegmentedDiskCache.SEGMENT_PREFIX + 0).exists()).isFalse();
+  }
+
+  @Test
+  public void get_overMaxSize_removesLeastRecentlyUsedMaterializedFileBeforeEntries() {
+    cache = newCache(3 * RECORD_SIZE + DATA_SIZE + DATA_SIZE / 2);
+    put(cache, 0);
+    put(cache, 1);
+    put(cache, 2);
+    File first = cache.get(key(0));
+    assertThat(cache.getSize()).isEqualTo(3 * RECORD_SIZE + DATA_SIZE);
+
+    File second = cache.get(key(1));
+
+    assertThat(first.exists()).isFalse();
+    assertThat(second.exists()).isTrue();
+    assertThat(cache.getSize()).isEqualTo(3 * RECORD_SIZE + DATA_SIZE);
+    for (int i = 0; i < 3; i++) {
+      assertThat(cache.contains(key(i))).isTrue();
+    }
+  }
+
+  @Test
+  public void contains_reflectsPutAndDelete() {
+    assertThat(cache.contains(key(0))).isFalse();
+
+    put(cache, 0);
+    assertThat(cache.contains(key(0))).isTrue();
+
+    cache.delete(key(0));
+    assertThat(cache.contains(key(0))).isFalse();
+  }
+
+  @Test
+  public void contains_doesNotCreateMaterializedFile() {
+    put(cache, 0);
+
+    assertThat(cache.contains(key(0))).isTrue();
+
+    assertThat(cache.getSize()).isEqualTo(RECORD_SIZE);
+    assertThat(new File(new File(dir, "files"), new SafeKeyGenerator().getSafeKey(key(0)))
+        .exists()).isFalse();
+  }
+
+  @Test
+  public void put_withBufferWriter_writesDirectlyIntoSegment() {
+    cache.put(key(0), bufferWriter(data(0), true /*success*/));
+
+    assertThat(ByteBufferUtil.toBytes(cache.getBuffer(key(0)))).isEqualTo(data(0));
+    SegmentedDiskCache reopened = newCache(Long.MAX_VALUE);
+    assertThat(ByteBufferUtil.toBytes(reopened.getBuffer(key(0)))).isEqualTo(data(0));
+  }
+
+  @Test
+  public void put_withBufferWriterThatFails_keepsLaterEntriesReadableAfterReopen() {
+    cache.put(key(0), bufferWriter(data(0), false /*success*/));
+    put(cache, 1);
+
+    assertThat(cache.getBuffer(key(0))).isNull();
+    SegmentedDiskCache reopened = newCache(Long.MAX_VALUE);
+    assertThat(reopened.getBuffer(key(0))).isNull();
+    assertThat(ByteBufferUtil.toBytes(reopened.getBuffer(key(1)))).isEqualTo(data(1));
+  }
+
+  @Test
+  public void getBuffer_whileDataIsBeingWritten_doesNotWaitForWrite()
+      throws InterruptedException {
+    put(cache, 0);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch finish = new CountDownLatch(1);
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        cache.put(key(1), new BlockingBufferWriter(data(1), started, finish));
+      }
+    });
+    writer.start();
+    try {
+      assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+      assertThat(ByteBufferUtil.toBytes(cache.getBuffer(key(0)))).isEqualTo(data(0));
+      assertThat(cache.contains(key(1))).isFalse();
+    } finally {
+      finish.countDown();
+      writer.join(5000);
+    }
+    assertThat(ByteBufferUtil.toBytes(cache.getBuffer(key(1)))).isEqualTo(data(1));
+  }
+
+  @Test
+  public void clear_removesAllEntries() {
+    put(cache, 0);
+    put(cache, 1);
+    put(cache, 2);
+
+    cache.clear();
+
+    assertThat(cache.getBuffer(key(0))).isNull();
+    assertThat(cache.getSize()).isEqualTo(0);
+    put(cache, 3);
+    assertThat(ByteBufferUtil.toBytes(cache.getBuffer(key(3)))).isEqualTo(data(3));
+  }
+
+  private SegmentedDiskCache newCache(long maxSize) {
+    return new SegmentedDiskCache(dir, maxSize, SEGMENT_SIZE, new Executor() {
+      @Override
+      public void execute(@NonNull Runnable command) {
+        command.run();
+      }
+    });
+  }
+
+  private static void put(DiskCache cache, int id) {
+    cache.put(key(id), writer(data(id)));
+  }
+
+  private static Key key(int id) {
+    return new ObjectKey("key" + id);
+  }
+
+  private static byte[] data(int id) {
+    byte[] data = new byte[DATA_SIZE];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (id + i);
+    }
+    return data;
+  }
+
+  private static DiskCache.Writer writer(final byte[] data) {
+    return new DiskCache.Writer() {
+      @Override
+      public boolean write(@NonNull File file) {
+        try {
+          Util.writeFile(file, data);
+          return true;
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+  }
+
+  private static ByteBufferDiskCache.BufferWriter bufferWriter(
+      final byte[] data, final boolean success) {
+    return new ByteBufferDiskCache.BufferWriter() {
+      @Override
+      public int getLength() {
+        return data.length;
+      }
+
+      @Override
+      public boolean write(@NonNull ByteBuffer target) {
+        target.put(data);
+        return success;
+      }
+
+      @Override
+      public boolean write(@NonNull File file) {
+        throw new AssertionError("Data should be written directly into the segment");
+      }
+    };
+  }
+
+  private static final class BlockingBufferWriter implements ByteBufferDiskCache.BufferWriter {
+    private final byte[] data;
+    private final CountDownLatch started;
+    private final CountDownLatch finish;
+
+    BlockingBufferWriter(byte[] data, CountDownLatch started, CountDownLatch finish) {
+      this.data = data;
+      this.started = started;
+      this.finish = finish;
+    }
+
+    @Override
+    public int getLength() {
+      return data.length;
+    }
+
+    @Override
+    public boolean write(@NonNull ByteBuffer target) {
+      started.countDown();
+      try {
+        if (!finish.await(5, TimeUnit.SECONDS)) {
+          return false;
+        }
+      } catch (InterruptedException e) {
+        return false;
+      }
+      target.put(data);
+      return true;
+    }
+
+    @Override
+    public boolean write(@NonNull File file) {
+      throw new AssertionError("Data should be written directly into the segment");
+    }
+  }
+}
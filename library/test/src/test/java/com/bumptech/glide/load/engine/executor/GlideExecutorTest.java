@@ -6,6 +6,7 @@ import android.support.annotation.NonNull;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -37,6 +38,43 @@ public class GlideExecutorTest {
     assertThat(resultPriorities).containsExactly(5, 1, 2, 3, 4).inOrder();
   }
 
+  @Test
+  public void remove_withQueuedTask_preventsTaskFromRunning() throws InterruptedException {
+    final List<Integer> resultPriorities = Collections.synchronizedList(new ArrayList<Integer>());
+    final CountDownLatch blockingLatch = new CountDownLatch(1);
+    final CountDownLatch startedLatch = new CountDownLatch(1);
+    GlideExecutor executor = GlideExecutor.newDiskCacheExecutor();
+    MockRunnable.OnRun onRun = new MockRunnable.OnRun() {
+      @Override
+      public void onRun(int priority) {
+        if (priority == 0) {
+          startedLatch.countDown();
+          try {
+            blockingLatch.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+        }
+        resultPriorities.add(priority);
+      }
+    };
+    executor.execute(new MockRunnable(0, onRun));
+    startedLatch.await(500, TimeUnit.MILLISECONDS);
+
+    MockRunnable toRemove = new MockRunnable(2, onRun);
+    executor.execute(new MockRunnable(1, onRun));
+    executor.execute(toRemove);
+    executor.execute(new MockRunnable(3, onRun));
+
+    assertThat(executor.remove(toRemove)).isTrue();
+    blockingLatch.countDown();
+    executor.shutdown();
+    executor.awaitTermination(500, TimeUnit.MILLISECONDS);
+
+    assertThat(resultPriorities).containsExactly(0, 1, 3).inOrder();
+    assertThat(executor.remove(toRemove)).isFalse();
+  }
+
   private static final class MockRunnable implements Runnable,
       Comparable<MockRunnable> {
     private final int priority;
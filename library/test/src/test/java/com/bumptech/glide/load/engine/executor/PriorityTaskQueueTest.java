@@ -0,0 +1,301 @@
+package com.bumptech.glide.load.engine.executor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PriorityTaskQueueTest {
+  private PriorityTaskQueue queue;
+
+  @Before
+  public void setUp() {
+    queue = new PriorityTaskQueue();
+  }
+
+  @Test
+  public void poll_withEmptyQueue_returnsNull() {
+    assertThat(queue.poll()).isNull();
+  }
+
+  @Test
+  public void poll_returnsTasksInPriorityOrder() {
+    queue.offer(new Task(3));
+    queue.offer(new Task(1));
+    queue.offer(new Task(2));
+
+    assertThat(drainPriorities()).containsExactly(1, 2, 3).inOrder();
+  }
+
+  @Test
+  public void offer_beyondInitialCapacity_retainsAllTasksInOrder() {
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 100; i > 0; i--) {
+      queue.offer(new Task(i));
+      expected.add(0, i);
+    }
+
+    assertThat(queue).hasSize(100);
+    assertThat(drainPriorities()).containsExactlyElementsIn(expected).inOrder();
+  }
+
+  @Test
+  public void offer_withNonComparableTasks_retainsAllTasks() {
+    Runnable other = new Runnable() {
+      @Override
+      public void run() {
+        // Do nothing.
+      }
+    };
+    queue.offer(new Task(2));
+    queue.offer(other);
+    queue.offer(new Task(1));
+
+    assertThat(queue).hasSize(3);
+    assertThat(queue.remove(other)).isTrue();
+    assertThat(drainPriorities()).containsExactly(1, 2).inOrder();
+  }
+
+  @Test
+  public void poll_withMixedTasks_returnsNonComparableTasksFirstThenPriorityOrder() {
+    Runnable other = new NonComparableTask();
+    Task five = new Task(5);
+    Task one = new Task(1);
+    Task zero = new Task(0);
+    queue.offer(five);
+    queue.offer(other);
+    queue.offer(one);
+    queue.offer(zero);
+
+    assertThat(drain()).containsExactly(other, zero, one, five).inOrder();
+  }
+
+  @Test
+  public void poll_withEqualTasks_returnsTasksInOfferOrder() {
+    Runnable firstOther = new NonComparableTask();
+    Runnable secondOther = new NonComparableTask();
+    Task first = new Task(1);
+    Task second = new Task(1);
+    Task third = new Task(1);
+    queue.offer(first);
+    queue.offer(firstOther);
+    queue.offer(second);
+    queue.offer(secondOther);
+    queue.offer(third);
+
+    assertThat(drain()).containsExactly(firstOther, secondOther, first, second, third).inOrder();
+  }
+
+  @Test
+  public void poll_withComparableTasksOfDifferentClasses_keepsPriorityOrderWithinEachClass() {
+    Random random = new Random(0);
+    for (int i = 0; i < 100; i++) {
+      queue.offer(i % 2 == 0 ? new Task(random.nextInt(10)) : new OtherTask(random.nextInt(10)));
+    }
+
+    List<Integer> taskPriorities = new ArrayList<>();
+    List<Integer> otherPriorities = new ArrayList<>();
+    for (Runnable runnable : drain()) {
+      if (runnable instanceof Task) {
+        taskPriorities.add(((Task) runnable).priority);
+      } else {
+        otherPriorities.add(((OtherTask) runnable).priority);
+      }
+    }
+    assertThat(taskPriorities).hasSize(50);
+    assertThat(taskPriorities).isOrdered();
+    assertThat(otherPriorities).hasSize(50);
+    assertThat(otherPriorities).isOrdered();
+  }
+
+  @Test
+  public void remove_withQueuedTask_removesTaskAndReturnsTrue() {
+    Task toRemove = new Task(2);
+    queue.offer(new Task(1));
+    queue.offer(toRemove);
+    queue.offer(new Task(3));
+
+    assertThat(queue.remove(toRemove)).isTrue();
+    assertThat(queue.contains(toRemove)).isFalse();
+    assertThat(drainPriorities()).containsExactly(1, 3).inOrder();
+  }
+
+  @Test
+  public void remove_withTaskNotInQueue_returnsFalse() {
+    queue.offer(new Task(1));
+
+    assertThat(queue.remove(new Task(1))).isFalse();
+    assertThat(queue).hasSize(1);
+  }
+
+  @Test
+  public void remove_withPolledTask_returnsFalse() {
+    Task task = new Task(1);
+    queue.offer(task);
+    queue.poll();
+
+    assertThat(queue.remove(task)).isFalse();
+  }
+
+  @Test
+  public void remove_withRandomTasks_maintainsPriorityOrder() {
+    Random random = new Random(0);
+    List<Task> tasks = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      Task task = new Task(random.nextInt(50));
+      tasks.add(task);
+      queue.offer(task);
+    }
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < tasks.size(); i++) {
+      if (i % 3 == 0) {
+        assertThat(queue.remove(tasks.get(i))).isTrue();
+      } else {
+        expected.add(tasks.get(i).priority);
+      }
+    }
+    Collections.sort(expected);
+
+    assertThat(drainPriorities()).containsExactlyElementsIn(expected).inOrder();
+  }
+
+  @Test
+  public void remove_thenOffer_requeuesTaskInNewPosition() {
+    Task task = new Task(3);
+    queue.offer(new Task(2));
+    queue.offer(task);
+
+    queue.remove(task);
+    task.priority = 1;
+    queue.offer(task);
+
+    assertThat(queue.poll()).isSameAs(task);
+  }
+
+  @Test
+  public void offer_withTaskAlreadyInQueue_returnsTrueAndKeepsPosition() {
+    Task first = new Task(1);
+    Task second = new Task(1);
+    queue.offer(first);
+    queue.offer(second);
+
+    assertThat(queue.offer(first)).isTrue();
+
+    assertThat(queue).hasSize(2);
+    assertThat(queue.poll()).isSameAs(first);
+    assertThat(queue.poll()).isSameAs(second);
+    assertThat(queue.poll()).isNull();
+  }
+
+  @Test
+  public void poll_withTimeoutAndEmptyQueue_returnsNull() throws InterruptedException {
+    assertThat(queue.poll(1, TimeUnit.MILLISECONDS)).isNull();
+  }
+
+  @Test
+  public void take_waitsForOfferOnOtherThread() throws InterruptedException {
+    final Task task = new Task(1);
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        queue.offer(task);
+      }
+    });
+    thread.start();
+
+    assertThat(queue.take()).isSameAs(task);
+    thread.join();
+  }
+
+  @Test
+  public void drainTo_removesAllTasksInOrder() {
+    queue.offer(new Task(2));
+    queue.offer(new Task(1));
+    List<Runnable> drained = new ArrayList<>();
+
+    assertThat(queue.drainTo(drained)).isEqualTo(2);
+    assertThat(queue).isEmpty();
+    assertThat(((Task) drained.get(0)).priority).isEqualTo(1);
+    assertThat(((Task) drained.get(1)).priority).isEqualTo(2);
+  }
+
+  @Test
+  public void clear_removesAllTasks() {
+    Task task = new Task(1);
+    queue.offer(task);
+    queue.clear();
+
+    assertThat(queue).isEmpty();
+    assertThat(queue.contains(task)).isFalse();
+  }
+
+  private List<Runnable> drain() {
+    List<Runnable> result = new ArrayList<>();
+    Runnable next;
+    while ((next = queue.poll()) != null) {
+      result.add(next);
+    }
+    return result;
+  }
+
+  private List<Integer> drainPriorities() {
+    List<Integer> result = new ArrayList<>();
+    Runnable next;
+    while ((next = queue.poll()) != null) {
+      result.add(((Task) next).priority);
+    }
+    return result;
+  }
+
+  private static final class Task implements Runnable, Comparable<Task> {
+    private int priority;
+
+    Task(int priority) {
+      this.priority = priority;
+    }
+
+    @Override
+    public int compareTo(@NonNull Task other) {
+      return priority - other.priority;
+    }
+
+    @Override
+    public void run() {
+      // Do nothing.
+    }
+  }
+
+  private static final class OtherTask implements Runnable, Comparable<OtherTask> {
+    private final int priority;
+
+    OtherTask(int priority) {
+      this.priority = priority;
+    }
+
+    @Override
+    public int compareTo(@NonNull OtherTask other) {
+      return priority - other.priority;
+    }
+
+    @Override
+    public void run() {
+      // Do nothing.
+    }
+  }
+
+  private static final class NonComparableTask implements Runnable {
+    @Override
+    public void run() {
+      // Do nothing.
+    }
+  }
+}
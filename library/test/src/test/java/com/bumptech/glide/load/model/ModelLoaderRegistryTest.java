@@ -0,0 +1,112 @@
+package com.bumptech.glide.load.model;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bumptech.glide.util.pool.FactoryPools;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+// containsExactly produces a spurious warning.
+@SuppressWarnings("ResultOfMethodCallIgnored")
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ModelLoaderRegistryTest {
+  @Mock private ModelLoaderFactory<String, InputStream> firstFactory;
+  @Mock private ModelLoader<String, InputStream> firstModelLoader;
+  @Mock private ModelLoaderFactory<String, ByteBuffer> secondFactory;
+  @Mock private ModelLoader<String, ByteBuffer> secondModelLoader;
+  @Mock private ModelLoaderFactory<String, InputStream> replacementFactory;
+  @Mock private ModelLoader<String, InputStream> replacementModelLoader;
+
+  private ModelLoaderRegistry registry;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    registry = new ModelLoaderRegistry(FactoryPools.<Throwable>threadSafeList());
+    when(firstFactory.build(any(MultiModelLoaderFactory.class))).thenReturn(firstModelLoader);
+    when(secondFactory.build(any(MultiModelLoaderFactory.class))).thenReturn(secondModelLoader);
+    when(firstModelLoader.handles(any(String.class))).thenReturn(true);
+    when(replacementFactory.build(any(MultiModelLoaderFactory.class)))
+        .thenReturn(replacementModelLoader);
+    when(secondModelLoader.handles(any(String.class))).thenReturn(true);
+    when(replacementModelLoader.handles(any(String.class))).thenReturn(true);
+  }
+
+  @Test
+  public void getModelLoaders_whenCalledRepeatedly_buildsLoadersOnce() {
+    registry.append(String.class, InputStream.class, firstFactory);
+
+    List<ModelLoader<String, ?>> first = registry.getModelLoaders("model");
+    List<ModelLoader<String, ?>> second = registry.getModelLoaders("model");
+
+    assertThat(second).isSameAs(first);
+    verify(firstFactory, times(1)).build(any(MultiModelLoaderFactory.class));
+  }
+
+  @Test
+  public void getModelLoaders_afterPrepend_returnsNewLoaderFirst() {
+    registry.append(String.class, InputStream.class, firstFactory);
+    registry.getModelLoaders("model");
+
+    registry.prepend(String.class, ByteBuffer.class, secondFactory);
+
+    assertThat(registry.getModelLoaders("model"))
+        .containsExactly(secondModelLoader, firstModelLoader)
+        .inOrder();
+  }
+
+  @Test
+  public void getModelLoaders_afterReplace_returnsOnlyNewLoader() {
+    registry.append(String.class, InputStream.class, firstFactory);
+    registry.getModelLoaders("model");
+
+    registry.replace(String.class, InputStream.class, replacementFactory);
+
+    assertThat(registry.getModelLoaders("model")).containsExactly(replacementModelLoader);
+  }
+
+  @Test
+  public void getModelLoaders_withLoaderThatDoesNotHandleModel_omitsLoader() {
+    registry.append(String.class, InputStream.class, firstFactory);
+    registry.append(String.class, ByteBuffer.class, secondFactory);
+    when(firstModelLoader.handles("model")).thenReturn(false);
+
+    assertThat(registry.getModelLoaders("model")).containsExactly(secondModelLoader);
+  }
+
+  @Test
+  public void getModelLoaders_withNoLoadersThatHandleModel_returnsEmptyList() {
+    registry.append(String.class, InputStream.class, firstFactory);
+    when(firstModelLoader.handles("model")).thenReturn(false);
+
+    assertThat(registry.getModelLoaders("model")).isEmpty();
+  }
+
+  @Test
+  public void getDataClasses_afterAppend_includesNewDataClass() {
+    registry.append(String.class, InputStream.class, firstFactory);
+    assertThat(registry.getDataClasses(String.class)).containsExactly(InputStream.class);
+
+    registry.append(String.class, ByteBuffer.class, secondFactory);
+
+    assertThat(registry.getDataClasses(String.class))
+        .containsExactly(InputStream.class, ByteBuffer.class)
+        .inOrder();
+    assertThat(registry.getDataClasses(File.class)).isEmpty();
+  }
+}
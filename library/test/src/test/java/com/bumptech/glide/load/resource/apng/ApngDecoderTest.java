@@ -0,0 +1,209 @@
+package com.bumptech.glide.load.resource.apng;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ApngDecoderTest {
+  private static final int WIDTH = 20;
+  private static final int HEIGHT = 20;
+
+  private ApngHeader header;
+  private TestApngDecoder decoder;
+
+  @Before
+  public void setUp() {
+    header = new ApngHeader();
+    header.width = WIDTH;
+    header.height = HEIGHT;
+    decoder = new TestApngDecoder(header);
+  }
+
+  @Test
+  public void getNextFrame_beforeAdvance_returnsNull() {
+    addFullFrame(ApngFrame.DISPOSE_OP_NONE, ApngFrame.BLEND_OP_SOURCE);
+
+    assertThat(decoder.getNextFrame()).isNull();
+  }
+
+  @Test
+  public void getNextFrame_withBlendOpSource_drawsFrameWithPaint() {
+    addFullFrame(ApngFrame.DISPOSE_OP_NONE, ApngFrame.BLEND_OP_SOURCE);
+
+    decodeFrame(0);
+
+    verify(compositionCanvas())
+        .drawBitmap(eq(decoder.decoded.get(0)), eq(0f), eq(0f), isA(Paint.class));
+  }
+
+  @Test
+  public void getNextFrame_withBlendOpOver_drawsFrameWithoutPaint() {
+    addFullFrame(ApngFrame.DISPOSE_OP_NONE, ApngFrame.BLEND_OP_OVER);
+
+    decodeFrame(0);
+
+    verify(compositionCanvas())
+        .drawBitmap(eq(decoder.decoded.get(0)), eq(0f), eq(0f), (Paint) isNull());
+  }
+
+  @Test
+  public void getNextFrame_withPartialFrameDisposedToBackground_clearsFrameRegion() {
+    addFullFrame(ApngFrame.DISPOSE_OP_NONE, ApngFrame.BLEND_OP_OVER);
+    addPartialFrame(ApngFrame.DISPOSE_OP_BACKGROUND);
+    addFullFrame(ApngFrame.DISPOSE_OP_NONE, ApngFrame.BLEND_OP_OVER);
+
+    decodeFrame(2);
+
+    verify(compositionCanvas()).drawRect(eq(new Rect(5, 5, 15, 15)), isA(Paint.class));
+    verify(compositionCanvas(), never())
+        .drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+  }
+
+  @Test
+  public void getNextFrame_withFullFrameDisposedToBackground_clearsCanvas() {
+    addFullFrame(ApngFrame.DISPOSE_OP_BACKGROUND, ApngFrame.BLEND_OP_OVER);
+    addFullFrame(ApngFrame.DISPOSE_OP_NONE, ApngFrame.BLEND_OP_OVER);
+
+    decodeFrame(1);
+
+    verify(compositionCanvas()).drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+  }
+
+  @Test
+  public void getNextFrame_withFrameDisposedToPrevious_restoresOverwrittenRegion() {
+    addFullFrame(ApngFrame.DISPOSE_OP_NONE, ApngFrame.BLEND_OP_OVER);
+    addPartialFrame(ApngFrame.DISPOSE_OP_PREVIOUS);
+    addFullFrame(ApngFrame.DISPOSE_OP_NONE, ApngFrame.BLEND_OP_OVER);
+
+    decodeFrame(2);
+
+    assertThat(decoder.canvases).hasSize(2);
+    Canvas restoreCanvas = decoder.canvases.get(1);
+    ArgumentCaptor<Bitmap> restoreBitmap = ArgumentCaptor.forClass(Bitmap.class);
+    verify(restoreCanvas, times(2)).setBitmap(restoreBitmap.capture());
+    verify(restoreCanvas)
+        .drawBitmap(any(Bitmap.class), any(Rect.class), any(Rect.class), isA(Paint.class));
+    verify(compositionCanvas()).drawBitmap(
+        eq(restoreBitmap.getAllValues().get(0)), eq(5f), eq(5f), isA(Paint.class));
+  }
+
+  @Test
+  public void getNextFrame_withFirstFrameDisposedToPrevious_clearsToBackground() {
+    addFullFrame(ApngFrame.DISPOSE_OP_PREVIOUS, ApngFrame.BLEND_OP_OVER);
+    addFullFrame(ApngFrame.DISPOSE_OP_NONE, ApngFrame.BLEND_OP_OVER);
+
+    decodeFrame(1);
+
+    // No region is saved because there's nothing before the first frame to revert to.
+    assertThat(decoder.canvases).hasSize(1);
+    verify(compositionCanvas()).drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+  }
+
+  @Test
+  public void getNextFrame_afterResetFrameIndex_composesFromFirstFrame() {
+    ApngFrame first = addFullFrame(ApngFrame.DISPOSE_OP_NONE, ApngFrame.BLEND_OP_OVER);
+    ApngFrame second = addPartialFrame(ApngFrame.DISPOSE_OP_NONE);
+    decodeFrame(1);
+
+    decoder.resetFrameIndex();
+    decodeFrame(0);
+
+    assertThat(decoder.decodedFrames).containsExactly(first, second, first).inOrder();
+  }
+
+  @Test
+  public void getNextFrame_composingOnlyNextFrame_doesNotDecodeEarlierFrames() {
+    ApngFrame first = addFullFrame(ApngFrame.DISPOSE_OP_NONE, ApngFrame.BLEND_OP_OVER);
+    ApngFrame second = addPartialFrame(ApngFrame.DISPOSE_OP_NONE);
+    decodeFrame(0);
+
+    decoder.advance();
+    assertThat(decoder.getNextFrame()).isNotNull();
+
+    assertThat(decoder.decodedFrames).containsExactly(first, second).inOrder();
+  }
+
+  @Test
+  public void getFrameModel_returnsDecoder() {
+    assertThat(decoder.getFrameModel()).isSameAs(decoder);
+  }
+
+  private Canvas compositionCanvas() {
+    return decoder.canvases.get(0);
+  }
+
+  private void decodeFrame(int index) {
+    for (int i = 0; i <= index; i++) {
+      decoder.advance();
+    }
+    assertThat(decoder.getNextFrame()).isNotNull();
+  }
+
+  private ApngFrame addFullFrame(int disposeOp, int blendOp) {
+    ApngFrame frame =
+        new ApngFrame(WIDTH, HEIGHT, 0 /*xOffset*/, 0 /*yOffset*/, 10 /*delay*/, disposeOp,
+            blendOp);
+    header.frames.add(frame);
+    return frame;
+  }
+
+  private ApngFrame addPartialFrame(int disposeOp) {
+    ApngFrame frame =
+        new ApngFrame(10, 10, 5 /*xOffset*/, 5 /*yOffset*/, 10 /*delay*/, disposeOp,
+            ApngFrame.BLEND_OP_OVER);
+    header.frames.add(frame);
+    return frame;
+  }
+
+  private static final class TestApngDecoder extends ApngDecoder {
+    final List<Canvas> canvases = new ArrayList<>();
+    final List<ApngFrame> decodedFrames = new ArrayList<>();
+    final List<Bitmap> decoded = new ArrayList<>();
+
+    TestApngDecoder(ApngHeader header) {
+      super(new ApngBitmapProvider(new BitmapPoolAdapter(), new LruArrayPool()), header,
+          ByteBuffer.allocate(0));
+    }
+
+    @Override
+    Canvas newCanvas() {
+      Canvas canvas = mock(Canvas.class);
+      canvases.add(canvas);
+      return canvas;
+    }
+
+    @Override
+    Bitmap decodeFrame(ApngFrame frame) {
+      decodedFrames.add(frame);
+      Bitmap result = Bitmap.createBitmap(frame.width, frame.height, Bitmap.Config.ARGB_8888);
+      decoded.add(result);
+      return result;
+    }
+  }
+}
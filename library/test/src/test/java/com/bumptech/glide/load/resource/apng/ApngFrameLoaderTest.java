@@ -0,0 +1,118 @@
+package com.bumptech.glide.load.resource.apng;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Message;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.AnimationFrameLoader.DelayTarget;
+import com.bumptech.glide.load.resource.AnimationFrameLoader.FrameCallback;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.tests.Util.ReturnsSelfAnswer;
+import com.bumptech.glide.util.Util;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ApngFrameLoaderTest {
+  @Mock private FrameCallback callback;
+  @Mock private ApngDecoder apngDecoder;
+  @Mock private Handler handler;
+  @Mock private RequestManager requestManager;
+  @Mock private BitmapPool bitmapPool;
+  private RequestBuilder<Bitmap> requestBuilder;
+  private Bitmap firstFrame;
+  private ApngFrameLoader loader;
+
+  @SuppressWarnings("unchecked")
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(handler.obtainMessage(anyInt(), isA(DelayTarget.class))).thenReturn(mock(Message.class));
+    firstFrame = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    requestBuilder = mock(RequestBuilder.class, new ReturnsSelfAnswer());
+
+    loader = new ApngFrameLoader(
+        bitmapPool, requestManager, apngDecoder, handler, requestBuilder, firstFrame);
+  }
+
+  @Test
+  public void getSize_includesDecoderAndTwoFrames() {
+    when(apngDecoder.getByteSize()).thenReturn(1234);
+
+    assertThat(loader.getSize()).isEqualTo(1234 + 2 * Util.getBitmapByteSize(firstFrame));
+  }
+
+  @Test
+  public void subscribe_advancesDecoderThenLoadsDecoder() {
+    loader.subscribe(callback);
+
+    InOrder order = inOrder(apngDecoder, requestBuilder);
+    order.verify(apngDecoder).advance();
+    order.verify(requestBuilder).load(apngDecoder);
+    order.verify(requestBuilder).into(isA(Target.class));
+  }
+
+  @Test
+  public void onFrameReady_withResource_notifiesCallbackAndRecyclesFirstFrame() {
+    loader.subscribe(callback);
+    DelayTarget target = mock(DelayTarget.class);
+    Bitmap frame = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    when(target.getResource()).thenReturn(frame);
+
+    loader.onFrameReady(target);
+
+    verify(callback).onFrameReady();
+    verify(bitmapPool).put(firstFrame);
+    assertThat(loader.getCurrentFrame()).isSameAs(frame);
+  }
+
+  @Test
+  public void clear_clearsDecoderAndCurrentFrame() {
+    loader.subscribe(callback);
+    DelayTarget target = mock(DelayTarget.class);
+    when(target.getResource()).thenReturn(Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+    loader.onFrameReady(target);
+
+    loader.clear();
+
+    verify(apngDecoder).clear();
+    verify(requestManager).clear(target);
+  }
+
+  @Test
+  public void setNextStartFromFirstFrame_resetsDecoderOnSubscribe() {
+    loader.setNextStartFromFirstFrame();
+    verify(apngDecoder, never()).resetFrameIndex();
+
+    loader.subscribe(callback);
+
+    InOrder order = inOrder(apngDecoder);
+    order.verify(apngDecoder).resetFrameIndex();
+    order.verify(apngDecoder).advance();
+  }
+
+  @Test
+  public void getNumPlays_returnsDecoderNumPlays() {
+    when(apngDecoder.getNumPlays()).thenReturn(3);
+
+    assertThat(loader.getNumPlays()).isEqualTo(3);
+  }
+}
@@ -0,0 +1,195 @@
+package com.bumptech.glide.load.resource.apng;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ApngHeaderParserTest {
+  private static final byte[] SIGNATURE =
+      new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+  private static final int WIDTH = 20;
+  private static final int HEIGHT = 10;
+
+  private ApngHeaderParser parser;
+  private ByteArrayOutputStream os;
+
+  @Before
+  public void setUp() {
+    parser = new ApngHeaderParser();
+    os = new ByteArrayOutputStream();
+    os.write(SIGNATURE, 0, SIGNATURE.length);
+    writeChunk("IHDR", ByteBuffer.allocate(13).putInt(WIDTH).putInt(HEIGHT)
+        .put((byte) 8).put((byte) 6).put((byte) 0).put((byte) 0).put((byte) 0).array());
+  }
+
+  @Test
+  public void parseHeader_withInvalidSignature_returnsFormatError() {
+    ApngHeader header = parser.setData(ByteBuffer.wrap("not a png".getBytes())).parseHeader();
+
+    assertThat(header.getStatus()).isEqualTo(ApngHeader.STATUS_FORMAT_ERROR);
+  }
+
+  @Test
+  public void parseHeader_withStaticPng_returnsSingleFullFrame() {
+    int idatOffset = writeChunk("IDAT", new byte[] {1, 2, 3});
+    writeChunk("IEND", new byte[0]);
+
+    ApngHeader header = parse();
+
+    assertThat(header.getStatus()).isEqualTo(ApngHeader.STATUS_OK);
+    assertThat(header.getWidth()).isEqualTo(WIDTH);
+    assertThat(header.getHeight()).isEqualTo(HEIGHT);
+    assertThat(header.getNumFrames()).isEqualTo(1);
+    ApngFrame frame = header.frames.get(0);
+    assertThat(frame.isFullFrame(WIDTH, HEIGHT)).isTrue();
+    assertThat(frame.getDataChunkCount()).isEqualTo(1);
+    assertThat(frame.getDataOffset(0)).isEqualTo(idatOffset);
+    assertThat(frame.getDataLength(0)).isEqualTo(3);
+  }
+
+  @Test
+  public void parseHeader_withAnimation_indexesFrameDataWithoutSequenceNumbers() {
+    writeChunk("acTL", ByteBuffer.allocate(8).putInt(2).putInt(3).array());
+    writeFrameControl(0, WIDTH, HEIGHT, 0, 0, ApngFrame.DISPOSE_OP_NONE);
+    int idatOffset = writeChunk("IDAT", new byte[] {1, 2});
+    writeFrameControl(1, 5, 4, 2, 3, ApngFrame.DISPOSE_OP_BACKGROUND);
+    int firstFdatOffset = writeChunk("fdAT", new byte[] {0, 0, 0, 2, 7, 8, 9});
+    int secondFdatOffset = writeChunk("fdAT", new byte[] {0, 0, 0, 3, 10});
+    writeChunk("IEND", new byte[0]);
+
+    ApngHeader header = parse();
+
+    assertThat(header.getStatus()).isEqualTo(ApngHeader.STATUS_OK);
+    assertThat(header.getNumFrames()).isEqualTo(2);
+    assertThat(header.getNumPlays()).isEqualTo(3);
+
+    ApngFrame first = header.frames.get(0);
+    assertThat(first.getDataOffset(0)).isEqualTo(idatOffset);
+    assertThat(first.getDataSize()).isEqualTo(2);
+
+    ApngFrame second = header.frames.get(1);
+    assertThat(second.width).isEqualTo(5);
+    assertThat(second.height).isEqualTo(4);
+    assertThat(second.xOffset).isEqualTo(2);
+    assertThat(second.yOffset).isEqualTo(3);
+    assertThat(second.disposeOp).isEqualTo(ApngFrame.DISPOSE_OP_BACKGROUND);
+    assertThat(second.getDataChunkCount()).isEqualTo(2);
+    assertThat(second.getDataOffset(0)).isEqualTo(firstFdatOffset + 4);
+    assertThat(second.getDataLength(0)).isEqualTo(3);
+    assertThat(second.getDataOffset(1)).isEqualTo(secondFdatOffset + 4);
+    assertThat(second.getDataLength(1)).isEqualTo(1);
+    assertThat(second.getDataSize()).isEqualTo(4);
+  }
+
+  @Test
+  public void parseHeader_withHiddenDefaultImage_skipsDefaultImage() {
+    writeChunk("acTL", ByteBuffer.allocate(8).putInt(1).putInt(0).array());
+    writeChunk("IDAT", new byte[] {1, 2});
+    writeFrameControl(0, WIDTH, HEIGHT, 0, 0, ApngFrame.DISPOSE_OP_NONE);
+    writeChunk("fdAT", new byte[] {0, 0, 0, 1, 5});
+    writeChunk("IEND", new byte[0]);
+
+    ApngHeader header = parse();
+
+    assertThat(header.getNumFrames()).isEqualTo(1);
+    assertThat(header.frames.get(0).getDataSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void parseHeader_withPaletteBeforeImageData_recordsAncillaryChunk() {
+    int plteOffset = writeChunk("PLTE", new byte[] {0, 0, 0, 1, 1, 1}) - 8;
+    writeChunk("IDAT", new byte[] {1});
+    writeChunk("tEXt", new byte[] {1, 2, 3, 4});
+    writeChunk("IEND", new byte[0]);
+
+    ApngHeader header = parse();
+
+    assertThat(header.ancillaryChunks).hasSize(1);
+    assertThat(header.ancillaryChunks.get(0)[0]).isEqualTo(plteOffset);
+    assertThat(header.ancillaryChunks.get(0)[1]).isEqualTo(6 + 12);
+  }
+
+  @Test
+  public void parseHeader_withFirstFrameDisposedToPrevious_disposesToBackground() {
+    writeChunk("acTL", ByteBuffer.allocate(8).putInt(1).putInt(0).array());
+    writeFrameControl(0, WIDTH, HEIGHT, 0, 0, ApngFrame.DISPOSE_OP_PREVIOUS);
+    writeChunk("IDAT", new byte[] {1});
+    writeChunk("IEND", new byte[0]);
+
+    ApngHeader header = parse();
+
+    assertThat(header.frames.get(0).disposeOp).isEqualTo(ApngFrame.DISPOSE_OP_BACKGROUND);
+  }
+
+  @Test
+  public void parseHeader_withFrameOutsideOfImage_returnsFormatError() {
+    writeChunk("acTL", ByteBuffer.allocate(8).putInt(1).putInt(0).array());
+    writeFrameControl(0, WIDTH + 1, HEIGHT, 0, 0, ApngFrame.DISPOSE_OP_NONE);
+    writeChunk("IDAT", new byte[] {1});
+    writeChunk("IEND", new byte[0]);
+
+    assertThat(parse().getStatus()).isEqualTo(ApngHeader.STATUS_FORMAT_ERROR);
+  }
+
+  @Test
+  public void parseHeader_withTruncatedChunk_returnsFormatError() {
+    writeChunk("IDAT", new byte[] {1, 2, 3});
+    byte[] bytes = os.toByteArray();
+    ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, bytes.length - 5).slice();
+
+    assertThat(parser.setData(truncated).parseHeader().getStatus())
+        .isEqualTo(ApngHeader.STATUS_FORMAT_ERROR);
+  }
+
+  @Test
+  public void parseHeader_withShortDelay_usesDefaultDelay() {
+    writeChunk("acTL", ByteBuffer.allocate(8).putInt(1).putInt(0).array());
+    writeFrameControl(0, WIDTH, HEIGHT, 0, 0, ApngFrame.DISPOSE_OP_NONE, 0 /*delayNumerator*/);
+    writeChunk("IDAT", new byte[] {1});
+    writeChunk("IEND", new byte[0]);
+
+    assertThat(parse().frames.get(0).delay).isEqualTo(100);
+  }
+
+  private ApngHeader parse() {
+    return parser.setData(ByteBuffer.wrap(os.toByteArray())).parseHeader();
+  }
+
+  private void writeFrameControl(
+      int sequenceNumber, int width, int height, int xOffset, int yOffset, int disposeOp) {
+    writeFrameControl(sequenceNumber, width, height, xOffset, yOffset, disposeOp, 5);
+  }
+
+  private void writeFrameControl(int sequenceNumber, int width, int height, int xOffset,
+      int yOffset, int disposeOp, int delayNumerator) {
+    writeChunk("fcTL", ByteBuffer.allocate(26)
+        .putInt(sequenceNumber)
+        .putInt(width)
+        .putInt(height)
+        .putInt(xOffset)
+        .putInt(yOffset)
+        .putShort((short) delayNumerator)
+        .putShort((short) 10)
+        .put((byte) disposeOp)
+        .put((byte) ApngFrame.BLEND_OP_SOURCE)
+        .array());
+  }
+
+  /** Writes a chunk with a zeroed CRC and returns the offset of the chunk's data. */
+  private int writeChunk(String type, byte[] data) {
+    byte[] lengthAndType = ByteBuffer.allocate(8).putInt(data.length).put(type.getBytes()).array();
+    os.write(lengthAndType, 0, lengthAndType.length);
+    int dataOffset = os.size();
+    os.write(data, 0, data.length);
+    os.write(new byte[4], 0, 4);
+    return dataOffset;
+  }
+}
@@ -0,0 +1,176 @@
+package com.bumptech.glide.load.resource.apng;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class StreamingApngDrawableTest {
+  private static final int FRAME_COUNT = 3;
+
+  @Mock private ApngFrameLoader frameLoader;
+  @Mock private Paint paint;
+  @Mock private Drawable.Callback cb;
+  private Bitmap currentFrame;
+  private StreamingApngDrawable drawable;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    currentFrame = Bitmap.createBitmap(100, 50, Bitmap.Config.ARGB_8888);
+    when(frameLoader.getFrameCount()).thenReturn(FRAME_COUNT);
+    when(frameLoader.getCurrentFrame()).thenReturn(currentFrame);
+    when(frameLoader.getWidth()).thenReturn(100);
+    when(frameLoader.getHeight()).thenReturn(50);
+    drawable = new StreamingApngDrawable(frameLoader, paint);
+    drawable.setCallback(cb);
+  }
+
+  @Test
+  public void start_withMultipleFrames_subscribesToFrameLoader() {
+    drawable.start();
+
+    verify(frameLoader).subscribe(drawable);
+    assertThat(drawable.isRunning()).isTrue();
+  }
+
+  @Test
+  public void start_withSingleFrame_doesNotSubscribe() {
+    when(frameLoader.getFrameCount()).thenReturn(1);
+
+    drawable.start();
+
+    verify(frameLoader, never()).subscribe(drawable);
+    assertThat(drawable.isRunning()).isFalse();
+  }
+
+  @Test
+  public void stop_unsubscribesFromFrameLoader() {
+    drawable.start();
+
+    drawable.stop();
+
+    verify(frameLoader).unsubscribe(drawable);
+    assertThat(drawable.isRunning()).isFalse();
+  }
+
+  @Test
+  public void setVisible_false_stopsRunningUntilVisibleAgain() {
+    drawable.start();
+
+    drawable.setVisible(false, false);
+    assertThat(drawable.isRunning()).isFalse();
+
+    drawable.setVisible(true, false);
+    assertThat(drawable.isRunning()).isTrue();
+  }
+
+  @Test
+  public void recycle_clearsFrameLoader() {
+    drawable.recycle();
+
+    verify(frameLoader).clear();
+    assertThat(drawable.isRecycled()).isTrue();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void start_afterRecycle_throws() {
+    drawable.recycle();
+
+    drawable.start();
+  }
+
+  @Test
+  public void onFrameReady_withoutCallback_stops() {
+    drawable.start();
+    drawable.setCallback(null);
+
+    drawable.onFrameReady();
+
+    verify(frameLoader).unsubscribe(drawable);
+    assertThat(drawable.isRunning()).isFalse();
+  }
+
+  @Test
+  public void onFrameReady_invalidatesSelf() {
+    drawable.start();
+
+    drawable.onFrameReady();
+
+    verify(cb, atLeastOnce()).invalidateDrawable(drawable);
+  }
+
+  @Test
+  public void setLoopCount_intrinsic_stopsAfterNumPlays() {
+    when(frameLoader.getNumPlays()).thenReturn(2);
+    drawable.setLoopCount(StreamingApngDrawable.LOOP_INTRINSIC);
+    drawable.start();
+
+    when(frameLoader.getCurrentIndex()).thenReturn(FRAME_COUNT - 1);
+    drawable.onFrameReady();
+    assertThat(drawable.isRunning()).isTrue();
+
+    drawable.onFrameReady();
+    assertThat(drawable.isRunning()).isFalse();
+  }
+
+  @Test
+  public void setLoopCount_intrinsicWithNumPlaysForever_keepsRunning() {
+    when(frameLoader.getNumPlays()).thenReturn(ApngHeader.NUM_PLAYS_FOREVER);
+    drawable.setLoopCount(StreamingApngDrawable.LOOP_INTRINSIC);
+    drawable.start();
+
+    when(frameLoader.getCurrentIndex()).thenReturn(FRAME_COUNT - 1);
+    for (int i = 0; i < 10; i++) {
+      drawable.onFrameReady();
+    }
+
+    assertThat(drawable.isRunning()).isTrue();
+  }
+
+  @Test
+  public void draw_drawsCurrentFrameWithPaint() {
+    Canvas canvas = mock(Canvas.class);
+
+    drawable.draw(canvas);
+
+    verify(canvas).drawBitmap(eq(currentFrame), (Rect) isNull(), isA(Rect.class), eq(paint));
+  }
+
+  @Test
+  public void draw_afterRecycle_doesNotDraw() {
+    Canvas canvas = mock(Canvas.class);
+    drawable.recycle();
+
+    drawable.draw(canvas);
+
+    verify(canvas, never())
+        .drawBitmap(isA(Bitmap.class), (Rect) isNull(), isA(Rect.class), isA(Paint.class));
+  }
+
+  @Test
+  public void getIntrinsicSize_returnsFrameLoaderSize() {
+    assertThat(drawable.getIntrinsicWidth()).isEqualTo(100);
+    assertThat(drawable.getIntrinsicHeight()).isEqualTo(50);
+  }
+}
@@ -0,0 +1,157 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.tests.Util;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class FusedBitmapTransformerTest {
+  private BitmapPool bitmapPool;
+  private Context context;
+
+  @Before
+  public void setUp() {
+    bitmapPool = mock(BitmapPool.class);
+    when(bitmapPool.get(anyInt(), anyInt(), any(Bitmap.Config.class)))
+        .thenAnswer(new Util.CreateBitmap());
+    context = RuntimeEnvironment.application;
+    Glide.init(context, new GlideBuilder().setBitmapPool(bitmapPool));
+  }
+
+  @After
+  public void tearDown() {
+    Glide.tearDown();
+  }
+
+  @Test
+  public void canFuse_withConsecutiveGlideTransformations_returnsTrue() {
+    assertThat(FusedBitmapTransformer.canFuse(
+        Arrays.asList(new CenterCrop(), new RoundedCorners(10)))).isTrue();
+  }
+
+  @Test
+  public void canFuse_withSingleTransformation_returnsFalse() {
+    assertThat(FusedBitmapTransformer.canFuse(
+        Collections.singletonList(new CenterCrop()))).isFalse();
+  }
+
+  @Test
+  public void canFuse_withOtherTransformationBetween_returnsFalse() {
+    assertThat(FusedBitmapTransformer.canFuse(
+        Arrays.asList(new CenterCrop(), new Identity(), new RoundedCorners(10)))).isFalse();
+  }
+
+  @Test
+  public void canFuse_withSubclass_returnsFalse() {
+    assertThat(FusedBitmapTransformer.canFuse(
+        Arrays.asList(new CenterCrop() { }, new RoundedCorners(10)))).isFalse();
+  }
+
+  @Test
+  public void transform_withCenterCropAndRoundedCorners_obtainsSingleBitmap() {
+    Resource<Bitmap> resource = newResource(200, 100);
+
+    Resource<Bitmap> result = FusedBitmapTransformer.transform(context, resource,
+        Arrays.asList(new CenterCrop(), new RoundedCorners(10)), 50, 50);
+
+    verify(bitmapPool, times(1)).get(anyInt(), anyInt(), any(Bitmap.Config.class));
+    assertThat(result.get().getWidth()).isEqualTo(50);
+    assertThat(result.get().getHeight()).isEqualTo(50);
+    assertThat(result.get().getConfig()).isEqualTo(Bitmap.Config.ARGB_8888);
+    assertThat(result.get().hasAlpha()).isTrue();
+  }
+
+  @Test
+  public void transform_withFitCenterAndCircleCrop_matchesSizeOfSequentialTransforms() {
+    Resource<Bitmap> resource = newResource(200, 100);
+
+    Resource<Bitmap> result = FusedBitmapTransformer.transform(context, resource,
+        Arrays.asList(new FitCenter(), new CircleCrop()), 80, 80);
+
+    verify(bitmapPool, times(1)).get(anyInt(), anyInt(), any(Bitmap.Config.class));
+    // FitCenter produces 80x40, which CircleCrop scales up to fill an 80x80 circle.
+    assertThat(result.get().getWidth()).isEqualTo(80);
+    assertThat(result.get().getHeight()).isEqualTo(80);
+  }
+
+  @Test
+  public void transform_withNoOpTransformations_returnsGivenResource() {
+    Resource<Bitmap> resource = newResource(50, 50);
+
+    Resource<Bitmap> result = FusedBitmapTransformer.transform(context, resource,
+        Arrays.asList(new CenterCrop(), new CenterInside()), 50, 50);
+
+    assertThat(result).isSameAs(resource);
+  }
+
+  @Test
+  public void transform_withGeometryAfterMask_drawsTwice() {
+    Resource<Bitmap> resource = newResource(200, 100);
+
+    Resource<Bitmap> result = FusedBitmapTransformer.transform(context, resource,
+        Arrays.asList(new RoundedCorners(10), new CenterCrop()), 50, 50);
+
+    verify(bitmapPool).get(200, 100, Bitmap.Config.ARGB_8888);
+    verify(bitmapPool).get(50, 50, Bitmap.Config.ARGB_8888);
+    assertThat(result.get().getWidth()).isEqualTo(50);
+    // The intermediate Bitmap is returned to the pool.
+    verify(bitmapPool, times(1)).put(any(Bitmap.class));
+  }
+
+  @Test
+  public void transform_withSizeOriginal_usesSizeOfTransformedBitmap() {
+    Resource<Bitmap> resource = newResource(200, 100);
+
+    Resource<Bitmap> result = FusedBitmapTransformer.transform(context, resource,
+        Arrays.asList(new CircleCrop(), new RoundedCorners(10)), Target.SIZE_ORIGINAL,
+        Target.SIZE_ORIGINAL);
+
+    assertThat(result.get().getWidth()).isEqualTo(100);
+    assertThat(result.get().getHeight()).isEqualTo(100);
+  }
+
+  private Resource<Bitmap> newResource(int width, int height) {
+    return BitmapResource.obtain(
+        Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888), bitmapPool);
+  }
+
+  private static final class Identity implements Transformation<Bitmap> {
+    @NonNull
+    @Override
+    public Resource<Bitmap> transform(@NonNull Context context, @NonNull Resource<Bitmap> resource,
+        int outWidth, int outHeight) {
+      return resource;
+    }
+
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+      // Do nothing.
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.bumptech.glide.load.ImageHeaderParser.ImageType;
+import com.bumptech.glide.load.resource.bitmap.ImageMetadataCache.ImageMetadata;
+import com.bumptech.glide.signature.ObjectKey;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ImageMetadataCacheTest {
+  private ImageMetadataCache cache;
+  private ImageMetadata metadata;
+
+  @Before
+  public void setUp() {
+    cache = new ImageMetadataCache(2);
+    metadata = new ImageMetadata(ImageType.JPEG, 100, 200, 6, "image/jpeg");
+  }
+
+  @Test
+  public void get_withNoEntry_returnsNull() {
+    assertThat(cache.get(new ObjectKey("key"))).isNull();
+  }
+
+  @Test
+  public void get_withEqualKey_returnsPutMetadata() {
+    cache.put(new ObjectKey("key"), metadata);
+
+    assertThat(cache.get(new ObjectKey("key"))).isSameAs(metadata);
+  }
+
+  @Test
+  public void put_whenFull_evictsLeastRecentlyUsedEntry() {
+    cache.put(new ObjectKey("first"), metadata);
+    cache.put(new ObjectKey("second"), metadata);
+    cache.get(new ObjectKey("first"));
+
+    cache.put(new ObjectKey("third"), metadata);
+
+    assertThat(cache.get(new ObjectKey("first"))).isSameAs(metadata);
+    assertThat(cache.get(new ObjectKey("second"))).isNull();
+    assertThat(cache.get(new ObjectKey("third"))).isSameAs(metadata);
+  }
+
+  @Test
+  public void clearMemory_removesEntries() {
+    cache.put(new ObjectKey("key"), metadata);
+
+    cache.clearMemory();
+
+    assertThat(cache.get(new ObjectKey("key"))).isNull();
+  }
+}
@@ -151,6 +151,29 @@ public class TransformationUtilsTest {
     assertTrue(toFit == transformed);
   }
 
+  @Test
+  public void testDownsampleScalesUsingStrategy() {
+    Bitmap toDownsample = Bitmap.createBitmap(400, 200, Bitmap.Config.ARGB_8888);
+
+    Bitmap downsampled = TransformationUtils.downsample(
+        bitmapPool, toDownsample, DownsampleStrategy.FIT_CENTER, 100, 100);
+
+    assertEquals(100, downsampled.getWidth());
+    assertEquals(50, downsampled.getHeight());
+  }
+
+  @Test
+  public void testDownsampleReturnsCopyIfStrategyDoesNotRequireSmallerBitmap() {
+    Bitmap toDownsample = Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888);
+
+    Bitmap downsampled = TransformationUtils.downsample(
+        bitmapPool, toDownsample, DownsampleStrategy.CENTER_INSIDE, 400, 400);
+
+    assertFalse(toDownsample == downsampled);
+    assertEquals(100, downsampled.getWidth());
+    assertEquals(200, downsampled.getHeight());
+  }
+
   @Test
   public void testCenterCropReturnsGivenBitmapIfGivenBitmapExactlyMatchesGivenDimensions() {
     Bitmap toCrop = Bitmap.createBitmap(200, 300, Bitmap.Config.ARGB_8888);
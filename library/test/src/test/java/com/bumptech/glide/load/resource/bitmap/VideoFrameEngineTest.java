@@ -0,0 +1,192 @@
+package com.bumptech.glide.load.resource.bitmap;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.request.target.Target;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 19)
+public class VideoFrameEngineTest {
+  private static final int SIZE = Target.SIZE_ORIGINAL;
+  private static final int FRAME_OPTION = VideoDecoder.DEFAULT_FRAME_OPTION;
+
+  @Mock private VideoDecoder.MediaMetadataRetrieverFactory factory;
+  @Mock private MediaMetadataRetriever retriever;
+  @Mock private BitmapPool bitmapPool;
+  private VideoFrameEngine engine;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(factory.build()).thenReturn(retriever);
+    when(retriever.getFrameAtTime(anyLong(), anyInt()))
+        .thenReturn(Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888));
+    engine = new VideoFrameEngine(bitmapPool, factory, /*maxIdleRetrievers=*/ 2,
+        /*frameCacheSizeBytes=*/ 10 * 10 * 4 * 10);
+  }
+
+  @Test
+  public void decodeFrame_withSameSource_reusesRetriever() {
+    FakeInitializer initializer = new FakeInitializer();
+
+    decode("video", initializer, 1000);
+    decode("video", initializer, 2000);
+
+    verify(factory, times(1)).build();
+    assertThat(initializer.initializeCount).isEqualTo(1);
+    verify(retriever, never()).release();
+    assertThat(engine.getIdleRetrieverCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void decodeFrame_withUnidentifiedSource_releasesRetriever() {
+    FakeInitializer initializer = new FakeInitializer();
+
+    decode(null, initializer, 1000);
+    decode(null, initializer, 2000);
+
+    verify(factory, times(2)).build();
+    verify(retriever, times(2)).release();
+    assertThat(engine.getIdleRetrieverCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void decodeFrame_withMoreSourcesThanPoolSize_releasesLeastRecentlyUsed() {
+    MediaMetadataRetriever first = mock(MediaMetadataRetriever.class);
+    MediaMetadataRetriever second = mock(MediaMetadataRetriever.class);
+    MediaMetadataRetriever third = mock(MediaMetadataRetriever.class);
+    when(factory.build()).thenReturn(first, second, third);
+    FakeInitializer initializer = new FakeInitializer();
+
+    decode("first", initializer, 0);
+    decode("second", initializer, 0);
+    decode("third", initializer, 0);
+
+    verify(first).release();
+    verify(second, never()).release();
+    verify(third, never()).release();
+    assertThat(engine.getIdleRetrieverCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void decodeFrame_whenDecodeThrows_releasesRetriever() {
+    when(retriever.getFrameAtTime(anyLong(), anyInt())).thenThrow(new RuntimeException("test"));
+
+    try {
+      decode("video", new FakeInitializer(), 1000);
+    } catch (RuntimeException e) {
+      // Expected.
+    }
+
+    verify(retriever).release();
+    assertThat(engine.getIdleRetrieverCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void prefetchFrames_extractsFramesInAscendingOrderWithOneRetriever() throws IOException {
+    FakeInitializer initializer = new FakeInitializer();
+
+    int extracted = engine.prefetchFrames(
+        "video", initializer, new long[] {3000, 1000, 2000}, SIZE, SIZE, new Options());
+
+    assertThat(extracted).isEqualTo(3);
+    verify(factory, times(1)).build();
+    InOrder order = inOrder(retriever);
+    order.verify(retriever).getFrameAtTime(1000, FRAME_OPTION);
+    order.verify(retriever).getFrameAtTime(2000, FRAME_OPTION);
+    order.verify(retriever).getFrameAtTime(3000, FRAME_OPTION);
+  }
+
+  @Test
+  public void decodeFrame_afterPrefetch_consumesPrefetchedFrame() throws IOException {
+    Bitmap prefetched = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    when(retriever.getFrameAtTime(1000, FRAME_OPTION)).thenReturn(prefetched);
+    FakeInitializer initializer = new FakeInitializer();
+    engine.prefetchFrames("video", initializer, new long[] {1000}, SIZE, SIZE, new Options());
+
+    assertThat(decode("video", initializer, 1000)).isSameAs(prefetched);
+    verify(retriever, times(1)).getFrameAtTime(1000, FRAME_OPTION);
+
+    // The frame is consumed, so a second decode extracts it again.
+    decode("video", initializer, 1000);
+    verify(retriever, times(2)).getFrameAtTime(1000, FRAME_OPTION);
+  }
+
+  @Test
+  public void prefetchFrames_withUnidentifiedSource_extractsNothing() throws IOException {
+    int extracted = engine.prefetchFrames(
+        null, new FakeInitializer(), new long[] {1000}, SIZE, SIZE, new Options());
+
+    assertThat(extracted).isEqualTo(0);
+    verify(factory, never()).build();
+  }
+
+  @Test
+  public void clearMemory_releasesIdleRetrieversAndPoolsPrefetchedFrames() throws IOException {
+    Bitmap prefetched = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    when(retriever.getFrameAtTime(1000, FRAME_OPTION)).thenReturn(prefetched);
+    engine.prefetchFrames(
+        "video", new FakeInitializer(), new long[] {1000}, SIZE, SIZE, new Options());
+
+    engine.clearMemory();
+
+    verify(retriever).release();
+    verify(bitmapPool).put(prefetched);
+    assertThat(engine.getIdleRetrieverCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void trimMemory_withUiHidden_releasesIdleRetrievers() {
+    decode("video", new FakeInitializer(), 1000);
+
+    engine.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+    verify(retriever).release();
+  }
+
+  private Bitmap decode(
+      @Nullable String sourceKey, FakeInitializer initializer, long frameTimeMicros) {
+    return engine.decodeFrame(
+        sourceKey, initializer, frameTimeMicros, FRAME_OPTION, SIZE, SIZE,
+        DownsampleStrategy.DEFAULT);
+  }
+
+  private static final class FakeInitializer
+      implements VideoDecoder.MediaMetadataRetrieverInitializer<String> {
+    private int initializeCount;
+
+    @Override
+    public void initialize(MediaMetadataRetriever retriever, String data) {
+      initializeCount++;
+    }
+
+    @Nullable
+    @Override
+    public Object getSourceKey(String data) {
+      return data;
+    }
+  }
+}
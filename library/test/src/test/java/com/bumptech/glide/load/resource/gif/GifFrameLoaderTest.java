@@ -22,8 +22,8 @@ import com.bumptech.glide.RequestBuilder;
 import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.gifdecoder.GifDecoder;
 import com.bumptech.glide.load.Transformation;
-import com.bumptech.glide.load.resource.gif.GifFrameLoader.DelayTarget;
-import com.bumptech.glide.load.resource.gif.GifFrameLoader.FrameCallback;
+import com.bumptech.glide.load.resource.AnimationFrameLoader.DelayTarget;
+import com.bumptech.glide.load.resource.AnimationFrameLoader.FrameCallback;
 import com.bumptech.glide.request.Request;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.Target;
@@ -0,0 +1,201 @@
+package com.bumptech.glide.load.resource.gif;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.gifdecoder.GifDecoder;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.UnitTransformation;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class GifFramePrefetcherTest {
+  private static final int MAX_FRAMES = 2;
+
+  @Mock private GifDecoder gifDecoder;
+  @Mock private BitmapPool bitmapPool;
+  @Mock private GifFramePrefetcher.FrameListener listener;
+  private final Queue<Runnable> tasks = new ArrayDeque<>();
+  private GifFramePrefetcher prefetcher;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(gifDecoder.getNextFrame()).thenAnswer(new Answer<Bitmap>() {
+      @Override
+      public Bitmap answer(InvocationOnMock invocation) {
+        return Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+      }
+    });
+    when(gifDecoder.getNextDelay()).thenReturn(50);
+    when(gifDecoder.getCurrentFrameIndex()).thenReturn(1);
+
+    Executor executor = new Executor() {
+      @Override
+      public void execute(@NonNull Runnable command) {
+        tasks.add(command);
+      }
+    };
+    prefetcher = new GifFramePrefetcher(RuntimeEnvironment.application, bitmapPool, executor,
+        gifDecoder, 100, 100, MAX_FRAMES, UnitTransformation.<Bitmap>get());
+    prefetcher.setFrameListener(listener);
+  }
+
+  @Test
+  public void poll_beforeDecode_returnsNullAndSchedulesDecode() {
+    assertThat(prefetcher.poll()).isNull();
+    assertThat(tasks).hasSize(1);
+  }
+
+  @Test
+  public void poll_afterDecode_returnsDecodedFrame() {
+    prefetcher.poll();
+    runTasks();
+
+    GifFramePrefetcher.Frame frame = prefetcher.poll();
+    assertThat(frame).isNotNull();
+    assertThat(frame.index).isEqualTo(1);
+    assertThat(frame.delay).isEqualTo(50);
+    assertThat(frame.bitmap).isNotNull();
+  }
+
+  @Test
+  public void run_withEmptyQueue_notifiesListenerOnce() {
+    prefetcher.poll();
+    runTasks();
+
+    verify(listener, times(1)).onFramePrefetched();
+  }
+
+  @Test
+  public void run_decodesAtMostMaxFramesAhead() {
+    prefetcher.poll();
+    runTasks();
+
+    verify(gifDecoder, times(MAX_FRAMES)).getNextFrame();
+    assertThat(tasks).isEmpty();
+  }
+
+  @Test
+  public void poll_withFullQueue_schedulesAnotherDecode() {
+    prefetcher.poll();
+    runTasks();
+
+    prefetcher.poll();
+
+    assertThat(tasks).hasSize(1);
+  }
+
+  @Test
+  public void resetFrameIndex_recyclesDecodedFramesAndResetsDecoder() {
+    prefetcher.poll();
+    runTasks();
+
+    prefetcher.resetFrameIndex();
+    verify(bitmapPool, times(MAX_FRAMES)).put(any(Bitmap.class));
+
+    runTasks();
+    verify(gifDecoder).resetFrameIndex();
+  }
+
+  @Test
+  public void resetFrameIndex_duringDecode_discardsDecodedFrame() {
+    prefetcher.poll();
+    Runnable task = tasks.poll();
+    when(gifDecoder.getNextFrame()).thenAnswer(new Answer<Bitmap>() {
+      @Override
+      public Bitmap answer(InvocationOnMock invocation) {
+        prefetcher.resetFrameIndex();
+        return Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+      }
+    });
+
+    task.run();
+
+    verify(bitmapPool).put(any(Bitmap.class));
+    verify(listener, never()).onFramePrefetched();
+  }
+
+  @Test
+  public void clear_withoutScheduledDecode_clearsDecoder() {
+    prefetcher.clear();
+
+    verify(gifDecoder).clear();
+  }
+
+  @Test
+  public void clear_withScheduledDecode_clearsDecoderAfterDecode() {
+    prefetcher.poll();
+
+    prefetcher.clear();
+    verify(gifDecoder, never()).clear();
+
+    runTasks();
+    verify(gifDecoder).clear();
+    verify(gifDecoder, never()).getNextFrame();
+  }
+
+  @Test
+  public void clear_recyclesDecodedFrames() {
+    prefetcher.poll();
+    runTasks();
+
+    prefetcher.clear();
+
+    verify(bitmapPool, times(MAX_FRAMES)).put(any(Bitmap.class));
+    assertThat(prefetcher.poll()).isNull();
+    assertThat(tasks).isEmpty();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void run_appliesTransformationAndRecyclesOriginalFrame() {
+    final Bitmap transformed = Bitmap.createBitmap(50, 50, Bitmap.Config.ARGB_8888);
+    Transformation<Bitmap> transformation = mock(Transformation.class);
+    final Resource<Bitmap> transformedResource = mock(Resource.class);
+    when(transformedResource.get()).thenReturn(transformed);
+    when(transformation.transform(any(Context.class), any(Resource.class), anyInt(), anyInt()))
+        .thenReturn(transformedResource);
+    prefetcher.setTransformation(transformation);
+
+    prefetcher.poll();
+    tasks.poll().run();
+
+    verify(transformation)
+        .transform(eq(RuntimeEnvironment.application), any(Resource.class), eq(100), eq(100));
+    verify(bitmapPool).put(any(Bitmap.class));
+    assertThat(prefetcher.poll().bitmap).isSameAs(transformed);
+  }
+
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+  }
+}
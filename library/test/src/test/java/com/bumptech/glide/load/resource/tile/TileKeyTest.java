@@ -0,0 +1,28 @@
+package com.bumptech.glide.load.resource.tile;
+
+import com.bumptech.glide.tests.KeyTester;
+import java.security.NoSuchAlgorithmException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TileKeyTest {
+  @Rule public final KeyTester keyTester = new KeyTester();
+
+  @Test
+  public void testEqualsHashCodeDigest() throws NoSuchAlgorithmException {
+    keyTester
+        .addEquivalenceGroup(new TileKey(1, 2, 3, 4), new TileKey(1, 2, 3, 4))
+        .addEquivalenceGroup(new TileKey(5, 2, 3, 4))
+        .addEquivalenceGroup(new TileKey(1, 5, 3, 4))
+        .addEquivalenceGroup(new TileKey(1, 2, 5, 4))
+        .addEquivalenceGroup(new TileKey(1, 2, 3, 8))
+        .addEquivalenceGroup(new TileKey(1L << 32, 2, 3, 4))
+        .addRegressionTest(
+            new TileKey(1, 2, 3, 4),
+            "fdf4f79d92d051e214ecb1e93698ebc372587b3b0bae10c67f5961d2651371ed")
+        .test();
+  }
+}
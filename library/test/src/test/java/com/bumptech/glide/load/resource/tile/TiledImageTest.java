@@ -0,0 +1,218 @@
+package com.bumptech.glide.load.resource.tile;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemoryCache;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class TiledImageTest {
+  private static final int IMAGE_WIDTH = 1000;
+  private static final int IMAGE_HEIGHT = 600;
+  private static final int TILE_SIZE = 512;
+
+  @Mock private BitmapPool bitmapPool;
+  private LruResourceCache memoryCache;
+  private TiledImage image;
+
+  @Before
+  public void setUp() throws IOException {
+    MockitoAnnotations.initMocks(this);
+    memoryCache = new LruResourceCache(Long.MAX_VALUE);
+    // Mirrors the Engine, which recycles resources evicted from the memory cache.
+    memoryCache.setResourceRemovedListener(new MemoryCache.ResourceRemovedListener() {
+      @Override
+      public void onResourceRemoved(@NonNull Resource<?> removed) {
+        removed.recycle();
+      }
+    });
+    image = newImage();
+  }
+
+  @Test
+  public void getSampleSize_atOrAboveFullScale_returnsOne() {
+    assertThat(TiledImage.getSampleSize(1f)).isEqualTo(1);
+    assertThat(TiledImage.getSampleSize(3f)).isEqualTo(1);
+  }
+
+  @Test
+  public void getSampleSize_justBelowFullScale_returnsOne() {
+    assertThat(TiledImage.getSampleSize(0.75f)).isEqualTo(1);
+  }
+
+  @Test
+  public void getSampleSize_atPowerOfTwoScale_returnsInverse() {
+    assertThat(TiledImage.getSampleSize(0.5f)).isEqualTo(2);
+    assertThat(TiledImage.getSampleSize(0.125f)).isEqualTo(8);
+  }
+
+  @Test
+  public void getSampleSize_betweenPowersOfTwo_returnsSmallerSampleSize() {
+    assertThat(TiledImage.getSampleSize(0.3f)).isEqualTo(2);
+    assertThat(TiledImage.getSampleSize(0.2f)).isEqualTo(4);
+  }
+
+  @Test
+  public void getColumnAndRowCount_roundUpToCoverImage() {
+    assertThat(image.getColumnCount(1)).isEqualTo(2);
+    assertThat(image.getRowCount(1)).isEqualTo(2);
+    assertThat(image.getColumnCount(2)).isEqualTo(1);
+    assertThat(image.getRowCount(2)).isEqualTo(1);
+  }
+
+  @Test
+  public void acquireTile_atEdge_isClippedToImage() throws IOException {
+    Tile tile = image.acquireTile(1, 1, 1);
+
+    Rect region = new Rect();
+    tile.getRegion(region);
+    assertThat(region).isEqualTo(new Rect(TILE_SIZE, TILE_SIZE, IMAGE_WIDTH, IMAGE_HEIGHT));
+    assertThat(tile.getColumn()).isEqualTo(1);
+    assertThat(tile.getRow()).isEqualTo(1);
+    assertThat(tile.getSampleSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void acquireTile_withLargerSampleSize_coversLargerRegion() throws IOException {
+    Tile tile = image.acquireTile(0, 0, 2);
+
+    Rect region = new Rect();
+    tile.getRegion(region);
+    assertThat(region).isEqualTo(new Rect(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void acquireTile_outsideGrid_throws() throws IOException {
+    image.acquireTile(2, 0, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void acquireTile_withSampleSizeNotPowerOfTwo_throws() throws IOException {
+    image.acquireTile(0, 0, 3);
+  }
+
+  @Test
+  public void acquireTile_doesNotAddTileToMemoryCache() throws IOException {
+    image.acquireTile(0, 0, 1);
+
+    assertThat(memoryCache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void releaseTile_addsTileToMemoryCache() throws IOException {
+    Tile tile = image.acquireTile(0, 0, 1);
+
+    image.releaseTile(tile);
+
+    assertThat(memoryCache.getCurrentSize()).isEqualTo(tile.getSize());
+    verify(bitmapPool, never()).put(tile.get());
+  }
+
+  @Test
+  public void acquireTile_afterRelease_returnsCachedTileAndRemovesItFromMemoryCache()
+      throws IOException {
+    Tile tile = image.acquireTile(0, 0, 1);
+    image.releaseTile(tile);
+
+    assertThat(image.acquireTile(0, 0, 1)).isSameAs(tile);
+    assertThat(memoryCache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void acquireTile_afterReleasedTileIsEvicted_decodesNewTile() throws IOException {
+    Tile tile = image.acquireTile(0, 0, 1);
+    image.releaseTile(tile);
+
+    memoryCache.clearMemory();
+
+    verify(bitmapPool).put(tile.get());
+    assertThat(image.acquireTile(0, 0, 1)).isNotSameAs(tile);
+  }
+
+  @Test
+  public void acquireTile_withDifferentSampleSize_doesNotReturnReleasedTile() throws IOException {
+    Tile tile = image.acquireTile(0, 0, 1);
+    image.releaseTile(tile);
+
+    assertThat(image.acquireTile(0, 0, 2)).isNotSameAs(tile);
+  }
+
+  @Test
+  public void acquireTile_ofDifferentImage_doesNotReturnReleasedTile() throws IOException {
+    Tile tile = image.acquireTile(0, 0, 1);
+    image.releaseTile(tile);
+
+    assertThat(newImage().acquireTile(0, 0, 1)).isNotSameAs(tile);
+  }
+
+  @Test
+  public void recycle_removesReleasedTilesFromMemoryCacheAndRecyclesThem() throws IOException {
+    Tile first = image.acquireTile(0, 0, 1);
+    Tile second = image.acquireTile(1, 0, 1);
+    image.releaseTile(first);
+    image.releaseTile(second);
+
+    image.recycle();
+
+    assertThat(memoryCache.getCurrentSize()).isEqualTo(0);
+    verify(bitmapPool).put(first.get());
+    verify(bitmapPool).put(second.get());
+  }
+
+  @Test
+  public void recycle_doesNotRecycleAcquiredTiles() throws IOException {
+    Tile tile = image.acquireTile(0, 0, 1);
+
+    image.recycle();
+
+    verify(bitmapPool, never()).put(tile.get());
+  }
+
+  @Test
+  public void releaseTile_afterRecycle_recyclesTileInsteadOfCachingIt() throws IOException {
+    Tile tile = image.acquireTile(0, 0, 1);
+    image.recycle();
+
+    image.releaseTile(tile);
+
+    verify(bitmapPool).put(tile.get());
+    assertThat(memoryCache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void acquireTile_afterRecycle_throws() throws IOException {
+    image.recycle();
+
+    image.acquireTile(0, 0, 1);
+  }
+
+  private TiledImage newImage() throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    ImageIO.write(
+        new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB), "png", os);
+    byte[] data = os.toByteArray();
+    BitmapRegionDecoder decoder =
+        BitmapRegionDecoder.newInstance(data, 0, data.length, false /*isShareable*/);
+    return new TiledImage(decoder, memoryCache, bitmapPool, Bitmap.Config.ARGB_8888, TILE_SIZE);
+  }
+}
@@ -7,6 +7,8 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import android.support.annotation.NonNull;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.request.Request;
 import org.junit.Before;
 import org.junit.Test;
@@ -427,6 +429,11 @@ public class RequestTrackerTest {
       isCleared = true;
     }
 
+    @Override
+    public void setPriority(@NonNull Priority priority) {
+      // Do nothing.
+    }
+
     @Override
     public boolean isRunning() {
       return isRunning;
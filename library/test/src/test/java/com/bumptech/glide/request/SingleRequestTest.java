@@ -11,6 +11,7 @@ import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -34,6 +35,7 @@ import com.bumptech.glide.load.engine.GlideException;
 import com.bumptech.glide.load.engine.Resource;
 import com.bumptech.glide.request.target.SizeReadyCallback;
 import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.request.transition.NoTransition;
 import com.bumptech.glide.request.transition.Transition;
 import com.bumptech.glide.request.transition.TransitionFactory;
 import com.bumptech.glide.signature.ObjectKey;
@@ -46,6 +48,7 @@ import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
@@ -293,6 +296,57 @@ public class SingleRequestTest {
     verify(loadStatus).cancel();
   }
 
+  @Test
+  public void setPriority_whileLoading_setsLoadPriority() {
+    Engine.LoadStatus loadStatus = mock(Engine.LoadStatus.class);
+    when(load(builder.engine, /*priority=*/ null)).thenReturn(loadStatus);
+    SingleRequest<List> request = builder.build();
+    request.begin();
+    request.onSizeReady(100, 100);
+
+    request.setPriority(Priority.IMMEDIATE);
+
+    verify(loadStatus).setPriority(Priority.IMMEDIATE);
+  }
+
+  @Test
+  public void setPriority_beforeSizeIsReady_startsLoadWithNewPriority() {
+    SingleRequest<List> request = builder.build();
+    request.begin();
+
+    request.setPriority(Priority.LOW);
+    request.onSizeReady(100, 100);
+
+    load(verify(builder.engine), Priority.LOW);
+  }
+
+  /**
+   * Calls {@link Engine#load} with matchers for the builder's arguments and the given priority, or
+   * any priority if {@code null}.
+   */
+  private Engine.LoadStatus load(Engine engine, @Nullable Priority priority) {
+    return engine
+        .load(
+            eq(builder.glideContext),
+            eq(builder.model),
+            eq(builder.signature),
+            anyInt(),
+            anyInt(),
+            eq(Object.class),
+            eq(List.class),
+            priority == null ? any(Priority.class) : eq(priority),
+            any(DiskCacheStrategy.class),
+            eq(builder.transformations),
+            anyBoolean(),
+            anyBoolean(),
+            any(Options.class),
+            anyBoolean(),
+            anyBoolean(),
+            anyBoolean(),
+            anyBoolean(),
+            any(ResourceCallback.class));
+  }
+
   @Test
   public void testResourceIsRecycledOnClear() {
     SingleRequest<List> request = builder.build();
@@ -303,6 +357,68 @@ public class SingleRequestTest {
     verify(builder.engine).release(eq(builder.resource));
   }
 
+  @Test
+  public void onPartialResourceReady_whileRunning_setsResourceWithoutNotifyingListeners() {
+    SingleRequest<List> request = builder.addRequestListener(listener1).build();
+    request.begin();
+    request.onSizeReady(100, 100);
+
+    request.onPartialResourceReady(builder.resource, DataSource.REMOTE);
+
+    verify(builder.target).onResourceReady(eq(builder.result), anyTransition());
+    verify(listener1, never()).onResourceReady(any(List.class), any(Number.class),
+        isAListTarget(), isADataSource(), anyBoolean());
+    assertFalse(request.isComplete());
+    verify(builder.engine, never()).release(any(Resource.class));
+  }
+
+  @Test
+  public void onPartialResourceReady_whenNotRunning_releasesResource() {
+    SingleRequest<List> request = builder.build();
+
+    request.onPartialResourceReady(builder.resource, DataSource.REMOTE);
+
+    verify(builder.target, never()).onResourceReady(any(List.class), anyTransition());
+    verify(builder.engine).release(eq(builder.resource));
+  }
+
+  @Test
+  public void onResourceReady_afterPartialResource_releasesPartialResource() {
+    Resource<List> partial = mockResource();
+    when(partial.get()).thenReturn(new ArrayList<>());
+    SingleRequest<List> request = builder.build();
+    request.begin();
+    request.onSizeReady(100, 100);
+    request.onPartialResourceReady(partial, DataSource.REMOTE);
+
+    request.onResourceReady(builder.resource, DataSource.REMOTE);
+
+    verify(builder.engine).release(eq(partial));
+    verify(builder.engine, never()).release(eq(builder.resource));
+    assertTrue(request.isComplete());
+  }
+
+  @Test
+  public void onResourceReady_afterPartialResource_setsResourceWithoutTransitionBeforeRelease() {
+    Resource<List> partial = mockResource();
+    when(partial.get()).thenReturn(new ArrayList<>());
+    Transition<List> transition = mockTransition();
+    when(builder.transitionFactory.build(any(DataSource.class), anyBoolean()))
+        .thenReturn(transition);
+    SingleRequest<List> request = builder.build();
+    request.begin();
+    request.onSizeReady(100, 100);
+    request.onPartialResourceReady(partial, DataSource.REMOTE);
+
+    request.onResourceReady(builder.resource, DataSource.REMOTE);
+
+    InOrder order = inOrder(builder.target, builder.engine);
+    order.verify(builder.target)
+        .onResourceReady(eq(builder.result), eq(NoTransition.<List>get()));
+    order.verify(builder.engine).release(eq(partial));
+    verify(builder.target, never()).onResourceReady(any(List.class), eq(transition));
+  }
+
   @Test
   public void testPlaceholderDrawableIsSet() {
     Drawable expected = new ColorDrawable(Color.RED);
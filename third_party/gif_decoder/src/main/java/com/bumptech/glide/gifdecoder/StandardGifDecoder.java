@@ -317,7 +317,7 @@ public class StandardGifDecoder implements GifDecoder {
   }
 
   @Override
-  public void clear() {
+  public synchronized void clear() {
     header = null;
     if (mainPixels != null) {
       bitmapProvider.release(mainPixels);
@@ -334,6 +334,15 @@ public class StandardGifDecoder implements GifDecoder {
     if (block != null) {
       bitmapProvider.release(block);
     }
+    block = null;
+    if (suffix != null) {
+      bitmapProvider.release(suffix);
+    }
+    suffix = null;
+    if (pixelStack != null) {
+      bitmapProvider.release(pixelStack);
+    }
+    pixelStack = null;
   }
 
   @Override
@@ -699,7 +708,10 @@ public class StandardGifDecoder implements GifDecoder {
         i, datum, dataSize, first, top, bi, pi;
 
     if (mainPixels == null || mainPixels.length < npix) {
-      // Allocate new pixel array.
+      // Allocate new pixel array, returning the old one so that it isn't lost to the pool.
+      if (mainPixels != null) {
+        bitmapProvider.release(mainPixels);
+      }
       mainPixels = bitmapProvider.obtainByteArray(npix);
     }
     byte[] mainPixels = this.mainPixels;
@@ -708,11 +720,11 @@ public class StandardGifDecoder implements GifDecoder {
     }
     short[] prefix = this.prefix;
     if (suffix == null) {
-      suffix = new byte[MAX_STACK_SIZE];
+      suffix = bitmapProvider.obtainByteArray(MAX_STACK_SIZE);
     }
     byte[] suffix = this.suffix;
     if (pixelStack == null) {
-      pixelStack = new byte[MAX_STACK_SIZE + 1];
+      pixelStack = bitmapProvider.obtainByteArray(MAX_STACK_SIZE + 1);
     }
     byte[] pixelStack = this.pixelStack;
 
@@ -8,6 +8,7 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -27,6 +28,11 @@ import java.io.OutputStream;
  *     e.finish();
  * </pre>
  *
+ * Frames can also be prepared ahead of time, concurrently and on other threads,
+ * with {@link #prepareFrame(Bitmap, Frame)} and then written in order with
+ * {@link #addFrame(Frame, int, int)}. Each {@link Frame} holds the buffers used
+ * to prepare it, so reusing {@link Frame}s avoids allocating per frame.
+ *
  * No copyright asserted on the source code of this class. May be used for any
  * purpose, however, refer to the Unisys LZW patent for restrictions on use of
  * the associated LZWEncoder class. Please forward any corrections to
@@ -44,18 +50,12 @@ public class AnimatedGifEncoder {
     // automatically.
     private static final double MIN_TRANSPARENT_PERCENTAGE = 4d;
 
-    private int width; // image size
-
-    private int height;
-
     private int fixedWidth;   // set by setSize()
 
     private int fixedHeight;
 
     private Integer transparent = null; // transparent color if given
 
-    private int transIndex; // transparent index in color table
-
     private int repeat = -1; // no repeat
 
     private int delay = 0; // frame delay (hundredths)
@@ -64,19 +64,9 @@ public class AnimatedGifEncoder {
 
     private OutputStream out;
 
-    private Bitmap image; // current frame
-
-    private byte[] pixels; // BGR byte array from frame
-
-    private byte[] indexedPixels; // converted frame indexed to palette
-
-    private int colorDepth; // number of bit planes
-
-    private byte[] colorTab; // RGB palette
-
-    private boolean[] usedEntry = new boolean[256]; // active palette entries
+    private static final int COLOR_DEPTH = 8; // number of bit planes
 
-    private int palSize = 7; // color table size (bits-1)
+    private static final int PAL_SIZE = 7; // color table size (bits-1)
 
     private int dispose = -1; // disposal code (-1 = use default)
 
@@ -88,7 +78,8 @@ public class AnimatedGifEncoder {
 
     private int sample = 10; // default sample interval for quantizer
 
-    private boolean hasTransparentPixels;
+    @Nullable
+    private Frame serialFrame; // reused by addFrame(Bitmap)
 
     /**
      * Sets the delay time between each frame, or changes it for subsequent frames
@@ -181,30 +172,72 @@ public class AnimatedGifEncoder {
         if ((im == null) || !started) {
             return false;
         }
+        if (serialFrame == null) {
+            serialFrame = new Frame();
+        }
+        prepareFrame(im, serialFrame);
+        return addFrame(serialFrame, x, y);
+    }
+
+    /**
+     * Converts the given image to an indexed, compressed GIF frame using the
+     * current quality, size and transparency settings, so that it can later be
+     * written with {@link #addFrame(Frame, int, int)}.
+     *
+     * May be called concurrently on multiple threads with different
+     * {@link Frame}s, as long as the settings aren't changed at the same time.
+     *
+     * @param im
+     *          Bitmap containing the frame to prepare.
+     * @param frame
+     *          Frame to prepare, replacing anything it was previously prepared
+     *          with.
+     */
+    public void prepareFrame(@NonNull Bitmap im, @NonNull Frame frame) {
+        if (sizeSet) {
+            frame.setSize(fixedWidth, fixedHeight);
+        } else {
+            frame.setSize(im.getWidth(), im.getHeight());
+        }
+        getImagePixels(im, frame); // convert to correct format if necessary
+        analyzePixels(frame); // build color table & map pixels
+        frame.compress();
+    }
+
+    /**
+     * Writes a frame prepared with {@link #prepareFrame(Bitmap, Frame)} at the
+     * specified position. After this returns, the {@link Frame} may be reused.
+     *
+     * @param frame
+     *          The prepared frame to write.
+     * @param x
+     *          Column number, in pixels, of the left edge of the image, with respect to the left
+     *          edge of the Logical Screen.
+     * @param y
+     *          Row number, in pixels, of the top edge of the image with respect to the top edge of
+     *          the Logical Screen.
+     * @return true if successful.
+     */
+    public boolean addFrame(@NonNull Frame frame, int x, int y) {
+        if (!started) {
+            return false;
+        }
         boolean ok = true;
         try {
-            if (sizeSet) {
-                setFrameSize(fixedWidth, fixedHeight);
-            } else {
-                setFrameSize(im.getWidth(), im.getHeight());
-            }
-            image = im;
-            getImagePixels(); // convert to correct format if necessary
-            analyzePixels(); // build color table & map pixels
             if (firstFrame) {
-                writeLSD(); // logical screen descriptor
-                writePalette(); // global color table
+                writeLSD(frame); // logical screen descriptor
+                writePalette(frame); // global color table
                 if (repeat >= 0) {
                     // use NS app extension to indicate reps
                     writeNetscapeExt();
                 }
             }
-            writeGraphicCtrlExt(); // write graphic control extension
-            writeImageDesc(x, y); // image descriptor
+            writeGraphicCtrlExt(frame); // write graphic control extension
+            writeImageDesc(frame, x, y); // image descriptor
             if (!firstFrame) {
-                writePalette(); // local color table
+                writePalette(frame); // local color table
             }
-            writePixels(); // encode and write pixel data
+            frame.compressed.writeTo(out); // write compressed pixel data
             firstFrame = false;
         } catch (IOException e) {
             ok = false;
@@ -233,12 +266,8 @@ public class AnimatedGifEncoder {
         }
 
         // reset for subsequent use
-        transIndex = 0;
         out = null;
-        image = null;
-        pixels = null;
-        indexedPixels = null;
-        colorTab = null;
+        serialFrame = null;
         closeStream = false;
         firstFrame = true;
 
@@ -299,19 +328,6 @@ public class AnimatedGifEncoder {
         sizeSet = true;
     }
 
-    /**
-     * Sets current GIF frame size.
-     *
-     * @param w
-     *          int frame width.
-     * @param h
-     *          int frame width.
-     */
-    private void setFrameSize(int w, int h) {
-        width = w;
-        height = h;
-    }
-
     /**
      * Initiates GIF file creation on the given stream. The stream is not closed
      * automatically.
@@ -356,13 +372,18 @@ public class AnimatedGifEncoder {
     /**
      * Analyzes image colors and creates color map.
      */
-    private void analyzePixels() {
-        int len = pixels.length;
-        int nPix = len / 3;
-        indexedPixels = new byte[nPix];
-        NeuQuant nq = new NeuQuant(pixels, len, sample);
-        // initialize quantizer
-        colorTab = nq.process(); // create reduced palette
+    private void analyzePixels(Frame frame) {
+        byte[] pixels = frame.pixels;
+        boolean[] usedEntry = frame.usedEntry;
+        int nPix = frame.pixelCount;
+        int len = nPix * 3;
+        if (frame.indexedPixels == null || frame.indexedPixels.length < nPix) {
+            frame.indexedPixels = new byte[nPix];
+        }
+        byte[] indexedPixels = frame.indexedPixels;
+        NeuQuant nq = frame.quantizer;
+        nq.init(pixels, len, sample); // initialize quantizer
+        byte[] colorTab = nq.process(); // create reduced palette
         // convert map from BGR to RGB
         for (int i = 0; i < colorTab.length; i += 3) {
             byte temp = colorTab[i];
@@ -377,14 +398,13 @@ public class AnimatedGifEncoder {
             usedEntry[index] = true;
             indexedPixels[i] = (byte) index;
         }
-        pixels = null;
-        colorDepth = 8;
-        palSize = 7;
+        frame.colorTab = colorTab;
         // get closest match to transparent color if specified
+        frame.transIndex = 0;
         if (transparent != null) {
-            transIndex = findClosest(transparent);
-        } else if (hasTransparentPixels) {
-            transIndex = findClosest(Color.TRANSPARENT);
+            frame.transIndex = findClosest(frame, transparent);
+        } else if (frame.hasTransparentPixels) {
+            frame.transIndex = findClosest(frame, Color.TRANSPARENT);
         }
     }
 
@@ -392,7 +412,9 @@ public class AnimatedGifEncoder {
      * Returns index of palette color closest to c
      *
      */
-    private int findClosest(int color) {
+    private static int findClosest(Frame frame, int color) {
+        byte[] colorTab = frame.colorTab;
+        boolean[] usedEntry = frame.usedEntry;
         if (colorTab == null)
             return -1;
         int r = Color.red(color);
@@ -419,27 +441,39 @@ public class AnimatedGifEncoder {
     /**
      * Extracts image pixels into byte array "pixels"
      */
-    private void getImagePixels() {
-        int w = image.getWidth();
-        int h = image.getHeight();
+    private static void getImagePixels(Bitmap image, Frame frame) {
+        int w = frame.width;
+        int h = frame.height;
 
-        if ((w != width) || (h != height)) {
+        Bitmap temp = null;
+        if ((image.getWidth() != w) || (image.getHeight() != h)) {
             // create new image with right size/format
-            Bitmap temp = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            temp = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
             Canvas canvas = new Canvas(temp);
-            canvas.drawBitmap(temp, 0, 0, null);
+            canvas.drawBitmap(image, 0, 0, null);
             image = temp;
         }
-        int[] pixelsInt = new int[w * h];
+        int pixelCount = w * h;
+        frame.pixelCount = pixelCount;
+        if (frame.argbPixels == null || frame.argbPixels.length < pixelCount) {
+            frame.argbPixels = new int[pixelCount];
+        }
+        int[] pixelsInt = frame.argbPixels;
         image.getPixels(pixelsInt, 0, w, 0, 0, w, h);
+        if (temp != null) {
+            temp.recycle();
+        }
 
         // The algorithm requires 3 bytes per pixel as RGB.
-        pixels = new byte[pixelsInt.length * 3];
+        if (frame.pixels == null || frame.pixels.length < pixelCount * 3) {
+            frame.pixels = new byte[pixelCount * 3];
+        }
+        byte[] pixels = frame.pixels;
 
         int pixelsIndex = 0;
-        hasTransparentPixels = false;
         int totalTransparentPixels = 0;
-        for (final int pixel : pixelsInt) {
+        for (int i = 0; i < pixelCount; i++) {
+            final int pixel = pixelsInt[i];
             if (pixel == Color.TRANSPARENT) {
                 totalTransparentPixels++;
             }
@@ -448,10 +482,10 @@ public class AnimatedGifEncoder {
             pixels[pixelsIndex++] = (byte) ((pixel >> 16) & 0xFF);
         }
 
-        double transparentPercentage = 100 * totalTransparentPixels / (double) pixelsInt.length;
+        double transparentPercentage = 100 * totalTransparentPixels / (double) pixelCount;
         // Assume images with greater where more than n% of the pixels are transparent actually have
         // transparency. See issue #214.
-        hasTransparentPixels = transparentPercentage > MIN_TRANSPARENT_PERCENTAGE;
+        frame.hasTransparentPixels = transparentPercentage > MIN_TRANSPARENT_PERCENTAGE;
         if (Log.isLoggable(TAG, Log.DEBUG)) {
             Log.d(TAG, "got pixels for frame with " + transparentPercentage
                 + "% transparent pixels");
@@ -461,12 +495,12 @@ public class AnimatedGifEncoder {
     /**
      * Writes Graphic Control Extension
      */
-    private void writeGraphicCtrlExt() throws IOException {
+    private void writeGraphicCtrlExt(Frame frame) throws IOException {
         out.write(0x21); // extension introducer
         out.write(0xf9); // GCE label
         out.write(4); // data block size
         int transp, disp;
-        if (transparent == null && !hasTransparentPixels) {
+        if (transparent == null && !frame.hasTransparentPixels) {
             transp = 0;
             disp = 0; // dispose = no action
         } else {
@@ -485,19 +519,19 @@ public class AnimatedGifEncoder {
                 transp); // 8 transparency flag
 
         writeShort(delay); // delay x 1/100 sec
-        out.write(transIndex); // transparent color index
+        out.write(frame.transIndex); // transparent color index
         out.write(0); // block terminator
     }
 
     /**
      * Writes Image Descriptor
      */
-    private void writeImageDesc(int x, int y) throws IOException {
+    private void writeImageDesc(Frame frame, int x, int y) throws IOException {
         out.write(0x2c); // image separator
         writeShort(x); // image position
         writeShort(y);
-        writeShort(width); // image size
-        writeShort(height);
+        writeShort(frame.width); // image size
+        writeShort(frame.height);
         // packed fields
         if (firstFrame) {
             // no LCT - GCT is used for first (or only) frame
@@ -508,22 +542,22 @@ public class AnimatedGifEncoder {
                     0 | // 2 interlace - 0=no
                     0 | // 3 sorted - 0=no
                     0 | // 4-5 reserved
-                    palSize); // 6-8 size of color table
+                    PAL_SIZE); // 6-8 size of color table
         }
     }
 
     /**
      * Writes Logical Screen Descriptor
      */
-    private void writeLSD() throws IOException {
+    private void writeLSD(Frame frame) throws IOException {
         // logical screen size
-        writeShort(width);
-        writeShort(height);
+        writeShort(frame.width);
+        writeShort(frame.height);
         // packed fields
         out.write((0x80 | // 1 : global color table flag = 1 (gct used)
                 0x70 | // 2-4 : color resolution = 7
                 0x00 | // 5 : gct sort flag = 0
-                palSize)); // 6-8 : gct size
+                PAL_SIZE)); // 6-8 : gct size
 
         out.write(0); // background color index
         out.write(0); // pixel aspect ratio - assume 1:1
@@ -546,7 +580,8 @@ public class AnimatedGifEncoder {
     /**
      * Writes color table
      */
-    private void writePalette() throws IOException {
+    private void writePalette(Frame frame) throws IOException {
+        byte[] colorTab = frame.colorTab;
         out.write(colorTab, 0, colorTab.length);
         int n = (3 * 256) - colorTab.length;
         for (int i = 0; i < n; i++) {
@@ -554,14 +589,6 @@ public class AnimatedGifEncoder {
         }
     }
 
-    /**
-     * Encodes and writes pixel data
-     */
-    private void writePixels() throws IOException {
-        LZWEncoder encoder = new LZWEncoder(width, height, indexedPixels, colorDepth);
-        encoder.encode(out);
-    }
-
     /**
      * Write 16-bit value to output stream, LSB first
      */
@@ -578,4 +605,55 @@ public class AnimatedGifEncoder {
             out.write((byte) s.charAt(i));
         }
     }
+
+    /**
+     * A frame prepared by {@link #prepareFrame(Bitmap, Frame)}, along with the
+     * buffers used to prepare it, which are reused if the frame is prepared again.
+     */
+    public static final class Frame {
+        int width;
+
+        int height;
+
+        int transIndex; // transparent index in color table
+
+        boolean hasTransparentPixels;
+
+        byte[] colorTab; // RGB palette
+
+        final boolean[] usedEntry = new boolean[256]; // active palette entries
+
+        int pixelCount; // number of pixels read from the image
+
+        int[] argbPixels; // ARGB pixels from the image
+
+        byte[] pixels; // BGR byte array from frame
+
+        byte[] indexedPixels; // converted frame indexed to palette
+
+        final NeuQuant quantizer = new NeuQuant();
+
+        final LZWEncoder lzwEncoder = new LZWEncoder();
+
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        void setSize(int w, int h) {
+            width = w;
+            height = h;
+        }
+
+        /**
+         * Encodes the indexed pixel data into the compressed buffer.
+         */
+        void compress() {
+            compressed.reset();
+            lzwEncoder.reset(width, height, indexedPixels, COLOR_DEPTH);
+            try {
+                lzwEncoder.encode(compressed);
+            } catch (IOException e) {
+                // ByteArrayOutputStream doesn't throw.
+                throw new IllegalStateException(e);
+            }
+        }
+    }
 }
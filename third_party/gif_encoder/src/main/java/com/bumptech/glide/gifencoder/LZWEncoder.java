@@ -110,10 +110,22 @@ class LZWEncoder {
 
     // ----------------------------------------------------------------------------
     LZWEncoder(int width, int height, byte[] pixels, int color_depth) {
+        reset(width, height, pixels, color_depth);
+    }
+
+    // Creates an encoder that must be reset() before use, and that may be
+    // reset() again to encode another image reusing the same tables.
+    LZWEncoder() {
+    }
+
+    void reset(int width, int height, byte[] pixels, int color_depth) {
         imgW = width;
         imgH = height;
         pixAry = pixels;
         initCodeSize = Math.max(2, color_depth);
+        cur_accum = 0;
+        cur_bits = 0;
+        a_count = 0;
     }
 
     // Add a character to the end of the current packet, and if it is 254
@@ -138,6 +138,22 @@ class NeuQuant {
      * -----------------------------------------------------------------------
      */
     public NeuQuant(byte[] thepic, int len, int sample) {
+        this();
+        init(thepic, len, sample);
+    }
+
+    /*
+     * Allocates a network that must be initialised with init() before use, and
+     * may be initialised again to quantize another image without allocating.
+     */
+    public NeuQuant() {
+        network = new int[netsize][];
+        for (int i = 0; i < netsize; i++) {
+            network[i] = new int[4];
+        }
+    }
+
+    public void init(byte[] thepic, int len, int sample) {
 
         int i;
         int[] p;
@@ -146,11 +162,10 @@ class NeuQuant {
         lengthcount = len;
         samplefac = sample;
 
-        network = new int[netsize][];
         for (i = 0; i < netsize; i++) {
-            network[i] = new int[4];
             p = network[i];
             p[0] = p[1] = p[2] = (i << (netbiasshift + 8)) / netsize;
+            p[3] = 0;
             freq[i] = intbias / netsize; /* 1/netsize */
             bias[i] = 0;
         }